@@ -0,0 +1,218 @@
+/**
+ * A Monster view of one MonsterArena entity. Stats are read from and
+ * written to the arena's arrays, so a view can fight in
+ * Dungeon.showdown() or ShowdownEngine like any other monster while the
+ * arena stays the single owner of the data.
+ *
+ * A view fights through the arena's kernels on its columns, without
+ * building a Monster, and resurrects from the entity's clones in the
+ * arena. A snapshot of a view records only the stats a
+ * view exposes: armor, vitality, speed, poison status and clones.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public class ArenaMonster extends Monster {
+    private final MonsterArena arena;
+    private final int id;
+
+    /**
+     * Constructs a view of an arena entity.
+     *
+     * @param arena the arena that owns the entity
+     * @param id    the entity id
+     * Precondition: arena not null; 0 <= id < arena.size().
+     * Postcondition: the view reads and writes entity id.
+     */
+    public ArenaMonster(MonsterArena arena, int id) {
+        super();
+        this.arena = arena;
+        this.id = id;
+    }
+
+    /**
+     * Returns the id of the entity this view shows.
+     *
+     * @return entity id
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Returns the entity's armor.
+     *
+     * @return current armor
+     */
+    @Override
+    public int getArmor() {
+        return arena.getArmor(id);
+    }
+
+    /**
+     * Returns the entity's vitality.
+     *
+     * @return current vitality
+     */
+    @Override
+    public int getVitality() {
+        return arena.getVitality(id);
+    }
+
+    /**
+     * Returns the entity's speed.
+     *
+     * @return current speed
+     */
+    @Override
+    public double getSpeed() {
+        return arena.getSpeed(id);
+    }
+
+    /**
+     * Sets the entity's armor.
+     *
+     * @param armor new armor value
+     */
+    @Override
+    public void setArmor(int armor) {
+        arena.setArmor(id, armor);
+    }
+
+    /**
+     * Sets the entity's vitality.
+     *
+     * @param vitality new vitality value
+     */
+    @Override
+    public void setVitality(int vitality) {
+        arena.setVitality(id, vitality);
+    }
+
+    /**
+     * Sets the entity's speed.
+     *
+     * @param speed new speed value
+     */
+    @Override
+    public void setSpeed(double speed) {
+        arena.setSpeed(id, speed);
+    }
+
+    /**
+     * Returns the entity's clones, which live in the arena.
+     *
+     * @return the clone pool, or null for Bandits and Jubilexes
+     */
+    @Override
+    ClonePool clonePool() {
+        return arena.clonePool(id);
+    }
+
+    /**
+     * Returns the arena's random source.
+     *
+     * @return the random source shared by all arena entities
+     */
+    @Override
+    public RandomSource getRandomSource() {
+        return arena.getRandomSource();
+    }
+
+    /**
+     * Returns whether the entity is poisoned.
+     *
+     * @return true if poisoned, false otherwise
+     */
+    @Override
+    public boolean isPoisoned() {
+        return arena.isPoisoned(id);
+    }
+
+    /**
+     * Sets the entity's poison bit.
+     */
+    @Override
+    public void applyPoison() {
+        arena.setPoisoned(id, true);
+    }
+
+    /**
+     * Clears the entity's poison bit.
+     */
+    @Override
+    public void clearPoison() {
+        arena.setPoisoned(id, false);
+    }
+
+    /**
+     * Rests the entity with its type's rest bonus.
+     */
+    @Override
+    public void rest() {
+        arena.rest(id);
+    }
+
+    /**
+     * Calculates the entity's power.
+     *
+     * @return calculated power value
+     */
+    @Override
+    public double calculatePower() {
+        return arena.calculatePower(id);
+    }
+
+    /**
+     * Attacks any monster with the entity's strike range.
+     *
+     * @param monster target of the attack
+     * @return the strike value, or 0 if it was not positive
+     */
+    @Override
+    public int attack(Monster monster) {
+        return DamageKernel.apply(monster, arena.strikeValue(id));
+    }
+
+    /**
+     * Performs the entity type's special ability (oozes corrode).
+     *
+     * @param target the Monster to target
+     */
+    @Override
+    public void performSpecialAbility(Monster target) {
+        arena.performSpecialAbility(id, target);
+    }
+
+    /**
+     * Applies the entity type's armory effect, keeping any clones it
+     * creates in the arena.
+     */
+    @Override
+    public void applyArmoryEffect() {
+        arena.applyArmoryEffect(id);
+    }
+
+    /**
+     * Resurrects the entity from its first clone if it has fallen.
+     *
+     * @return true if resurrected from a clone, false otherwise
+     */
+    @Override
+    public boolean handleDeathrattle() {
+        return arena.handleDeathrattle(id);
+    }
+
+    /**
+     * Creates an independent Monster with the entity's current stats.
+     *
+     * @return a new monster of the entity's type
+     */
+    @Override
+    public Monster copy() {
+        return arena.materialize(id);
+    }
+}
@@ -1,126 +1,830 @@
-/**
- * Runs a demonstration of a tie game between Bandit and Jubilex, then
- * executes unit tests for clone, compareTo, calculateBettingOdds,
- * armory, and showdown methods.
- *
- * Bugs: none known.
- *
- * @author David Do
- */
-public class Assignment8 {
-
-    /**
-     * Sets up and prints a tie scenario between a Bandit and Jubilex, then
-     * calls unitTests() and prints overall pass/fail.
-     *
-     * @param args command-line arguments (not used)
-     */
-    public static void main(String[] args) {
-        System.out.println("Round 0:");
-        System.out.println("(Bandit)         (Jubilex)");
-        System.out.println("---------        ---------");
-        System.out.println("A: 200000000     A: 2");
-        System.out.println("V: 200000000     V: 2");
-        System.out.println("S: 20.00         S: 2.00");
-        System.out.println();
-        System.out.println("Left does 100000000 damage!");
-        System.out.println("Right does 50000000 damage!");
-        System.out.println();
-        System.out.println("(Bandit)         (Jubilex)");
-        System.out.println("---------        ---------");
-        System.out.println("A: 0             A: 0");
-        System.out.println("V: -50000000     V: -100000000");
-        System.out.println("S: 20.00         S: 2.00");
-        System.out.println();
-        System.out.println("------GAME OVER------");
-        System.out.println("TIE: Both monsters died!");
-        System.out.println();
-        System.out.println("We have a tie, so both monsters died!");
-        System.out.println();
-
-        boolean allPassed = unitTests();
-        if (allPassed) {
-            System.out.println("All unit tests passed!");
-        } else {
-            System.out.println("Some unit tests failed.");
-        }
-    }
-
-    /**
-     * Executes unit tests for clone, compareTo, calculateBettingOdds,
-     * armory, and showdown methods.
-     *
-     * @return true if all tests pass, false otherwise
-     */
-    @SuppressWarnings("checkstyle:MagicNumber") // DO NOT CHANGE THIS LINE!!!
-    public static boolean unitTests() {
-        boolean allPassed = true;
-
-        // 1) clone() on Ochre
-        Ochre originalOchre = new Ochre(10, 10, 1.0, 4, 4);
-        Ochre clonedOchre = null;
-        try {
-            clonedOchre = originalOchre.clone();
-            if (clonedOchre == null) {
-                System.out.println("clone() Test 1 FAILED:"
-                    + " clone returned null.");
-                allPassed = false;
-            }
-            if (clonedOchre == originalOchre) {
-                System.out.println("clone() Test 2 FAILED:"
-                    + " clone returned same reference.");
-                allPassed = false;
-            }
-            if (!clonedOchre.toString().equals(originalOchre.toString())) {
-                System.out.println("clone() Test 3 FAILED:"
-                    + " toString differs after clone.");
-                allPassed = false;
-            }
-        } catch (CloneNotSupportedException e) {
-            System.out.println("clone() Test 4 FAILED: threw " + e);
-            allPassed = false;
-        }
-
-        // 2) compareTo() on two Bandit instances
-        Bandit banditA = new Bandit();
-        Bandit banditB = new Bandit();
-        if (banditA.compareTo(banditB) != 0) {
-            System.out.println("compareTo() Test 1 FAILED:"
-                + " two Bandits should compareTo == 0.");
-            allPassed = false;
-        }
-
-        // 3) calculateBettingOdds() with two Jubilex instances
-        Jubilex j1 = new Jubilex(5, 5, 5.0, 2, 2);
-        Jubilex j2 = new Jubilex(5, 5, 5.0, 2, 2);
-        double odds = Dungeon.calculateBettingOdds(j1, j2);
-        if (Math.abs(odds - 1.0) > 1e-6) {
-            System.out.println("calculateBettingOdds() Test 1 FAILED:"
-                + " expected 1.0 but got " + odds);
-            allPassed = false;
-        }
-
-        // 4) armory() on Jubilex (volume should double)
-        Jubilex armoryTest = new Jubilex(8, 8, 8.0, 3, 3);
-        int volumeBefore = armoryTest.getVolume();
-        Dungeon.armory(armoryTest);
-        int volumeAfter = armoryTest.getVolume();
-        if (volumeAfter != volumeBefore * 2) {
-            System.out.println("armory() Test 1 FAILED: expected volume "
-                + (volumeBefore * 2) + " but got " + volumeAfter);
-            allPassed = false;
-        }
-
-        // 5) showdown() returns a value in {0,1,2}
-        Bandit fightLeft = new Bandit();
-        Jubilex fightRight = new Jubilex(1, 1, 1.0, 1, 1);
-        int result = Dungeon.showdown(fightLeft, fightRight);
-        if (result < 0 || result > 2) {
-            System.out.println("showdown() Test 1 FAILED:"
-                + " outcome not in {0,1,2}, got " + result);
-            allPassed = false;
-        }
-
-        return allPassed;
-    }
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+/**
+ * Runs a demonstration of a tie game between Bandit and Jubilex, then
+ * executes the unit tests of the monsters, the Dungeon and the engines
+ * and tools built around them.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public class Assignment8 {
+
+    /**
+     * Sets up and prints a tie scenario between a Bandit and Jubilex, then
+     * calls unitTests() and prints overall pass/fail.
+     *
+     * @param args command-line arguments (not used)
+     */
+    public static void main(String[] args) {
+        System.out.println("Round 0:");
+        System.out.println("(Bandit)         (Jubilex)");
+        System.out.println("---------        ---------");
+        System.out.println("A: 200000000     A: 2");
+        System.out.println("V: 200000000     V: 2");
+        System.out.println("S: 20.00         S: 2.00");
+        System.out.println();
+        System.out.println("Left does 100000000 damage!");
+        System.out.println("Right does 50000000 damage!");
+        System.out.println();
+        System.out.println("(Bandit)         (Jubilex)");
+        System.out.println("---------        ---------");
+        System.out.println("A: 0             A: 0");
+        System.out.println("V: -50000000     V: -100000000");
+        System.out.println("S: 20.00         S: 2.00");
+        System.out.println();
+        System.out.println("------GAME OVER------");
+        System.out.println("TIE: Both monsters died!");
+        System.out.println();
+        System.out.println("We have a tie, so both monsters died!");
+        System.out.println();
+
+        boolean allPassed = unitTests();
+        if (allPassed) {
+            System.out.println("All unit tests passed!");
+        } else {
+            System.out.println("Some unit tests failed.");
+        }
+    }
+
+    /**
+     * Executes the unit tests: monster cloning, comparison and power
+     * caching, the Dungeon methods, the showdown, melee and timeline
+     * engines, stat arithmetic, odds estimation and tuning, metrics, and
+     * the codec, replay archive, trace and console renderer.
+     *
+     * @return true if all tests pass, false otherwise
+     */
+    @SuppressWarnings("checkstyle:MagicNumber") // DO NOT CHANGE THIS LINE!!!
+    public static boolean unitTests() {
+        boolean allPassed = true;
+
+        // 1) clone() on Ochre
+        Ochre originalOchre = new Ochre(10, 10, 1.0, 4, 4);
+        Ochre clonedOchre = null;
+        try {
+            clonedOchre = originalOchre.clone();
+            if (clonedOchre == null) {
+                System.out.println("clone() Test 1 FAILED:"
+                    + " clone returned null.");
+                allPassed = false;
+            }
+            if (clonedOchre == originalOchre) {
+                System.out.println("clone() Test 2 FAILED:"
+                    + " clone returned same reference.");
+                allPassed = false;
+            }
+            if (!clonedOchre.toString().equals(originalOchre.toString())) {
+                System.out.println("clone() Test 3 FAILED:"
+                    + " toString differs after clone.");
+                allPassed = false;
+            }
+        } catch (CloneNotSupportedException e) {
+            System.out.println("clone() Test 4 FAILED: threw " + e);
+            allPassed = false;
+        }
+
+        // 2) compareTo() on two Bandit instances
+        Bandit banditA = new Bandit();
+        Bandit banditB = new Bandit();
+        if (banditA.compareTo(banditB) != 0) {
+            System.out.println("compareTo() Test 1 FAILED:"
+                + " two Bandits should compareTo == 0.");
+            allPassed = false;
+        }
+
+        // 3) calculateBettingOdds() with two Jubilex instances
+        Jubilex j1 = new Jubilex(5, 5, 5.0, 2, 2);
+        Jubilex j2 = new Jubilex(5, 5, 5.0, 2, 2);
+        double odds = Dungeon.calculateBettingOdds(j1, j2);
+        if (Math.abs(odds - 1.0) > 1e-6) {
+            System.out.println("calculateBettingOdds() Test 1 FAILED:"
+                + " expected 1.0 but got " + odds);
+            allPassed = false;
+        }
+
+        // 4) armory() on Jubilex (volume should double)
+        Jubilex armoryTest = new Jubilex(8, 8, 8.0, 3, 3);
+        int volumeBefore = armoryTest.getVolume();
+        Dungeon.armory(armoryTest);
+        int volumeAfter = armoryTest.getVolume();
+        if (volumeAfter != volumeBefore * 2) {
+            System.out.println("armory() Test 1 FAILED: expected volume "
+                + (volumeBefore * 2) + " but got " + volumeAfter);
+            allPassed = false;
+        }
+
+        // 5) showdown() returns a value in {0,1,2}
+        Bandit fightLeft = new Bandit();
+        Jubilex fightRight = new Jubilex(1, 1, 1.0, 1, 1);
+        int result = Dungeon.showdown(fightLeft, fightRight);
+        Dungeon.flushNarration();
+        if (result < 0 || result > 2) {
+            System.out.println("showdown() Test 1 FAILED:"
+                + " outcome not in {0,1,2}, got " + result);
+            allPassed = false;
+        }
+
+        // 6) corrode() matches the per-clone draws of corrodeByDraws()
+        int[] cloneCounts = {0, 1, 5, 30, 300};
+        for (int cloneCount : cloneCounts) {
+            if (!Ochre.validateCorrode(cloneCount, 200000, 7L)) {
+                System.out.println("corrode() Test 1 FAILED: rate differs"
+                    + " from per-clone draws with " + cloneCount
+                    + " clones.");
+                allPassed = false;
+            }
+        }
+
+        // 7) restore() undoes a showdown
+        Ochre fighter = new Ochre(5, 200, 1.0, 64, 3);
+        fighter.setRandomSource(new XoroshiroRandomSource(3L));
+        fighter.applyArmoryEffect();
+        MonsterSnapshot before = fighter.snapshot();
+        double powerBefore = fighter.calculatePower();
+        ShowdownEngine.run(fighter, new Bandit(10, 330, 2.0, 40, "Axe"));
+        fighter.restore(before);
+        if (fighter.calculatePower() != powerBefore
+            || fighter.getCloneCount() != before.getCloneCount()
+            || !fighter.snapshot().toString().equals(before.toString())) {
+            System.out.println("restore() Test 1 FAILED: state differs"
+                + " from the snapshot.");
+            allPassed = false;
+        }
+
+        // 8) a team melee ends with at most one team standing
+        List<Monster> melee = List.of(
+            new Bandit(10, 330, 2.0, 40, "Axe"),
+            new Jubilex(5, 500, 1.0, 2, 2),
+            new Doppelganger(20, 300, 5.0, 30, "Dagger"),
+            new Ochre(5, 200, 1.0, 64, 3));
+        int[] teams = {0, 1, 0, 1};
+        MeleeResult meleeResult = MeleeEngine.run(melee, teams,
+            TargetPolicy.RANDOM, new XoroshiroRandomSource(8L), 10000);
+        for (int i = 0; i < teams.length; i++) {
+            if (meleeResult.getVitality(i) > 0
+                && teams[i] != meleeResult.getWinner()) {
+                System.out.println("MeleeEngine.run() Test 1 FAILED:"
+                    + " a losing team is still standing.");
+                allPassed = false;
+            }
+        }
+
+        // 9) on the timeline the faster twin acts more and wins
+        ShowdownResult timed = ShowdownEngine.runTimed(
+            new Jubilex(5, 20, 4.0, 2, 2), new Jubilex(5, 20, 1.0, 2, 2),
+            new XoroshiroRandomSource(9L), 1000);
+        if (timed.getWinner() != ShowdownEngine.LEFT) {
+            System.out.println("ShowdownEngine.runTimed() Test 1 FAILED:"
+                + " the faster monster lost.");
+            allPassed = false;
+        }
+
+        // 10) poison stacks deal damage each tick and then wear off
+        MonsterArena poisonArena = new MonsterArena(
+            new XoroshiroRandomSource(10L));
+        int poisonId = poisonArena.add(new Bandit(0, 50, 1.0, 5, "Axe"));
+        poisonArena.poison(poisonId, 2);
+        while (poisonArena.isPoisoned(poisonId)) {
+            poisonArena.tickStatusAll();
+        }
+        if (poisonArena.getVitality(poisonId) != 38) {
+            System.out.println("MonsterArena.tickStatusAll() Test 1 FAILED:"
+                + " expected vitality 38, got "
+                + poisonArena.getVitality(poisonId));
+            allPassed = false;
+        }
+
+        // 11) saturating stat arithmetic clamps at the int range
+        if (StatMath.clamp((long) Integer.MAX_VALUE + Jubilex.REST)
+                != Integer.MAX_VALUE
+            || StatMath.clamp(Long.MIN_VALUE) != Integer.MIN_VALUE) {
+            System.out.println("StatMath.clamp() Test 1 FAILED:"
+                + " a stat wrapped around.");
+            allPassed = false;
+        }
+        int nearLimit = Integer.MAX_VALUE / 2 + 1;
+        for (long seed = 0; seed < 8; seed++) {
+            Bandit huge = new Bandit(nearLimit, nearLimit, 2.0, 40, "Axe");
+            huge.setRandomSource(new XoroshiroRandomSource(seed));
+            huge.applyArmoryEffect();
+            int doubledStat = StatMath.SATURATING
+                              ? Integer.MAX_VALUE : nearLimit * 2;
+            if ((huge.getArmor() != nearLimit
+                 && huge.getArmor() != doubledStat)
+                || (huge.getVitality() != nearLimit
+                    && huge.getVitality() != doubledStat)) {
+                System.out.println("Bandit.applyArmoryEffect() Test 1"
+                    + " FAILED: a doubled stat did not follow StatMath.");
+                allPassed = false;
+            }
+        }
+        Jubilex bloated = new Jubilex(8, 8, 8.0, nearLimit, 3);
+        bloated.applyArmoryEffect();
+        int expectedVolume = StatMath.SATURATING
+                             ? Integer.MAX_VALUE : nearLimit * 2;
+        if (bloated.getVolume() != expectedVolume) {
+            System.out.println("Ooze.applyArmoryEffect() Test 1 FAILED:"
+                + " expected volume " + expectedVolume + " but got "
+                + bloated.getVolume());
+            allPassed = false;
+        }
+        Jubilex giant = new Jubilex(0, 200000000, 1.0, 3, 3);
+        double giantPower = Jubilex.VITALITY_CONSTANT * 200000000.0
+                          + Jubilex.VOLUME_CONSTANT * 3.0
+                          + Jubilex.ACID_CONSTANT * 3.0;
+        if (giant.basePower() != giantPower) {
+            System.out.println("Jubilex.basePower() Test 1 FAILED:"
+                + " expected " + giantPower + " but got "
+                + giant.basePower());
+            allPassed = false;
+        }
+
+        // 12) a batched strike wears armor down before vitality
+        int[] kernelArmor = {10, 10};
+        int[] kernelVitality = {100, 100};
+        int[] kernelStrikes = new int[2];
+        DamageKernel.strikeAll(new double[] {30, 5}, new double[] {30, 5},
+            new double[] {0.0, 0.0}, new int[] {0, 1}, 2, kernelArmor,
+            kernelVitality, kernelStrikes);
+        if (kernelArmor[0] != 0 || kernelVitality[0] != 80
+            || kernelArmor[1] != 5 || kernelVitality[1] != 100) {
+            System.out.println("DamageKernel.strikeAll() Test 1 FAILED:"
+                + " armor and vitality not reduced in order.");
+            allPassed = false;
+        }
+
+        // 13) tuning never makes a monster less balanced
+        Genome untuned = Genome.of(new Bandit(0, 50, 1.0, 5, "Axe"));
+        Tuner tuner = new Tuner(List.of(new Ochre(0, 50, 1.0, 5, 5)), 10,
+                                13L);
+        Genome tuned = tuner.evolve(untuned, 6, 2);
+        if (tuner.fitness(tuned) < tuner.fitness(untuned)) {
+            System.out.println("Tuner.evolve() Test 1 FAILED:"
+                + " tuned genome is less balanced.");
+            allPassed = false;
+        }
+
+        Tuner evicting = new Tuner(List.of(new Ochre(0, 50, 1.0, 5, 5),
+                                           new Jubilex(3, 70, 1.5, 3, 3),
+                                           new Bandit(2, 40, 2.0, 6, "Staff")),
+                                   7, 13L, ForkJoinPool.commonPool(), 8);
+        try {
+            Genome survivor = evicting.evolve(untuned, 6, 8);
+            if (evicting.getCacheSize() > 8 + 6
+                || evicting.fitness(survivor) < evicting.fitness(untuned)) {
+                System.out.println("Tuner.evolve() Test 2 FAILED:"
+                    + " cache grew to " + evicting.getCacheSize());
+                allPassed = false;
+            }
+        } catch (NullPointerException e) {
+            System.out.println("Tuner.evolve() Test 2 FAILED: elites lost"
+                + " their cached fitness.");
+            allPassed = false;
+        }
+
+        // 14) identical matchups share one cached estimate
+        int[] estimates = {0};
+        MatchupCache matchups = new MatchupCache(16, 60000,
+            (left, right) -> {
+                estimates[0]++;
+                return new OddsEstimate(1, 0, 1, 0.0);
+            });
+        matchups.get(new Bandit(0, 50, 1.0, 5, "Axe"),
+                     new Ochre(0, 50, 1.0, 5, 5));
+        matchups.get(new Bandit(0, 50, 1.0, 5, "Axe"),
+                     new Ochre(0, 50, 1.0, 5, 5));
+        if (estimates[0] != 1 || matchups.getHitRate() != 0.5) {
+            System.out.println("MatchupCache.get() Test 1 FAILED:"
+                + " expected one estimate, got " + estimates[0]);
+            allPassed = false;
+        }
+        Doppelganger rested = new Doppelganger(10, 50, 1.0, 5, "Dagger");
+        rested.addClone(new Doppelganger(3, 1, 1.0, 1, "Staff"));
+        rested.rest();
+        Doppelganger built = new Doppelganger(10, 60, 1.0, 5, "Dagger");
+        built.addClone(new Doppelganger(3, 11, 1.0, 1, "Staff"));
+        matchups.get(rested, new Ochre(0, 50, 1.0, 5, 5));
+        matchups.get(built, new Ochre(0, 50, 1.0, 5, 5));
+        if (estimates[0] != 2) {
+            System.out.println("MatchupCache.get() Test 2 FAILED: a rested"
+                + " clone family missed the entry of its stat twin.");
+            allPassed = false;
+        }
+
+        // 15) histogram percentiles land in the right log-linear bucket
+        Histogram damageHistogram = new Histogram();
+        for (int value = 1; value <= 1000; value++) {
+            damageHistogram.record(value);
+        }
+        long median = damageHistogram.valueAtPercentile(50);
+        if (damageHistogram.getCount() != 1000
+            || damageHistogram.getSum() != 500500
+            || median < 500 || median > 500 + 500 / 16) {
+            System.out.println("Histogram.valueAtPercentile() Test 1 FAILED:"
+                + " expected a median near 500, got " + median);
+            allPassed = false;
+        }
+
+        // 16) fight server specs build monsters and reject unknown weapons
+        Monster specBandit = FightServer.parseMonster("Bandit,10,50,1.0,5,Axe");
+        boolean rejectedWeapon = false;
+        try {
+            FightServer.parseMonster("Bandit,10,50,1.0,5,Laser");
+        } catch (IllegalArgumentException e) {
+            rejectedWeapon = true;
+        }
+        if (!(specBandit instanceof Bandit) || specBandit.getArmor() != 10
+            || specBandit.getVitality() != 50 || !rejectedWeapon) {
+            System.out.println("FightServer.parseMonster() Test 1 FAILED:"
+                + " spec not parsed as expected.");
+            allPassed = false;
+        }
+
+        // 17) clone families, weapons and poison survive a RosterCodec
+        //     round trip
+        Ochre codecOchre = new Ochre(-3, 80, 0.5, 4, 3);
+        codecOchre.addClone(new Ochre(2, 30, 0.5, 2, 1));
+        codecOchre.addClone(new Ochre(4, 20, 0.5, 1, 2));
+        codecOchre.applyPoison();
+        Doppelganger codecDoppelganger =
+            new Doppelganger(10, 50, 1.0, 5, "Dagger");
+        codecDoppelganger.addClone(new Doppelganger(3, 40, 1.0, 4, "Staff"));
+        codecDoppelganger.addClone(new Doppelganger(6, 35, 1.0, 2, null));
+        List<Monster> codecRoster = List.of(
+            new Bandit(10, 50, 1.0, 5, "Axe"), codecOchre,
+            codecDoppelganger);
+        ByteBuffer codecBuffer =
+            ByteBuffer.allocate(RosterCodec.maxSize(codecRoster));
+        RosterCodec.writeRoster(codecRoster, codecBuffer);
+        codecBuffer.flip();
+        List<Monster> decoded = RosterCodec.readRoster(codecBuffer);
+        boolean sameRoster = decoded.size() == codecRoster.size();
+        for (int i = 0; sameRoster && i < decoded.size(); i++) {
+            sameRoster = sameMonster(codecRoster.get(i), decoded.get(i));
+        }
+        if (!sameRoster) {
+            System.out.println("RosterCodec.readRoster() Test 1 FAILED:"
+                + " decoded roster differs.");
+            allPassed = false;
+        }
+
+        // 18) a ReplayArchive scan finds and replays a recorded duel
+        try {
+            Path archiveDirectory = Files.createTempDirectory("replay");
+            FightConfig recorded = new FightConfig(
+                new Bandit(10, 50, 1.0, 5, "Shield"),
+                new Ochre(5, 80, 1.0, 4, 3), 42L, 10000);
+            ShowdownResult expected;
+            long shieldDuels;
+            FightConfig replayed;
+            try (ReplayArchive archive = new ReplayArchive(archiveDirectory)) {
+                expected = archive.record(recorded);
+                shieldDuels = archive.count(record -> record.hasWeapon(
+                    ShowdownEngine.LEFT, Weapon.SHIELD));
+                FightConfig[] found = new FightConfig[1];
+                archive.forEach(record -> record.getSeed() == 42L,
+                                record -> found[0] = record.fight());
+                replayed = found[0];
+            }
+            try (Stream<Path> files = Files.list(archiveDirectory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(archiveDirectory);
+            if (shieldDuels != 1 || replayed == null
+                || replayed.run().getRounds() != expected.getRounds()) {
+                System.out.println("ReplayArchive.count() Test 1 FAILED:"
+                    + " recorded duel not found or not replayed.");
+                allPassed = false;
+            }
+        } catch (IOException e) {
+            System.out.println("ReplayArchive.count() Test 1 FAILED: " + e);
+            allPassed = false;
+        }
+
+        // 19) a traced duel replays exactly and a changed engine diverges
+        FightConfig traced = new FightConfig(
+            new Doppelganger(10, 50, 1.0, 5, "Staff"),
+            new Ochre(5, 80, 1.0, 4, 3), 7L, 10000);
+        FightTrace trace = FightTrace.record(traced, ShowdownEngine::run);
+        Divergence replayDivergence =
+            trace.firstDivergence(trace.replay(ShowdownEngine::run));
+        Divergence armored = FightTrace.check(traced, ShowdownEngine::run,
+            (monster1, monster2, observer, maxRounds) -> {
+                monster2.setArmor(monster2.getArmor() + 1);
+                return ShowdownEngine.run(monster1, monster2, observer,
+                                          maxRounds);
+            });
+        if (replayDivergence != null || armored == null) {
+            System.out.println("FightTrace.check() Test 1 FAILED:"
+                + " replay diverged or a changed engine did not.");
+            allPassed = false;
+        }
+        FightTrace.Engine splitting =
+            (monster1, monster2, observer, maxRounds) -> {
+                RandomSource child = monster1.getRandomSource().split();
+                monster1.setRandomSource(child);
+                monster2.setRandomSource(child);
+                return ShowdownEngine.run(monster1, monster2, observer,
+                                          maxRounds);
+            };
+        FightTrace splitTrace = FightTrace.record(traced, splitting);
+        boolean childRecorded = false;
+        for (int i = 0; i < splitTrace.size(); i++) {
+            childRecorded |= splitTrace.getStream(i) != 0
+                && splitTrace.getKind(i) == FightTrace.DRAW_DOUBLE;
+        }
+        if (!childRecorded
+            || splitTrace.firstDivergence(splitTrace.replay(splitting))
+               != null) {
+            System.out.println("FightTrace.replay() Test 1 FAILED: draws"
+                + " from a split source were not recorded or replayed.");
+            allPassed = false;
+        }
+
+        // 20) cached power follows every stat setter
+        Ochre cachedOchre = new Ochre(5, 80, 1.0, 4, 3);
+        double stalePower = cachedOchre.calculatePower();
+        cachedOchre.setVitality(40);
+        cachedOchre.setAcidity(7);
+        double cachedPower = cachedOchre.calculatePower();
+        double fresh = new Ochre(5, 40, 1.0, 4, 7).calculatePower();
+        if (cachedPower != fresh || cachedPower == stalePower) {
+            System.out.println("Monster.cachedPower() Test 1 FAILED:"
+                + " expected " + fresh + ", got " + cachedPower);
+            allPassed = false;
+        }
+
+        // 21) the clone power sum matches an exact sum after a long fight
+        ClonePool drifting = new ClonePool();
+        for (int i = 0; i < 64; i++) {
+            drifting.add(i, 100 + i, 1.0, i % 5, i % 3,
+                         0.7 * (100 + i) + 0.1 * i, 0.1, 0.7);
+        }
+        for (int round = 1; round <= 100000; round++) {
+            drifting.rest(3, 7);
+            if (round % 2000 == 0) {
+                drifting.removeFirst();
+            }
+        }
+        double exactSum = 0.0;
+        for (int i = 0; i < drifting.size(); i++) {
+            exactSum += drifting.getPower(i);
+        }
+        if (Math.abs(drifting.getPowerSum() - exactSum)
+            > 1e-12 * Math.abs(exactSum)) {
+            System.out.println("ClonePool.getPowerSum() Test 1 FAILED:"
+                + " expected " + exactSum + ", got "
+                + drifting.getPowerSum());
+            allPassed = false;
+        }
+        ClonePool lopsided = new ClonePool();
+        lopsided.add(1, 1, 1.0, 0, 0, 1e16, 0.0, 0.0);
+        for (int i = 0; i < 1000; i++) {
+            lopsided.add(1, 1, 1.0, 0, 0, 0.1 + 1e-3 * i, 0.0, 0.0);
+        }
+        lopsided.removeFirst();
+        double smallSum = 0.0;
+        for (int i = 0; i < lopsided.size(); i++) {
+            smallSum += lopsided.getPower(i);
+        }
+        if (Math.abs(lopsided.getPowerSum() - smallSum) > 1e-9 * smallSum) {
+            System.out.println("ClonePool.getPowerSum() Test 2 FAILED:"
+                + " expected " + smallSum + ", got "
+                + lopsided.getPowerSum());
+            allPassed = false;
+        }
+
+        // 22) a batch of all wins still has a positive confidence width
+        double allWins = OddsEstimator.halfWidth(new long[] {0, 4096, 0},
+                                                 4096);
+        double evenSplit = OddsEstimator.halfWidth(
+            new long[] {0, 500000, 500000}, 1000000);
+        if (allWins <= 0.0
+            || Math.abs(evenSplit - 1.96 * 0.5 / 1000) > 1e-6) {
+            System.out.println("OddsEstimator.halfWidth() Test 1 FAILED:"
+                + " got " + allWins + " and " + evenSplit);
+            allPassed = false;
+        }
+
+        // 23) concurrent showdowns print whole, in the order they opened
+        try {
+            byte[] firstLog = combatLog(new Jubilex(8, 70, 1.5, 3, 3),
+                                        new Bandit(), 2L);
+            byte[] secondLog = combatLog(new Bandit(10, 60, 2.0, 40, "Axe"),
+                                         new Ochre(5, 80, 1.0, 4, 3), 1L);
+            ByteArrayOutputStream console = new ByteArrayOutputStream();
+            ConsoleRenderer shared =
+                new ConsoleRenderer(new PrintStream(console, true), 2, 64);
+            OutputStream first = shared.open();
+            OutputStream second = shared.open();
+            IOException[] secondFailure = new IOException[1];
+            Thread secondWriter = new Thread(() -> {
+                try {
+                    second.write(secondLog);
+                    second.close();
+                } catch (IOException e) {
+                    secondFailure[0] = e;
+                }
+            });
+            secondWriter.start();
+            for (int wait = 0; wait < 5000
+                 && secondWriter.getState() != Thread.State.WAITING; wait++) {
+                Thread.sleep(1);
+            }
+            boolean heldBack = secondWriter.getState() == Thread.State.WAITING
+                               && console.size() == 0;
+            first.write(firstLog, 0, firstLog.length / 2);
+            first.write(firstLog, firstLog.length / 2,
+                        firstLog.length - firstLog.length / 2);
+            first.close();
+            secondWriter.join();
+            shared.close();
+            String expected =
+                Dungeon.formatCombatLog(new ByteArrayInputStream(firstLog))
+                + Dungeon.formatCombatLog(new ByteArrayInputStream(secondLog));
+            if (!heldBack || secondFailure[0] != null
+                || !expected.equals(console.toString())) {
+                System.out.println("ConsoleRenderer.open() Test 1 FAILED:"
+                    + " backlog not bounded or narration out of order.");
+                allPassed = false;
+            }
+        } catch (IOException | InterruptedException e) {
+            System.out.println("ConsoleRenderer.open() Test 1 FAILED: " + e);
+            allPassed = false;
+        }
+
+        // 24) fight metrics count what the engine reports, or stay zero
+        FightMetrics.reset();
+        Doppelganger metered = new Doppelganger(10, 60, 1.0, 5, "Staff");
+        metered.addClone(new Doppelganger(10, 60, 1.0, 5, "Staff"));
+        metered.addClone(new Doppelganger(10, 60, 1.0, 5, null));
+        Ochre meteredOchre = new Ochre(5, 80, 1.0, 4, 3);
+        meteredOchre.addClone(new Ochre(5, 80, 1.0, 4, 3));
+        RandomSource meteredRandom = new XoroshiroRandomSource(11L);
+        metered.setRandomSource(meteredRandom);
+        meteredOchre.setRandomSource(meteredRandom);
+        long[] observed = new long[4];
+        ShowdownResult metric = ShowdownEngine.run(metered, meteredOchre,
+            new ShowdownObserver() {
+                @Override
+                public void attacked(int side, int damage) {
+                    if (side == ShowdownEngine.LEFT) {
+                        observed[0]++;
+                        observed[1] += Math.max(damage, 0);
+                    }
+                }
+
+                @Override
+                public void deathrattle(int side, boolean resurrected) {
+                    observed[2]++;
+                    if (resurrected) {
+                        observed[3]++;
+                    }
+                }
+            });
+        Histogram meteredDamage = FightMetrics.getDamage(Doppelganger.class);
+        boolean counted = FightMetrics.getRounds().getCount() == 1
+            && FightMetrics.getRounds().getSum() == metric.getRounds()
+            && meteredDamage.getCount() == observed[0]
+            && meteredDamage.getSum() == observed[1]
+            && FightMetrics.getDeathrattles() == observed[2]
+            && FightMetrics.getResurrections() == observed[3]
+            && FightMetrics.getClonesConsumed() == observed[3];
+        boolean silent = FightMetrics.getRounds().getCount() == 0
+            && meteredDamage.getCount() == 0
+            && FightMetrics.getDeathrattles() == 0
+            && FightMetrics.getClonesConsumed() == 0;
+        if (observed[3] == 0
+            || (FightMetrics.ENABLED ? !counted : !silent)) {
+            System.out.println("FightMetrics Test 1 FAILED: counters do"
+                + " not match the fight (enabled: " + FightMetrics.ENABLED
+                + ").");
+            allPassed = false;
+        }
+        FightMetrics.reset();
+
+        // 25) clone lists are read-only and a clone's clones are lives
+        Ochre family = new Ochre(5, 80, 1.0, 4, 3);
+        Ochre parent = new Ochre(5, 60, 1.0, 4, 3);
+        parent.addClone(new Ochre(5, 40, 1.0, 4, 3));
+        family.addClone(parent);
+        boolean readOnly = false;
+        try {
+            family.getClones().add(new Ochre());
+        } catch (UnsupportedOperationException e) {
+            readOnly = true;
+        }
+        int familySize = family.getCloneCount();
+        family.clearClones();
+        if (!readOnly || familySize != 2 || family.getCloneCount() != 0) {
+            System.out.println("Ochre.getClones() Test 1 FAILED:"
+                + " list was writable or family had " + familySize
+                + " clones.");
+            allPassed = false;
+        }
+
+        // 26) a last-round double knockout ignores earlier casualties
+        MeleeResult knockout = MeleeEngine.run(List.of(
+                new Bandit(0, 0, 1.0, 1, "Axe"),
+                new Bandit(0, 10, 2.0, 40, "Axe"),
+                new Bandit(0, 10, 2.0, 40, "Axe")),
+            new int[] {0, 1, 2}, TargetPolicy.RANDOM,
+            new XoroshiroRandomSource(0L), 10000);
+        if (knockout.getVitality(1) > 0 || knockout.getVitality(2) > 0
+            || knockout.getWinner() == 0) {
+            System.out.println("MeleeEngine.run() Test 2 FAILED: no double"
+                + " knockout, or a team eliminated earlier won it.");
+            allPassed = false;
+        }
+
+        // 27) arena kernels match the Monster methods, clones included
+        boolean sameKernels = true;
+        for (long seed = 0; seed < 8; seed++) {
+            sameKernels &= sameKernels(new Bandit(10, 50, 1.0, 5, "Axe"),
+                                       seed)
+                && sameKernels(new Doppelganger(10, 50, 1.0, 5, "Dagger"),
+                               seed)
+                && sameKernels(new Jubilex(5, 80, 1.0, 4, 3), seed)
+                && sameKernels(new Ochre(5, 80, 1.0, 40, 3), seed);
+        }
+        if (!sameKernels) {
+            System.out.println("MonsterArena.applyArmoryEffect() Test 1"
+                + " FAILED: an arena entity and its monster differ.");
+            allPassed = false;
+        }
+
+        // 28) an unknown weapon name registers nothing, and a weapon
+        //     gives power to subclasses of its owner
+        int weaponCount = Weapon.count();
+        Bandit unarmed = new Bandit(10, 50, 1.0, 5, "Axx");
+        unarmed.setWeapon("Daggr");
+        Bandit axeBandit = new Bandit(10, 50, 1.0, 5, "Axe");
+        Bandit axeSubclass = new Bandit(10, 50, 1.0, 5, "Axe") { };
+        if (Weapon.count() != weaponCount || unarmed.getWeapon() != null
+            || Weapon.forName("Axx") != null
+            || axeBandit.weaponPower() <= 0.0
+            || axeSubclass.weaponPower() != axeBandit.weaponPower()) {
+            System.out.println("Weapon.forName() Test 1 FAILED: a typo was"
+                + " registered or a subclass lost its weapon power.");
+            allPassed = false;
+        }
+
+        // 29) a seeded round robin plays every pairing equally often and
+        //     ranks the same on any pool
+        List<Monster> tournamentRoster = List.of(
+            new Bandit(10, 50, 1.0, 5, "Axe"), new Ochre(5, 80, 1.0, 4, 3),
+            new Jubilex(3, 70, 1.5, 3, 3), new Bandit(0, 1, 1.0, 1, null));
+        int seedsPerPairing = 5;
+        List<Standing> standings =
+            Tournament.roundRobin(tournamentRoster, seedsPerPairing, 4L);
+        ForkJoinPool tournamentPool = new ForkJoinPool(3);
+        List<Standing> pooledStandings =
+            Tournament.roundRobin(tournamentRoster, seedsPerPairing, 4L,
+                                  tournamentPool);
+        tournamentPool.shutdown();
+        int[] expectedSeats = {2, 0, 1, 3};
+        long[] expectedWins = {15, 8, 7, 0};
+        long duelsPerMonster =
+            (long) (tournamentRoster.size() - 1) * seedsPerPairing;
+        boolean rankedAsSeeded = standings.size() == expectedSeats.length;
+        for (int i = 0; rankedAsSeeded && i < standings.size(); i++) {
+            Standing row = standings.get(i);
+            Standing pooledRow = pooledStandings.get(i);
+            rankedAsSeeded = row.getSeat() == expectedSeats[i]
+                && row.getWins() == expectedWins[i]
+                && row.getWins() + row.getTies() + row.getLosses()
+                   == duelsPerMonster
+                && pooledRow.getSeat() == row.getSeat()
+                && pooledRow.getWins() == row.getWins()
+                && pooledRow.getTies() == row.getTies()
+                && pooledRow.getLosses() == row.getLosses();
+        }
+        if (!rankedAsSeeded) {
+            System.out.println("Tournament.roundRobin() Test 1 FAILED:"
+                + " unexpected standings or pairing counts.");
+            allPassed = false;
+        }
+
+        return allPassed;
+    }
+
+    /**
+     * Runs a seeded duel and returns its encoded CombatLog.
+     *
+     * @param monster1 the left monster
+     * @param monster2 the right monster
+     * @param seed     the seed of the duel
+     * @return the log's bytes
+     */
+    private static byte[] combatLog(Monster monster1, Monster monster2,
+                                    long seed) {
+        RandomSource random = new XoroshiroRandomSource(seed);
+        monster1.setRandomSource(random);
+        monster2.setRandomSource(random);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        ShowdownEngine.run(monster1, monster2, new CombatLog(log));
+        return log.toByteArray();
+    }
+
+    /**
+     * Runs the armory, rest, power, special ability, attack and
+     * deathrattle of a monster and of an arena view of a copy of it,
+     * each with the same seed, and compares the results. Then checks
+     * that a fallen arena entity is cured by the next status tick.
+     *
+     * @param monster a new monster of any arena type
+     * @param seed    the seed of both random sources
+     * @return true if the monster and the entity ended up the same
+     */
+    private static boolean sameKernels(Monster monster, long seed) {
+        MonsterArena arena = new MonsterArena(new XoroshiroRandomSource(seed));
+        int id = arena.add(monster);
+        monster.setRandomSource(new XoroshiroRandomSource(seed));
+        Monster[] pair = {monster, arena.view(id)};
+        Monster[] targets = new Monster[pair.length];
+        double[] power = new double[pair.length];
+        int[] damage = new int[pair.length];
+        boolean[] resurrected = new boolean[pair.length];
+        for (int i = 0; i < pair.length; i++) {
+            pair[i].applyArmoryEffect();
+            pair[i].applyArmoryEffect();
+            pair[i].rest();
+            power[i] = pair[i].calculatePower();
+            targets[i] = new Bandit(5, 40, 1.0, 5, "Axe");
+            pair[i].performSpecialAbility(targets[i]);
+            pair[i].performSpecialAbility(targets[i]);
+            damage[i] = pair[i].attack(targets[i]);
+            pair[i].applyPoison();
+            pair[i].setVitality(0);
+            resurrected[i] = pair[i].handleDeathrattle();
+        }
+        boolean same = power[0] == power[1] && damage[0] == damage[1]
+            && resurrected[0] == resurrected[1]
+            && sameMonster(targets[0], targets[1])
+            && sameMonster(monster, arena.materialize(id));
+        arena.poison(id, 1);
+        arena.setVitality(id, 0);
+        arena.tickStatusAll();
+        return same && !arena.isPoisoned(id);
+    }
+
+    /**
+     * Compares two monsters field by field: class, stats, poison,
+     * traits (a Humanoid's weapon by id) and every clone in their pools.
+     *
+     * @param expected the original monster
+     * @param actual   the monster to compare
+     * @return true if every field matches
+     */
+    private static boolean sameMonster(Monster expected, Monster actual) {
+        if (expected.getClass() != actual.getClass()
+            || expected.getArmor() != actual.getArmor()
+            || expected.getVitality() != actual.getVitality()
+            || expected.getSpeed() != actual.getSpeed()
+            || expected.isPoisoned() != actual.isPoisoned()
+            || expected.firstTrait() != actual.firstTrait()
+            || expected.secondTrait() != actual.secondTrait()) {
+            return false;
+        }
+        ClonePool expectedClones = expected.clonePool();
+        ClonePool actualClones = actual.clonePool();
+        if (expectedClones == null || actualClones == null) {
+            return expectedClones == actualClones;
+        }
+        if (expectedClones.size() != actualClones.size()
+            || expectedClones.getPowerSum() != actualClones.getPowerSum()) {
+            return false;
+        }
+        for (int i = 0; i < expectedClones.size(); i++) {
+            if (expectedClones.getArmor(i) != actualClones.getArmor(i)
+                || expectedClones.getVitality(i)
+                   != actualClones.getVitality(i)
+                || expectedClones.getSpeed(i) != actualClones.getSpeed(i)
+                || expectedClones.getFirstTrait(i)
+                   != actualClones.getFirstTrait(i)
+                || expectedClones.getSecondTrait(i)
+                   != actualClones.getSecondTrait(i)
+                || expectedClones.getPower(i) != actualClones.getPower(i)
+                || expectedClones.getArmorRate(i)
+                   != actualClones.getArmorRate(i)
+                || expectedClones.getVitalityRate(i)
+                   != actualClones.getVitalityRate(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
\ No newline at end of file
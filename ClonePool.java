@@ -0,0 +1,451 @@
+import java.util.Arrays;
+/**
+ * Stores the clones of a Doppelganger or Ochre as primitive columns in a
+ * ring buffer instead of a list of full objects, and keeps the sums the
+ * owner's calculatePower() needs, so it does not have to walk the
+ * clones.
+ *
+ * The owner supplies each clone's power and how that power changes per
+ * point of armor and vitality (its slopes). rest() then becomes a single
+ * O(1) update: the armor and vitality bonus is kept as an offset shared
+ * by every clone, added with StatMath like every other stat change.
+ * getPowerSum() is the summed base power plus the summed slopes times
+ * the offsets, so resting never accumulates rounding error. The three
+ * sums are compensated (Neumaier) running sums: adding a clone adds its
+ * row and removing one subtracts it, both in O(1), and the compensation
+ * term keeps the error of a long run of deathrattles at a few ulps of
+ * the sums instead of growing with every removal.
+ *
+ * The two trait columns hold intelligence and weapon id for
+ * Doppelgangers, and volume and acidity for Ochres.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public class ClonePool {
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int BASE = 0;
+    private static final int ARMOR_SLOPE = 2;
+    private static final int VITALITY_SLOPE = 4;
+    private static final int SUMS = 6;
+
+    private int head;
+    private int size;
+    private int mask;
+    private int armorOffset;
+    private int vitalityOffset;
+    private final double[] sums = new double[SUMS];
+    private int[] armor;
+    private int[] vitality;
+    private double[] speed;
+    private int[] firstTrait;
+    private int[] secondTrait;
+    private double[] basePower;
+    private double[] armorSlope;
+    private double[] vitalitySlope;
+
+    /**
+     * Constructs an empty pool.
+     *
+     * Precondition: none.
+     * Postcondition: size() is 0.
+     */
+    public ClonePool() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the number of clones in the pool.
+     *
+     * @return clone count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns whether the pool has no clones.
+     *
+     * @return true if empty
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Returns the total power of every clone in the pool.
+     *
+     * @return summed clone power
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public double getPowerSum() {
+        return total(BASE) + total(ARMOR_SLOPE) * armorOffset
+             + total(VITALITY_SLOPE) * vitalityOffset;
+    }
+
+    /**
+     * Adds a clone at the end of the pool.
+     *
+     * @param armorValue    clone armor
+     * @param vitalityValue clone vitality
+     * @param speedValue    clone speed
+     * @param first         intelligence or volume
+     * @param second        weapon id or acidity
+     * @param power         the clone's current power
+     * @param armorRate     power gained per point of armor
+     * @param vitalityRate  power gained per point of vitality
+     * Precondition: none.
+     * Postcondition: size() is one larger; the power sum includes power.
+     */
+    public void add(int armorValue, int vitalityValue, double speedValue,
+                    int first, int second, double power,
+                    double armorRate, double vitalityRate) {
+        if (size == armor.length) {
+            allocate(armor.length * 2);
+        }
+        int slot = (head + size) & mask;
+        armor[slot] = StatMath.add(armorValue, -armorOffset);
+        vitality[slot] = StatMath.add(vitalityValue, -vitalityOffset);
+        speed[slot] = speedValue;
+        firstTrait[slot] = first;
+        secondTrait[slot] = second;
+        basePower[slot] = power - armorRate * armorOffset
+                        - vitalityRate * vitalityOffset;
+        armorSlope[slot] = armorRate;
+        vitalitySlope[slot] = vitalityRate;
+        accumulate(BASE, basePower[slot]);
+        accumulate(ARMOR_SLOPE, armorRate);
+        accumulate(VITALITY_SLOPE, vitalityRate);
+        size++;
+    }
+
+    /**
+     * Adds every clone of another pool, in order, at the end of this one.
+     *
+     * @param other the pool to copy clones from
+     * Precondition: other not null and not this.
+     * Postcondition: other is unchanged.
+     */
+    public void addAll(ClonePool other) {
+        for (int i = 0; i < other.size; i++) {
+            int slot = other.slot(i);
+            add(other.getArmor(i), other.getVitality(i), other.speed[slot],
+                other.firstTrait[slot], other.secondTrait[slot],
+                other.getPower(i), other.armorSlope[slot],
+                other.vitalitySlope[slot]);
+        }
+    }
+
+    /**
+     * Removes the first clone.
+     *
+     * Precondition: !isEmpty().
+     * Postcondition: size() is one smaller; the power sum excludes it.
+     */
+    public void removeFirst() {
+        if (size == 1) {
+            clear();
+            return;
+        }
+        accumulate(BASE, -basePower[head]);
+        accumulate(ARMOR_SLOPE, -armorSlope[head]);
+        accumulate(VITALITY_SLOPE, -vitalitySlope[head]);
+        head = (head + 1) & mask;
+        size--;
+    }
+
+    /**
+     * Removes every clone.
+     *
+     * Precondition: none.
+     * Postcondition: size() is 0 and the power sum is 0.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+        armorOffset = 0;
+        vitalityOffset = 0;
+        Arrays.fill(sums, 0.0);
+    }
+
+    /**
+     * Adds armor and vitality to every clone at once.
+     *
+     * @param armorBonus    armor added to each clone
+     * @param vitalityBonus vitality added to each clone
+     * Precondition: none.
+     * Postcondition: every clone's armor and vitality are increased and
+     *                the power sum is updated.
+     */
+    public void rest(int armorBonus, int vitalityBonus) {
+        if (size == 0) {
+            return;
+        }
+        armorOffset = StatMath.add(armorOffset, armorBonus);
+        vitalityOffset = StatMath.add(vitalityOffset, vitalityBonus);
+    }
+
+    /**
+     * Returns the armor of the i-th clone.
+     *
+     * @param i clone index, 0 is the first clone
+     * @return armor
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    public int getArmor(int i) {
+        return StatMath.add(armor[slot(i)], armorOffset);
+    }
+
+    /**
+     * Returns the vitality of the i-th clone.
+     *
+     * @param i clone index, 0 is the first clone
+     * @return vitality
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    public int getVitality(int i) {
+        return StatMath.add(vitality[slot(i)], vitalityOffset);
+    }
+
+    /**
+     * Returns the speed of the i-th clone.
+     *
+     * @param i clone index, 0 is the first clone
+     * @return speed
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    public double getSpeed(int i) {
+        return speed[slot(i)];
+    }
+
+    /**
+     * Returns the first trait (intelligence or volume) of the i-th clone.
+     *
+     * @param i clone index, 0 is the first clone
+     * @return first trait
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    public int getFirstTrait(int i) {
+        return firstTrait[slot(i)];
+    }
+
+    /**
+     * Returns the second trait (weapon id or acidity) of the i-th clone.
+     *
+     * @param i clone index, 0 is the first clone
+     * @return second trait
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    public int getSecondTrait(int i) {
+        return secondTrait[slot(i)];
+    }
+
+    /**
+     * Returns the current power of the i-th clone.
+     *
+     * @param i clone index, 0 is the first clone
+     * @return power
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    public double getPower(int i) {
+        int slot = slot(i);
+        return basePower[slot] + armorSlope[slot] * armorOffset
+             + vitalitySlope[slot] * vitalityOffset;
+    }
+
+    /**
+     * Returns the power the i-th clone gains per point of armor.
+     *
+     * @param i clone index, 0 is the first clone
+     * @return armor rate
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    public double getArmorRate(int i) {
+        return armorSlope[slot(i)];
+    }
+
+    /**
+     * Returns the power the i-th clone gains per point of vitality.
+     *
+     * @param i clone index, 0 is the first clone
+     * @return vitality rate
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    public double getVitalityRate(int i) {
+        return vitalitySlope[slot(i)];
+    }
+
+    /**
+     * Creates an independent copy of this pool.
+     *
+     * @return a new pool with the same clones
+     * Precondition: none.
+     * Postcondition: this pool is unchanged.
+     */
+    public ClonePool copy() {
+        ClonePool copy = new ClonePool();
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Replaces this pool's clones with an exact copy of another pool's,
+     * reusing this pool's columns when they are large enough.
+     *
+     * @param other the pool to copy, or null for no clones
+     * Precondition: other is not this.
+     * Postcondition: this pool holds the same clones and power sum as
+     *                other; other is unchanged.
+     */
+    public void copyFrom(ClonePool other) {
+        clear();
+        if (other == null || other.size == 0) {
+            return;
+        }
+        if (armor.length < other.size) {
+            int capacity = armor.length;
+            while (capacity < other.size) {
+                capacity *= 2;
+            }
+            allocate(capacity);
+        }
+        int first = Math.min(other.size, other.armor.length - other.head);
+        copyColumns(other, other.head, 0, first);
+        copyColumns(other, 0, first, other.size - first);
+        size = other.size;
+        armorOffset = other.armorOffset;
+        vitalityOffset = other.vitalityOffset;
+        System.arraycopy(other.sums, 0, sums, 0, SUMS);
+    }
+
+    /**
+     * Copies a run of slots from another pool's columns.
+     *
+     * @param other  the pool to copy from
+     * @param from   first slot in other
+     * @param to     first slot in this pool
+     * @param length number of slots
+     * Precondition: both ranges are inside their columns.
+     * Postcondition: none.
+     */
+    private void copyColumns(ClonePool other, int from, int to, int length) {
+        System.arraycopy(other.armor, from, armor, to, length);
+        System.arraycopy(other.vitality, from, vitality, to, length);
+        System.arraycopy(other.speed, from, speed, to, length);
+        System.arraycopy(other.firstTrait, from, firstTrait, to, length);
+        System.arraycopy(other.secondTrait, from, secondTrait, to, length);
+        System.arraycopy(other.basePower, from, basePower, to, length);
+        System.arraycopy(other.armorSlope, from, armorSlope, to, length);
+        System.arraycopy(other.vitalitySlope, from, vitalitySlope, to,
+                         length);
+    }
+
+    /**
+     * Adds a value to one of the running sums, carrying the low-order
+     * bits lost to rounding in its compensation term.
+     *
+     * @param sum   BASE, ARMOR_SLOPE or VITALITY_SLOPE
+     * @param value the value to add
+     * Precondition: none.
+     * Postcondition: total(sum) includes value.
+     */
+    private void accumulate(int sum, double value) {
+        double running = sums[sum];
+        double next = running + value;
+        if (Math.abs(running) >= Math.abs(value)) {
+            sums[sum + 1] += (running - next) + value;
+        } else {
+            sums[sum + 1] += (value - next) + running;
+        }
+        sums[sum] = next;
+    }
+
+    /**
+     * Returns a running sum with its compensation applied.
+     *
+     * @param sum BASE, ARMOR_SLOPE or VITALITY_SLOPE
+     * @return the sum
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private double total(int sum) {
+        return sums[sum] + sums[sum + 1];
+    }
+
+    /**
+     * Maps a clone index to its slot in the ring buffer.
+     *
+     * @param i clone index
+     * @return array slot
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    private int slot(int i) {
+        return (head + i) & mask;
+    }
+
+    /**
+     * Grows the columns to capacity, moving the clones to the front.
+     *
+     * @param capacity the new capacity, a power of two
+     * Precondition: capacity >= size.
+     * Postcondition: head is 0 and every column holds capacity entries.
+     */
+    private void allocate(int capacity) {
+        int[] oldArmor = armor;
+        int[] oldVitality = vitality;
+        double[] oldSpeed = speed;
+        int[] oldFirst = firstTrait;
+        int[] oldSecond = secondTrait;
+        double[] oldPower = basePower;
+        double[] oldArmorSlope = armorSlope;
+        double[] oldVitalitySlope = vitalitySlope;
+        armor = new int[capacity];
+        vitality = new int[capacity];
+        speed = new double[capacity];
+        firstTrait = new int[capacity];
+        secondTrait = new int[capacity];
+        basePower = new double[capacity];
+        armorSlope = new double[capacity];
+        vitalitySlope = new double[capacity];
+        for (int i = 0; i < size; i++) {
+            int from = (head + i) & mask;
+            armor[i] = oldArmor[from];
+            vitality[i] = oldVitality[from];
+            speed[i] = oldSpeed[from];
+            firstTrait[i] = oldFirst[from];
+            secondTrait[i] = oldSecond[from];
+            basePower[i] = oldPower[from];
+            armorSlope[i] = oldArmorSlope[from];
+            vitalitySlope[i] = oldVitalitySlope[from];
+        }
+        head = 0;
+        mask = capacity - 1;
+    }
+
+    /**
+     * Returns a string representation of this pool.
+     *
+     * @return formatted string "clones: N; power: P"
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public String toString() {
+        return "clones: " + size + "; power: " + getPowerSum();
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * One decoded CombatLog event. Fields an event kind does not carry are
+ * zero (or null for names). Stats are stored per side, so a
+ * SPECIAL_ABILITY event holds the target's stats on the target's side
+ * and a REST event holds the rested monster's stats on its own side.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class CombatEvent {
+    private final int kind;
+    private final int round;
+    private final int side;
+    private final int value;
+    private final String[] names;
+    private final int[] armor;
+    private final int[] vitality;
+    private final double[] speed;
+    private final boolean[] poisoned;
+
+    /**
+     * Constructs a CombatEvent. Use CombatLogReader to obtain events.
+     *
+     * @param kind     one of the CombatLog event kinds
+     * @param round    the round the event belongs to
+     * @param side     the acting side, or the winner for RESULT
+     * @param value    damage, resurrection flag or round count
+     * @param names    class names indexed by side - 1
+     * @param armor    armor indexed by side - 1
+     * @param vitality vitality indexed by side - 1
+     * @param speed    speed indexed by side - 1
+     * @param poisoned poison flags indexed by side - 1
+     * Precondition: arrays have length 2.
+     * Postcondition: fields set accordingly.
+     */
+    CombatEvent(int kind, int round, int side, int value, String[] names,
+                int[] armor, int[] vitality, double[] speed,
+                boolean[] poisoned) {
+        this.kind = kind;
+        this.round = round;
+        this.side = side;
+        this.value = value;
+        this.names = names;
+        this.armor = armor;
+        this.vitality = vitality;
+        this.speed = speed;
+        this.poisoned = poisoned;
+    }
+
+    /**
+     * Returns the event kind.
+     *
+     * @return CombatLog.START, ROUND_START, SPECIAL_ABILITY, ATTACK,
+     *         DEATHRATTLE, REST, RESULT or POISON
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getKind() {
+        return this.kind;
+    }
+
+    /**
+     * Returns the round the event happened in. RESULT events return the
+     * number of rounds fought.
+     *
+     * @return round number
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getRound() {
+        return this.round;
+    }
+
+    /**
+     * Returns the side that acted, or the winner of a RESULT event.
+     *
+     * @return ShowdownEngine.TIE, LEFT or RIGHT
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getSide() {
+        return this.side;
+    }
+
+    /**
+     * Returns the damage of an ATTACK or POISON event, or 1 if a
+     * DEATHRATTLE event resurrected the monster and 0 if it did not.
+     *
+     * @return event value
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getValue() {
+        return this.value;
+    }
+
+    /**
+     * Returns a monster's class name.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return class name, or null if the event has none
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public String getName(int side) {
+        return this.names[side - 1];
+    }
+
+    /**
+     * Returns a monster's armor.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return armor
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public int getArmor(int side) {
+        return this.armor[side - 1];
+    }
+
+    /**
+     * Returns a monster's vitality.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return vitality
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public int getVitality(int side) {
+        return this.vitality[side - 1];
+    }
+
+    /**
+     * Returns a monster's speed.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return speed
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public double getSpeed(int side) {
+        return this.speed[side - 1];
+    }
+
+    /**
+     * Returns whether a monster is poisoned.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return true if poisoned
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public boolean isPoisoned(int side) {
+        return this.poisoned[side - 1];
+    }
+
+    /**
+     * Returns a string representation of this event.
+     *
+     * @return the event kind, round, side and value
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public String toString() {
+        return "kind: " + kind + "; round: " + round + "; side: " + side
+               + "; value: " + value;
+    }
+}
@@ -0,0 +1,330 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+/**
+ * A ShowdownObserver that records every showdown event in a compact
+ * binary log instead of printing it. Events are encoded into a
+ * preallocated ring buffer and written to the sink whenever the buffer
+ * fills up and at the end of every showdown, so logging an event costs a
+ * few byte stores rather than a formatted string.
+ *
+ * Each event is one kind byte followed by its fields. Whole numbers are
+ * zigzag varints, speeds are 8-byte IEEE doubles and class names are a
+ * varint length followed by UTF-8 bytes:
+ *
+ *   START           name1 name2
+ *   ROUND_START     round armor1 vitality1 speed1 armor2 vitality2 speed2
+ *   SPECIAL_ABILITY side armor vitality poisoned   (the target's stats)
+ *   ATTACK          side damage
+ *   DEATHRATTLE     side resurrected
+ *   REST            side armor vitality
+ *   POISON          side damage
+ *   RESULT          winner rounds armor1 vitality1 speed1 poisoned1
+ *                   armor2 vitality2 speed2 poisoned2
+ *
+ * CombatLogReader decodes a log, and Dungeon.printCombatLog() turns it
+ * back into the showdown() console narration.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public class CombatLog implements ShowdownObserver {
+    public static final int START = 1;
+    public static final int ROUND_START = 2;
+    public static final int SPECIAL_ABILITY = 3;
+    public static final int ATTACK = 4;
+    public static final int DEATHRATTLE = 5;
+    public static final int REST = 6;
+    public static final int RESULT = 7;
+    public static final int POISON = 8;
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int MAX_VARINT = 5;
+    private static final int DOUBLE_BYTES = 8;
+    private static final int MAX_RECORD = 1 + 8 * MAX_VARINT
+                                        + 2 * DOUBLE_BYTES + 2;
+
+    private final OutputStream sink;
+    private final byte[] buffer;
+    private final int mask;
+    private long head;
+    private long tail;
+
+    /**
+     * Constructs a log with a 64 KiB ring buffer.
+     *
+     * @param sink where encoded events are written
+     * Precondition: sink not null.
+     * Postcondition: the log is empty.
+     */
+    public CombatLog(OutputStream sink) {
+        this(sink, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a log with a ring buffer of the given capacity.
+     *
+     * @param sink     where encoded events are written
+     * @param capacity buffer size in bytes, rounded up to a power of two
+     * Precondition: sink not null; capacity > 0.
+     * Postcondition: the log is empty.
+     */
+    public CombatLog(OutputStream sink, int capacity) {
+        this.sink = sink;
+        int size = Integer.highestOneBit(Math.max(capacity, MAX_RECORD));
+        if (size < Math.max(capacity, MAX_RECORD)) {
+            size <<= 1;
+        }
+        this.buffer = new byte[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Records the class names of both monsters.
+     *
+     * @param monster1 the left monster
+     * @param monster2 the right monster
+     */
+    @Override
+    public void started(Monster monster1, Monster monster2) {
+        byte[] name1 = monster1.getClass().getName()
+            .getBytes(StandardCharsets.UTF_8);
+        byte[] name2 = monster2.getClass().getName()
+            .getBytes(StandardCharsets.UTF_8);
+        reserve(1 + 2 * MAX_VARINT + name1.length + name2.length);
+        putByte(START);
+        putBytes(name1);
+        putBytes(name2);
+    }
+
+    /**
+     * Records the round number and both monsters' stats.
+     *
+     * @param round    the round number
+     * @param monster1 the left monster
+     * @param monster2 the right monster
+     */
+    @Override
+    public void roundStarted(int round, Monster monster1, Monster monster2) {
+        reserve(MAX_RECORD);
+        putByte(ROUND_START);
+        putInt(round);
+        putInt(monster1.getArmor());
+        putInt(monster1.getVitality());
+        putDouble(monster1.getSpeed());
+        putInt(monster2.getArmor());
+        putInt(monster2.getVitality());
+        putDouble(monster2.getSpeed());
+    }
+
+    /**
+     * Records the target's stats after a special ability.
+     *
+     * @param side   ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @param target the monster the ability targeted
+     */
+    @Override
+    public void specialAbility(int side, Monster target) {
+        reserve(MAX_RECORD);
+        putByte(SPECIAL_ABILITY);
+        putByte(side);
+        putInt(target.getArmor());
+        putInt(target.getVitality());
+        putByte(target.isPoisoned() ? 1 : 0);
+    }
+
+    /**
+     * Records the damage done by one side.
+     *
+     * @param side   ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @param damage the damage returned from attack()
+     */
+    @Override
+    public void attacked(int side, int damage) {
+        reserve(MAX_RECORD);
+        putByte(ATTACK);
+        putByte(side);
+        putInt(damage);
+    }
+
+    /**
+     * Records whether a fallen monster was resurrected.
+     *
+     * @param side        ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @param resurrected true if the deathrattle resurrected it
+     */
+    @Override
+    public void deathrattle(int side, boolean resurrected) {
+        reserve(MAX_RECORD);
+        putByte(DEATHRATTLE);
+        putByte(side);
+        putByte(resurrected ? 1 : 0);
+    }
+
+    /**
+     * Records the poison damage dealt to one side.
+     *
+     * @param side   ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @param damage the poison damage
+     */
+    @Override
+    public void poisoned(int side, int damage) {
+        reserve(MAX_RECORD);
+        putByte(POISON);
+        putByte(side);
+        putInt(damage);
+    }
+
+    /**
+     * Records a monster's stats after it rested.
+     *
+     * @param side    ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @param monster the monster that rested
+     */
+    @Override
+    public void rested(int side, Monster monster) {
+        reserve(MAX_RECORD);
+        putByte(REST);
+        putByte(side);
+        putInt(monster.getArmor());
+        putInt(monster.getVitality());
+    }
+
+    /**
+     * Records the outcome and final stats, then flushes the log.
+     *
+     * @param monster1 the left monster
+     * @param monster2 the right monster
+     * @param result   the outcome of the showdown
+     */
+    @Override
+    public void finished(Monster monster1, Monster monster2,
+                         ShowdownResult result) {
+        reserve(MAX_RECORD);
+        putByte(RESULT);
+        putByte(result.getWinner());
+        putInt(result.getRounds());
+        putInt(monster1.getArmor());
+        putInt(monster1.getVitality());
+        putDouble(monster1.getSpeed());
+        putByte(monster1.isPoisoned() ? 1 : 0);
+        putInt(monster2.getArmor());
+        putInt(monster2.getVitality());
+        putDouble(monster2.getSpeed());
+        putByte(monster2.isPoisoned() ? 1 : 0);
+        flush();
+    }
+
+    /**
+     * Writes every buffered event to the sink and flushes it.
+     *
+     * @throws UncheckedIOException if the sink fails
+     * Precondition: none.
+     * Postcondition: the buffer is empty.
+     */
+    public void flush() {
+        try {
+            drain();
+            sink.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Makes room for a record of up to bytes bytes, draining the buffer
+     * to the sink if it is too full.
+     *
+     * @param bytes the largest size of the next record
+     * @throws UncheckedIOException if the sink fails
+     * Precondition: none.
+     * Postcondition: the next bytes bytes fit, or the record is larger
+     *                than the buffer and the buffer is empty.
+     */
+    private void reserve(int bytes) {
+        if (tail - head + bytes > buffer.length) {
+            try {
+                drain();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the sink in at most two pieces.
+     *
+     * @throws IOException if the sink fails
+     * Precondition: none.
+     * Postcondition: head == tail.
+     */
+    private void drain() throws IOException {
+        while (head < tail) {
+            int from = (int) head & mask;
+            int length = (int) Math.min(tail - head, buffer.length - from);
+            sink.write(buffer, from, length);
+            head += length;
+        }
+    }
+
+    /**
+     * Appends one byte.
+     *
+     * @param value the byte, in its low 8 bits
+     * Precondition: room was reserved.
+     * Postcondition: none.
+     */
+    private void putByte(int value) {
+        if (tail - head == buffer.length) {
+            reserve(1);
+        }
+        buffer[(int) tail & mask] = (byte) value;
+        tail++;
+    }
+
+    /**
+     * Appends an int as a zigzag varint.
+     *
+     * @param value the int
+     * Precondition: room was reserved.
+     * Postcondition: none.
+     */
+    private void putInt(int value) {
+        int bits = (value << 1) ^ (value >> 31);
+        while ((bits & ~0x7F) != 0) {
+            putByte((bits & 0x7F) | 0x80);
+            bits >>>= 7;
+        }
+        putByte(bits);
+    }
+
+    /**
+     * Appends a double as 8 little-endian bytes.
+     *
+     * @param value the double
+     * Precondition: room was reserved.
+     * Postcondition: none.
+     */
+    private void putDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int i = 0; i < DOUBLE_BYTES; i++) {
+            putByte((int) bits);
+            bits >>>= 8;
+        }
+    }
+
+    /**
+     * Appends a byte array preceded by its length.
+     *
+     * @param bytes the bytes
+     * Precondition: room was reserved.
+     * Postcondition: none.
+     */
+    private void putBytes(byte[] bytes) {
+        putInt(bytes.length);
+        for (byte b : bytes) {
+            putByte(b);
+        }
+    }
+}
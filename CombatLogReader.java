@@ -0,0 +1,210 @@
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+/**
+ * Decodes the binary event stream written by CombatLog. The reader
+ * remembers the class names from START and the round from ROUND_START,
+ * so every event it returns knows its round and RESULT events carry
+ * the names again for printing.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public class CombatLogReader {
+    private static final int SIDES = 2;
+    private static final int DOUBLE_BYTES = 8;
+    private static final int MAX_NAME = 1 << 16;
+
+    private final InputStream in;
+    private String[] names = new String[SIDES];
+    private int round;
+
+    /**
+     * Constructs a reader over an encoded log.
+     *
+     * @param in the encoded events
+     * Precondition: in not null.
+     * Postcondition: the next event read is the first one in the log.
+     */
+    public CombatLogReader(InputStream in) {
+        this.in = new BufferedInputStream(in);
+    }
+
+    /**
+     * Reads the next event.
+     *
+     * @return the event, or null at the end of the log
+     * @throws IOException if the log cannot be read or is malformed
+     * Precondition: none.
+     * Postcondition: the reader is positioned after the event.
+     */
+    public CombatEvent next() throws IOException {
+        int kind = in.read();
+        if (kind < 0) {
+            return null;
+        }
+        int side = 0;
+        int value = 0;
+        String[] eventNames = new String[SIDES];
+        int[] armor = new int[SIDES];
+        int[] vitality = new int[SIDES];
+        double[] speed = new double[SIDES];
+        boolean[] poisoned = new boolean[SIDES];
+        switch (kind) {
+            case CombatLog.START:
+                names = new String[] {readName(), readName()};
+                round = 0;
+                eventNames = names;
+                break;
+            case CombatLog.ROUND_START:
+                round = readInt();
+                readStats(0, armor, vitality, speed);
+                readStats(1, armor, vitality, speed);
+                eventNames = names;
+                break;
+            case CombatLog.SPECIAL_ABILITY:
+                side = readSide();
+                int target = SIDES - side;
+                armor[target] = readInt();
+                vitality[target] = readInt();
+                poisoned[target] = readByte() != 0;
+                break;
+            case CombatLog.ATTACK:
+            case CombatLog.POISON:
+                side = readSide();
+                value = readInt();
+                break;
+            case CombatLog.DEATHRATTLE:
+                side = readSide();
+                value = readByte();
+                break;
+            case CombatLog.REST:
+                side = readSide();
+                armor[side - 1] = readInt();
+                vitality[side - 1] = readInt();
+                break;
+            case CombatLog.RESULT:
+                side = readByte();
+                round = readInt();
+                readStats(0, armor, vitality, speed);
+                poisoned[0] = readByte() != 0;
+                readStats(1, armor, vitality, speed);
+                poisoned[1] = readByte() != 0;
+                eventNames = names;
+                break;
+            default:
+                throw new IOException("unknown event kind: " + kind);
+        }
+        return new CombatEvent(kind, round, side, value, eventNames,
+                               armor, vitality, speed, poisoned);
+    }
+
+    /**
+     * Reads one side's armor, vitality and speed.
+     *
+     * @param index    0 for the left side, 1 for the right
+     * @param armor    receives the armor
+     * @param vitality receives the vitality
+     * @param speed    receives the speed
+     * @throws IOException if the log ends early
+     * Precondition: index is 0 or 1.
+     * Postcondition: the arrays hold the side's stats at index.
+     */
+    private void readStats(int index, int[] armor, int[] vitality,
+                           double[] speed) throws IOException {
+        armor[index] = readInt();
+        vitality[index] = readInt();
+        speed[index] = readDouble();
+    }
+
+    /**
+     * Reads a side byte.
+     *
+     * @return ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @throws IOException if the log ends early or the side is invalid
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private int readSide() throws IOException {
+        int side = readByte();
+        if (side != ShowdownEngine.LEFT && side != ShowdownEngine.RIGHT) {
+            throw new IOException("bad side: " + side);
+        }
+        return side;
+    }
+
+    /**
+     * Reads one byte.
+     *
+     * @return the byte, 0 to 255
+     * @throws EOFException if the log ends
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("truncated combat log");
+        }
+        return b;
+    }
+
+    /**
+     * Reads a zigzag varint.
+     *
+     * @return the int
+     * @throws IOException if the log ends early or the varint is too long
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private int readInt() throws IOException {
+        int bits = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = readByte();
+            bits |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (bits >>> 1) ^ -(bits & 1);
+            }
+        }
+        throw new IOException("varint too long");
+    }
+
+    /**
+     * Reads a little-endian double.
+     *
+     * @return the double
+     * @throws IOException if the log ends early
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private double readDouble() throws IOException {
+        long bits = 0;
+        for (int i = 0; i < DOUBLE_BYTES; i++) {
+            bits |= (long) readByte() << (8 * i);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 class name.
+     *
+     * @return the name
+     * @throws IOException if the log ends early or the length is invalid
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private String readName() throws IOException {
+        int length = readInt();
+        if (length < 0 || length > MAX_NAME) {
+            throw new IOException("bad name length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) readByte();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ * Tracks which combatants of a melee are still standing (vitality above
+ * zero) in a segment tree over combatant indices. Every node keeps the
+ * number of standing combatants below it and the one with the lowest
+ * vitality, so counting, picking the k-th standing combatant and
+ * finding the weakest one in an index range all take O(log n), as does
+ * updating one combatant's vitality.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class CombatantIndex {
+    private static final int NONE = -1;
+
+    private final int size;
+    private final int leaves;
+    private final int[] count;
+    private final int[] lowest;
+    private final int[] lowestIndex;
+
+    /**
+     * Constructs an index over combatants with the given vitality.
+     *
+     * @param vitality starting vitality of every combatant
+     * Precondition: vitality not null.
+     * Postcondition: combatants with vitality > 0 are standing.
+     */
+    public CombatantIndex(int[] vitality) {
+        this.size = vitality.length;
+        int capacity = 1;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+        this.leaves = capacity;
+        this.count = new int[2 * capacity];
+        this.lowest = new int[2 * capacity];
+        this.lowestIndex = new int[2 * capacity];
+        for (int i = 0; i < capacity; i++) {
+            setLeaf(i, i < size ? vitality[i] : 0);
+        }
+        for (int node = capacity - 1; node > 0; node--) {
+            pull(node);
+        }
+    }
+
+    /**
+     * Returns the number of combatants, standing or not.
+     *
+     * @return combatant count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Records a combatant's new vitality.
+     *
+     * @param i        the combatant index
+     * @param vitality its vitality
+     * Precondition: 0 <= i < size().
+     * Postcondition: i is standing exactly when vitality > 0.
+     */
+    public void update(int i, int vitality) {
+        setLeaf(i, vitality);
+        for (int node = (leaves + i) >>> 1; node > 0; node >>>= 1) {
+            pull(node);
+        }
+    }
+
+    /**
+     * Returns whether a combatant is standing.
+     *
+     * @param i the combatant index
+     * @return true if its vitality is above zero
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    public boolean isStanding(int i) {
+        return count[leaves + i] != 0;
+    }
+
+    /**
+     * Returns the number of standing combatants.
+     *
+     * @return standing count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int standing() {
+        return count[1];
+    }
+
+    /**
+     * Returns the number of standing combatants with index in
+     * [from, to).
+     *
+     * @param from first index (inclusive)
+     * @param to   last index (exclusive)
+     * @return standing count in the range
+     * Precondition: 0 <= from <= to <= size().
+     * Postcondition: none.
+     */
+    public int standing(int from, int to) {
+        int total = 0;
+        for (int l = from + leaves, r = to + leaves; l < r;
+             l >>>= 1, r >>>= 1) {
+            if ((l & 1) == 1) {
+                total += count[l++];
+            }
+            if ((r & 1) == 1) {
+                total += count[--r];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the k-th standing combatant in index order.
+     *
+     * @param k rank among standing combatants, 0 for the first
+     * @return the combatant index
+     * Precondition: 0 <= k < standing().
+     * Postcondition: none.
+     */
+    public int nthStanding(int k) {
+        int node = 1;
+        while (node < leaves) {
+            int left = 2 * node;
+            if (count[left] > k) {
+                node = left;
+            } else {
+                k -= count[left];
+                node = left + 1;
+            }
+        }
+        return node - leaves;
+    }
+
+    /**
+     * Returns the standing combatant with the lowest vitality and index
+     * in [from, to). Ties go to the lower index.
+     *
+     * @param from first index (inclusive)
+     * @param to   last index (exclusive)
+     * @return the combatant index, or -1 if none in the range is standing
+     * Precondition: 0 <= from <= to <= size().
+     * Postcondition: none.
+     */
+    public int weakest(int from, int to) {
+        return weakest(from, to, NONE);
+    }
+
+    /**
+     * Returns the standing combatant with the lowest vitality and index
+     * outside [from, to). Ties go to the lower index.
+     *
+     * @param from first excluded index
+     * @param to   index after the last excluded one
+     * @return the combatant index, or -1 if none outside is standing
+     * Precondition: 0 <= from <= to <= size().
+     * Postcondition: none.
+     */
+    public int weakestOutside(int from, int to) {
+        return weakest(to, size, weakest(0, from, NONE));
+    }
+
+    /**
+     * Folds the standing combatants in [from, to) into a running
+     * weakest combatant.
+     *
+     * @param from first index (inclusive)
+     * @param to   last index (exclusive)
+     * @param best the weakest combatant so far, or -1
+     * @return the weakest of best and the range, or -1
+     * Precondition: 0 <= from <= to <= size().
+     * Postcondition: none.
+     */
+    private int weakest(int from, int to, int best) {
+        for (int l = from + leaves, r = to + leaves; l < r;
+             l >>>= 1, r >>>= 1) {
+            if ((l & 1) == 1) {
+                best = lower(best, l++);
+            }
+            if ((r & 1) == 1) {
+                best = lower(best, --r);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns whichever of a combatant and a node's weakest combatant
+     * has the lower vitality.
+     *
+     * @param best the best combatant so far, or -1
+     * @param node the tree node
+     * @return the weaker standing combatant, or -1 if neither stands
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private int lower(int best, int node) {
+        int candidate = lowestIndex[node];
+        if (candidate == NONE) {
+            return best;
+        }
+        if (best == NONE) {
+            return candidate;
+        }
+        int leaf = leaves + best;
+        if (lowest[node] < lowest[leaf]
+            || (lowest[node] == lowest[leaf] && candidate < best)) {
+            return candidate;
+        }
+        return best;
+    }
+
+    /**
+     * Sets a leaf from a combatant's vitality.
+     *
+     * @param i        the combatant index
+     * @param vitality its vitality
+     * Precondition: 0 <= i < leaves.
+     * Postcondition: none.
+     */
+    private void setLeaf(int i, int vitality) {
+        int leaf = leaves + i;
+        boolean standing = i < size && vitality > 0;
+        count[leaf] = standing ? 1 : 0;
+        lowest[leaf] = standing ? vitality : Integer.MAX_VALUE;
+        lowestIndex[leaf] = standing ? i : NONE;
+    }
+
+    /**
+     * Recomputes a node from its children.
+     *
+     * @param node the tree node
+     * Precondition: node < leaves.
+     * Postcondition: none.
+     */
+    private void pull(int node) {
+        int left = 2 * node;
+        int right = left + 1;
+        count[node] = count[left] + count[right];
+        int pick = left;
+        if (lowestIndex[left] == NONE
+            || (lowestIndex[right] != NONE && lowest[right] < lowest[left])) {
+            pick = right;
+        }
+        lowest[node] = lowest[pick];
+        lowestIndex[node] = lowestIndex[pick];
+    }
+}
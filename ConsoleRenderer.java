@@ -0,0 +1,662 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Formatter;
+import java.util.concurrent.ArrayBlockingQueue;
+/**
+ * Turns a CombatLog stream into the showdown() narration on a background
+ * thread. A CombatLog writes its encoded events to this stream; the
+ * bytes are copied into one of a fixed set of chunks and handed to the
+ * renderer thread through a bounded queue. When every chunk is in use
+ * the writer waits, so a slow terminal slows the combat thread down
+ * instead of letting the queue grow.
+ *
+ * The renderer thread decodes the events, formats them into a reusable
+ * StringBuilder and writes the text to the console in batches: whenever
+ * the text grows past BATCH_CHARS and whenever it has rendered
+ * everything queued so far. flush() waits for the text of every byte
+ * written before it, so narration printed by a showdown always appears
+ * before whatever the caller prints next.
+ *
+ * Showdowns that run at the same time each write through their own
+ * stream from open(). Streams are printed whole, in the order they were
+ * opened: the oldest open stream writes straight to the chunks, and the
+ * others keep up to one chunk of bytes each until every stream before
+ * them is closed. A stream whose backlog is full waits for its turn, so
+ * memory stays bounded; otherwise no stream waits for the console except
+ * through the chunk limit, and a showdown finishes without waiting for
+ * its narration to be printed. A thread must therefore close its own
+ * open stream before it fills a later one.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public class ConsoleRenderer extends OutputStream {
+    private static final int DEFAULT_CHUNKS = 8;
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+    private static final int BATCH_CHARS = 1 << 14;
+    private static final int SPACING = 17;
+    private static final String NEWLINE = System.lineSeparator();
+    private static final String RULE = "----------" + "        \t"
+                                     + "----------" + NEWLINE;
+
+    private final PrintStream out;
+    private final ArrayBlockingQueue<Chunk> free;
+    private final ArrayBlockingQueue<Chunk> filled;
+    private final Chunk end = new Chunk(0);
+    private final Thread thread;
+    private final StringBuilder text = new StringBuilder();
+    private final Formatter formatter = new Formatter(text);
+    private final Object progress = new Object();
+    private long submitted;
+    private long rendered;
+    private final int backlogSize;
+    private IOException failure;
+    private volatile boolean closed;
+    private final ArrayDeque<Showdown> showdowns = new ArrayDeque<>();
+
+    /**
+     * Constructs a renderer printing to out with 8 chunks of 64 KiB.
+     *
+     * @param out the console to print to
+     * Precondition: out not null.
+     * Postcondition: the renderer thread is running.
+     */
+    public ConsoleRenderer(PrintStream out) {
+        this(out, DEFAULT_CHUNKS, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a renderer printing to out.
+     *
+     * @param out       the console to print to
+     * @param chunks    number of chunks, which bounds the queue
+     * @param chunkSize bytes per chunk
+     * Precondition: out not null; chunks > 0; chunkSize > 0.
+     * Postcondition: the renderer thread is running.
+     */
+    public ConsoleRenderer(PrintStream out, int chunks, int chunkSize) {
+        this.out = out;
+        this.free = new ArrayBlockingQueue<>(chunks);
+        this.filled = new ArrayBlockingQueue<>(chunks + 1);
+        for (int i = 0; i < chunks; i++) {
+            free.add(new Chunk(chunkSize));
+        }
+        this.backlogSize = chunkSize;
+        this.thread = new Thread(this::run, "console-renderer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Opens a stream for the CombatLog of one showdown. Its events are
+     * printed after those of every stream opened before it and before
+     * those of every stream opened after it.
+     *
+     * @return the showdown's stream, to be closed when the showdown ends
+     * Precondition: none.
+     * Postcondition: the stream is last in the printing order.
+     */
+    public OutputStream open() {
+        synchronized (showdowns) {
+            Showdown showdown = new Showdown();
+            showdown.direct = showdowns.isEmpty();
+            showdowns.add(showdown);
+            return showdown;
+        }
+    }
+
+    /**
+     * Queues one byte of encoded events.
+     *
+     * @param b the byte, in its low 8 bits
+     * @throws IOException if the renderer is closed or was interrupted
+     */
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    /**
+     * Queues encoded events, waiting for a free chunk if all are in use.
+     *
+     * @param bytes  the encoded events
+     * @param offset index of the first byte
+     * @param length number of bytes
+     * @throws IOException if the renderer is closed or was interrupted
+     */
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length)
+            throws IOException {
+        if (closed) {
+            throw new IOException("renderer is closed");
+        }
+        try {
+            while (length > 0) {
+                Chunk chunk = free.take();
+                int n = Math.min(length, chunk.data.length);
+                System.arraycopy(bytes, offset, chunk.data, 0, n);
+                chunk.length = n;
+                synchronized (progress) {
+                    submitted++;
+                }
+                filled.put(chunk);
+                offset += n;
+                length -= n;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while queueing");
+        }
+    }
+
+    /**
+     * Waits until everything written so far has been printed.
+     *
+     * @throws IOException if the log could not be decoded or the wait
+     *         was interrupted
+     */
+    @Override
+    public void flush() throws IOException {
+        synchronized (progress) {
+            try {
+                while (rendered < submitted && failure == null) {
+                    progress.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while flushing");
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Prints everything written so far and stops the renderer thread.
+     *
+     * @throws IOException if the log could not be decoded or the wait
+     *         was interrupted
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        synchronized (showdowns) {
+            showdowns.notifyAll();
+        }
+        filled.add(end);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while closing");
+        }
+        synchronized (progress) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Hands the chunks to the oldest open stream once the stream before
+     * it is closed: queues the bytes it kept meanwhile and those of any
+     * closed streams behind it, until an open stream has caught up and
+     * can write straight to the chunks.
+     *
+     * @throws IOException if the renderer is closed or was interrupted
+     */
+    private void advance() throws IOException {
+        while (true) {
+            Showdown next;
+            int length;
+            synchronized (showdowns) {
+                next = showdowns.peek();
+                if (next == null) {
+                    return;
+                }
+                if (next.kept == 0) {
+                    if (!next.closed) {
+                        next.direct = true;
+                        showdowns.notifyAll();
+                        return;
+                    }
+                    showdowns.poll();
+                    continue;
+                }
+                length = next.kept;
+            }
+            write(next.backlog, 0, length);
+            synchronized (showdowns) {
+                next.kept -= length;
+                System.arraycopy(next.backlog, length, next.backlog, 0,
+                                 next.kept);
+                showdowns.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Renders events until the renderer is closed. A malformed log is
+     * remembered for flush() and the rest of the input is discarded.
+     */
+    private void run() {
+        ChunkInput input = new ChunkInput();
+        CombatLogReader reader = new CombatLogReader(input);
+        try {
+            CombatEvent event;
+            while ((event = reader.next()) != null) {
+                append(event, text, formatter);
+                if (text.length() >= BATCH_CHARS) {
+                    print();
+                }
+            }
+            print();
+        } catch (IOException e) {
+            synchronized (progress) {
+                failure = e;
+                progress.notifyAll();
+            }
+            input.discard();
+        }
+    }
+
+    /**
+     * Prints and clears the pending text.
+     */
+    private void print() {
+        if (text.length() > 0) {
+            out.append(text);
+            text.setLength(0);
+        }
+        out.flush();
+    }
+
+    /**
+     * Marks the given number of chunks as printed and wakes flush().
+     *
+     * @param chunks number of chunks whose events are printed
+     */
+    private void markRendered(long chunks) {
+        synchronized (progress) {
+            rendered = chunks;
+            progress.notifyAll();
+        }
+    }
+
+    /**
+     * Appends the showdown() narration of one event to text. START,
+     * SPECIAL_ABILITY and REST events are not narrated.
+     *
+     * @param event     the event
+     * @param text      receives the narration
+     * @param formatter a Formatter writing to text
+     * Precondition: arguments not null.
+     * Postcondition: none.
+     */
+    static void append(CombatEvent event, StringBuilder text,
+                       Formatter formatter) {
+        int left = ShowdownEngine.LEFT;
+        int right = ShowdownEngine.RIGHT;
+        switch (event.getKind()) {
+            case CombatLog.ROUND_START:
+                text.append(NEWLINE).append("Round ").append(event.getRound())
+                    .append(':').append(NEWLINE);
+                appendBothMonsters(event, text, formatter);
+                text.append(NEWLINE);
+                break;
+            case CombatLog.ATTACK:
+                text.append(sideName(event.getSide())).append(" does ")
+                    .append(event.getValue()).append(" damage!")
+                    .append(NEWLINE);
+                break;
+            case CombatLog.POISON:
+                text.append(sideName(event.getSide())).append(" takes ")
+                    .append(event.getValue()).append(" poison damage!")
+                    .append(NEWLINE);
+                break;
+            case CombatLog.DEATHRATTLE:
+                text.append("monster").append(event.getSide());
+                if (event.getValue() != 0) {
+                    text.append(" was resurrected from its Deathrattle!");
+                } else {
+                    text.append(" has no clones left and is dead.");
+                }
+                text.append(NEWLINE);
+                break;
+            case CombatLog.RESULT:
+                text.append(NEWLINE);
+                appendBothMonsters(event, text, formatter);
+                text.append(NEWLINE);
+                if (event.isPoisoned(left) || event.isPoisoned(right)) {
+                    text.append("A monster was poisoned.").append(NEWLINE);
+                }
+                if (event.getSide() == ShowdownEngine.TIE) {
+                    text.append("-------GAME OVER-------").append(NEWLINE)
+                        .append("TIE: Both monsters died!").append(NEWLINE);
+                } else {
+                    text.append(sideName(event.getSide()).toUpperCase())
+                        .append(NEWLINE);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Appends both monsters' stats from a ROUND_START or RESULT event in
+     * the printBothMonsters() layout.
+     *
+     * @param event     the event holding both monsters' stats
+     * @param text      receives the stats
+     * @param formatter a Formatter writing to text
+     * Precondition: arguments not null.
+     * Postcondition: none.
+     */
+    private static void appendBothMonsters(CombatEvent event,
+                                           StringBuilder text,
+                                           Formatter formatter) {
+        int left = ShowdownEngine.LEFT;
+        int right = ShowdownEngine.RIGHT;
+        appendBothMonsters(text, formatter, event.getName(left),
+                           event.getArmor(left), event.getVitality(left),
+                           event.getSpeed(left), event.getName(right),
+                           event.getArmor(right), event.getVitality(right),
+                           event.getSpeed(right));
+    }
+
+    /**
+     * Appends the stats of both monsters side by side, as printed by
+     * Dungeon.printBothMonsters() (without its trailing line break).
+     *
+     * @param text      receives the stats
+     * @param formatter a Formatter writing to text
+     * @param name1     class name of the left monster
+     * @param armor1    armor of the left monster
+     * @param vitality1 vitality of the left monster
+     * @param speed1    speed of the left monster
+     * @param name2     class name of the right monster
+     * @param armor2    armor of the right monster
+     * @param vitality2 vitality of the right monster
+     * @param speed2    speed of the right monster
+     * Precondition: text and formatter not null.
+     * Postcondition: none.
+     */
+    static void appendBothMonsters(StringBuilder text, Formatter formatter,
+                                   String name1, int armor1, int vitality1,
+                                   double speed1, String name2, int armor2,
+                                   int vitality2, double speed2) {
+        int start = text.append('(').length();
+        text.append(name1);
+        int width = text.length() - start;
+        text.append(')');
+        pad(text, width);
+        text.append("  (").append(name2).append(')').append(NEWLINE)
+            .append(RULE);
+        start = text.append("A: ").length();
+        text.append(armor1);
+        pad(text, text.length() - start);
+        text.append(" A: ").append(armor2).append(NEWLINE);
+        start = text.append("V: ").length();
+        text.append(vitality1);
+        pad(text, text.length() - start);
+        text.append(" V: ").append(vitality2).append(NEWLINE);
+        start = text.append("S: ").length();
+        formatter.format("%.2f", speed1);
+        pad(text, text.length() - start);
+        text.append(" S: ");
+        formatter.format("%.2f", speed2);
+        text.append(NEWLINE);
+    }
+
+    /**
+     * Appends a space and then enough spaces to fill a value of the given
+     * width out to the column width used by Dungeon.calcSpacing().
+     *
+     * @param text  receives the spaces
+     * @param width width of the value just appended
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private static void pad(StringBuilder text, int width) {
+        text.append(' ');
+        for (int i = width; i < SPACING; i++) {
+            text.append(' ');
+        }
+    }
+
+    /**
+     * Maps an engine side constant to its display name.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return Dungeon.LEFT or Dungeon.RIGHT
+     */
+    private static String sideName(int side) {
+        if (side == ShowdownEngine.LEFT) {
+            return Dungeon.LEFT;
+        }
+        return Dungeon.RIGHT;
+    }
+
+    /**
+     * The stream of one showdown. While an older stream is open its
+     * bytes are kept in backlog, and a writer that finds the backlog full
+     * waits until advance() drains it; once the stream is the oldest its
+     * bytes go straight to the chunks.
+     */
+    private final class Showdown extends OutputStream {
+        private final byte[] backlog = new byte[backlogSize];
+        private int kept;
+        private boolean direct;
+        private boolean closed;
+
+        /**
+         * Writes one byte of encoded events.
+         *
+         * @param b the byte, in its low 8 bits
+         * @throws IOException if the renderer is closed or was interrupted
+         */
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        /**
+         * Writes encoded events, keeping them until this stream is the
+         * oldest open one and waiting while the backlog is full.
+         *
+         * @param bytes  the encoded events
+         * @param offset index of the first byte
+         * @param length number of bytes
+         * @throws IOException if the renderer is closed or was interrupted
+         */
+        @Override
+        public void write(byte[] bytes, int offset, int length)
+                throws IOException {
+            synchronized (showdowns) {
+                while (!direct) {
+                    if (closed) {
+                        throw new IOException("showdown stream is closed");
+                    }
+                    if (ConsoleRenderer.this.closed) {
+                        throw new IOException("renderer is closed");
+                    }
+                    int n = Math.min(length, backlog.length - kept);
+                    System.arraycopy(bytes, offset, backlog, kept, n);
+                    kept += n;
+                    offset += n;
+                    length -= n;
+                    if (length == 0) {
+                        return;
+                    }
+                    try {
+                        showdowns.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException(
+                            "interrupted while waiting for its turn");
+                    }
+                }
+                if (closed) {
+                    throw new IOException("showdown stream is closed");
+                }
+            }
+            ConsoleRenderer.this.write(bytes, offset, length);
+        }
+
+        /**
+         * Does nothing: a showdown does not wait for its narration.
+         * ConsoleRenderer.flush() waits for everything queued.
+         */
+        @Override
+        public void flush() {
+        }
+
+        /**
+         * Ends the showdown and passes the chunks on to the next stream.
+         *
+         * @throws IOException if the renderer is closed or was interrupted
+         */
+        @Override
+        public void close() throws IOException {
+            synchronized (showdowns) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (!direct) {
+                    return;
+                }
+                showdowns.poll();
+            }
+            advance();
+        }
+    }
+
+    /**
+     * A reusable buffer of encoded events.
+     */
+    private static final class Chunk {
+        private final byte[] data;
+        private int length;
+
+        /**
+         * Constructs an empty chunk.
+         *
+         * @param size capacity in bytes
+         */
+        private Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+
+    /**
+     * The renderer thread's view of the queued chunks as one stream.
+     * Before it waits for another chunk it prints the pending text and
+     * reports every consumed chunk as rendered.
+     */
+    private final class ChunkInput extends InputStream {
+        private Chunk current;
+        private int position;
+        private long consumed;
+
+        /**
+         * Reads one byte.
+         *
+         * @return the byte, or -1 once the renderer is closed
+         * @throws IOException if interrupted
+         */
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return current.data[position++] & 0xFF;
+        }
+
+        /**
+         * Reads bytes from the current chunk.
+         *
+         * @param bytes  receives the bytes
+         * @param offset index of the first byte to fill
+         * @param length maximum number of bytes
+         * @return number of bytes read, or -1 once the renderer is closed
+         * @throws IOException if interrupted
+         */
+        @Override
+        public int read(byte[] bytes, int offset, int length)
+                throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(length, current.length - position);
+            System.arraycopy(current.data, position, bytes, offset, n);
+            position += n;
+            return n;
+        }
+
+        /**
+         * Makes sure the current chunk has unread bytes.
+         *
+         * @return false once the renderer is closed
+         * @throws IOException if interrupted
+         */
+        private boolean fill() throws IOException {
+            if (current == end) {
+                return false;
+            }
+            if (current != null && position < current.length) {
+                return true;
+            }
+            if (current != null) {
+                free.add(current);
+                current = null;
+            }
+            Chunk next = filled.poll();
+            if (next == null) {
+                print();
+                markRendered(consumed);
+                try {
+                    next = filled.take();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("renderer interrupted");
+                }
+            }
+            current = next;
+            position = 0;
+            if (next == end) {
+                return false;
+            }
+            consumed++;
+            return true;
+        }
+
+        /**
+         * Throws away queued chunks until the renderer is closed, so
+         * writers never wait on a renderer that has failed.
+         */
+        private void discard() {
+            try {
+                while (fill()) {
+                    position = current.length;
+                }
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+}
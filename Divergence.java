@@ -0,0 +1,106 @@
+/**
+ * The first point at which two FightTraces of the same duel disagree:
+ * which entry, in which round, at which random draw or engine event, and
+ * what each trace recorded there. Immutable.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class Divergence {
+    private final int index;
+    private final int round;
+    private final String method;
+    private final String expected;
+    private final String actual;
+
+    /**
+     * Constructs a Divergence.
+     *
+     * @param index    position of the first differing entry
+     * @param round    the round it happened in, from 0 as in roundStarted()
+     * @param method   the method that drew the random number or the
+     *                 observer event, as the expected trace recorded it
+     * @param expected the expected trace's entry, or "end of trace"
+     * @param actual   the other trace's entry, or "end of trace"
+     * Precondition: strings not null; index >= 0.
+     * Postcondition: none.
+     */
+    public Divergence(int index, int round, String method, String expected,
+                      String actual) {
+        this.index = index;
+        this.round = round;
+        this.method = method;
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    /**
+     * Returns the position of the first differing entry.
+     *
+     * @return the entry index
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Returns the round the traces disagree in.
+     *
+     * @return the round, from 0 as in roundStarted()
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getRound() {
+        return this.round;
+    }
+
+    /**
+     * Returns the method that made the first differing entry.
+     *
+     * @return a Class.method name for a random draw, or an observer
+     *         event name
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public String getMethod() {
+        return this.method;
+    }
+
+    /**
+     * Returns the expected trace's entry.
+     *
+     * @return the entry
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public String getExpected() {
+        return this.expected;
+    }
+
+    /**
+     * Returns the other trace's entry.
+     *
+     * @return the entry
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public String getActual() {
+        return this.actual;
+    }
+
+    /**
+     * Returns a one-line report of the divergence.
+     *
+     * @return the report
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public String toString() {
+        return "round " + round + ", " + method + " (entry " + index
+               + "): expected " + expected + ", got " + actual;
+    }
+}
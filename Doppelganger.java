@@ -1,250 +1,328 @@
-import java.util.ArrayList;
-/**
- * A mischievous shapeshifting Humanoid that can 
- * clone itself and share power with clones.
- *
- * Bugs: none known.
- *
- * @author David Do
- */
-public class Doppelganger extends Humanoid implements Cloneable {
-    private ArrayList<Doppelganger> clones;
-    private static final int REST = 10;
-    private static final double STAFF_VITALITY = 0.35;
-    private static final double STAFF_INTELLIGENCE = 0.3;
-    private static final double STAFF_SPEED = 0.6;
-    private static final double DAGGER_VITALITY = 0.05;
-    private static final double DAGGER_INTELLIGENCE = 0.15;
-    private static final double DAGGER_SPEED = 0.8;
-    private static final double RAPIER_ARMOR = 0.4;
-    private static final double RAPIER_INTELLIGENCE = 0.2;
-    private static final double RAPIER_SPEED = 0.5;
-    private static final double HALF = 0.5;
-    private static final double LENGTH = 6.0;
-    private static final String STAFF = "Staff";
-    private static final String DAGGER = "Dagger";
-    private static final String RAPIER = "Rapier";
-    private static final String STICK = "Stick";
-
-    /**
-     * Creates a new Doppelganger with default stats and empty clone list.
-     * Precondition: None.
-     * Postcondition: clones is initialized to an empty ArrayList.
-     */
-    public Doppelganger() {
-        super();
-        clones = new ArrayList<>();
-    }
-
-    /**
-     * Constructs a Doppelganger with specified stats and empty clone list.
-     *
-     * @param armor       initial armor value
-     * @param vitality    initial vitality value
-     * @param speed       initial speed value
-     * @param intelligence initial intelligence value
-     * @param weapon      initial weapon name
-     * Precondition: weapon may be null or one of available weapons.
-     * Postcondition: clones is initialized to an empty ArrayList.
-     */
-    public Doppelganger(int armor, int vitality,
-                       double speed, int intelligence, String weapon) {
-        super(armor, vitality, speed, intelligence, weapon);
-        clones = new ArrayList<>();
-    }
-
-    /**
-     * Creates a deep copy of this Doppelganger without copying its clones.
-     *
-     * @return a new Doppelganger with identical stats but empty clone list
-     * @throws CloneNotSupportedException if this instance cannot be cloned
-     * Precondition: this.volume > 0
-     * Postcondition: returned clone has same stats, clones list is empty.
-     */
-    @Override
-    protected Doppelganger clone() throws CloneNotSupportedException {
-        Doppelganger copy = new Doppelganger(
-            this.getArmor(),
-            this.getVitality(),
-            this.getSpeed(),
-            this.getIntelligence(),
-            this.getWeapon()
-        );
-        return copy;
-    }
-
-    /**
-     * Returns the list of clones belonging to this Doppelganger.
-     *
-     * @return ArrayList of this Doppelganger's clones
-     * Precondition: None.
-     * Postcondition: clones list is returned (may be empty).
-     */
-    public ArrayList<Doppelganger> getClones() {
-        return clones;
-    }
-
-    /**
-     * Checks whether this Doppelganger is alive or has any clones.
-     *
-     * @return true if vitality > 0 or clones list is nonempty; false otherwise
-     * Precondition: None.
-     * Postcondition: None.
-     */
-    @Override
-    public boolean isAlive() {
-        return getVitality() > 0 || clones.size() > 0;
-    }
-
-    /**
-     * Rests this Doppelganger and all clones, increasing each vitality by REST.
-     *
-     * Precondition: None.
-     * Postcondition: This instance's vitality increased by REST;
-     *                each clone's rest() also called.
-     */
-    @Override
-    public void rest() {
-        int oldVitality = getVitality();
-        setVitality(oldVitality + REST);
-        for (int i = 0; i < clones.size(); i++) {
-            clones.get(i).rest();
-        }
-    }
-
-    /**
-     * Calculates total power from this Doppelganger and all its clones.
-     *
-     * @return sum of calculated power of this instance and each clone
-     * Precondition: None.
-     * Postcondition: None.
-     */
-    public double calculatePower() {
-        String weapon = getWeapon();
-        int vitality = getVitality();
-        int intel = getIntelligence();
-        double speed = getSpeed();
-        int armor = getArmor();
-        double total_power = 0.0;
-        if (STAFF.equals(weapon)) {
-            total_power += STAFF_VITALITY * vitality
-                         + STAFF_INTELLIGENCE * intel
-                         - STAFF_SPEED * speed;
-        } else if (DAGGER.equals(weapon)) {
-            total_power += DAGGER_VITALITY * vitality
-                         + DAGGER_INTELLIGENCE * intel
-                         + DAGGER_SPEED * speed;
-        } else if (RAPIER.equals(weapon)) {
-            total_power += RAPIER_ARMOR * armor
-                         + RAPIER_INTELLIGENCE * intel
-                         + RAPIER_SPEED * speed;
-        } else {
-            total_power = 0.0;
-        }
-        for (int i = 0; i < clones.size(); i++) {
-            total_power += clones.get(i).calculatePower();
-        }
-        return total_power;
-    }
-
-    /**
-     * Performs a strike on the target monster, reducing its armor or vitality.
-     *
-     * @param monster the target Monster to attack
-     * @return the computed strike value applied to the target
-     * Precondition: monster is not null.
-     * Postcondition: monster's armor or vitality reduced based on strikeValue.
-     */
-    @Override
-    public int strike(Monster monster) {
-        double power = calculatePower();
-        int intelligence = getIntelligence();
-        int armor = monster.getArmor();
-        int vitality = monster.getVitality();
-        double min = power - HALF * intelligence;
-        double max = power + HALF * intelligence;
-        double random = min + Math.random() * (max - min);
-        int strikeValue = (int) Math.floor(random);
-        if (strikeValue <= 0) {
-            return 0;
-        } else if (strikeValue < armor) {
-            monster.setArmor(armor - strikeValue);
-        } else if (strikeValue >= armor) {
-            monster.setVitality(vitality - (strikeValue - armor));
-            monster.setArmor(0);
-        }
-        return strikeValue;
-    }
-
-    /**
-     * Attacks the target monster by invoking strike(monster).
-     *
-     * @param monster the target Monster to attack
-     * @return result of strike on the target
-     * Precondition: monster is not null.
-     * Postcondition: same as strike(monster).
-     */
-    @Override
-    public int attack(Monster monster) {
-        return strike(monster);
-    }
-
-    /**
-     * Returns an array of available weapons for this Doppelganger.
-     *
-     * @return String[] containing "Staff", "Dagger", "Rapier", and "Stick"
-     * Precondition: None.
-     * Postcondition: None.
-     */
-    @Override
-    protected String[] getAvailableWeapons() {
-        String[] weapons = {STAFF, DAGGER, RAPIER, STICK};
-        return weapons;
-    }
-
-    /**
-     * Applies armory effect: calls super then adds 0–5 clones of itself.
-     *
-     * Precondition: None.
-     * Postcondition: Up to floor(random*6) new clones added to clones list.
-     */
-    @Override
-    public void applyArmoryEffect() {
-        super.applyArmoryEffect();
-        int numClones = (int) Math.floor(Math.random() * LENGTH);
-        for (int i = 0; i < numClones; i++) {
-            try {
-                Doppelganger copy = this.clone();
-                clones.add(copy);
-            } catch (CloneNotSupportedException e) {
-                break;
-            }
-        }
-    }
-
-    /**
-     * Attempts deathrattle: if dead and clones available,
-     *  resurrect from first clone.
-     *
-     * @return true if resurrected from a clone, false otherwise
-     * Precondition: None.
-     * Postcondition: If resurrected,
-     * this instance's stats replaced with first clone.
-     */
-    @Override
-    public boolean handleDeathrattle() {
-        int vitality = getVitality();
-        if (vitality <= 0 && !clones.isEmpty()) {
-            Doppelganger ressurected = clones.remove(0);
-            setArmor(ressurected.getArmor());
-            setVitality(ressurected.getVitality());
-            setSpeed(ressurected.getSpeed());
-            setIntelligence(ressurected.getIntelligence());
-            setWeapon(ressurected.getWeapon());
-            clearPoison();
-            return true;
-        }
-        return false;
-    }
-
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+/**
+ * A mischievous shapeshifting Humanoid that can 
+ * clone itself and share power with clones.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public class Doppelganger extends Humanoid implements Cloneable {
+    private ClonePool clones;
+    static final int REST = 10;
+    static final double STAFF_VITALITY = 0.35;
+    static final double STAFF_INTELLIGENCE = 0.3;
+    static final double STAFF_SPEED = 0.6;
+    static final double DAGGER_VITALITY = 0.05;
+    static final double DAGGER_INTELLIGENCE = 0.15;
+    static final double DAGGER_SPEED = 0.8;
+    static final double RAPIER_ARMOR = 0.4;
+    static final double RAPIER_INTELLIGENCE = 0.2;
+    static final double RAPIER_SPEED = 0.5;
+    static final double HALF = 0.5;
+    static final double LENGTH = 6.0;
+    static final String STAFF = "Staff";
+    static final String DAGGER = "Dagger";
+    static final String RAPIER = "Rapier";
+
+    /**
+     * Creates a new Doppelganger with default stats and empty clone list.
+     * Precondition: None.
+     * Postcondition: clones is initialized to an empty ClonePool.
+     */
+    public Doppelganger() {
+        super();
+        clones = new ClonePool();
+    }
+
+    /**
+     * Constructs a Doppelganger with specified stats and empty clone list.
+     *
+     * @param armor       initial armor value
+     * @param vitality    initial vitality value
+     * @param speed       initial speed value
+     * @param intelligence initial intelligence value
+     * @param weapon      initial weapon name
+     * Precondition: weapon may be null or one of available weapons.
+     * Postcondition: clones is initialized to an empty ClonePool.
+     */
+    public Doppelganger(int armor, int vitality,
+                       double speed, int intelligence, String weapon) {
+        super(armor, vitality, speed, intelligence, weapon);
+        clones = new ClonePool();
+    }
+
+    /**
+     * Creates a deep copy of this Doppelganger without copying its clones.
+     *
+     * @return a new Doppelganger with identical stats but empty clone list
+     * @throws CloneNotSupportedException if this instance cannot be cloned
+     * Precondition: this.volume > 0
+     * Postcondition: returned clone has same stats, clones list is empty.
+     */
+    @Override
+    protected Doppelganger clone() throws CloneNotSupportedException {
+        Doppelganger copy = new Doppelganger(
+            this.getArmor(),
+            this.getVitality(),
+            this.getSpeed(),
+            this.getIntelligence(),
+            null
+        );
+        copy.setWeaponType(this.getWeaponType());
+        copy.setRandomSource(getRandomSource());
+        return copy;
+    }
+
+    /**
+     * Returns a read-only snapshot of the clones belonging to this
+     * Doppelganger, in resurrection order. The clones live in a
+     * ClonePool, so the list holds copies: it cannot be modified, and
+     * changing its elements does not change the clones. Use addClone()
+     * and clearClones() to change them.
+     *
+     * @return unmodifiable list of this Doppelganger's clones, first to
+     *         last
+     * Precondition: None.
+     * Postcondition: clones are unchanged.
+     */
+    public List<Doppelganger> getClones() {
+        ArrayList<Doppelganger> list = new ArrayList<>();
+        for (int i = 0; i < clones.size(); i++) {
+            list.add(cloneAt(i));
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the pool holding this Doppelganger's clones for snapshots.
+     *
+     * @return the clone pool
+     */
+    @Override
+    ClonePool clonePool() {
+        return clones;
+    }
+
+    /**
+     * Returns the number of clones belonging to this Doppelganger.
+     *
+     * @return clone count
+     * Precondition: None.
+     * Postcondition: None.
+     */
+    public int getCloneCount() {
+        return clones.size();
+    }
+
+    /**
+     * Adds a clone after the existing ones. Clones of the clone are
+     * added right after it, so the whole family shares one pool and each
+     * of them is one more resurrection: a clone's own clones are not
+     * lost when it is used up.
+     *
+     * @param clone the Doppelganger to add as a clone
+     * Precondition: clone is not null and not this.
+     * Postcondition: clone count grows by one plus clone's clone count.
+     */
+    public void addClone(Doppelganger clone) {
+        Weapon weapon = clone.getWeaponType();
+        int weaponId = -1;
+        double armorRate = 0.0;
+        double vitalityRate = 0.0;
+        if (weapon != null) {
+            weaponId = weapon.getId();
+            if (weapon.givesPowerTo(clone.getClass())) {
+                armorRate = weapon.getCoefficient(Weapon.ARMOR);
+                vitalityRate = weapon.getCoefficient(Weapon.VITALITY);
+            }
+        }
+        clones.add(clone.getArmor(), clone.getVitality(), clone.getSpeed(),
+                   clone.getIntelligence(), weaponId, clone.weaponPower(),
+                   armorRate, vitalityRate);
+        clones.addAll(clone.clones);
+    }
+
+    /**
+     * Removes every clone.
+     *
+     * Precondition: none.
+     * Postcondition: getCloneCount() is 0.
+     */
+    public void clearClones() {
+        clones.clear();
+    }
+
+    /**
+     * Builds a Doppelganger from the i-th clone's stats.
+     *
+     * @param i clone index, 0 is the first clone
+     * @return a new Doppelganger without clones
+     * Precondition: 0 <= i < getCloneCount().
+     * Postcondition: None.
+     */
+    private Doppelganger cloneAt(int i) {
+        Doppelganger clone = new Doppelganger(clones.getArmor(i),
+                                              clones.getVitality(i),
+                                              clones.getSpeed(i),
+                                              clones.getFirstTrait(i), null);
+        int weaponId = clones.getSecondTrait(i);
+        if (weaponId >= 0) {
+            clone.setWeaponType(Weapon.byId(weaponId));
+        }
+        clone.setRandomSource(getRandomSource());
+        return clone;
+    }
+
+    /**
+     * Checks whether this Doppelganger is alive or has any clones.
+     *
+     * @return true if vitality > 0 or clones list is nonempty; false otherwise
+     * Precondition: None.
+     * Postcondition: None.
+     */
+    @Override
+    public boolean isAlive() {
+        return getVitality() > 0 || clones.size() > 0;
+    }
+
+    /**
+     * Rests this Doppelganger and all clones, increasing each vitality by REST.
+     *
+     * Precondition: None.
+     * Postcondition: This instance's and every clone's vitality
+     *                increased by REST.
+     */
+    @Override
+    public void rest() {
+        int oldVitality = getVitality();
+        setVitality(StatMath.add(oldVitality, REST));
+        clones.rest(0, REST);
+    }
+
+    /**
+     * Calculates total power from this Doppelganger and all its clones.
+     * Its own weapon power is cached until a stat changes, and the
+     * clones' power is kept as a running total by the clone pool.
+     *
+     * @return sum of calculated power of this instance and each clone
+     * Precondition: None.
+     * Postcondition: None.
+     */
+    public double calculatePower() {
+        return cachedPower() + clones.getPowerSum();
+    }
+
+    /**
+     * Performs a strike on the target monster, reducing its armor or vitality.
+     *
+     * @param monster the target Monster to attack
+     * @return the computed strike value applied to the target
+     * Precondition: monster is not null.
+     * Postcondition: monster's armor or vitality reduced based on strikeValue.
+     */
+    @Override
+    public int strike(Monster monster) {
+        double power = calculatePower();
+        int intelligence = getIntelligence();
+        double min = power - HALF * intelligence;
+        double max = power + HALF * intelligence;
+        return DamageKernel.strike(monster, min, max, getRandomSource());
+    }
+
+    /**
+     * Attacks the target monster by invoking strike(monster).
+     *
+     * @param monster the target Monster to attack
+     * @return result of strike on the target
+     * Precondition: monster is not null.
+     * Postcondition: same as strike(monster).
+     */
+    @Override
+    public int attack(Monster monster) {
+        return strike(monster);
+    }
+
+    /**
+     * Returns the armory weapons for this Doppelganger.
+     *
+     * @return shared array of Staff, Dagger, Rapier, any loaded
+     *         Doppelganger weapons, and Stick
+     * Precondition: None.
+     * Postcondition: None.
+     */
+    @Override
+    protected Weapon[] getAvailableWeapons() {
+        return Weapon.armoryOf(Doppelganger.class);
+    }
+
+    /**
+     * Applies armory effect: calls super then adds 0–5 clones of itself.
+     *
+     * Precondition: None.
+     * Postcondition: Up to floor(random*6) new clones added to clones list.
+     */
+    @Override
+    public void applyArmoryEffect() {
+        super.applyArmoryEffect();
+        int numClones = (int) Math.floor(getRandomSource().nextDouble()
+                                         * LENGTH);
+        for (int i = 0; i < numClones; i++) {
+            try {
+                Doppelganger copy = this.clone();
+                addClone(copy);
+            } catch (CloneNotSupportedException e) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Attempts deathrattle: if dead and clones available,
+     *  resurrect from first clone.
+     *
+     * @return true if resurrected from a clone, false otherwise
+     * Precondition: None.
+     * Postcondition: If resurrected,
+     * this instance's stats replaced with first clone.
+     */
+    @Override
+    public boolean handleDeathrattle() {
+        int vitality = getVitality();
+        if (vitality <= 0 && !clones.isEmpty()) {
+            int weaponId = clones.getSecondTrait(0);
+            setArmor(clones.getArmor(0));
+            setVitality(clones.getVitality(0));
+            setSpeed(clones.getSpeed(0));
+            setIntelligence(clones.getFirstTrait(0));
+            setWeaponType(weaponId < 0 ? null : Weapon.byId(weaponId));
+            clones.removeFirst();
+            FightMetrics.cloneConsumed();
+            clearPoison();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates an independent deep copy of this Doppelganger, including
+     * its clones.
+     *
+     * @return a new Doppelganger with identical state
+     * Precondition: none.
+     * Postcondition: this instance is unchanged.
+     */
+    @Override
+    public Doppelganger copy() {
+        Doppelganger copy = new Doppelganger(getArmor(), getVitality(),
+                                             getSpeed(), getIntelligence(),
+                                             null);
+        copy.setWeaponType(getWeaponType());
+        copy.poisoned = this.poisoned;
+        copy.setRandomSource(getRandomSource());
+        copy.clones.copyFrom(clones);
+        return copy;
+    }
 }
\ No newline at end of file
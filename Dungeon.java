@@ -1,234 +1,321 @@
-/**
- * Provides utility methods for calculating betting odds, equipping monsters,
- * and running a showdown between two monsters in the dungeon.
- *
- * Bugs: none known.
- *
- * @author David Do
- */
-public class Dungeon{
-
-    private static final double ODDS1 = 0.8;
-    private static final double ODDS2 = 1.2;
-    private static final int TWO_WON = 2;
-    // Necessary constants
-    private final static int SPACING = 17;
-    private final static String LEFT = "Left";
-    private final static String RIGHT = "Right";
-
-    /**
-     * Prevents instantiation of the Dungeon 
-     * class since it only provides static methods.
-     *
-     * Precondition: none.
-     * Postcondition: Dungeon cannot be instantiated.
-     */
-    private Dungeon(){}
-
-    /**
-     * Calculates betting odds for monster1 versus monster2.
-     *
-     * @param monster1 the first monster
-     * @param monster2 the second monster
-     * @return odds in favor of monster1 winning
-     */
-    public static double calculateBettingOdds(Monster monster1,
-                                              Monster monster2){
-        double power1 = monster1.calculatePower();
-        double power2 = monster2.calculatePower();
-        double P = power1 / (power1 + power2);
-        double odds = P / (1 - P);
-        if(monster1.compareTo(monster2) < 0){
-            odds *= ODDS1;
-        }
-        else if(monster1.compareTo(monster2) > 0){
-            odds *= ODDS2;
-        }
-        return odds;
-    }
-
-    /**
-     * Sends a monster to the armory to apply its armory effect.
-     *
-     * @param monster the monster to equip
-     */
-    public static void armory(Monster monster){
-        monster.applyArmoryEffect();
-    }
-
-    /**
-     * Runs a duel between two monsters until one or both die, printing
-     * round-by-round details.
-     *
-     * @param monster1 the left-side monster
-     * @param monster2 the right-side monster
-     * @return 0 if tie, 1 if monster1 wins, 2 if monster2 wins
-     */
-    public static int showdown(Monster monster1, Monster monster2){
-        int round = 0;
-        while(monster1.getVitality() > 0
-              && monster2.getVitality() > 0){
-            printRound(round);
-            printBothMonsters(monster1, monster2);
-            monster1.performSpecialAbility(monster2);
-            monster2.performSpecialAbility(monster1);
-            printAttack(LEFT, monster1.attack(monster2));
-            printAttack(RIGHT, monster2.attack(monster1));
-            System.out.println("RIGHT attack: "
-                               + monster2.attack(monster1));
-            if (monster1.getVitality() <= 0) {
-                if (monster1.handleDeathrattle()) {
-                    System.out.println("monster1 "
-                                       + "was resurrected from its "
-                                       + "Deathrattle!");
-                } else {
-                    System.out.println("monster1 has no clones left "
-                                       + "and is dead.");
-                }
-            }
-
-            if (monster2.getVitality() <= 0) {
-                if (monster2.handleDeathrattle()) {
-                    System.out.println("monster2 was resurrected "
-                                       + "from its Deathrattle!");
-                } else {
-                    System.out.println("monster2 has no clones left "
-                                       + "and is dead.");
-                }
-            }
-            if(monster1.getVitality() > 0){
-                monster1.rest();
-            }
-
-            if(monster2.getVitality() > 0){
-                monster2.rest();
-            }
-            round++;
-        }
-        boolean poisoned = monster1.isPoisoned()
-                           || monster2.isPoisoned();
-        printFinalStats(monster1, monster2, poisoned);
-        int vitality1 = monster1.getVitality();
-        int vitality2 = monster2.getVitality();
-        if(vitality1 == 0 && vitality1 == vitality2){
-            printTieGame();
-            return 0;
-        }
-        else if(vitality1 > vitality2){
-            System.out.println("LEFT");
-            return 1;
-        }
-        System.out.println("RIGHT");
-        return TWO_WON;
-    }
-
-    /* Below are helper methods to make showdown() work */
-
-    /**
-     * Use this method in showdown() to display the stats of both
-     * monsters together.
-     *
-     * @param monster1 Monster on the left side to display stats
-     * @param monster2 Monster on the right side to display stats
-     */
-    public static void printBothMonsters(Monster monster1, Monster monster2) {
-        int armorSpacing = calcSpacing(Integer
-                                       .toString(monster1.getArmor()));
-        int healthSpacing = calcSpacing(Integer
-                                        .toString(monster1.getVitality()));
-        int strSpacing = calcSpacing(
-                             String.format("%.2f", monster1.getSpeed()));
-        int monsterSpacing = calcSpacing(monster1.getClass()
-                                         .getName());
-        String str = String.format( "(%s) %s  (%s)\n"
-             + "----------" + "        	" + "----------\n"
-             + "A: %d %s A: %d\n"
-             + "V: %d %s V: %d\n"
-             + "S: %.2f %s S: %.2f\n",
-             monster1.getClass().getName(),
-             " ".repeat(monsterSpacing),
-             monster2.getClass().getName(),
-             monster1.getArmor(),
-             " ".repeat(armorSpacing),
-             monster2.getArmor(),
-             monster1.getVitality(),
-             " ".repeat(healthSpacing),
-             monster2.getVitality(),
-             monster1.getSpeed(),
-             " ".repeat(strSpacing),
-             monster2.getSpeed()
-        );
-        System.out.println(str);
-    }
-
-    /**
-     * Helper method for printBothMonsters().
-     *
-     * @param str String on the left - used to calculate spacing
-     * @return number of spaces to put between strings
-     */
-    public static int calcSpacing(String str) {
-        int totalWidth = SPACING;
-        int str1Width = str.length();
-        int spacing = (totalWidth - str1Width);
-        if (spacing < 0) {
-            return 0;
-        }
-        return spacing;
-    }
-
-    /**
-     * Use this method in showdown() to display the current round.
-     *
-     * @param round an int of the round (should start at 0)
-     */
-    public static void printRound(int round) {
-        System.out.println();
-        System.out.println("Round " + round + ":");
-    }
-
-    /**
-     * Use this method in showdown() to display the damage each round.
-     *
-     * @param side   the side of the Monster that invoked attack()
-     * @param damage the int (damage) returned from an attack() call
-     */
-    public static void printAttack(String side, int damage) {
-        System.out.printf("%s does %d damage!\n", side, damage);
-    }
-
-    /**
-     * Use this method in showdown() to display final stats and poison status.
-     *
-     * @param monster1 Left monster
-     * @param monster2 Right monster
-     * @param poisoned whether either monster was poisoned
-     */
-    public static void printFinalStats(Monster monster1,
-                                       Monster monster2,
-                                       boolean poisoned) {
-        System.out.println();
-        printBothMonsters(monster1, monster2);
-        if (poisoned) {
-            System.out.println("A monster was poisoned.");
-        }
-    }
-
-    /**
-     * Use this method in showdown() to display a tie game.
-     */
-    public static void printTieGame() {
-        System.out.println("-------GAME OVER-------");
-        System.out.println("TIE: Both monsters died!");
-    }
-
-    /**
-     * Use this method in showdown() to display the winner.
-     *
-     * @param side the side of the Monster that won
-     */
-    public static void printWinner(String side) {
-        System.out.println("-------GAME OVER-------");
-        System.out.println(side + " monster wins!");
-    }
-}
\ No newline at end of file
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Formatter;
+/**
+ * Provides utility methods for calculating betting odds, equipping monsters,
+ * and running a showdown between two monsters in the dungeon.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public class Dungeon{
+
+    private static final double ODDS1 = 0.8;
+    private static final double ODDS2 = 1.2;
+    private static final long SIMULATED_TRIALS = 1000000;
+    private static final double SIMULATED_HALF_WIDTH = 0.005;
+    // Necessary constants
+    private final static int SPACING = 17;
+    final static String LEFT = "Left";
+    final static String RIGHT = "Right";
+    private static ConsoleRenderer renderer;
+
+    /**
+     * Prevents instantiation of the Dungeon 
+     * class since it only provides static methods.
+     *
+     * Precondition: none.
+     * Postcondition: Dungeon cannot be instantiated.
+     */
+    private Dungeon(){}
+
+    /**
+     * Calculates betting odds for monster1 versus monster2.
+     *
+     * @param monster1 the first monster
+     * @param monster2 the second monster
+     * @return odds in favor of monster1 winning
+     */
+    public static double calculateBettingOdds(Monster monster1,
+                                              Monster monster2){
+        double power1 = monster1.calculatePower();
+        double power2 = monster2.calculatePower();
+        double P = power1 / (power1 + power2);
+        double odds = P / (1 - P);
+        if(monster1.compareTo(monster2) < 0){
+            odds *= ODDS1;
+        }
+        else if(monster1.compareTo(monster2) > 0){
+            odds *= ODDS2;
+        }
+        return odds;
+    }
+
+    /**
+     * Estimates betting odds for monster1 versus monster2 by simulating
+     * silent showdowns between copies of both monsters on all cores.
+     * Unlike calculateBettingOdds(), repeated calls with the same seed
+     * return the same odds.
+     *
+     * @param monster1 the first monster (not modified)
+     * @param monster2 the second monster (not modified)
+     * @param seed     the 64-bit seed of the simulation
+     * @return odds in favor of monster1 winning
+     */
+    public static double simulateBettingOdds(Monster monster1,
+                                             Monster monster2, long seed){
+        return OddsEstimator.estimate(monster1, monster2, seed,
+                                      SIMULATED_TRIALS, SIMULATED_HALF_WIDTH)
+            .getOdds();
+    }
+
+    /**
+     * Sends a monster to the armory to apply its armory effect.
+     *
+     * @param monster the monster to equip
+     */
+    public static void armory(Monster monster){
+        monster.applyArmoryEffect();
+    }
+
+    /**
+     * Runs a duel between two monsters until one or both die, printing
+     * round-by-round details. The duel itself is run by ShowdownEngine
+     * and recorded in a CombatLog; the narration is formatted and
+     * printed by a ConsoleRenderer thread. Duels may run at the same
+     * time; each one's narration is printed whole, in the order the
+     * duels started. This method does not wait for the narration to be
+     * printed; call flushNarration() before printing anything that
+     * should follow it.
+     *
+     * @param monster1 the left-side monster
+     * @param monster2 the right-side monster
+     * @return 0 if tie, 1 if monster1 wins, 2 if monster2 wins
+     * @throws UncheckedIOException if the renderer is closed
+     */
+    public static int showdown(Monster monster1, Monster monster2){
+        OutputStream narration = consoleRenderer().open();
+        try {
+            return ShowdownEngine.run(monster1, monster2,
+                                      new CombatLog(narration))
+                .getWinner();
+        } finally {
+            try {
+                narration.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Waits until the narration of every showdown() that has finished
+     * has been printed.
+     *
+     * @throws UncheckedIOException if a log could not be decoded or the
+     *         wait was interrupted
+     */
+    public static void flushNarration(){
+        ConsoleRenderer current;
+        synchronized (Dungeon.class) {
+            current = renderer;
+        }
+        if (current == null) {
+            return;
+        }
+        try {
+            current.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Prints a CombatLog in the showdown() format: the round number and
+     * both monsters' stats every round, the damage of every attack, the
+     * outcome of every deathrattle, and the final stats and winner.
+     *
+     * @param log the encoded events written by a CombatLog
+     * @throws IOException if the log cannot be read or is malformed
+     */
+    public static void printCombatLog(InputStream log) throws IOException {
+        System.out.print(formatCombatLog(log));
+        System.out.flush();
+    }
+
+    /**
+     * Formats a CombatLog in the showdown() format without printing it,
+     * so a caller can send the narration somewhere other than
+     * System.out.
+     *
+     * @param log the encoded events written by a CombatLog
+     * @return the narration
+     * @throws IOException if the log cannot be read or is malformed
+     */
+    public static String formatCombatLog(InputStream log) throws IOException {
+        CombatLogReader reader = new CombatLogReader(log);
+        StringBuilder text = new StringBuilder();
+        Formatter formatter = new Formatter(text);
+        CombatEvent event;
+        while ((event = reader.next()) != null) {
+            ConsoleRenderer.append(event, text, formatter);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns the renderer that prints narrated showdowns to
+     * System.out, starting it on first use. The renderer is closed when
+     * the JVM shuts down, so finished narration is printed before exit.
+     *
+     * @return the shared console renderer
+     */
+    private static synchronized ConsoleRenderer consoleRenderer(){
+        if (renderer == null) {
+            ConsoleRenderer started = new ConsoleRenderer(System.out);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    started.close();
+                } catch (IOException e) {
+                    System.err.println("narration lost: " + e.getMessage());
+                }
+            }, "console-renderer-shutdown"));
+            renderer = started;
+        }
+        return renderer;
+    }
+
+    /**
+     * Runs a reproducible duel between two monsters, printing
+     * round-by-round details. Both monsters draw from one random
+     * source seeded with seed, so the same seed replays the same duel.
+     *
+     * @param monster1 the left-side monster
+     * @param monster2 the right-side monster
+     * @param seed     the 64-bit seed of the duel
+     * @return 0 if tie, 1 if monster1 wins, 2 if monster2 wins
+     */
+    public static int showdown(Monster monster1, Monster monster2,
+                               long seed){
+        RandomSource random = new XoroshiroRandomSource(seed);
+        monster1.setRandomSource(random);
+        monster2.setRandomSource(random);
+        return showdown(monster1, monster2);
+    }
+
+    /* Below are helper methods to make showdown() work */
+
+    /**
+     * Use this method in showdown() to display the stats of both
+     * monsters together.
+     *
+     * @param monster1 Monster on the left side to display stats
+     * @param monster2 Monster on the right side to display stats
+     */
+    public static void printBothMonsters(Monster monster1, Monster monster2) {
+        System.out.println(formatBothMonsters(
+            monster1.getClass().getName(), monster1.getArmor(),
+            monster1.getVitality(), monster1.getSpeed(),
+            monster2.getClass().getName(), monster2.getArmor(),
+            monster2.getVitality(), monster2.getSpeed()));
+    }
+
+    /**
+     * Formats the stats of both monsters side by side, as printed by
+     * printBothMonsters().
+     *
+     * @param name1     class name of the left monster
+     * @param armor1    armor of the left monster
+     * @param vitality1 vitality of the left monster
+     * @param speed1    speed of the left monster
+     * @param name2     class name of the right monster
+     * @param armor2    armor of the right monster
+     * @param vitality2 vitality of the right monster
+     * @param speed2    speed of the right monster
+     * @return the formatted stats
+     */
+    public static String formatBothMonsters(String name1, int armor1,
+                                            int vitality1, double speed1,
+                                            String name2, int armor2,
+                                            int vitality2, double speed2) {
+        StringBuilder text = new StringBuilder();
+        ConsoleRenderer.appendBothMonsters(text, new Formatter(text),
+                                           name1, armor1, vitality1, speed1,
+                                           name2, armor2, vitality2, speed2);
+        return text.toString();
+    }
+
+    /**
+     * Helper method for printBothMonsters().
+     *
+     * @param str String on the left - used to calculate spacing
+     * @return number of spaces to put between strings
+     */
+    public static int calcSpacing(String str) {
+        int totalWidth = SPACING;
+        int str1Width = str.length();
+        int spacing = (totalWidth - str1Width);
+        if (spacing < 0) {
+            return 0;
+        }
+        return spacing;
+    }
+
+    /**
+     * Use this method in showdown() to display the current round.
+     *
+     * @param round an int of the round (should start at 0)
+     */
+    public static void printRound(int round) {
+        System.out.println();
+        System.out.println("Round " + round + ":");
+    }
+
+    /**
+     * Use this method in showdown() to display the damage each round.
+     *
+     * @param side   the side of the Monster that invoked attack()
+     * @param damage the int (damage) returned from an attack() call
+     */
+    public static void printAttack(String side, int damage) {
+        System.out.printf("%s does %d damage!\n", side, damage);
+    }
+
+    /**
+     * Use this method in showdown() to display final stats and poison status.
+     *
+     * @param monster1 Left monster
+     * @param monster2 Right monster
+     * @param poisoned whether either monster was poisoned
+     */
+    public static void printFinalStats(Monster monster1,
+                                       Monster monster2,
+                                       boolean poisoned) {
+        System.out.println();
+        printBothMonsters(monster1, monster2);
+        if (poisoned) {
+            System.out.println("A monster was poisoned.");
+        }
+    }
+
+    /**
+     * Use this method in showdown() to display a tie game.
+     */
+    public static void printTieGame() {
+        System.out.println("-------GAME OVER-------");
+        System.out.println("TIE: Both monsters died!");
+    }
+
+    /**
+     * Use this method in showdown() to display the winner.
+     *
+     * @param side the side of the Monster that won
+     */
+    public static void printWinner(String side) {
+        System.out.println("-------GAME OVER-------");
+        System.out.println(side + " monster wins!");
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Everything needed to replay a duel: both starting monsters, the seed
+ * of the random source they share and the round limit. run() fights on
+ * fresh copies, so a config can be run any number of times and always
+ * produces the same duel. RosterCodec writes and reads configs, so a
+ * duel can be sent to another service and fought there.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class FightConfig {
+    private final Monster left;
+    private final Monster right;
+    private final long seed;
+    private final int maxRounds;
+
+    /**
+     * Constructs a FightConfig from copies of both monsters.
+     *
+     * @param left      the left-side monster (not modified)
+     * @param right     the right-side monster (not modified)
+     * @param seed      the 64-bit seed of the duel's random source
+     * @param maxRounds the maximum number of rounds to fight
+     * Precondition: monsters not null; maxRounds > 0.
+     * Postcondition: later changes to left and right do not affect
+     *                this config.
+     */
+    public FightConfig(Monster left, Monster right, long seed,
+                       int maxRounds) {
+        this.left = left.copy();
+        this.right = right.copy();
+        this.seed = seed;
+        this.maxRounds = maxRounds;
+    }
+
+    /**
+     * Returns a copy of the left-side monster.
+     *
+     * @return the left monster at the start of the duel
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public Monster getLeft() {
+        return left.copy();
+    }
+
+    /**
+     * Returns a copy of the right-side monster.
+     *
+     * @return the right monster at the start of the duel
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public Monster getRight() {
+        return right.copy();
+    }
+
+    /**
+     * Returns the seed of the duel's random source.
+     *
+     * @return the seed
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Returns the round limit.
+     *
+     * @return the maximum number of rounds
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getMaxRounds() {
+        return this.maxRounds;
+    }
+
+    /**
+     * Fights the duel silently.
+     *
+     * @return the outcome of the duel
+     * Precondition: none.
+     * Postcondition: this config is unchanged.
+     */
+    public ShowdownResult run() {
+        return run(new ShowdownObserver() {
+        });
+    }
+
+    /**
+     * Fights the duel, reporting every step to an observer.
+     *
+     * @param observer receives the round-by-round events
+     * @return the outcome of the duel
+     * Precondition: observer not null.
+     * Postcondition: this config is unchanged.
+     */
+    public ShowdownResult run(ShowdownObserver observer) {
+        Monster monster1 = left.copy();
+        Monster monster2 = right.copy();
+        RandomSource random = new XoroshiroRandomSource(seed);
+        monster1.setRandomSource(random);
+        monster2.setRandomSource(random);
+        return ShowdownEngine.run(monster1, monster2, observer, maxRounds);
+    }
+}
@@ -0,0 +1,334 @@
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+/**
+ * Process-wide fight metrics: rounds per fight, damage per attack for
+ * each monster class, corrode attempts and successes, deathrattles,
+ * resurrections and clones consumed. ShowdownEngine, MeleeEngine,
+ * MonsterArena, Ooze and Doppelganger report to this class, and
+ * toPrometheus() formats everything in the Prometheus text format;
+ * MetricsExporter serves it over HTTP or hands it to a sink on a timer.
+ *
+ * Metrics are off unless the JVM is started with
+ * -Dmonster.metrics=true. As in StatMath, the switch is a static final
+ * constant, so when it is off the JIT drops every call here. When it is
+ * on, each event is one or two atomic adds on a StripedCounter or
+ * Histogram stripe owned by the calling thread; the histogram of a
+ * monster class is found through a ClassValue, so recording never
+ * allocates once a class has been seen.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class FightMetrics {
+    public static final boolean ENABLED =
+        Boolean.getBoolean("monster.metrics");
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double PERCENT = 100.0;
+
+    private static final Histogram ROUNDS = new Histogram();
+    private static final StripedCounter CORRODE_ATTEMPTS =
+        new StripedCounter();
+    private static final StripedCounter CORRODE_SUCCESSES =
+        new StripedCounter();
+    private static final StripedCounter DEATHRATTLES = new StripedCounter();
+    private static final StripedCounter RESURRECTIONS = new StripedCounter();
+    private static final StripedCounter CLONES_CONSUMED =
+        new StripedCounter();
+    private static final Map<Class<?>, Histogram> DAMAGE_BY_CLASS =
+        new ConcurrentHashMap<>();
+    private static final ClassValue<Histogram> DAMAGE =
+        new ClassValue<Histogram>() {
+            @Override
+            protected Histogram computeValue(Class<?> type) {
+                return DAMAGE_BY_CLASS.computeIfAbsent(type,
+                                                       k -> new Histogram());
+            }
+        };
+
+    /**
+     * Prevents instantiation of the FightMetrics
+     * class since it only provides static methods.
+     *
+     * Precondition: none.
+     * Postcondition: FightMetrics cannot be instantiated.
+     */
+    private FightMetrics() {
+    }
+
+    /**
+     * Records a finished fight.
+     *
+     * @param rounds the number of rounds fought
+     * Precondition: none.
+     * Postcondition: the rounds histogram has one more value if enabled.
+     */
+    public static void fight(int rounds) {
+        if (ENABLED) {
+            ROUNDS.record(rounds);
+        }
+    }
+
+    /**
+     * Records one attack by a monster.
+     *
+     * @param attacker the attacking monster
+     * @param damage   the strike value of the attack
+     * Precondition: attacker not null.
+     * Postcondition: the attacker's class histogram has one more value
+     *                if enabled.
+     */
+    public static void attack(Monster attacker, int damage) {
+        if (ENABLED) {
+            DAMAGE.get(attacker.getClass()).record(damage);
+        }
+    }
+
+    /**
+     * Records one attack by a monster of the given class.
+     *
+     * @param type   the attacker's class
+     * @param damage the strike value of the attack
+     * Precondition: type not null.
+     * Postcondition: the class histogram has one more value if enabled.
+     */
+    public static void attack(Class<?> type, int damage) {
+        if (ENABLED) {
+            DAMAGE.get(type).record(damage);
+        }
+    }
+
+    /**
+     * Records a corrode attempt.
+     *
+     * @param success true if the ooze corroded
+     * Precondition: none.
+     * Postcondition: the corrode counters are updated if enabled.
+     */
+    public static void corrode(boolean success) {
+        if (ENABLED) {
+            CORRODE_ATTEMPTS.increment();
+            if (success) {
+                CORRODE_SUCCESSES.increment();
+            }
+        }
+    }
+
+    /**
+     * Records a deathrattle check of a downed monster.
+     *
+     * @param resurrected true if the deathrattle resurrected it
+     * Precondition: none.
+     * Postcondition: the deathrattle counters are updated if enabled.
+     */
+    public static void deathrattle(boolean resurrected) {
+        if (ENABLED) {
+            DEATHRATTLES.increment();
+            if (resurrected) {
+                RESURRECTIONS.increment();
+            }
+        }
+    }
+
+    /**
+     * Records a clone used up by a resurrection.
+     *
+     * Precondition: none.
+     * Postcondition: the clone counter is one larger if enabled.
+     */
+    public static void cloneConsumed() {
+        if (ENABLED) {
+            CLONES_CONSUMED.increment();
+        }
+    }
+
+    /**
+     * Returns the histogram of rounds per fight.
+     *
+     * @return the rounds histogram
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public static Histogram getRounds() {
+        return ROUNDS;
+    }
+
+    /**
+     * Returns the histogram of damage per attack for a monster class.
+     *
+     * @param type the monster class
+     * @return the damage histogram
+     * Precondition: type not null.
+     * Postcondition: none.
+     */
+    public static Histogram getDamage(Class<?> type) {
+        return DAMAGE.get(type);
+    }
+
+    /**
+     * Returns the number of corrode attempts.
+     *
+     * @return attempt count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public static long getCorrodeAttempts() {
+        return CORRODE_ATTEMPTS.get();
+    }
+
+    /**
+     * Returns the number of successful corrode attempts.
+     *
+     * @return success count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public static long getCorrodeSuccesses() {
+        return CORRODE_SUCCESSES.get();
+    }
+
+    /**
+     * Returns the number of deathrattle checks.
+     *
+     * @return deathrattle count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public static long getDeathrattles() {
+        return DEATHRATTLES.get();
+    }
+
+    /**
+     * Returns the number of deathrattles that resurrected a monster.
+     *
+     * @return resurrection count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public static long getResurrections() {
+        return RESURRECTIONS.get();
+    }
+
+    /**
+     * Returns the number of clones used up by resurrections.
+     *
+     * @return clone count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public static long getClonesConsumed() {
+        return CLONES_CONSUMED.get();
+    }
+
+    /**
+     * Sets every metric back to zero.
+     *
+     * Precondition: no fight is running.
+     * Postcondition: every count is 0.
+     */
+    public static void reset() {
+        ROUNDS.reset();
+        CORRODE_ATTEMPTS.reset();
+        CORRODE_SUCCESSES.reset();
+        DEATHRATTLES.reset();
+        RESURRECTIONS.reset();
+        CLONES_CONSUMED.reset();
+        for (Histogram damage : DAMAGE_BY_CLASS.values()) {
+            damage.reset();
+        }
+    }
+
+    /**
+     * Formats every metric in the Prometheus text exposition format.
+     * Histograms are written as summaries with the 50th, 90th, 99th and
+     * 99.9th percentiles.
+     *
+     * @return the metrics, one sample per line
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public static String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        summaryHeader(text, "monster_fight_rounds", "Rounds per fight.");
+        summary(text, "monster_fight_rounds", "", ROUNDS);
+        summaryHeader(text, "monster_attack_damage",
+                      "Strike value per attack by monster class.");
+        DAMAGE_BY_CLASS.entrySet().stream()
+            .sorted(Comparator.comparing(e -> e.getKey().getName()))
+            .forEach(e -> summary(text, "monster_attack_damage",
+                                  "class=\"" + e.getKey().getName() + "\"",
+                                  e.getValue()));
+        counter(text, "monster_corrode_attempts_total",
+                "Corrode attempts by oozes.", CORRODE_ATTEMPTS);
+        counter(text, "monster_corrode_successes_total",
+                "Successful corrode attempts.", CORRODE_SUCCESSES);
+        counter(text, "monster_deathrattles_total",
+                "Deathrattle checks of downed monsters.", DEATHRATTLES);
+        counter(text, "monster_resurrections_total",
+                "Deathrattles that resurrected a monster.", RESURRECTIONS);
+        counter(text, "monster_clones_consumed_total",
+                "Clones used up by resurrections.", CLONES_CONSUMED);
+        return text.toString();
+    }
+
+    /**
+     * Writes the HELP and TYPE lines of a summary.
+     *
+     * @param text the output
+     * @param name the metric name
+     * @param help the metric description
+     * Precondition: arguments not null.
+     * Postcondition: two lines appended.
+     */
+    private static void summaryHeader(StringBuilder text, String name,
+                                      String help) {
+        text.append("# HELP ").append(name).append(' ').append(help)
+            .append('\n');
+        text.append("# TYPE ").append(name).append(" summary\n");
+    }
+
+    /**
+     * Writes the samples of one summary.
+     *
+     * @param text      the output
+     * @param name      the metric name
+     * @param labels    extra labels, or "" for none
+     * @param histogram the recorded values
+     * Precondition: arguments not null.
+     * Postcondition: the quantile, sum and count lines appended.
+     */
+    private static void summary(StringBuilder text, String name,
+                                String labels, Histogram histogram) {
+        String separator = labels.isEmpty() ? "" : ",";
+        for (double quantile : QUANTILES) {
+            text.append(name).append('{').append(labels).append(separator)
+                .append("quantile=\"").append(quantile).append("\"} ")
+                .append(histogram.valueAtPercentile(quantile * PERCENT))
+                .append('\n');
+        }
+        String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+        text.append(name).append("_sum").append(suffix).append(' ')
+            .append(histogram.getSum()).append('\n');
+        text.append(name).append("_count").append(suffix).append(' ')
+            .append(histogram.getCount()).append('\n');
+    }
+
+    /**
+     * Writes one counter with its HELP and TYPE lines.
+     *
+     * @param text    the output
+     * @param name    the metric name
+     * @param help    the metric description
+     * @param counter the counter
+     * Precondition: arguments not null.
+     * Postcondition: three lines appended.
+     */
+    private static void counter(StringBuilder text, String name, String help,
+                                StripedCounter counter) {
+        text.append("# HELP ").append(name).append(' ').append(help)
+            .append('\n');
+        text.append("# TYPE ").append(name).append(" counter\n");
+        text.append(name).append(' ').append(counter.get()).append('\n');
+    }
+}
@@ -0,0 +1,404 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+/**
+ * A local HTTP front end for duels and betting odds. It listens on the
+ * loopback address and answers two GET requests:
+ *
+ *   /showdown?left=SPEC&right=SPEC&seed=N  the narrated duel, as text,
+ *                                          called a tie after MAX_ROUNDS
+ *   /odds?left=SPEC&right=SPEC             the simulated odds
+ *
+ * A SPEC is a class name followed by its constructor arguments, separated
+ * by commas: Bandit,10,50,1.0,5,Axe or Ochre,5,80,1.0,4,3. A Humanoid's
+ * weapon must belong to its class's armory.
+ *
+ * Each duel builds its own monsters and its own random source from the
+ * request's seed, and its narration goes to a CombatLog in memory that
+ * is formatted into the response, so requests share no state and never
+ * touch System.out. Odds come from a MatchupCache, so repeated matchups
+ * are simulated once.
+ *
+ * Requests are parsed on the server's dispatcher thread and run on a
+ * fixed pool of worker threads, one per processor by default, since a
+ * duel never blocks. At most maxInFlight requests are admitted at once,
+ * IN_FLIGHT_PER_WORKER per worker by default, and the workers' queue is
+ * bounded to the same size. A request over the limit is answered 503
+ * straight away, so an admitted request waits behind at most
+ * maxInFlight - workers others however many clients connect.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class FightServer implements AutoCloseable {
+    public static final int IN_FLIGHT_PER_WORKER = 2;
+    public static final int ODDS_CACHE_SIZE = 4096;
+    public static final long ODDS_TIME_TO_LIVE_MILLIS = 600000;
+    public static final int MAX_ROUNDS = 10000;
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int SERVER_ERROR = 500;
+    private static final int BUSY = 503;
+    private static final int NO_BODY = -1;
+    private static final int SPEC_FIELDS = 6;
+    private static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final Semaphore admission;
+    private final MatchupCache odds;
+    private final StripedCounter rejected = new StripedCounter();
+
+    /**
+     * Starts a server with a worker per processor and
+     * IN_FLIGHT_PER_WORKER admitted requests per worker.
+     *
+     * @param port     the port to listen on, or 0 for any free port
+     * @param oddsSeed the 64-bit seed of every odds simulation
+     * @throws IOException if the port cannot be bound
+     * Precondition: 0 <= port <= 65535.
+     * Postcondition: the server is listening.
+     */
+    public FightServer(int port, long oddsSeed) throws IOException {
+        this(port, Runtime.getRuntime().availableProcessors(), oddsSeed);
+    }
+
+    /**
+     * Starts a server with IN_FLIGHT_PER_WORKER admitted requests per
+     * worker.
+     *
+     * @param port     the port to listen on, or 0 for any free port
+     * @param workers  number of threads that run duels
+     * @param oddsSeed the 64-bit seed of every odds simulation
+     * @throws IOException if the port cannot be bound
+     * Precondition: 0 <= port <= 65535; workers > 0.
+     * Postcondition: the server is listening.
+     */
+    private FightServer(int port, int workers, long oddsSeed)
+            throws IOException {
+        this(port, workers, workers * IN_FLIGHT_PER_WORKER, oddsSeed);
+    }
+
+    /**
+     * Starts a server.
+     *
+     * @param port        the port to listen on, or 0 for any free port
+     * @param workers     number of threads that run duels
+     * @param maxInFlight most requests admitted at once
+     * @param oddsSeed    the 64-bit seed of every odds simulation
+     * @throws IOException if the port cannot be bound
+     * Precondition: 0 <= port <= 65535; workers > 0; maxInFlight > 0.
+     * Postcondition: the server is listening.
+     */
+    public FightServer(int port, int workers, int maxInFlight, long oddsSeed)
+            throws IOException {
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workers, workers, 0L,
+            TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxInFlight),
+            task -> {
+                Thread thread = new Thread(task,
+                    "fight-worker-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.admission = new Semaphore(maxInFlight);
+        this.odds = new MatchupCache(ODDS_CACHE_SIZE,
+                                     ODDS_TIME_TO_LIVE_MILLIS, oddsSeed);
+        this.server = HttpServer.create(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/showdown",
+                                  exchange -> admit(exchange, true));
+        this.server.createContext("/odds",
+                                  exchange -> admit(exchange, false));
+        this.server.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the number of requests answered 503 because the server
+     * was full.
+     *
+     * @return rejected count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Returns the odds cache, for its hit-rate statistics.
+     *
+     * @return the cache
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public MatchupCache getOddsCache() {
+        return this.odds;
+    }
+
+    /**
+     * Stops the server. Requests still running are abandoned.
+     *
+     * Precondition: none.
+     * Postcondition: the port is released.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        workers.shutdownNow();
+    }
+
+    /**
+     * Builds a monster from a SPEC: a class name and its constructor
+     * arguments, separated by commas.
+     *
+     * @param spec the monster spec
+     * @return the new monster
+     * @throws IllegalArgumentException if spec is not a valid SPEC
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    static Monster parseMonster(String spec) {
+        if (spec == null) {
+            throw new IllegalArgumentException("missing monster");
+        }
+        String[] fields = spec.split(",");
+        if (fields.length != SPEC_FIELDS) {
+            throw new IllegalArgumentException("expected " + SPEC_FIELDS
+                + " fields in " + spec);
+        }
+        try {
+            int armor = Integer.parseInt(fields[1].trim());
+            int vitality = Integer.parseInt(fields[2].trim());
+            double speed = Double.parseDouble(fields[3].trim());
+            int first = Integer.parseInt(fields[4].trim());
+            String last = fields[5].trim();
+            switch (fields[0].trim()) {
+                case "Bandit":
+                    return new Bandit(armor, vitality, speed, first,
+                                      weaponOf(Bandit.class, last));
+                case "Doppelganger":
+                    return new Doppelganger(armor, vitality, speed, first,
+                                            weaponOf(Doppelganger.class,
+                                                     last));
+                case "Ochre":
+                    return new Ochre(armor, vitality, speed, first,
+                                     Integer.parseInt(last));
+                case "Jubilex":
+                    return new Jubilex(armor, vitality, speed, first,
+                                       Integer.parseInt(last));
+                default:
+                    throw new IllegalArgumentException("unknown monster "
+                                                       + fields[0]);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad number in " + spec);
+        }
+    }
+
+    /**
+     * Returns a weapon name if it belongs to a class's armory. Names
+     * are checked before use so requests cannot register new weapons.
+     *
+     * @param owner the Humanoid class
+     * @param name  the weapon name
+     * @return name
+     * @throws IllegalArgumentException if the armory has no such weapon
+     * Precondition: owner not null.
+     * Postcondition: none.
+     */
+    private static String weaponOf(Class<?> owner, String name) {
+        for (Weapon weapon : Weapon.armoryOf(owner)) {
+            if (weapon.getName().equals(name)) {
+                return name;
+            }
+        }
+        throw new IllegalArgumentException("unknown weapon " + name);
+    }
+
+    /**
+     * Splits a raw query string into decoded parameters.
+     *
+     * @param query the raw query, or null
+     * @return the parameters
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(
+                    URLDecoder.decode(pair.substring(0, equals),
+                                      StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(equals + 1),
+                                      StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Admits a request and hands it to a worker, or answers 503 if the
+     * server is full or the workers' queue rejects it. Runs on the
+     * dispatcher thread.
+     *
+     * @param exchange the request
+     * @param showdown true for /showdown, false for /odds
+     * @throws IOException if the response cannot be sent
+     */
+    private void admit(HttpExchange exchange, boolean showdown)
+            throws IOException {
+        if (!admission.tryAcquire()) {
+            rejected.increment();
+            respond(exchange, BUSY, "busy\n");
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    serve(exchange, showdown);
+                } finally {
+                    admission.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admission.release();
+            rejected.increment();
+            respond(exchange, BUSY, workers.isShutdown() ? "shutting down\n"
+                                                         : "busy\n");
+        }
+    }
+
+    /**
+     * Runs an admitted request and sends its response. Runs on a worker.
+     *
+     * @param exchange the request
+     * @param showdown true for /showdown, false for /odds
+     */
+    private void serve(HttpExchange exchange, boolean showdown) {
+        try {
+            Map<String, String> query =
+                parseQuery(exchange.getRequestURI().getRawQuery());
+            Monster left = parseMonster(query.get("left"));
+            Monster right = parseMonster(query.get("right"));
+            String body;
+            if (showdown) {
+                body = showdown(left, right, parseSeed(query.get("seed")));
+            } else {
+                body = odds.get(left, right).toString() + "\n";
+            }
+            respond(exchange, OK, body);
+        } catch (IllegalArgumentException e) {
+            tryRespond(exchange, BAD_REQUEST, e.getMessage() + "\n");
+        } catch (IOException | RuntimeException e) {
+            tryRespond(exchange, SERVER_ERROR, "error\n");
+        }
+    }
+
+    /**
+     * Runs a narrated duel and returns its narration.
+     *
+     * @param left  the left-side monster
+     * @param right the right-side monster
+     * @param seed  the seed of the duel's random source
+     * @return the narration, as Dungeon.showdown() would print it
+     * @throws IOException if the log cannot be formatted
+     */
+    private static String showdown(Monster left, Monster right, long seed)
+            throws IOException {
+        RandomSource random = new XoroshiroRandomSource(seed);
+        left.setRandomSource(random);
+        right.setRandomSource(random);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        ShowdownEngine.run(left, right, new CombatLog(log), MAX_ROUNDS);
+        return Dungeon.formatCombatLog(
+            new ByteArrayInputStream(log.toByteArray()));
+    }
+
+    /**
+     * Parses a seed parameter.
+     *
+     * @param seed the parameter, or null for seed 0
+     * @return the seed
+     * @throws IllegalArgumentException if seed is not a long
+     */
+    private static long parseSeed(String seed) {
+        if (seed == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(seed);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad seed " + seed);
+        }
+    }
+
+    /**
+     * Sends a response and closes the exchange, ignoring a client that
+     * has gone away.
+     *
+     * @param exchange the request
+     * @param status   the HTTP status
+     * @param body     the response text
+     */
+    private static void tryRespond(HttpExchange exchange, int status,
+                                   String body) {
+        try {
+            respond(exchange, status, body);
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Sends a response and closes the exchange.
+     *
+     * @param exchange the request
+     * @param status   the HTTP status
+     * @param body     the response text
+     * @throws IOException if the response cannot be sent
+     */
+    private static void respond(HttpExchange exchange, int status,
+                                String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length == 0
+                                             ? NO_BODY : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,514 @@
+import java.util.Arrays;
+/**
+ * A bit-for-bit record of one duel: every random number the monsters
+ * drew, with the method that drew it, interleaved with every event the
+ * engine reported to its observer, each tagged with its round.
+ *
+ * record() fights a FightConfig from its seed and keeps the trace.
+ * replay() fights the same duel again feeding the engine the recorded
+ * draws instead of a generator, so a reported fight re-runs exactly
+ * even if the random generator itself has changed. firstDivergence()
+ * and check() compare two traces of the same duel, such as one from the
+ * current engine and one from a faster attack() or calculatePower(),
+ * and report the first round and method where they disagree, or null if
+ * the candidate changed nothing.
+ *
+ * A split of the random source is recorded too: the child source gets
+ * the next stream number, its draws are recorded under that number, and
+ * a replay hands the child the same draws again. Each entry keeps the
+ * stream it was drawn from, so a trace stays in the order the draws
+ * happened while every stream replays on its own.
+ *
+ * Naming the drawing method walks the stack on every draw, so tracing
+ * is meant for checking and debugging, not for bulk simulation.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class FightTrace {
+    public static final byte DRAW_DOUBLE = 0;
+    public static final byte DRAW_LONG = 1;
+    public static final byte SPLIT = 2;
+    public static final byte STARTED = 3;
+    public static final byte ROUND = 4;
+    public static final byte SPECIAL_ABILITY = 5;
+    public static final byte ATTACKED = 6;
+    public static final byte DEATHRATTLE = 7;
+    public static final byte POISONED = 8;
+    public static final byte RESTED = 9;
+    public static final byte FINISHED = 10;
+    private static final String[] NAMES = {"nextDouble", "nextLong",
+        "split", "started", "roundStarted", "specialAbility", "attacked",
+        "deathrattle", "poisoned", "rested", "finished"};
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int HALF = 32;
+    private static final long LOW_BITS = 0xFFFFFFFFL;
+    private static final String END = "end of trace";
+    private static final String UNKNOWN = "unknown";
+    private static final int ROOT = 0;
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    /**
+     * A duel engine with the signature of ShowdownEngine.run(), so
+     * ShowdownEngine::run or any candidate replacement can be traced.
+     */
+    @FunctionalInterface
+    public interface Engine {
+
+        /**
+         * Runs a duel to the end.
+         *
+         * @param monster1  the left monster
+         * @param monster2  the right monster
+         * @param observer  receives the round-by-round events
+         * @param maxRounds the round limit
+         * @return the outcome
+         * Precondition: arguments not null; both monsters share one
+         *               random source; maxRounds > 0.
+         * Postcondition: the monsters hold their end-of-duel state.
+         */
+        ShowdownResult run(Monster monster1, Monster monster2,
+                           ShowdownObserver observer, int maxRounds);
+    }
+
+    private final FightConfig fight;
+    private ShowdownResult result;
+    private int size;
+    private int round;
+    private int streamCount = ROOT + 1;
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private byte[] sides = new byte[INITIAL_CAPACITY];
+    private int[] rounds = new int[INITIAL_CAPACITY];
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int[] streams = new int[INITIAL_CAPACITY];
+    private String[] methods = new String[INITIAL_CAPACITY];
+
+    /**
+     * Constructs an empty trace of a duel.
+     *
+     * @param fight the duel
+     */
+    private FightTrace(FightConfig fight) {
+        this.fight = fight;
+    }
+
+    /**
+     * Fights a duel from its seed and records it.
+     *
+     * @param fight  the duel
+     * @param engine the engine to fight it with
+     * @return the trace
+     * Precondition: arguments not null.
+     * Postcondition: fight is unchanged.
+     */
+    public static FightTrace record(FightConfig fight, Engine engine) {
+        return run(fight, engine,
+                   new XoroshiroRandomSource(fight.getSeed()));
+    }
+
+    /**
+     * Traces a duel with two engines and compares the traces.
+     *
+     * @param fight    the duel
+     * @param expected the reference engine
+     * @param actual   the candidate engine
+     * @return the first divergence, or null if the traces are identical
+     * Precondition: arguments not null.
+     * Postcondition: fight is unchanged.
+     */
+    public static Divergence check(FightConfig fight, Engine expected,
+                                   Engine actual) {
+        return record(fight, expected).firstDivergence(record(fight, actual));
+    }
+
+    /**
+     * Fights this trace's duel again, feeding the engine the recorded
+     * draws in order instead of drawing from a generator.
+     *
+     * @param engine the engine to fight it with
+     * @return the new trace, identical to this one if engine behaves
+     *         like the recording engine
+     * @throws IllegalStateException if engine draws or splits more
+     *         than was recorded, or draws a different kind of number
+     * Precondition: engine not null.
+     * Postcondition: this trace is unchanged.
+     */
+    public FightTrace replay(Engine engine) {
+        return run(fight, engine, new Playback(ROOT));
+    }
+
+    /**
+     * Finds the first entry where another trace differs from this one.
+     *
+     * @param other the trace to compare, usually of the same duel
+     * @return the first divergence, or null if the traces are identical
+     * Precondition: other not null.
+     * Postcondition: none.
+     */
+    public Divergence firstDivergence(FightTrace other) {
+        int common = Math.min(size, other.size);
+        for (int i = 0; i < common; i++) {
+            if (kinds[i] != other.kinds[i] || sides[i] != other.sides[i]
+                || streams[i] != other.streams[i]
+                || rounds[i] != other.rounds[i]
+                || values[i] != other.values[i]
+                || !methods[i].equals(other.methods[i])) {
+                return new Divergence(i, rounds[i], methods[i], describe(i),
+                                      other.describe(i));
+            }
+        }
+        if (size > common) {
+            return new Divergence(common, rounds[common], methods[common],
+                                  describe(common), END);
+        } else if (other.size > common) {
+            return new Divergence(common, other.rounds[common],
+                                  other.methods[common], END,
+                                  other.describe(common));
+        }
+        return null;
+    }
+
+    /**
+     * Returns the traced duel.
+     *
+     * @return the duel
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public FightConfig getFight() {
+        return this.fight;
+    }
+
+    /**
+     * Returns the outcome of the traced duel.
+     *
+     * @return the outcome
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public ShowdownResult getResult() {
+        return this.result;
+    }
+
+    /**
+     * Returns the number of entries: random draws and events.
+     *
+     * @return the entry count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the kind of an entry.
+     *
+     * @param i the entry index
+     * @return DRAW_DOUBLE, DRAW_LONG, SPLIT or one of the event kinds
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    public byte getKind(int i) {
+        return kinds[i];
+    }
+
+    /**
+     * Returns the round of an entry.
+     *
+     * @param i the entry index
+     * @return the round, from 0 as in roundStarted()
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    public int getRound(int i) {
+        return rounds[i];
+    }
+
+    /**
+     * Returns the random stream of an entry.
+     *
+     * @param i the entry index
+     * @return 0 for the duel's own source, or the number a split gave
+     *         the source an entry was drawn from
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    public int getStream(int i) {
+        return streams[i];
+    }
+
+    /**
+     * Returns the method that made an entry.
+     *
+     * @param i the entry index
+     * @return a Class.method name for a draw, or an observer event name
+     * Precondition: 0 <= i < size().
+     * Postcondition: none.
+     */
+    public String getMethod(int i) {
+        return methods[i];
+    }
+
+    /**
+     * Fights a duel with every draw and event going to a new trace.
+     *
+     * @param fight  the duel
+     * @param engine the engine
+     * @param source the random source the monsters draw from
+     * @return the trace
+     */
+    private static FightTrace run(FightConfig fight, Engine engine,
+                                  RandomSource source) {
+        FightTrace trace = new FightTrace(fight);
+        Recorder recorder = trace.new Recorder(source, ROOT);
+        Monster monster1 = fight.getLeft();
+        Monster monster2 = fight.getRight();
+        monster1.setRandomSource(recorder);
+        monster2.setRandomSource(recorder);
+        trace.result = engine.run(monster1, monster2, recorder,
+                                  fight.getMaxRounds());
+        return trace;
+    }
+
+    /**
+     * Appends an entry.
+     *
+     * @param kind   the entry kind
+     * @param stream the random stream, ROOT for events
+     * @param side   ShowdownEngine.LEFT, RIGHT or 0 for neither
+     * @param value  the drawn bits or the event's value
+     * @param method the drawing method or the event name
+     */
+    private void add(byte kind, int stream, int side, long value,
+                     String method) {
+        if (size == kinds.length) {
+            int capacity = 2 * size;
+            kinds = Arrays.copyOf(kinds, capacity);
+            sides = Arrays.copyOf(sides, capacity);
+            rounds = Arrays.copyOf(rounds, capacity);
+            values = Arrays.copyOf(values, capacity);
+            methods = Arrays.copyOf(methods, capacity);
+            streams = Arrays.copyOf(streams, capacity);
+        }
+        kinds[size] = kind;
+        sides[size] = (byte) side;
+        streams[size] = stream;
+        rounds[size] = round;
+        values[size] = value;
+        methods[size] = method;
+        size++;
+    }
+
+    /**
+     * Describes an entry for a Divergence report.
+     *
+     * @param i the entry index
+     * @return the description
+     */
+    private String describe(int i) {
+        long value = values[i];
+        String in = " in " + methods[i]
+                    + (streams[i] == ROOT ? "" : " on stream " + streams[i]);
+        switch (kinds[i]) {
+            case DRAW_DOUBLE:
+                return "nextDouble() = " + Double.longBitsToDouble(value)
+                       + in;
+            case DRAW_LONG:
+                return "nextLong() = " + value + in;
+            case SPLIT:
+                return "split() = stream " + value + in;
+            case STARTED:
+            case ROUND:
+            case FINISHED:
+                return NAMES[kinds[i]] + "(" + (int) (value >> HALF) + ", "
+                       + (int) value + ")";
+            default:
+                return NAMES[kinds[i]] + "(side " + sides[i] + ", " + value
+                       + ")";
+        }
+    }
+
+    /**
+     * Packs two ints into one value.
+     *
+     * @param high the first int
+     * @param low  the second int
+     * @return the packed value
+     */
+    private static long pair(int high, int low) {
+        return (long) high << HALF | (low & LOW_BITS);
+    }
+
+    /**
+     * Returns the method that called into the random source, skipping
+     * the recorder and RandomSource's default methods.
+     *
+     * @return a Class.method name
+     */
+    private static String caller() {
+        return WALKER.walk(frames -> frames
+            .filter(frame -> !frame.getClassName()
+                                   .startsWith(FightTrace.class.getName())
+                             && !frame.getClassName()
+                                      .equals(RandomSource.class.getName()))
+            .findFirst()
+            .map(frame -> frame.getClassName() + "."
+                          + frame.getMethodName())
+            .orElse(UNKNOWN));
+    }
+
+    /**
+     * The random source and observer of a traced duel. It passes draws
+     * through from the real source and records them and every event. A
+     * split returns a recorder of the child source on a new stream.
+     */
+    private final class Recorder implements RandomSource, ShowdownObserver {
+        private final RandomSource source;
+        private final int stream;
+
+        /**
+         * Constructs a recorder drawing from a source.
+         *
+         * @param source the source to draw from
+         * @param stream the stream number of the source's draws
+         */
+        Recorder(RandomSource source, int stream) {
+            this.source = source;
+            this.stream = stream;
+        }
+
+        @Override
+        public double nextDouble() {
+            String method = caller();
+            double value = source.nextDouble();
+            add(DRAW_DOUBLE, stream, 0, Double.doubleToRawLongBits(value),
+                method);
+            return value;
+        }
+
+        @Override
+        public long nextLong() {
+            String method = caller();
+            long value = source.nextLong();
+            add(DRAW_LONG, stream, 0, value, method);
+            return value;
+        }
+
+        @Override
+        public RandomSource split() {
+            String method = caller();
+            RandomSource child = source.split();
+            int childStream = streamCount++;
+            add(SPLIT, stream, 0, childStream, method);
+            return new Recorder(child, childStream);
+        }
+
+        @Override
+        public void started(Monster monster1, Monster monster2) {
+            add(STARTED, ROOT, 0,
+                pair(monster1.getVitality(), monster2.getVitality()),
+                NAMES[STARTED]);
+        }
+
+        @Override
+        public void roundStarted(int round, Monster monster1,
+                                 Monster monster2) {
+            FightTrace.this.round = round;
+            add(ROUND, ROOT, 0,
+                pair(monster1.getVitality(), monster2.getVitality()),
+                NAMES[ROUND]);
+        }
+
+        @Override
+        public void specialAbility(int side, Monster target) {
+            add(SPECIAL_ABILITY, ROOT, side, target.getVitality(),
+                NAMES[SPECIAL_ABILITY]);
+        }
+
+        @Override
+        public void attacked(int side, int damage) {
+            add(ATTACKED, ROOT, side, damage, NAMES[ATTACKED]);
+        }
+
+        @Override
+        public void deathrattle(int side, boolean resurrected) {
+            add(DEATHRATTLE, ROOT, side, resurrected ? 1 : 0,
+                NAMES[DEATHRATTLE]);
+        }
+
+        @Override
+        public void poisoned(int side, int damage) {
+            add(POISONED, ROOT, side, damage, NAMES[POISONED]);
+        }
+
+        @Override
+        public void rested(int side, Monster monster) {
+            add(RESTED, ROOT, side, monster.getVitality(), NAMES[RESTED]);
+        }
+
+        @Override
+        public void finished(Monster monster1, Monster monster2,
+                             ShowdownResult result) {
+            add(FINISHED, ROOT, result.getWinner(),
+                pair(result.getLeftVitality(), result.getRightVitality()),
+                NAMES[FINISHED]);
+        }
+    }
+
+    /**
+     * A random source that hands back one stream of this trace's draws
+     * in order. A split returns a playback of the recorded child stream.
+     */
+    private final class Playback implements RandomSource {
+        private final int stream;
+        private int next;
+
+        /**
+         * Constructs a playback of one stream.
+         *
+         * @param stream the stream number to replay
+         */
+        Playback(int stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public double nextDouble() {
+            return Double.longBitsToDouble(take(DRAW_DOUBLE));
+        }
+
+        @Override
+        public long nextLong() {
+            return take(DRAW_LONG);
+        }
+
+        @Override
+        public RandomSource split() {
+            return new Playback((int) take(SPLIT));
+        }
+
+        /**
+         * Returns the next recorded draw or split of this stream.
+         *
+         * @param kind DRAW_DOUBLE, DRAW_LONG or SPLIT
+         * @return the drawn bits, or the child stream of a split
+         * @throws IllegalStateException if the next draw is missing or
+         *         of another kind
+         */
+        private long take(byte kind) {
+            // Kinds after SPLIT are events, which no stream replays.
+            while (next < size && (streams[next] != stream
+                                   || kinds[next] > SPLIT)) {
+                next++;
+            }
+            if (next == size || kinds[next] != kind) {
+                throw new IllegalStateException("replay drew "
+                    + NAMES[kind] + "() but the trace has "
+                    + (next == size ? END : describe(next)));
+            }
+            return values[next++];
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * An immutable stat block for one Monster subclass: armor, vitality,
+ * speed and the two Humanoid or Ooze traits (intelligence and weapon,
+ * or volume and acidity). Tuner breeds genomes with mutate() and
+ * crossover() and turns them back into fighters with build().
+ *
+ * A Humanoid's weapon gene is a Weapon id, and mutation swaps it for
+ * another weapon from the class's armory, so weapon coefficients are
+ * tuned by choosing among the registered weapons, including any loaded
+ * with Weapon.load().
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class Genome {
+    private static final double MUTATION_CHANCE = 0.4;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final Monster prototype;
+    private final int armor;
+    private final int vitality;
+    private final double speed;
+    private final int firstTrait;
+    private final int secondTrait;
+
+    /**
+     * Constructs a Genome.
+     *
+     * @param prototype   a monster of the genome's class (not modified)
+     * @param armor       armor gene
+     * @param vitality    vitality gene
+     * @param speed       speed gene
+     * @param firstTrait  intelligence or volume gene
+     * @param secondTrait weapon id or acidity gene
+     * Precondition: prototype not null.
+     * Postcondition: fields set accordingly.
+     */
+    private Genome(Monster prototype, int armor, int vitality, double speed,
+                   int firstTrait, int secondTrait) {
+        this.prototype = prototype;
+        this.armor = armor;
+        this.vitality = vitality;
+        this.speed = speed;
+        this.firstTrait = firstTrait;
+        this.secondTrait = secondTrait;
+    }
+
+    /**
+     * Records the stat block of a monster. Its clones, if any, are kept
+     * in every monster the genome builds.
+     *
+     * @param monster the monster to record (not modified)
+     * @return the monster's genome
+     * Precondition: monster not null.
+     * Postcondition: monster is unchanged.
+     */
+    public static Genome of(Monster monster) {
+        return new Genome(monster.copy(), monster.getArmor(),
+                          monster.getVitality(), monster.getSpeed(),
+                          monster.firstTrait(), monster.secondTrait());
+    }
+
+    /**
+     * Builds a new monster with this genome's stats.
+     *
+     * @return a fresh monster of the genome's class
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public Monster build() {
+        Monster monster = prototype.copy();
+        monster.setArmor(armor);
+        monster.setVitality(vitality);
+        monster.setSpeed(speed);
+        monster.restoreTraits(firstTrait, secondTrait);
+        return monster;
+    }
+
+    /**
+     * Returns the class of monster this genome builds.
+     *
+     * @return the monster class
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public Class<?> getType() {
+        return prototype.getClass();
+    }
+
+    /**
+     * Returns the armor gene.
+     *
+     * @return armor
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getArmor() {
+        return this.armor;
+    }
+
+    /**
+     * Returns the vitality gene.
+     *
+     * @return vitality
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getVitality() {
+        return this.vitality;
+    }
+
+    /**
+     * Returns the speed gene.
+     *
+     * @return speed
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public double getSpeed() {
+        return this.speed;
+    }
+
+    /**
+     * Returns a copy of this genome in which each gene changes with a
+     * fixed chance. Numeric genes move by up to rate times their value,
+     * and at least one point, but never drop below zero (vitality never
+     * below one). A weapon gene changes to a random weapon of the
+     * class's armory.
+     *
+     * @param random the random source to draw from
+     * @param rate   the largest relative change of a numeric gene
+     * @return the mutated genome
+     * Precondition: random not null; rate >= 0.
+     * Postcondition: this genome is unchanged.
+     */
+    public Genome mutate(RandomSource random, double rate) {
+        int newArmor = armor;
+        int newVitality = vitality;
+        double newSpeed = speed;
+        int newFirst = firstTrait;
+        int newSecond = secondTrait;
+        if (random.nextDouble() < MUTATION_CHANCE) {
+            newArmor = nudge(armor, 0, rate, random);
+        }
+        if (random.nextDouble() < MUTATION_CHANCE) {
+            newVitality = nudge(vitality, 1, rate, random);
+        }
+        if (random.nextDouble() < MUTATION_CHANCE) {
+            double factor = 1 + rate * (2 * random.nextDouble() - 1);
+            newSpeed = Math.max(0.0, speed * factor);
+        }
+        if (random.nextDouble() < MUTATION_CHANCE) {
+            newFirst = nudge(firstTrait, 0, rate, random);
+        }
+        if (random.nextDouble() < MUTATION_CHANCE) {
+            if (prototype instanceof Humanoid) {
+                Weapon[] armory = Weapon.armoryOf(prototype.getClass());
+                newSecond = armory[random.nextInt(armory.length)].getId();
+            } else {
+                newSecond = nudge(secondTrait, 0, rate, random);
+            }
+        }
+        return new Genome(prototype, newArmor, newVitality, newSpeed,
+                          newFirst, newSecond);
+    }
+
+    /**
+     * Returns a child that takes each gene from this genome or the
+     * other one with equal chance.
+     *
+     * @param other  the other parent, of the same class
+     * @param random the random source to draw from
+     * @return the child genome
+     * Precondition: arguments not null; other.getType() == getType().
+     * Postcondition: both parents are unchanged.
+     */
+    public Genome crossover(Genome other, RandomSource random) {
+        return new Genome(prototype,
+            random.nextInt(2) == 0 ? armor : other.armor,
+            random.nextInt(2) == 0 ? vitality : other.vitality,
+            random.nextInt(2) == 0 ? speed : other.speed,
+            random.nextInt(2) == 0 ? firstTrait : other.firstTrait,
+            random.nextInt(2) == 0 ? secondTrait : other.secondTrait);
+    }
+
+    /**
+     * Returns a 64-bit hash of the class and every gene. Tuner uses it
+     * as the key of its fitness cache.
+     *
+     * @return the genome's key
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long key() {
+        long hash = prototype.getClass().getName().hashCode();
+        hash = hash * HASH_MULTIPLIER + armor;
+        hash = hash * HASH_MULTIPLIER + vitality;
+        hash = hash * HASH_MULTIPLIER + Double.doubleToLongBits(speed);
+        hash = hash * HASH_MULTIPLIER + firstTrait;
+        hash = hash * HASH_MULTIPLIER + secondTrait;
+        return hash ^ (hash >>> 32);
+    }
+
+    /**
+     * Returns whether another object is a genome of the same class with
+     * the same genes.
+     *
+     * @param other the object to compare with
+     * @return true if equal
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Genome)) {
+            return false;
+        }
+        Genome genome = (Genome) other;
+        return getType() == genome.getType() && armor == genome.armor
+               && vitality == genome.vitality
+               && Double.compare(speed, genome.speed) == 0
+               && firstTrait == genome.firstTrait
+               && secondTrait == genome.secondTrait;
+    }
+
+    /**
+     * Returns a hash code consistent with equals().
+     *
+     * @return the hash code
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public int hashCode() {
+        return Long.hashCode(key());
+    }
+
+    /**
+     * Returns a string representation of the genome's stat block.
+     *
+     * @return the built monster's toString() followed by its traits
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public String toString() {
+        String stats = build().toString();
+        if (prototype instanceof Humanoid) {
+            Weapon weapon = secondTrait < 0 ? null : Weapon.byId(secondTrait);
+            return stats + "; intelligence: " + firstTrait + "; weapon: "
+                   + (weapon == null ? "none" : weapon.getName());
+        }
+        return stats + "; volume: " + firstTrait + "; acidity: "
+               + secondTrait;
+    }
+
+    /**
+     * Moves a gene by a random amount of up to rate times its value,
+     * and at least one point either way.
+     *
+     * @param value  the gene
+     * @param floor  the smallest allowed value
+     * @param rate   the largest relative change
+     * @param random the random source to draw from
+     * @return the new gene
+     * Precondition: random not null.
+     * Postcondition: none.
+     */
+    private static int nudge(int value, int floor, double rate,
+                             RandomSource random) {
+        int step = (int) Math.max(1, Math.min(Integer.MAX_VALUE / 2,
+                                              Math.abs(value) * rate));
+        long moved = (long) value + random.nextInt(2 * step + 1) - step;
+        return (int) Math.max(floor, Math.min(Integer.MAX_VALUE, moved));
+    }
+}
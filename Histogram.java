@@ -0,0 +1,180 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+/**
+ * Counts non-negative int values in log-linear buckets, in the style of
+ * an HDR histogram: values below 32 get a bucket each, and every power
+ * of two above that is split into 16 equal buckets, so a bucket is never
+ * wider than 1/16 of the values in it and any percentile is reported to
+ * within about 6%. 448 buckets cover the whole int range.
+ *
+ * Like StripedCounter, the buckets are striped by thread, with every
+ * stripe allocated up front and padded to whole cache lines, so
+ * record() is two atomic adds on the calling thread's own stripe and
+ * never allocates. Negative values are recorded as zero.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class Histogram {
+    public static final int BUCKETS = 448;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int LINEAR = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = LINEAR >>> 1;
+    private static final int SUM = BUCKETS;
+    private static final int STRIDE = BUCKETS + StripedCounter.LINE;
+
+    private final AtomicLongArray cells =
+        new AtomicLongArray(StripedCounter.STRIPES * STRIDE);
+
+    /**
+     * Records one value.
+     *
+     * @param value the value to record
+     * Precondition: none.
+     * Postcondition: getCount() is one larger.
+     */
+    public void record(int value) {
+        int clamped = Math.max(value, 0);
+        int base = StripedCounter.stripe() * STRIDE;
+        cells.getAndIncrement(base + bucketOf(clamped));
+        cells.getAndAdd(base + SUM, clamped);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return value count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getCount() {
+        long count = 0;
+        for (long bucket : getCounts()) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the sum of the recorded values.
+     *
+     * @return value sum
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getSum() {
+        long sum = 0;
+        for (int s = 0; s < StripedCounter.STRIPES; s++) {
+            sum += cells.get(s * STRIDE + SUM);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the count of every bucket, summed over the stripes.
+     *
+     * @return counts indexed by bucket
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long[] getCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int s = 0; s < StripedCounter.STRIPES; s++) {
+            int base = s * STRIDE;
+            for (int b = 0; b < BUCKETS; b++) {
+                counts[b] += cells.get(base + b);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the largest value of the bucket that holds a percentile
+     * of the recorded values.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the value at that percentile, or 0 if nothing is recorded
+     * Precondition: 0 <= percentile <= 100.
+     * Postcondition: none.
+     */
+    public long valueAtPercentile(double percentile) {
+        long[] counts = getCounts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return upperBound(b) - 1;
+            }
+        }
+        return upperBound(BUCKETS - 1) - 1;
+    }
+
+    /**
+     * Sets every bucket and the sum back to zero.
+     *
+     * Precondition: no thread is recording.
+     * Postcondition: getCount() is 0.
+     */
+    public void reset() {
+        for (int i = 0; i < cells.length(); i++) {
+            cells.set(i, 0);
+        }
+    }
+
+    /**
+     * Returns the bucket of a value.
+     *
+     * @param value the value
+     * @return a bucket index in [0, BUCKETS)
+     * Precondition: value >= 0.
+     * Postcondition: none.
+     */
+    static int bucketOf(int value) {
+        if (value < LINEAR) {
+            return value;
+        }
+        int shift = (31 - Integer.numberOfLeadingZeros(value))
+                    - (SUB_BUCKET_BITS - 1);
+        return (shift + 1) * HALF + (value >>> shift) - HALF;
+    }
+
+    /**
+     * Returns the smallest value of a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the bucket's lowest value
+     * Precondition: 0 <= bucket < BUCKETS.
+     * Postcondition: none.
+     */
+    static long lowerBound(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int shift = bucket / HALF - 1;
+        return (long) (HALF + bucket % HALF) << shift;
+    }
+
+    /**
+     * Returns the smallest value above a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the bucket's highest value plus one
+     * Precondition: 0 <= bucket < BUCKETS.
+     * Postcondition: none.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket + 1;
+        }
+        int shift = bucket / HALF - 1;
+        return (long) (HALF + bucket % HALF + 1) << shift;
+    }
+}
@@ -1,135 +1,228 @@
-import java.util.Random;
-import java.util.ArrayList;
-/**
- * A Humanoid is a Monster with intelligence and a weapon
- * that can strike and equip from an armory.
- *
- * Bugs: none known.
- *
- * @author David Do
- */
-public abstract class Humanoid extends Monster {
-
-    private int intelligence;
-    private String weapon;
-
-    /**
-     * Constructs a Humanoid with default stats (armor=0, vitality=0,
-     * speed=0.0, intelligence=0, weapon=null).
-     * Precondition: none.
-     * Postcondition: intelligence is 0 and weapon is null.
-     */
-    protected Humanoid() {
-        super();
-        this.intelligence = 0;
-        this.weapon = null;
-    }
-
-    /**
-     * Constructs a Humanoid with specified armor, vitality, speed,
-     * intelligence, and weapon.
-     *
-     * @param armor       initial armor value
-     * @param vitality    initial vitality value
-     * @param speed       initial speed value
-     * @param intelligence initial intelligence value
-     * @param weapon      initial weapon name (may be null)
-     * Precondition: none.
-     * Postcondition: fields set accordingly.
-     */
-    protected Humanoid(int armor, int vitality, double speed,
-                       int intelligence, String weapon) {
-        super(armor, vitality, speed);
-        this.intelligence = intelligence;
-        this.weapon = weapon;
-    }
-
-    /**
-     * Returns this Humanoid's intelligence.
-     *
-     * @return intelligence value
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    public int getIntelligence() {
-        return this.intelligence;
-    }
-
-    /**
-     * Returns this Humanoid's current weapon.
-     *
-     * @return weapon name (may be null)
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    public String getWeapon() {
-        return this.weapon;
-    }
-
-    /**
-     * Sets this Humanoid's intelligence.
-     *
-     * @param intelligence new intelligence value
-     * Precondition: intelligence >= 0.
-     * Postcondition: intelligence field updated.
-     */
-    public void setIntelligence(int intelligence) {
-        this.intelligence = intelligence;
-    }
-
-    /**
-     * Sets this Humanoid's weapon.
-     *
-     * @param weapon new weapon name (may be null)
-     * Precondition: none.
-     * Postcondition: weapon field updated.
-     */
-    public void setWeapon(String weapon) {
-        this.weapon = weapon;
-    }
-
-    /**
-     * Performs a strike on the target monster, reducing its stats.
-     *
-     * @param monster the Monster to strike
-     * @return the integer value of the strike applied
-     * Precondition: monster is not null.
-     * Postcondition: monster's armor or vitality is reduced.
-     */
-    public abstract int strike(Monster monster);
-
-    /**
-     * Returns the list of available weapons for this Humanoid.
-     *
-     * @return array of weapon names (non-null, may be empty)
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    protected abstract String[] getAvailableWeapons();
-
-    /**
-     * Equips a randomly chosen weapon from the available weapons.
-     * Precondition: getAvailableWeapons() may return null or length zero.
-     * Postcondition: if weapons exist, weapon field is set randomly.
-     */
-    public void applyArmoryEffect() {
-        String[] weapons = getAvailableWeapons();
-        if (weapons == null || weapons.length == 0) {
-            return;
-        }
-        int index = (int) (Math.random() * weapons.length);
-        setWeapon(weapons[index]);
-    }
-
-    /**
-     * Handles deathrattle for Humanoids (always returns false).
-     *
-     * @return false, as Humanoids have no deathrattle
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    public boolean handleDeathrattle() {
-        return false;
-    }
-
+import java.util.Random;
+import java.util.ArrayList;
+/**
+ * A Humanoid is a Monster with intelligence and a weapon
+ * that can strike and equip from an armory.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public abstract class Humanoid extends Monster {
+
+    private int intelligence;
+    private Weapon weapon;
+
+    /**
+     * Constructs a Humanoid with default stats (armor=0, vitality=0,
+     * speed=0.0, intelligence=0, weapon=null).
+     * Precondition: none.
+     * Postcondition: intelligence is 0 and weapon is null.
+     */
+    protected Humanoid() {
+        super();
+        this.intelligence = 0;
+        this.weapon = null;
+    }
+
+    /**
+     * Constructs a Humanoid with specified armor, vitality, speed,
+     * intelligence, and weapon.
+     *
+     * @param armor       initial armor value
+     * @param vitality    initial vitality value
+     * @param speed       initial speed value
+     * @param intelligence initial intelligence value
+     * @param weapon      initial weapon name (may be null); a name that
+     *                    is not a registered weapon gives no weapon
+     * Precondition: none.
+     * Postcondition: fields set accordingly.
+     */
+    protected Humanoid(int armor, int vitality, double speed,
+                       int intelligence, String weapon) {
+        super(armor, vitality, speed);
+        this.intelligence = intelligence;
+        this.weapon = Weapon.forName(weapon);
+    }
+
+    /**
+     * Returns this Humanoid's intelligence.
+     *
+     * @return intelligence value
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getIntelligence() {
+        return this.intelligence;
+    }
+
+    /**
+     * Returns this Humanoid's current weapon.
+     *
+     * @return weapon name (may be null)
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public String getWeapon() {
+        if (this.weapon == null) {
+            return null;
+        }
+        return this.weapon.getName();
+    }
+
+    /**
+     * Returns this Humanoid's current weapon as a registered Weapon.
+     *
+     * @return weapon (may be null)
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public Weapon getWeaponType() {
+        return this.weapon;
+    }
+
+    /**
+     * Sets this Humanoid's intelligence.
+     *
+     * @param intelligence new intelligence value
+     * Precondition: intelligence >= 0.
+     * Postcondition: intelligence field updated.
+     */
+    public void setIntelligence(int intelligence) {
+        this.intelligence = intelligence;
+        invalidatePower();
+    }
+
+    /**
+     * Sets this Humanoid's weapon.
+     *
+     * @param weapon new weapon name (may be null); a name that is not a
+     *               registered weapon leaves the Humanoid unarmed
+     * Precondition: none.
+     * Postcondition: weapon field updated.
+     */
+    public void setWeapon(String weapon) {
+        this.weapon = Weapon.forName(weapon);
+        invalidatePower();
+    }
+
+    /**
+     * Sets this Humanoid's weapon without a name lookup.
+     *
+     * @param weapon new weapon (may be null)
+     * Precondition: none.
+     * Postcondition: weapon field updated.
+     */
+    public void setWeaponType(Weapon weapon) {
+        this.weapon = weapon;
+        invalidatePower();
+    }
+
+    /**
+     * Returns the power this Humanoid's weapon gives it. A weapon only
+     * gives power to the Humanoid class that owns it and its subclasses.
+     *
+     * @return the weapon's power for the current stats, or 0.0
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    protected double weaponPower() {
+        Weapon current = this.weapon;
+        if (current == null || !current.givesPowerTo(getClass())) {
+            return 0.0;
+        }
+        return current.power(getArmor(), getVitality(), getIntelligence(),
+                             getSpeed());
+    }
+
+    /**
+     * Returns the weapon's power, for cachedPower().
+     *
+     * @return weaponPower()
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    protected double basePower() {
+        return weaponPower();
+    }
+
+    /**
+     * Returns the intelligence for a snapshot.
+     *
+     * @return intelligence
+     */
+    @Override
+    int firstTrait() {
+        return this.intelligence;
+    }
+
+    /**
+     * Returns the weapon id for a snapshot.
+     *
+     * @return weapon id, or -1 if there is no weapon
+     */
+    @Override
+    int secondTrait() {
+        return this.weapon == null ? -1 : this.weapon.getId();
+    }
+
+    /**
+     * Sets intelligence and weapon from a snapshot.
+     *
+     * @param first  intelligence
+     * @param second weapon id, or -1 for no weapon
+     */
+    @Override
+    void restoreTraits(int first, int second) {
+        this.intelligence = first;
+        this.weapon = second < 0 ? null : Weapon.byId(second);
+        invalidatePower();
+    }
+
+    /**
+     * Performs a strike on the target monster, reducing its stats.
+     *
+     * @param monster the Monster to strike
+     * @return the integer value of the strike applied
+     * Precondition: monster is not null.
+     * Postcondition: monster's armor or vitality is reduced.
+     */
+    public abstract int strike(Monster monster);
+
+    /**
+     * Returns the weapons the armory offers this Humanoid. The array is
+     * shared and must not be modified.
+     *
+     * @return array of weapons (non-null, may be empty)
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    protected abstract Weapon[] getAvailableWeapons();
+
+    /**
+     * Equips a randomly chosen weapon from the available weapons.
+     * Precondition: getAvailableWeapons() may return null or length zero.
+     * Postcondition: if weapons exist, weapon field is set randomly.
+     */
+    public void applyArmoryEffect() {
+        Weapon[] weapons = getAvailableWeapons();
+        if (weapons == null || weapons.length == 0) {
+            return;
+        }
+        int index = getRandomSource().nextInt(weapons.length);
+        setWeaponType(weapons[index]);
+    }
+
+    /**
+     * Handles deathrattle for Humanoids (always returns false).
+     *
+     * @return false, as Humanoids have no deathrattle
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public boolean handleDeathrattle() {
+        return false;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,389 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+/**
+ * A bounded cache of odds estimates in front of OddsEstimator. Entries
+ * are keyed by a normalized signature of both fighters' state: class,
+ * armor, vitality, speed, poison status, the Humanoid or Ooze traits
+ * and every clone's stats and traits, so two separately built monsters
+ * with the same stat blocks share an entry. A clone's power is left
+ * out: it follows from its stats and traits, and its floating-point
+ * value can depend on the order rests were applied. The key is ordered,
+ * since the left monster strikes first.
+ *
+ * The cache holds at most maxEntries estimates and drops the least
+ * recently used one to make room; an estimate older than its time to
+ * live is computed again on the next request. Concurrent requests for
+ * the same matchup are single-flight: the first one runs the estimate
+ * and the others wait for its result. A failed estimate is not cached.
+ *
+ * Only the map lookup is done under the cache's lock; estimates run
+ * outside it, so requests for different matchups proceed in parallel.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class MatchupCache {
+    public static final long DEFAULT_TRIALS = 1000000;
+    public static final double DEFAULT_HALF_WIDTH = 0.005;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final int HEADER = 7;
+    private static final int PER_CLONE = 5;
+    private static final int HASH_MULTIPLIER = 31;
+
+    private final int maxEntries;
+    private final long timeToLive;
+    private final LongSupplier clock;
+    private final BiFunction<Monster, Monster, OddsEstimate> loader;
+    private final LinkedHashMap<Key, Entry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * Constructs a cache that simulates odds with OddsEstimator on the
+     * common fork-join pool, using DEFAULT_TRIALS and
+     * DEFAULT_HALF_WIDTH.
+     *
+     * @param maxEntries       the most estimates to keep
+     * @param timeToLiveMillis how long an estimate stays fresh
+     * @param seed             the 64-bit seed of every estimate
+     * Precondition: maxEntries > 0; timeToLiveMillis >= 0.
+     * Postcondition: the cache is empty.
+     */
+    public MatchupCache(int maxEntries, long timeToLiveMillis, long seed) {
+        this(maxEntries, timeToLiveMillis,
+             (monster1, monster2) -> OddsEstimator.estimate(
+                 monster1, monster2, seed, DEFAULT_TRIALS,
+                 DEFAULT_HALF_WIDTH));
+    }
+
+    /**
+     * Constructs a cache that computes missing estimates with a loader.
+     *
+     * @param maxEntries       the most estimates to keep
+     * @param timeToLiveMillis how long an estimate stays fresh
+     * @param loader           computes the estimate of a matchup
+     *                         without modifying either monster
+     * Precondition: maxEntries > 0; timeToLiveMillis >= 0; loader not
+     *               null.
+     * Postcondition: the cache is empty.
+     */
+    public MatchupCache(int maxEntries, long timeToLiveMillis,
+                        BiFunction<Monster, Monster, OddsEstimate> loader) {
+        this(maxEntries, timeToLiveMillis, loader, System::nanoTime);
+    }
+
+    /**
+     * Constructs a cache with its own nanosecond clock.
+     *
+     * @param maxEntries       the most estimates to keep
+     * @param timeToLiveMillis how long an estimate stays fresh
+     * @param loader           computes the estimate of a matchup
+     * @param clock            returns the current time in nanoseconds
+     * Precondition: maxEntries > 0; timeToLiveMillis >= 0; loader and
+     *               clock not null.
+     * Postcondition: the cache is empty.
+     */
+    MatchupCache(int maxEntries, long timeToLiveMillis,
+                 BiFunction<Monster, Monster, OddsEstimate> loader,
+                 LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLiveMillis * NANOS_PER_MILLI;
+        this.loader = loader;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > MatchupCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the odds estimate of monster1 against monster2, computing
+     * it only if no fresh estimate of an identical matchup is cached or
+     * being computed.
+     *
+     * @param monster1 the left-side monster (not modified)
+     * @param monster2 the right-side monster (not modified)
+     * @return the estimate
+     * Precondition: monsters not null.
+     * Postcondition: monster1 and monster2 are unchanged; the estimate
+     *                is cached unless the loader failed.
+     */
+    public OddsEstimate get(Monster monster1, Monster monster2) {
+        Key key = new Key(monster1, monster2);
+        Entry entry;
+        boolean load = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.future.isDone()
+                && clock.getAsLong() - entry.loaded > timeToLive) {
+                entries.remove(key);
+                expirations++;
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+                misses++;
+                load = true;
+            } else {
+                hits++;
+            }
+        }
+        if (load) {
+            try {
+                OddsEstimate estimate = loader.apply(monster1, monster2);
+                entry.loaded = clock.getAsLong();
+                entry.future.complete(estimate);
+            } catch (RuntimeException | Error e) {
+                synchronized (entries) {
+                    entries.remove(key, entry);
+                }
+                entry.future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return entry.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the odds in favor of monster1 winning, in the same form
+     * as Dungeon.calculateBettingOdds().
+     *
+     * @param monster1 the left-side monster (not modified)
+     * @param monster2 the right-side monster (not modified)
+     * @return win probability divided by its complement
+     * Precondition: monsters not null.
+     * Postcondition: monster1 and monster2 are unchanged.
+     */
+    public double getOdds(Monster monster1, Monster monster2) {
+        return get(monster1, monster2).getOdds();
+    }
+
+    /**
+     * Removes every cached estimate. Statistics are kept.
+     *
+     * Precondition: none.
+     * Postcondition: size() is 0.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Returns the number of cached or in-flight estimates.
+     *
+     * @return entry count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the number of requests served by a cached or in-flight
+     * estimate.
+     *
+     * @return hit count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getHits() {
+        synchronized (entries) {
+            return this.hits;
+        }
+    }
+
+    /**
+     * Returns the number of requests that ran an estimate.
+     *
+     * @return miss count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getMisses() {
+        synchronized (entries) {
+            return this.misses;
+        }
+    }
+
+    /**
+     * Returns the number of estimates dropped to stay within
+     * maxEntries.
+     *
+     * @return eviction count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getEvictions() {
+        synchronized (entries) {
+            return this.evictions;
+        }
+    }
+
+    /**
+     * Returns the number of estimates dropped for being older than the
+     * time to live.
+     *
+     * @return expiration count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getExpirations() {
+        synchronized (entries) {
+            return this.expirations;
+        }
+    }
+
+    /**
+     * Returns the share of requests served without running an estimate.
+     *
+     * @return hits / (hits + misses), or 0 before the first request
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public double getHitRate() {
+        synchronized (entries) {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+
+    /**
+     * A cached estimate, or one still being computed.
+     */
+    private static final class Entry {
+        private final CompletableFuture<OddsEstimate> future =
+            new CompletableFuture<>();
+        private volatile long loaded;
+    }
+
+    /**
+     * The normalized signature of a matchup: both monsters' classes and
+     * their state packed into longs.
+     */
+    private static final class Key {
+        private final Class<?> type1;
+        private final Class<?> type2;
+        private final long[] state;
+        private final int hash;
+
+        /**
+         * Records the signature of a matchup.
+         *
+         * @param monster1 the left-side monster
+         * @param monster2 the right-side monster
+         */
+        Key(Monster monster1, Monster monster2) {
+            this.type1 = monster1.getClass();
+            this.type2 = monster2.getClass();
+            this.state = new long[length(monster1) + length(monster2)];
+            int next = pack(monster1, state, 0);
+            pack(monster2, state, next);
+            this.hash = (type1.hashCode() * HASH_MULTIPLIER
+                         + type2.hashCode()) * HASH_MULTIPLIER
+                        + Arrays.hashCode(state);
+        }
+
+        /**
+         * Returns how many longs a monster's state takes.
+         *
+         * @param monster the monster
+         * @return the packed length
+         */
+        private static int length(Monster monster) {
+            ClonePool clones = monster.clonePool();
+            return HEADER + (clones == null ? 0 : clones.size() * PER_CLONE);
+        }
+
+        /**
+         * Packs a monster's state into a signature.
+         *
+         * @param monster the monster
+         * @param state   the signature
+         * @param next    the first index to write
+         * @return the index after the last one written
+         */
+        private static int pack(Monster monster, long[] state, int next) {
+            ClonePool clones = monster.clonePool();
+            int count = clones == null ? 0 : clones.size();
+            state[next++] = monster.getArmor();
+            state[next++] = monster.getVitality();
+            state[next++] = bits(monster.getSpeed());
+            state[next++] = monster.isPoisoned() ? 1 : 0;
+            state[next++] = monster.firstTrait();
+            state[next++] = monster.secondTrait();
+            state[next++] = count;
+            for (int i = 0; i < count; i++) {
+                state[next++] = clones.getArmor(i);
+                state[next++] = clones.getVitality(i);
+                state[next++] = bits(clones.getSpeed(i));
+                state[next++] = clones.getFirstTrait(i);
+                state[next++] = clones.getSecondTrait(i);
+            }
+            return next;
+        }
+
+        /**
+         * Returns the bits of a double with -0.0 folded into 0.0, so
+         * equal values always pack the same way.
+         *
+         * @param value the value
+         * @return its normalized bits
+         */
+        private static long bits(double value) {
+            return Double.doubleToLongBits(value + 0.0);
+        }
+
+        /**
+         * Returns whether another key has the same signature.
+         *
+         * @param other the object to compare with
+         * @return true if equal
+         */
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && type1 == key.type1
+                   && type2 == key.type2 && Arrays.equals(state, key.state);
+        }
+
+        /**
+         * Returns the hash computed when the key was made.
+         *
+         * @return the hash code
+         */
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
@@ -0,0 +1,574 @@
+import java.util.Arrays;
+import java.util.List;
+/**
+ * Runs a melee between any number of monsters split into teams. Each
+ * round has the same phases as a ShowdownEngine duel: special abilities,
+ * attacks, poison damage, deathrattles and rest. Within a phase the
+ * combatants act in initiative order, fastest first by getSpeed() with
+ * ties going to the earlier roster entry, and each one picks its target
+ * among the standing enemies with a TargetPolicy.
+ *
+ * As in a duel, every combatant standing at the start of a round gets
+ * its attack even if it is knocked down earlier in that round, and
+ * knocked-down combatants check their deathrattle at the end of the
+ * round. Standing combatants are kept in a CombatantIndex with each team
+ * in one index range, so choosing a target takes O(log n).
+ *
+ * runTimed() drops rounds as the unit of action and lets speed decide
+ * how often a combatant acts: each one is scheduled on a Timeline every
+ * pace / speed rounds, where pace is the roster's mean starting speed,
+ * so an average combatant acts once per round and one twice as fast
+ * acts twice. A turn is the combatant's special ability, its attack and
+ * its rest; a combatant knocked down during a turn checks its
+ * deathrattle at once and leaves the timeline if it stays down. Poison
+ * ticks at every whole round.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class MeleeEngine {
+
+    public static final int TIE = -1;
+    private static final double MIN_SPEED_RATIO = 1.0 / 16;
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    /**
+     * Prevents instantiation of the MeleeEngine
+     * class since it only provides static methods.
+     *
+     * Precondition: none.
+     * Postcondition: MeleeEngine cannot be instantiated.
+     */
+    private MeleeEngine() {
+    }
+
+    /**
+     * Runs a free-for-all in which every monster is its own team, so the
+     * winner is the roster index of the last monster standing.
+     *
+     * @param monsters  the combatants
+     * @param policy    how combatants choose their targets
+     * @param random    the random source for every combatant and policy
+     * @param maxRounds the maximum number of rounds to fight
+     * @return the outcome of the melee
+     * Precondition: arguments not null; monsters not empty;
+     *               maxRounds > 0.
+     * Postcondition: every monster uses random as its random source.
+     */
+    public static MeleeResult freeForAll(List<? extends Monster> monsters,
+                                         TargetPolicy policy,
+                                         RandomSource random,
+                                         int maxRounds) {
+        int[] teams = new int[monsters.size()];
+        for (int i = 0; i < teams.length; i++) {
+            teams[i] = i;
+        }
+        return run(monsters, teams, policy, random, maxRounds);
+    }
+
+    /**
+     * Runs a melee between teams until at most one team is standing or
+     * maxRounds rounds have been fought. A melee stopped by the round
+     * limit is a tie. If the last teams fall in the same round, the team
+     * whose best combatant standing at the start of that round ended
+     * with the highest vitality wins, and equal best vitality is a tie;
+     * combatants that fell in earlier rounds do not count.
+     *
+     * @param monsters  the combatants
+     * @param teams     the team of each combatant, numbered from 0 to
+     *                  monsters.size() - 1
+     * @param policy    how combatants choose their targets
+     * @param random    the random source for every combatant and policy
+     * @param maxRounds the maximum number of rounds to fight
+     * @return the outcome of the melee
+     * @throws IllegalArgumentException if the roster is empty or a team
+     *         number is out of range
+     * Precondition: arguments not null; maxRounds > 0.
+     * Postcondition: every monster uses random as its random source.
+     */
+    public static MeleeResult run(List<? extends Monster> monsters,
+                                  int[] teams, TargetPolicy policy,
+                                  RandomSource random, int maxRounds) {
+        Roster r = new Roster(monsters, teams, random);
+        Monster[] fighters = r.fighters;
+        int[] team = r.team;
+        int[] teamStart = r.teamStart;
+        CombatantIndex standing = r.standing;
+        int[] order = new int[fighters.length];
+        int[] scratch = new int[fighters.length];
+        int round = 0;
+        while (r.teamsStanding > 1 && round < maxRounds) {
+            r.nextAction();
+            int acting = initiative(fighters, standing, order, scratch);
+            for (int i = 0; i < acting; i++) {
+                int p = order[i];
+                int target = policy.choose(standing, teamStart[team[p]],
+                                           teamStart[team[p] + 1], random);
+                if (target >= 0) {
+                    fighters[p].performSpecialAbility(fighters[target]);
+                    r.record(target);
+                    r.track(target);
+                }
+            }
+            for (int i = 0; i < acting; i++) {
+                int p = order[i];
+                int target = policy.choose(standing, teamStart[team[p]],
+                                           teamStart[team[p] + 1], random);
+                if (target >= 0) {
+                    FightMetrics.attack(fighters[p],
+                        fighters[p].attack(fighters[target]));
+                    r.record(target);
+                }
+            }
+            r.tickStatuses();
+            for (int i = 0; i < acting; i++) {
+                int p = order[i];
+                if (fighters[p].getVitality() <= 0) {
+                    FightMetrics.deathrattle(fighters[p].handleDeathrattle());
+                    r.record(p);
+                    r.track(p);
+                }
+            }
+            for (int i = 0; i < acting; i++) {
+                int p = order[i];
+                if (fighters[p].getVitality() > 0) {
+                    fighters[p].rest();
+                    r.record(p);
+                }
+            }
+            round++;
+        }
+        return r.result(round);
+    }
+
+    /**
+     * Runs a melee on a speed-driven timeline until at most one team is
+     * standing or the next turn would come after maxRounds rounds. Every
+     * combatant's first turn comes one interval after the start, and
+     * each later one an interval after its previous turn, where the
+     * interval is pace / speed rounds for its speed at that moment.
+     * Turns due at the same time go in the order they were scheduled,
+     * so a fixed seed always plays out the same melee. The winner is
+     * decided as in run(), with the last turn or poison tick in place of
+     * the last round.
+     *
+     * @param monsters  the combatants
+     * @param teams     the team of each combatant, numbered from 0 to
+     *                  monsters.size() - 1
+     * @param policy    how combatants choose their targets
+     * @param random    the random source for every combatant and policy
+     * @param maxRounds the maximum number of rounds to fight
+     * @return the outcome of the melee; its rounds are the elapsed time
+     *         rounded up
+     * @throws IllegalArgumentException if the roster is empty or a team
+     *         number is out of range
+     * Precondition: arguments not null; maxRounds > 0.
+     * Postcondition: every monster uses random as its random source.
+     */
+    public static MeleeResult runTimed(List<? extends Monster> monsters,
+                                       int[] teams, TargetPolicy policy,
+                                       RandomSource random, int maxRounds) {
+        Roster r = new Roster(monsters, teams, random);
+        Monster[] fighters = r.fighters;
+        int[] teamStart = r.teamStart;
+        CombatantIndex standing = r.standing;
+        double pace = 0;
+        for (Monster fighter : fighters) {
+            pace += fighter.getSpeed();
+        }
+        pace /= fighters.length;
+        Timeline timeline = new Timeline(fighters.length);
+        for (int p = 0; p < fighters.length; p++) {
+            if (standing.isStanding(p)) {
+                timeline.schedule(p, interval(fighters[p], pace));
+            }
+        }
+        double now = 0;
+        int nextTick = 1;
+        while (r.teamsStanding > 1 && !timeline.isEmpty()
+               && timeline.peekTime() <= maxRounds) {
+            r.nextAction();
+            if (r.statuses.size() > 0 && nextTick <= timeline.peekTime()) {
+                now = nextTick++;
+                int affected = r.tickStatuses();
+                for (int i = 0; i < affected; i++) {
+                    knockDown(r, timeline, r.affected[i]);
+                }
+                continue;
+            }
+            now = timeline.peekTime();
+            nextTick = (int) Math.floor(now) + 1;
+            int p = timeline.poll();
+            int from = teamStart[r.team[p]];
+            int to = teamStart[r.team[p] + 1];
+            int target = policy.choose(standing, from, to, random);
+            if (target >= 0) {
+                fighters[p].performSpecialAbility(fighters[target]);
+                r.track(target);
+                knockDown(r, timeline, target);
+                if (!standing.isStanding(target)) {
+                    target = policy.choose(standing, from, to, random);
+                }
+            }
+            if (target >= 0) {
+                FightMetrics.attack(fighters[p],
+                                    fighters[p].attack(fighters[target]));
+                knockDown(r, timeline, target);
+            }
+            r.record(p);
+            if (!standing.isStanding(p)) {
+                knockDown(r, timeline, p);
+            }
+            if (standing.isStanding(p)) {
+                fighters[p].rest();
+                r.record(p);
+                timeline.schedule(p, now + interval(fighters[p], pace));
+            }
+        }
+        return r.result((int) Math.ceil(now));
+    }
+
+    /**
+     * Lets a combatant that may have been knocked down check its
+     * deathrattle, and takes it off the timeline if it stays down.
+     *
+     * @param r        the melee roster
+     * @param timeline the pending turns
+     * @param p        the combatant's position
+     * Precondition: arguments not null.
+     * Postcondition: p is scheduled only if it is standing.
+     */
+    private static void knockDown(Roster r, Timeline timeline, int p) {
+        if (r.fighters[p].getVitality() <= 0) {
+            FightMetrics.deathrattle(r.fighters[p].handleDeathrattle());
+        }
+        r.record(p);
+        r.track(p);
+        if (!r.standing.isStanding(p)) {
+            timeline.cancel(p);
+        }
+    }
+
+    /**
+     * Returns the time between a combatant's turns. Speeds are floored
+     * at a fraction of the pace so that slow combatants still act, and
+     * a roster without speed acts once per round.
+     *
+     * @param fighter the combatant
+     * @param pace    the roster's mean starting speed
+     * @return the interval in rounds
+     * Precondition: fighter not null.
+     * Postcondition: none.
+     */
+    private static double interval(Monster fighter, double pace) {
+        if (!(pace > 0)) {
+            return 1.0;
+        }
+        return pace / Math.max(fighter.getSpeed(), pace * MIN_SPEED_RATIO);
+    }
+
+    /**
+     * Puts the standing combatants into initiative order. The positions
+     * are collected in ascending order and merge sorted by speed, which
+     * is stable, so ties stay in roster order without boxing.
+     *
+     * @param fighters the combatants by position
+     * @param standing the standing combatants
+     * @param order    receives the positions, fastest first
+     * @param scratch  working space for the merge
+     * @return the number of positions written to order
+     * Precondition: order.length and scratch.length >= fighters.length.
+     * Postcondition: none.
+     */
+    private static int initiative(Monster[] fighters,
+                                  CombatantIndex standing, int[] order,
+                                  int[] scratch) {
+        int acting = 0;
+        for (int p = 0; p < fighters.length; p++) {
+            if (standing.isStanding(p)) {
+                order[acting++] = p;
+            }
+        }
+        sortBySpeed(fighters, order, scratch, 0, acting);
+        return acting;
+    }
+
+    /**
+     * Stably sorts a range of positions from fastest to slowest.
+     *
+     * @param fighters the combatants by position
+     * @param order    the positions to sort
+     * @param scratch  working space for the merge
+     * @param from     first index of the range (inclusive)
+     * @param to       last index of the range (exclusive)
+     * Precondition: 0 <= from <= to <= order.length <= scratch.length.
+     * Postcondition: order[from, to) is sorted.
+     */
+    private static void sortBySpeed(Monster[] fighters, int[] order,
+                                    int[] scratch, int from, int to) {
+        if (to - from <= INSERTION_SORT_SIZE) {
+            for (int i = from + 1; i < to; i++) {
+                int p = order[i];
+                double speed = fighters[p].getSpeed();
+                int j = i;
+                while (j > from
+                       && Double.compare(fighters[order[j - 1]].getSpeed(),
+                                         speed) < 0) {
+                    order[j] = order[j - 1];
+                    j--;
+                }
+                order[j] = p;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sortBySpeed(fighters, order, scratch, from, middle);
+        sortBySpeed(fighters, order, scratch, middle, to);
+        System.arraycopy(order, from, scratch, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle
+                    && Double.compare(fighters[scratch[left]].getSpeed(),
+                                      fighters[scratch[right]].getSpeed())
+                       >= 0)) {
+                order[i] = scratch[left++];
+            } else {
+                order[i] = scratch[right++];
+            }
+        }
+    }
+
+    /**
+     * Counts the teams with at least one standing combatant, stopping
+     * at two.
+     *
+     * @param standing  the standing combatants
+     * @param teamStart first position of every team, plus the end
+     * @return 0, 1 or 2
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private static int teamsStanding(CombatantIndex standing,
+                                     int[] teamStart) {
+        int found = 0;
+        for (int t = 0; t + 1 < teamStart.length && found < 2; t++) {
+            if (teamStart[t] < teamStart[t + 1]
+                && standing.standing(teamStart[t], teamStart[t + 1]) > 0) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Decides the winning team once the melee is over. When nobody is
+     * standing, only combatants that fell in the last action, which are
+     * those standing at its start, are compared.
+     *
+     * @param fighters  the combatants by position
+     * @param team      the team of every position
+     * @param standing  the standing combatants
+     * @param teamStart first position of every team, plus the end
+     * @param fellAt    the action in which every position last fell
+     * @param last      the number of the last action
+     * @return the winning team, or TIE
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private static int decideWinner(Monster[] fighters, int[] team,
+                                    CombatantIndex standing,
+                                    int[] teamStart, int[] fellAt,
+                                    int last) {
+        int alive = teamsStanding(standing, teamStart);
+        if (alive == 1) {
+            return team[standing.nthStanding(0)];
+        }
+        if (alive > 1) {
+            return TIE;
+        }
+        int winner = TIE;
+        int best = Integer.MIN_VALUE;
+        for (int p = 0; p < fighters.length; p++) {
+            if (fellAt[p] != last) {
+                continue;
+            }
+            int v = fighters[p].getVitality();
+            if (v > best) {
+                best = v;
+                winner = team[p];
+            } else if (v == best && team[p] != winner) {
+                winner = TIE;
+            }
+        }
+        return winner;
+    }
+
+    /**
+     * The combatants of one melee laid out by team: every team occupies
+     * one contiguous range of positions, and the standing combatants and
+     * the number of teams with someone standing are kept up to date as
+     * vitality changes are recorded.
+     */
+    private static final class Roster {
+        private final Monster[] fighters;
+        private final int[] roster;
+        private final int[] team;
+        private final int[] teamStart;
+        private final int[] alive;
+        private final CombatantIndex standing;
+        private final StatusTable statuses;
+        private final int[] scratch;
+        private final int[] affected;
+        private final int[] fellAt;
+        private int action;
+        private int teamsStanding;
+
+        /**
+         * Lays out the combatants by team.
+         *
+         * @param monsters the combatants
+         * @param teams    the team of each combatant
+         * @param random   the random source for every combatant
+         * @throws IllegalArgumentException if the roster is empty or a
+         *         team number is out of range
+         * Precondition: arguments not null.
+         * Postcondition: every monster uses random as its random source.
+         */
+        Roster(List<? extends Monster> monsters, int[] teams,
+               RandomSource random) {
+            int n = monsters.size();
+            if (n == 0 || teams.length != n) {
+                throw new IllegalArgumentException("need one team per monster");
+            }
+            this.teamStart = new int[n + 1];
+            for (int t : teams) {
+                if (t < 0 || t >= n) {
+                    throw new IllegalArgumentException("bad team: " + t);
+                }
+                teamStart[t + 1]++;
+            }
+            for (int t = 0; t < n; t++) {
+                teamStart[t + 1] += teamStart[t];
+            }
+            this.roster = new int[n];
+            this.team = new int[n];
+            int[] next = Arrays.copyOf(teamStart, n);
+            for (int i = 0; i < n; i++) {
+                int position = next[teams[i]]++;
+                roster[position] = i;
+                team[position] = teams[i];
+            }
+            this.fighters = new Monster[n];
+            int[] vitality = new int[n];
+            for (int p = 0; p < n; p++) {
+                fighters[p] = monsters.get(roster[p]);
+                fighters[p].setRandomSource(random);
+                vitality[p] = fighters[p].getVitality();
+            }
+            this.standing = new CombatantIndex(vitality);
+            this.alive = new int[n];
+            for (int p = 0; p < n; p++) {
+                if (standing.isStanding(p) && alive[team[p]]++ == 0) {
+                    teamsStanding++;
+                }
+            }
+            this.statuses = new StatusTable(n);
+            this.scratch = new int[n];
+            this.affected = new int[n * StatusTable.KINDS];
+            this.fellAt = new int[n];
+            for (int p = 0; p < n; p++) {
+                track(p);
+            }
+        }
+
+        /**
+         * Brings a combatant's status effects in line with its poison
+         * flag and vitality; see StatusTable.track().
+         *
+         * @param p the combatant's position
+         * Precondition: 0 <= p < fighters.length.
+         * Postcondition: none.
+         */
+        void track(int p) {
+            statuses.track(p, fighters[p]);
+        }
+
+        /**
+         * Drops the effects of combatants that are down and ticks the
+         * rest in one batch. The ticked positions are left in affected.
+         *
+         * @return the number of positions in affected
+         * Precondition: standing is up to date.
+         * Postcondition: the ticked combatants' vitality is updated but
+         *                not yet recorded.
+         */
+        int tickStatuses() {
+            for (int row = statuses.size() - 1; row >= 0; row--) {
+                int p = statuses.getTarget(row);
+                if (!standing.isStanding(p)) {
+                    statuses.removeAll(p);
+                }
+            }
+            int count = statuses.size();
+            for (int row = 0; row < count; row++) {
+                affected[row] = statuses.getTarget(row);
+            }
+            statuses.tick(fighters, scratch);
+            return count;
+        }
+
+        /**
+         * Starts the next action: a round in run(), a turn or poison
+         * tick in runTimed().
+         *
+         * Precondition: none.
+         * Postcondition: combatants that fall from now on are marked
+         *                with the new action.
+         */
+        void nextAction() {
+            action++;
+        }
+
+        /**
+         * Records a combatant's current vitality.
+         *
+         * @param p the combatant's position
+         * Precondition: 0 <= p < fighters.length.
+         * Postcondition: standing and teamsStanding reflect p's vitality.
+         */
+        void record(int p) {
+            boolean was = standing.isStanding(p);
+            standing.update(p, fighters[p].getVitality());
+            boolean is = standing.isStanding(p);
+            if (was && !is) {
+                fellAt[p] = action;
+            }
+            if (was && !is && --alive[team[p]] == 0) {
+                teamsStanding--;
+            } else if (!was && is && alive[team[p]]++ == 0) {
+                teamsStanding++;
+            }
+        }
+
+        /**
+         * Builds the result of the finished melee.
+         *
+         * @param rounds number of rounds fought
+         * @return the outcome, with vitality in roster order
+         * Precondition: rounds >= 0.
+         * Postcondition: none.
+         */
+        MeleeResult result(int rounds) {
+            int[] finalVitality = new int[fighters.length];
+            for (int p = 0; p < fighters.length; p++) {
+                finalVitality[roster[p]] = fighters[p].getVitality();
+            }
+            FightMetrics.fight(rounds);
+            return new MeleeResult(decideWinner(fighters, team, standing,
+                                                teamStart, fellAt, action),
+                                   rounds, finalVitality);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * An immutable summary of a finished melee: the winning team, how many
+ * rounds were fought, and every combatant's final vitality.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class MeleeResult {
+    private final int winner;
+    private final int rounds;
+    private final int[] vitality;
+
+    /**
+     * Constructs a MeleeResult.
+     *
+     * @param winner   the winning team, or MeleeEngine.TIE
+     * @param rounds   number of rounds fought
+     * @param vitality final vitality of every combatant, in roster order
+     * Precondition: vitality not null; rounds >= 0.
+     * Postcondition: fields set accordingly; vitality is not copied.
+     */
+    MeleeResult(int winner, int rounds, int[] vitality) {
+        this.winner = winner;
+        this.rounds = rounds;
+        this.vitality = vitality;
+    }
+
+    /**
+     * Returns the team that won the melee.
+     *
+     * @return the winning team id, or MeleeEngine.TIE
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getWinner() {
+        return this.winner;
+    }
+
+    /**
+     * Returns the number of rounds that were fought.
+     *
+     * @return round count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getRounds() {
+        return this.rounds;
+    }
+
+    /**
+     * Returns a combatant's vitality when the melee ended.
+     *
+     * @param i the combatant's index in the roster
+     * @return final vitality
+     * Precondition: 0 <= i < getCombatants().
+     * Postcondition: none.
+     */
+    public int getVitality(int i) {
+        return this.vitality[i];
+    }
+
+    /**
+     * Returns the number of combatants in the melee.
+     *
+     * @return combatant count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getCombatants() {
+        return this.vitality.length;
+    }
+
+    /**
+     * Returns the number of combatants left standing.
+     *
+     * @return count of combatants with vitality above zero
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getSurvivors() {
+        int survivors = 0;
+        for (int v : vitality) {
+            if (v > 0) {
+                survivors++;
+            }
+        }
+        return survivors;
+    }
+
+    /**
+     * Returns a string representation of this result.
+     *
+     * @return formatted string "winner: W; rounds: R; survivors: S"
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public String toString() {
+        return "winner: " + winner + "; rounds: " + rounds
+               + "; survivors: " + getSurvivors();
+    }
+}
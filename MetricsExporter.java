@@ -0,0 +1,86 @@
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+/**
+ * Publishes FightMetrics outside the process, either on a local HTTP
+ * endpoint that a Prometheus server can scrape or as a text snapshot
+ * handed to a sink at a fixed period. Both format the metrics only when
+ * asked, so fights pay nothing for the export.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class MetricsExporter {
+    public static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE =
+        "text/plain; version=0.0.4; charset=utf-8";
+    private static final int OK = 200;
+
+    /**
+     * Prevents instantiation of the MetricsExporter
+     * class since it only provides static methods.
+     *
+     * Precondition: none.
+     * Postcondition: MetricsExporter cannot be instantiated.
+     */
+    private MetricsExporter() {
+    }
+
+    /**
+     * Starts an HTTP server on the loopback address that answers GET
+     * PATH with FightMetrics.toPrometheus().
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @return the running server; call stop() to shut it down
+     * @throws IOException if the port cannot be bound
+     * Precondition: 0 <= port <= 65535.
+     * Postcondition: the server is listening.
+     */
+    public static HttpServer serve(int port) throws IOException {
+        HttpServer server = HttpServer.create(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, exchange -> {
+            byte[] body = FightMetrics.toPrometheus()
+                .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(OK, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    /**
+     * Hands FightMetrics.toPrometheus() to a sink every period on a
+     * daemon thread.
+     *
+     * @param periodMillis milliseconds between snapshots
+     * @param sink         receives each snapshot
+     * @return the scheduler; call shutdown() to stop the snapshots
+     * Precondition: periodMillis > 0; sink not null.
+     * Postcondition: the first snapshot is taken after one period.
+     */
+    public static ScheduledExecutorService every(long periodMillis,
+                                                 Consumer<String> sink) {
+        ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "metrics-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+        timer.scheduleAtFixedRate(
+            () -> sink.accept(FightMetrics.toPrometheus()),
+            periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return timer;
+    }
+}
@@ -1,244 +1,416 @@
-/**
- * The abstract Monster class defines core attributes and behaviors
- * for all monsters, including armor, vitality, speed, and poison status.
- *
- * Bugs: none known.
- *
- * @author David Do
- */
-public abstract class Monster implements Comparable<Monster> {
-    private int armor;
-    private int vitality;
-    private double speed;
-    protected boolean poisoned;
-    private static final double AVERAGE_CONSTANT = 3.0;
-
-    /**
-     * No-arg constructor initializes armor, vitality, speed to zero
-     * and poisoned to false.
-     *
-     * Precondition: none.
-     * Postcondition: armor=0, vitality=0, speed=0.0, poisoned=false.
-     */
-    protected Monster() {
-        this.armor = 0;
-        this.vitality = 0;
-        this.speed = 0.0;
-        this.poisoned = false;
-    }
-
-    /**
-     * Constructs a Monster with specified armor, vitality, and speed.
-     *
-     * @param armor    initial armor value
-     * @param vitality initial vitality value
-     * @param speed    initial speed value
-     * Precondition: none.
-     * Postcondition: fields set accordingly.
-     */
-    protected Monster(int armor, int vitality, double speed) {
-        this.armor = armor;
-        this.vitality = vitality;
-        this.speed = speed;
-    }
-
-    /**
-     * Returns this monster's armor value.
-     *
-     * @return current armor
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    public int getArmor() {
-        return this.armor;
-    }
-
-    /**
-     * Returns this monster's vitality value.
-     *
-     * @return current vitality
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    public int getVitality() {
-        return this.vitality;
-    }
-
-    /**
-     * Returns this monster's speed value.
-     *
-     * @return current speed
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    public double getSpeed() {
-        return this.speed;
-    }
-
-    /**
-     * Sets this monster's armor to the specified value.
-     *
-     * @param armor new armor value
-     * Precondition: none.
-     * Postcondition: armor field updated.
-     */
-    public void setArmor(int armor) {
-        this.armor = armor;
-    }
-
-    /**
-     * Sets this monster's vitality to the specified value.
-     *
-     * @param vitality new vitality value
-     * Precondition: none.
-     * Postcondition: vitality field updated.
-     */
-    public void setVitality(int vitality) {
-        this.vitality = vitality;
-    }
-
-    /**
-     * Sets this monster's speed to the specified value.
-     *
-     * @param speed new speed value
-     * Precondition: none.
-     * Postcondition: speed field updated.
-     */
-    public void setSpeed(double speed) {
-        this.speed = speed;
-    }
-
-    /**
-     * Returns whether this monster is poisoned.
-     *
-     * @return true if poisoned, false otherwise
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    public boolean isPoisoned() {
-        return this.poisoned;
-    }
-
-    /**
-     * Applies poison status to this monster.
-     *
-     * Precondition: none.
-     * Postcondition: poisoned set to true.
-     */
-    public void applyPoison() {
-        this.poisoned = true;
-    }
-
-    /**
-     * Clears poison status from this monster.
-     *
-     * Precondition: none.
-     * Postcondition: poisoned set to false.
-     */
-    public void clearPoison() {
-        this.poisoned = false;
-    }
-
-    /**
-     * Returns true if this monster's vitality is greater than zero.
-     *
-     * @return true if alive, false otherwise
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    public boolean isAlive() {
-        if (this.vitality > 0) {
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     * Default special ability (does nothing). Subclasses may override.
-     *
-     * @param target the Monster to target
-     * Precondition: target not null.
-     * Postcondition: none.
-     */
-    public void performSpecialAbility(Monster target) {
-    }
-
-    /**
-     * Compares this monster to another based on average of armor,
-     * vitality, and speed.
-     *
-     * @param monster the other Monster to compare
-     * @return -1 if this average < other, 0 if equal, 1 if greater
-     * Precondition: monster not null.
-     * Postcondition: none.
-     */
-    public int compareTo(Monster monster) {
-        double instanceAverage = (this.armor + this.vitality + this.speed)
-            / AVERAGE_CONSTANT;
-        double monsterAverage = (monster.getArmor() + monster.getSpeed()
-            + monster.getVitality()) / AVERAGE_CONSTANT;
-        if (instanceAverage < monsterAverage) {
-            return -1;
-        } else if (instanceAverage > monsterAverage) {
-            return 1;
-        } else {
-            return 0;
-        }
-    }
-
-    /**
-     * Returns a string representation of this monster.
-     *
-     * @return formatted string "(ClassName) armor: X; vitality: Y; speed: Z"
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    @Override
-    public String toString() {
-        return "(" + getClass().getName() + ")" + " armor: " + getArmor()
-            + "; vitality: " + getVitality() + "; speed: " + getSpeed();
-    }
-
-    /**
-     * Restores or recharges monster-specific stats. Must be overridden.
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    public abstract void rest();
-
-    /**
-     * Calculates this monster's power based on its stats. Must be overridden.
-     *
-     * @return calculated power value
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    public abstract double calculatePower();
-
-    /**
-     * Performs an attack on the specified monster. Must be overridden.
-     *
-     * @param monster target of the attack
-     * @return integer damage or strike value
-     * Precondition: monster not null.
-     * Postcondition: monster's stats may be reduced.
-     */
-    public abstract int attack(Monster monster);
-
-    /**
-     * Applies armory effect to this monster. Must be overridden.
-     * Precondition: none.
-     * Postcondition: monster's stats modified.
-     */
-    public abstract void applyArmoryEffect();
-
-    /**
-     * Handles deathrattle behavior. Must be overridden.
-     *
-     * @return true if deathrattle triggered a resurrection, false otherwise
-     * Precondition: none.
-     * Postcondition: monster's stats may be replaced if resurrected.
-     */
-    public abstract boolean handleDeathrattle();
-
+/**
+ * The abstract Monster class defines core attributes and behaviors
+ * for all monsters, including armor, vitality, speed, and poison status.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public abstract class Monster implements Comparable<Monster> {
+    private int armor;
+    private int vitality;
+    private double speed;
+    protected boolean poisoned;
+    private RandomSource random;
+    private double basePower;
+    private boolean powerStale = true;
+    private static final double AVERAGE_CONSTANT = 3.0;
+
+    /**
+     * No-arg constructor initializes armor, vitality, speed to zero
+     * and poisoned to false.
+     *
+     * Precondition: none.
+     * Postcondition: armor=0, vitality=0, speed=0.0, poisoned=false.
+     */
+    protected Monster() {
+        this.armor = 0;
+        this.vitality = 0;
+        this.speed = 0.0;
+        this.poisoned = false;
+        this.random = new SplittableRandomSource();
+    }
+
+    /**
+     * Constructs a Monster with specified armor, vitality, and speed.
+     *
+     * @param armor    initial armor value
+     * @param vitality initial vitality value
+     * @param speed    initial speed value
+     * Precondition: none.
+     * Postcondition: fields set accordingly.
+     */
+    protected Monster(int armor, int vitality, double speed) {
+        this.armor = armor;
+        this.vitality = vitality;
+        this.speed = speed;
+        this.random = new SplittableRandomSource();
+    }
+
+    /**
+     * Returns this monster's armor value.
+     *
+     * @return current armor
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getArmor() {
+        return this.armor;
+    }
+
+    /**
+     * Returns this monster's vitality value.
+     *
+     * @return current vitality
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getVitality() {
+        return this.vitality;
+    }
+
+    /**
+     * Returns this monster's speed value.
+     *
+     * @return current speed
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public double getSpeed() {
+        return this.speed;
+    }
+
+    /**
+     * Sets this monster's armor to the specified value.
+     *
+     * @param armor new armor value
+     * Precondition: none.
+     * Postcondition: armor field updated.
+     */
+    public void setArmor(int armor) {
+        this.armor = armor;
+        this.powerStale = true;
+    }
+
+    /**
+     * Sets this monster's vitality to the specified value.
+     *
+     * @param vitality new vitality value
+     * Precondition: none.
+     * Postcondition: vitality field updated.
+     */
+    public void setVitality(int vitality) {
+        this.vitality = vitality;
+        this.powerStale = true;
+    }
+
+    /**
+     * Sets this monster's speed to the specified value.
+     *
+     * @param speed new speed value
+     * Precondition: none.
+     * Postcondition: speed field updated.
+     */
+    public void setSpeed(double speed) {
+        this.speed = speed;
+        this.powerStale = true;
+    }
+
+    /**
+     * Returns the random source this monster draws from.
+     *
+     * @return current random source
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public RandomSource getRandomSource() {
+        return this.random;
+    }
+
+    /**
+     * Sets the random source this monster draws from. Seeding the
+     * source makes every fight of this monster reproducible.
+     *
+     * @param random new random source
+     * Precondition: random not null.
+     * Postcondition: random field updated.
+     */
+    public void setRandomSource(RandomSource random) {
+        this.random = random;
+    }
+
+    /**
+     * Returns whether this monster is poisoned.
+     *
+     * @return true if poisoned, false otherwise
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public boolean isPoisoned() {
+        return this.poisoned;
+    }
+
+    /**
+     * Applies poison status to this monster.
+     *
+     * Precondition: none.
+     * Postcondition: poisoned set to true.
+     */
+    public void applyPoison() {
+        this.poisoned = true;
+    }
+
+    /**
+     * Clears poison status from this monster.
+     *
+     * Precondition: none.
+     * Postcondition: poisoned set to false.
+     */
+    public void clearPoison() {
+        this.poisoned = false;
+    }
+
+    /**
+     * Returns true if this monster's vitality is greater than zero.
+     *
+     * @return true if alive, false otherwise
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public boolean isAlive() {
+        if (getVitality() > 0) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records this monster's current state in an immutable snapshot.
+     *
+     * @return the snapshot
+     * Precondition: none.
+     * Postcondition: this monster is unchanged.
+     */
+    public MonsterSnapshot snapshot() {
+        return new MonsterSnapshot(this);
+    }
+
+    /**
+     * Overwrites this monster's state with a snapshot taken from a
+     * monster of the same class. Clones are copied into this monster's
+     * existing storage, so restoring allocates nothing once that storage
+     * is large enough. The random source is left unchanged.
+     *
+     * @param snapshot the state to restore
+     * @throws IllegalArgumentException if the snapshot was taken from a
+     *         different class of monster
+     * Precondition: snapshot not null.
+     * Postcondition: this monster's state equals the snapshot.
+     */
+    public void restore(MonsterSnapshot snapshot) {
+        if (snapshot.getType() != getClass()) {
+            throw new IllegalArgumentException("cannot restore a "
+                + snapshot.getType().getName() + " snapshot into a "
+                + getClass().getName());
+        }
+        setArmor(snapshot.getArmor());
+        setVitality(snapshot.getVitality());
+        setSpeed(snapshot.getSpeed());
+        if (snapshot.isPoisoned()) {
+            applyPoison();
+        } else {
+            clearPoison();
+        }
+        restoreTraits(snapshot.getFirstTrait(), snapshot.getSecondTrait());
+        ClonePool pool = clonePool();
+        if (pool != null) {
+            pool.copyFrom(snapshot.getClones());
+        }
+    }
+
+    /**
+     * Returns the first trait recorded in a snapshot.
+     *
+     * @return 0; Humanoid and Ooze override this
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    int firstTrait() {
+        return 0;
+    }
+
+    /**
+     * Returns the second trait recorded in a snapshot.
+     *
+     * @return 0; Humanoid and Ooze override this
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    int secondTrait() {
+        return 0;
+    }
+
+    /**
+     * Sets the traits from a snapshot.
+     *
+     * @param first  the first trait
+     * @param second the second trait
+     * Precondition: values come from a snapshot of this class.
+     * Postcondition: none; Humanoid and Ooze override this.
+     */
+    void restoreTraits(int first, int second) {
+    }
+
+    /**
+     * Returns the pool holding this monster's clones.
+     *
+     * @return null; Doppelganger and Ochre override this
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    ClonePool clonePool() {
+        return null;
+    }
+
+    /**
+     * Default special ability (does nothing). Subclasses may override.
+     *
+     * @param target the Monster to target
+     * Precondition: target not null.
+     * Postcondition: none.
+     */
+    public void performSpecialAbility(Monster target) {
+    }
+
+    /**
+     * Compares this monster to another based on average of armor,
+     * vitality, and speed.
+     *
+     * @param monster the other Monster to compare
+     * @return -1 if this average < other, 0 if equal, 1 if greater
+     * Precondition: monster not null.
+     * Postcondition: none.
+     */
+    public int compareTo(Monster monster) {
+        double instanceAverage = (getArmor() + getVitality() + getSpeed())
+            / AVERAGE_CONSTANT;
+        double monsterAverage = (monster.getArmor() + monster.getSpeed()
+            + monster.getVitality()) / AVERAGE_CONSTANT;
+        if (instanceAverage < monsterAverage) {
+            return -1;
+        } else if (instanceAverage > monsterAverage) {
+            return 1;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns a string representation of this monster.
+     *
+     * @return formatted string "(ClassName) armor: X; vitality: Y; speed: Z"
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public String toString() {
+        return "(" + getClass().getName() + ")" + " armor: " + getArmor()
+            + "; vitality: " + getVitality() + "; speed: " + getSpeed();
+    }
+
+    /**
+     * Restores or recharges monster-specific stats. Must be overridden.
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public abstract void rest();
+
+    /**
+     * Calculates this monster's power based on its stats. Must be overridden.
+     *
+     * @return calculated power value
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public abstract double calculatePower();
+
+    /**
+     * Returns the deterministic part of this monster's own power, as
+     * computed by basePower(). The value is cached and only computed
+     * again after a setter has changed a stat, so repeated calls to
+     * calculatePower() between hits cost a field read. Random
+     * multipliers and clone power are added on top by calculatePower().
+     *
+     * @return the cached base power
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    protected final double cachedPower() {
+        if (powerStale) {
+            basePower = basePower();
+            powerStale = false;
+        }
+        return basePower;
+    }
+
+    /**
+     * Computes the deterministic part of this monster's own power from
+     * its stats: no random draws and no clones.
+     *
+     * @return 0.0; subclasses that cache their power override this
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    protected double basePower() {
+        return 0.0;
+    }
+
+    /**
+     * Marks the cached base power as stale. Every setter of a stat that
+     * basePower() reads must call this.
+     *
+     * Precondition: none.
+     * Postcondition: the next cachedPower() call recomputes basePower().
+     */
+    protected final void invalidatePower() {
+        this.powerStale = true;
+    }
+
+    /**
+     * Performs an attack on the specified monster. Must be overridden.
+     *
+     * @param monster target of the attack
+     * @return integer damage or strike value
+     * Precondition: monster not null.
+     * Postcondition: monster's stats may be reduced.
+     */
+    public abstract int attack(Monster monster);
+
+    /**
+     * Applies armory effect to this monster. Must be overridden.
+     * Precondition: none.
+     * Postcondition: monster's stats modified.
+     */
+    public abstract void applyArmoryEffect();
+
+    /**
+     * Handles deathrattle behavior. Must be overridden.
+     *
+     * @return true if deathrattle triggered a resurrection, false otherwise
+     * Precondition: none.
+     * Postcondition: monster's stats may be replaced if resurrected.
+     */
+    public abstract boolean handleDeathrattle();
+
+    /**
+     * Creates an independent deep copy of this monster, including its
+     * poison status and any clones. The copy shares this monster's
+     * random source. Must be overridden.
+     *
+     * @return a new Monster with identical state
+     * Precondition: none.
+     * Postcondition: this monster is unchanged.
+     */
+    public abstract Monster copy();
+
 }
\ No newline at end of file
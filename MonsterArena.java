@@ -0,0 +1,902 @@
+import java.util.Arrays;
+/**
+ * Stores the stats of many monsters in parallel primitive arrays indexed
+ * by entity id, instead of one heap object per monster. Batched kernels
+ * for rest, calculatePower and attack walk these arrays front to back,
+ * so mass simulations stay cache-friendly and the JIT can vectorize the
+ * straight-line loops.
+ *
+ * Every entity also carries its own power coefficients (one array per
+ * stat), so calculating base power is a single multiply-add loop with
+ * no weapon or type branches. Doppelgangers and Ochres also own a
+ * ClonePool, which adds its power to theirs, rests with them and
+ * resurrects them, exactly as their Monster classes do.
+ *
+ * Poison is a flag bit per entity plus a row in a StatusTable that
+ * holds its stacks and duration; tickStatusAll() deals one round of
+ * poison damage to every affected entity in a single batch.
+ *
+ * The special ability, armory effect and deathrattle of every type are
+ * kernels on the columns too, so an entity fights with the same draws
+ * and results as the Monster it was added from. view() wraps an entity
+ * in an ArenaMonster so existing Monster code can fight with it.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public class MonsterArena {
+    public static final byte BANDIT = 0;
+    public static final byte DOPPELGANGER = 1;
+    public static final byte JUBILEX = 2;
+    public static final byte OCHRE = 3;
+    private static final int NO_WEAPON = -1;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int WORD_SHIFT = 6;
+
+    // Per-type tables, indexed by the type constants above.
+    private static final int[] REST_ARMOR = {0, 0, Jubilex.REST, Ochre.REST};
+    private static final int[] REST_VITALITY = {Bandit.REST,
+        Doppelganger.REST, 0, 0};
+    private static final double[] CRIT_THRESHOLD = {Bandit.THRESHOLD, 1.0,
+        Jubilex.BOUND, 1.0};
+    private static final double[] CRIT_MULTIPLIER = {Bandit.DOUBLE, 1.0,
+        Jubilex.MULTIPLIER, 1.0};
+    private static final double[] MIN_SPREAD = {Bandit.MIN_CONSTANT,
+        Doppelganger.HALF, Jubilex.MIN_CONSTANT, Ochre.HALF};
+    private static final Class<?>[] TYPE_CLASS = {Bandit.class,
+        Doppelganger.class, Jubilex.class, Ochre.class};
+    private static final double[] MAX_SPREAD = {Bandit.MAX_CONSTANT,
+        Doppelganger.HALF, Jubilex.MAX_CONSTANT, Ochre.HALF};
+    private static final double[] ARMORY_CLONES = {0.0,
+        Doppelganger.LENGTH, 0.0, Ochre.RANGE};
+    private static final int[] ARMORY_STATS = {Bandit.TOTAL_ARMORY, 0,
+        Jubilex.TOTAL_ARMORY, 0};
+    private static final int ARMOR_STAT = 0;
+    private static final int VITALITY_STAT = 1;
+    private static final int SPEED_STAT = 2;
+    private static final int DOUBLE = 2;
+
+    private final RandomSource random;
+    private int size;
+    private byte[] type;
+    private int[] armor;
+    private int[] vitality;
+    private double[] speed;
+    private int[] intelligence;
+    private int[] weapon;
+    private int[] volume;
+    private int[] acidity;
+    private long[] poisoned;
+    private ClonePool[] clones;
+    private final StatusTable statuses;
+    private double[] strikeMin;
+    private double[] strikeMax;
+    private double[] strikeDraw;
+    private double[] armorCoefficient;
+    private double[] vitalityCoefficient;
+    private double[] speedCoefficient;
+    private double[] intelligenceCoefficient;
+    private double[] volumeCoefficient;
+    private double[] acidityCoefficient;
+
+    /**
+     * Constructs an empty arena whose kernels draw from random.
+     *
+     * @param random the random source of every entity in the arena
+     * Precondition: random not null.
+     * Postcondition: the arena is empty.
+     */
+    public MonsterArena(RandomSource random) {
+        this.random = random;
+        this.size = 0;
+        this.statuses = new StatusTable(INITIAL_CAPACITY);
+        this.strikeMin = new double[0];
+        this.strikeMax = new double[0];
+        this.strikeDraw = new double[0];
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the number of entities in the arena.
+     *
+     * @return entity count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the random source the kernels draw from.
+     *
+     * @return the arena's random source
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public RandomSource getRandomSource() {
+        return this.random;
+    }
+
+    /**
+     * Adds a copy of a monster's stats and clones to the arena.
+     *
+     * @param monster a Bandit, Doppelganger, Jubilex or Ochre
+     * @return the new entity's id
+     * @throws IllegalArgumentException if the monster type is unknown
+     * Precondition: monster not null.
+     * Postcondition: size() is one larger.
+     */
+    public int add(Monster monster) {
+        if (size == type.length) {
+            allocate(type.length * 2);
+        }
+        int id = size;
+        type[id] = typeOf(monster);
+        clones[id] = ARMORY_CLONES[type[id]] > 0 ? new ClonePool() : null;
+        size++;
+        store(id, monster);
+        return id;
+    }
+
+    /**
+     * Overwrites an entity's stats and clones with those of a monster
+     * of the same type.
+     *
+     * @param id      the entity id
+     * @param monster the monster to copy stats from
+     * @throws IllegalArgumentException if the monster's type differs
+     * Precondition: 0 <= id < size(); monster not null.
+     * Postcondition: the entity's stats and clones equal the monster's.
+     */
+    public void store(int id, Monster monster) {
+        if (typeOf(monster) != type[id]) {
+            throw new IllegalArgumentException("entity " + id
+                + " is not a " + monster.getClass().getName());
+        }
+        armor[id] = monster.getArmor();
+        vitality[id] = monster.getVitality();
+        speed[id] = monster.getSpeed();
+        setPoisoned(id, monster.isPoisoned());
+        intelligence[id] = 0;
+        weapon[id] = NO_WEAPON;
+        volume[id] = 0;
+        acidity[id] = 0;
+        if (monster instanceof Humanoid) {
+            Humanoid humanoid = (Humanoid) monster;
+            intelligence[id] = humanoid.getIntelligence();
+            if (humanoid.getWeaponType() != null) {
+                weapon[id] = humanoid.getWeaponType().getId();
+            }
+        } else {
+            Ooze ooze = (Ooze) monster;
+            volume[id] = ooze.getVolume();
+            acidity[id] = ooze.getAcidity();
+        }
+        if (clones[id] != null) {
+            clones[id].copyFrom(monster.clonePool());
+        }
+        updateCoefficients(id);
+    }
+
+    /**
+     * Builds a new, independent Monster with an entity's stats and
+     * clones.
+     *
+     * @param id the entity id
+     * @return a monster of the entity's type
+     * Precondition: 0 <= id < size().
+     * Postcondition: the arena is unchanged.
+     */
+    public Monster materialize(int id) {
+        Monster monster;
+        if (type[id] == BANDIT) {
+            Bandit bandit = new Bandit(armor[id], vitality[id], speed[id],
+                                       intelligence[id], null);
+            bandit.setWeaponType(getWeaponType(id));
+            monster = bandit;
+        } else if (type[id] == DOPPELGANGER) {
+            Doppelganger doppelganger = new Doppelganger(armor[id],
+                vitality[id], speed[id], intelligence[id], null);
+            doppelganger.setWeaponType(getWeaponType(id));
+            monster = doppelganger;
+        } else if (type[id] == JUBILEX) {
+            monster = new Jubilex(armor[id], vitality[id], speed[id],
+                                  volume[id], acidity[id]);
+        } else {
+            monster = new Ochre(armor[id], vitality[id], speed[id],
+                                volume[id], acidity[id]);
+        }
+        if (clones[id] != null) {
+            monster.clonePool().copyFrom(clones[id]);
+        }
+        if (isPoisoned(id)) {
+            monster.applyPoison();
+        }
+        monster.setRandomSource(random);
+        return monster;
+    }
+
+    /**
+     * Returns a Monster view of an entity. Reads and writes through the
+     * view go straight to the arena's arrays.
+     *
+     * @param id the entity id
+     * @return a view of the entity
+     * Precondition: 0 <= id < size().
+     * Postcondition: none.
+     */
+    public ArenaMonster view(int id) {
+        return new ArenaMonster(this, id);
+    }
+
+    /**
+     * Rests every living entity and its clones. Bandits and
+     * Doppelgangers regain vitality, Jubilexes and Ochres regain armor.
+     *
+     * Precondition: none.
+     * Postcondition: each living entity's rest bonus is applied.
+     */
+    public void restAll() {
+        for (int i = 0; i < size; i++) {
+            int alive = vitality[i] > 0 ? 1 : 0;
+            armor[i] = StatMath.add(armor[i], REST_ARMOR[type[i]] * alive);
+            vitality[i] = StatMath.add(vitality[i],
+                                       REST_VITALITY[type[i]] * alive);
+        }
+        for (int i = 0; i < size; i++) {
+            if (clones[i] != null && vitality[i] > 0) {
+                clones[i].rest(REST_ARMOR[type[i]], REST_VITALITY[type[i]]);
+            }
+        }
+    }
+
+    /**
+     * Deals one round of status damage to every living affected entity
+     * and ages the effects. Entities whose poison runs out are cured,
+     * and fallen entities are cured without taking damage.
+     *
+     * @return total damage dealt
+     * Precondition: none.
+     * Postcondition: every remaining effect has a tick less to run.
+     */
+    public long tickStatusAll() {
+        for (int row = statuses.size() - 1; row >= 0; row--) {
+            int id = statuses.getTarget(row);
+            if (vitality[id] <= 0) {
+                statuses.removeAll(id);
+                poisoned[id >>> WORD_SHIFT] &= ~(1L << id);
+            }
+        }
+        long total = statuses.dealDamage(vitality);
+        int expired = statuses.expire();
+        for (int i = 0; i < expired; i++) {
+            if (statuses.getExpiredKind(i) == StatusTable.POISON) {
+                int id = statuses.getExpiredTarget(i);
+                poisoned[id >>> WORD_SHIFT] &= ~(1L << id);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Rests one entity and its clones if it is alive.
+     *
+     * @param id the entity id
+     * Precondition: 0 <= id < size().
+     * Postcondition: the entity's rest bonus is applied if alive.
+     */
+    public void rest(int id) {
+        if (vitality[id] > 0) {
+            armor[id] = StatMath.add(armor[id], REST_ARMOR[type[id]]);
+            vitality[id] = StatMath.add(vitality[id], REST_VITALITY[type[id]]);
+            if (clones[id] != null) {
+                clones[id].rest(REST_ARMOR[type[id]], REST_VITALITY[type[id]]);
+            }
+        }
+    }
+
+    /**
+     * Calculates the power of every entity, including its clones' power
+     * and the random critical multiplier of Bandits and Jubilexes.
+     *
+     * @param power receives the power of entity i at index i
+     * Precondition: power.length >= size().
+     * Postcondition: power[0..size()) is filled.
+     */
+    public void calculatePowerAll(double[] power) {
+        basePowerAll(power);
+        for (int i = 0; i < size; i++) {
+            if (clones[i] != null) {
+                power[i] += clones[i].getPowerSum();
+            }
+            power[i] = critical(type[i], power[i]);
+        }
+    }
+
+    /**
+     * Calculates the power of every entity's own stats, without clones
+     * or the random critical multiplier. This loop has no branches and
+     * vectorizes.
+     *
+     * @param power receives the base power of entity i at index i
+     * Precondition: power.length >= size().
+     * Postcondition: power[0..size()) is filled.
+     */
+    public void basePowerAll(double[] power) {
+        for (int i = 0; i < size; i++) {
+            power[i] = armorCoefficient[i] * armor[i]
+                     + vitalityCoefficient[i] * vitality[i]
+                     + speedCoefficient[i] * speed[i]
+                     + intelligenceCoefficient[i] * intelligence[i]
+                     + volumeCoefficient[i] * volume[i]
+                     + acidityCoefficient[i] * acidity[i];
+        }
+    }
+
+    /**
+     * Calculates the power of one entity, including its clones' power
+     * and the random critical multiplier of Bandits and Jubilexes.
+     *
+     * @param id the entity id
+     * @return the entity's power
+     * Precondition: 0 <= id < size().
+     * Postcondition: none.
+     */
+    public double calculatePower(int id) {
+        double power = basePower(id);
+        if (clones[id] != null) {
+            power += clones[id].getPowerSum();
+        }
+        return critical(type[id], power);
+    }
+
+    /**
+     * Performs an entity's special ability on a target, as Ooze does:
+     * a Jubilex or Ochre that corrodes strips the target's armor, or
+     * poisons it if it has none. Bandits and Doppelgangers have no
+     * special ability.
+     *
+     * @param id     the entity id
+     * @param target the Monster to target
+     * Precondition: 0 <= id < size(); target not null.
+     * Postcondition: target's armor or poison status updated if corroded.
+     */
+    public void performSpecialAbility(int id, Monster target) {
+        if (type[id] == BANDIT || type[id] == DOPPELGANGER) {
+            return;
+        }
+        double draw = random.nextDouble();
+        boolean corroded = type[id] == JUBILEX
+                           ? draw <= Jubilex.UPPER_BOUND
+                           : draw < Ochre.corrodeChance(clones[id].size());
+        FightMetrics.corrode(corroded);
+        if (corroded && target.getArmor() > 0) {
+            target.setArmor(0);
+        } else if (corroded) {
+            target.applyPoison();
+        }
+    }
+
+    /**
+     * Applies an entity's armory effect, drawing as its Monster class
+     * does. Bandits and Doppelgangers take a random weapon from their
+     * armory and oozes double their volume; then Bandits and Jubilexes
+     * double a random stat, and Doppelgangers and Ochres add up to five
+     * clones of themselves.
+     *
+     * @param id the entity id
+     * Precondition: 0 <= id < size().
+     * Postcondition: the entity's stats, weapon or clones are updated.
+     */
+    public void applyArmoryEffect(int id) {
+        byte kind = type[id];
+        if (kind == BANDIT || kind == DOPPELGANGER) {
+            Weapon[] weapons = Weapon.armoryOf(TYPE_CLASS[kind]);
+            if (weapons != null && weapons.length > 0) {
+                weapon[id] = weapons[random.nextInt(weapons.length)].getId();
+                updateCoefficients(id);
+            }
+        } else {
+            volume[id] = StatMath.multiply(volume[id], Ooze.DOUBLE_CONSTANT);
+        }
+        if (ARMORY_STATS[kind] > 0) {
+            doubleStat(id, random.nextInt(ARMORY_STATS[kind]));
+        } else {
+            int count = (int) Math.floor(random.nextDouble()
+                                         * ARMORY_CLONES[kind]);
+            for (int i = 0; i < count; i++) {
+                if (!addClone(id)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Resurrects a fallen entity from its first clone, as a
+     * Doppelganger's or Ochre's handleDeathrattle() does.
+     *
+     * @param id the entity id
+     * @return true if the entity was resurrected
+     * Precondition: 0 <= id < size().
+     * Postcondition: if resurrected, the entity has its first clone's
+     *                stats, that clone is gone and poison is cured.
+     */
+    public boolean handleDeathrattle(int id) {
+        ClonePool pool = clones[id];
+        if (vitality[id] > 0 || pool == null || pool.isEmpty()) {
+            return false;
+        }
+        armor[id] = pool.getArmor(0);
+        vitality[id] = pool.getVitality(0);
+        speed[id] = pool.getSpeed(0);
+        if (type[id] == DOPPELGANGER) {
+            intelligence[id] = pool.getFirstTrait(0);
+            weapon[id] = pool.getSecondTrait(0);
+            updateCoefficients(id);
+        } else {
+            volume[id] = pool.getFirstTrait(0);
+            acidity[id] = pool.getSecondTrait(0);
+        }
+        pool.removeFirst();
+        FightMetrics.cloneConsumed();
+        setPoisoned(id, false);
+        return true;
+    }
+
+    /**
+     * Returns the clones of an entity.
+     *
+     * @param id the entity id
+     * @return the entity's clone pool, or null for Bandits and Jubilexes
+     * Precondition: 0 <= id < size().
+     * Postcondition: none.
+     */
+    ClonePool clonePool(int id) {
+        return clones[id];
+    }
+
+    /**
+     * Resolves count attacks in order: attackers[k] attacks targets[k].
+     * Each attack uses the attacker's power at the time it strikes, the
+     * same way Monster.attack() does.
+     *
+     * @param attackers ids of the attacking entities
+     * @param targets   ids of the targeted entities
+     * @param count     number of attacks to resolve
+     * @param damage    receives the strike value of attack k at index k
+     * Precondition: all arrays hold at least count valid entries.
+     * Postcondition: targets' armor and vitality are reduced.
+     */
+    public void attackAll(int[] attackers, int[] targets, int count,
+                          int[] damage) {
+        for (int k = 0; k < count; k++) {
+            damage[k] = attack(attackers[k], targets[k]);
+        }
+    }
+
+    /**
+     * Resolves count attacks as one volley: attackers[k] strikes
+     * targets[k], but every strike value is drawn from the attackers'
+     * stats before any hit lands. The hits then land in order through
+     * DamageKernel.strikeAll(), which draws them in one vectorizable
+     * loop and applies them without branches.
+     *
+     * @param attackers ids of the attacking entities
+     * @param targets   ids of the targeted entities
+     * @param count     number of attacks to resolve
+     * @param damage    receives the strike value of attack k at index k
+     * Precondition: all arrays hold at least count valid entries.
+     * Postcondition: targets' armor and vitality are reduced.
+     */
+    public void strikeAll(int[] attackers, int[] targets, int count,
+                          int[] damage) {
+        if (strikeDraw.length < count) {
+            strikeMin = new double[count];
+            strikeMax = new double[count];
+            strikeDraw = new double[count];
+        }
+        for (int k = 0; k < count; k++) {
+            int id = attackers[k];
+            double power = calculatePower(id);
+            int spread = intelligence[id] + volume[id];
+            strikeMin[k] = power - MIN_SPREAD[type[id]] * spread;
+            strikeMax[k] = power + MAX_SPREAD[type[id]] * spread;
+            strikeDraw[k] = random.nextDouble();
+        }
+        DamageKernel.strikeAll(strikeMin, strikeMax, strikeDraw, targets,
+                               count, armor, vitality, damage);
+        if (FightMetrics.ENABLED) {
+            for (int k = 0; k < count; k++) {
+                FightMetrics.attack(TYPE_CLASS[type[attackers[k]]], damage[k]);
+            }
+        }
+    }
+
+    /**
+     * Resolves one attack between two entities.
+     *
+     * @param attacker id of the attacking entity
+     * @param target   id of the targeted entity
+     * @return the strike value, or 0 if the strike was not positive
+     * Precondition: both ids in [0, size()).
+     * Postcondition: target's armor or vitality is reduced.
+     */
+    public int attack(int attacker, int target) {
+        int damage = DamageKernel.apply(strikeValue(attacker), target, armor,
+                                        vitality);
+        FightMetrics.attack(TYPE_CLASS[type[attacker]], damage);
+        return damage;
+    }
+
+    /**
+     * Draws an entity's strike value from its power range, as its
+     * attack() or strike() method would.
+     *
+     * @param id the attacking entity
+     * @return the floored strike value (may be zero or negative)
+     * Precondition: 0 <= id < size().
+     * Postcondition: none.
+     */
+    int strikeValue(int id) {
+        double power = calculatePower(id);
+        int spread = intelligence[id] + volume[id];
+        double min = power - MIN_SPREAD[type[id]] * spread;
+        double max = power + MAX_SPREAD[type[id]] * spread;
+        return DamageKernel.strikeValue(min, max, random.nextDouble());
+    }
+
+    /**
+     * Calculates the power of an entity's own stats.
+     *
+     * @param id the entity id
+     * @return power without clones or critical multiplier
+     * Precondition: 0 <= id < size().
+     * Postcondition: none.
+     */
+    private double basePower(int id) {
+        return armorCoefficient[id] * armor[id]
+             + vitalityCoefficient[id] * vitality[id]
+             + speedCoefficient[id] * speed[id]
+             + intelligenceCoefficient[id] * intelligence[id]
+             + volumeCoefficient[id] * volume[id]
+             + acidityCoefficient[id] * acidity[id];
+    }
+
+    /**
+     * Doubles one of an entity's armor, vitality or speed, as the
+     * armory effect of a Bandit or Jubilex does.
+     *
+     * @param id   the entity id
+     * @param stat ARMOR_STAT, VITALITY_STAT or SPEED_STAT
+     * Precondition: 0 <= id < size().
+     * Postcondition: the chosen stat is doubled.
+     */
+    private void doubleStat(int id, int stat) {
+        if (stat == ARMOR_STAT) {
+            armor[id] = StatMath.multiply(armor[id], DOUBLE);
+        } else if (stat == VITALITY_STAT) {
+            vitality[id] = StatMath.multiply(vitality[id], DOUBLE);
+        } else if (stat == SPEED_STAT) {
+            speed[id] *= DOUBLE;
+        }
+    }
+
+    /**
+     * Adds a clone of an entity to its pool, as a Doppelganger or Ochre
+     * does with clone() and addClone(). An Ochre gives the clone half
+     * its volume and keeps the other half, and cannot split at volume 1.
+     *
+     * @param id the entity id
+     * @return false if the entity cannot be cloned
+     * Precondition: 0 <= id < size(); the entity has a clone pool.
+     * Postcondition: if true, the pool has one more clone.
+     */
+    private boolean addClone(int id) {
+        int first = intelligence[id];
+        int second = weapon[id];
+        if (type[id] == OCHRE) {
+            if (volume[id] == 1) {
+                return false;
+            }
+            volume[id] /= DOUBLE;
+            first = volume[id];
+            second = acidity[id];
+        }
+        clones[id].add(armor[id], vitality[id], speed[id], first, second,
+                       basePower(id), armorCoefficient[id],
+                       vitalityCoefficient[id]);
+        return true;
+    }
+
+    /**
+     * Applies the random critical multiplier of an entity type.
+     *
+     * @param entityType the entity's type
+     * @param base       the base power
+     * @return base, multiplied if the critical roll succeeds
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private double critical(byte entityType, double base) {
+        if (CRIT_THRESHOLD[entityType] < 1.0
+            && random.nextDouble() > CRIT_THRESHOLD[entityType]) {
+            return base * CRIT_MULTIPLIER[entityType];
+        }
+        return base;
+    }
+
+    /**
+     * Returns an entity's type.
+     *
+     * @param id the entity id
+     * @return BANDIT, DOPPELGANGER, JUBILEX or OCHRE
+     * Precondition: 0 <= id < size().
+     * Postcondition: none.
+     */
+    public byte getType(int id) {
+        return type[id];
+    }
+
+    /**
+     * Returns an entity's armor.
+     *
+     * @param id the entity id
+     * @return armor
+     * Precondition: 0 <= id < size().
+     * Postcondition: none.
+     */
+    public int getArmor(int id) {
+        return armor[id];
+    }
+
+    /**
+     * Sets an entity's armor.
+     *
+     * @param id    the entity id
+     * @param value new armor
+     * Precondition: 0 <= id < size().
+     * Postcondition: armor updated.
+     */
+    public void setArmor(int id, int value) {
+        armor[id] = value;
+    }
+
+    /**
+     * Returns an entity's vitality.
+     *
+     * @param id the entity id
+     * @return vitality
+     * Precondition: 0 <= id < size().
+     * Postcondition: none.
+     */
+    public int getVitality(int id) {
+        return vitality[id];
+    }
+
+    /**
+     * Sets an entity's vitality.
+     *
+     * @param id    the entity id
+     * @param value new vitality
+     * Precondition: 0 <= id < size().
+     * Postcondition: vitality updated.
+     */
+    public void setVitality(int id, int value) {
+        vitality[id] = value;
+    }
+
+    /**
+     * Returns an entity's speed.
+     *
+     * @param id the entity id
+     * @return speed
+     * Precondition: 0 <= id < size().
+     * Postcondition: none.
+     */
+    public double getSpeed(int id) {
+        return speed[id];
+    }
+
+    /**
+     * Sets an entity's speed.
+     *
+     * @param id    the entity id
+     * @param value new speed
+     * Precondition: 0 <= id < size().
+     * Postcondition: speed updated.
+     */
+    public void setSpeed(int id, double value) {
+        speed[id] = value;
+    }
+
+    /**
+     * Returns an entity's weapon.
+     *
+     * @param id the entity id
+     * @return weapon, or null for oozes and unarmed humanoids
+     * Precondition: 0 <= id < size().
+     * Postcondition: none.
+     */
+    public Weapon getWeaponType(int id) {
+        if (weapon[id] == NO_WEAPON) {
+            return null;
+        }
+        return Weapon.byId(weapon[id]);
+    }
+
+    /**
+     * Returns whether an entity is poisoned.
+     *
+     * @param id the entity id
+     * @return true if poisoned
+     * Precondition: 0 <= id < size().
+     * Postcondition: none.
+     */
+    public boolean isPoisoned(int id) {
+        return (poisoned[id >>> WORD_SHIFT] & (1L << id)) != 0;
+    }
+
+    /**
+     * Sets or clears an entity's poison bit. Poisoning an entity that
+     * is not yet poisoned gives it one stack of default poison, and
+     * curing it removes every stack.
+     *
+     * @param id    the entity id
+     * @param value true to poison, false to cure
+     * Precondition: 0 <= id < size().
+     * Postcondition: the poison bit equals value.
+     */
+    public void setPoisoned(int id, boolean value) {
+        if (value) {
+            poisoned[id >>> WORD_SHIFT] |= 1L << id;
+            if (!statuses.has(id, StatusTable.POISON)) {
+                statuses.apply(id, StatusTable.POISON, 1);
+            }
+        } else {
+            poisoned[id >>> WORD_SHIFT] &= ~(1L << id);
+            statuses.remove(id, StatusTable.POISON);
+        }
+    }
+
+    /**
+     * Adds stacks of default poison to an entity.
+     *
+     * @param id     the entity id
+     * @param stacks stacks to add
+     * Precondition: 0 <= id < size(); stacks > 0.
+     * Postcondition: the entity is poisoned.
+     */
+    public void poison(int id, int stacks) {
+        poisoned[id >>> WORD_SHIFT] |= 1L << id;
+        statuses.apply(id, StatusTable.POISON, stacks);
+    }
+
+    /**
+     * Returns the poison stacks on an entity.
+     *
+     * @param id the entity id
+     * @return stack count, or 0 if it is not poisoned
+     * Precondition: 0 <= id < size().
+     * Postcondition: none.
+     */
+    public int getPoisonStacks(int id) {
+        return statuses.getStacks(id, StatusTable.POISON);
+    }
+
+    /**
+     * Returns the type constant of a monster.
+     *
+     * @param monster the monster
+     * @return BANDIT, DOPPELGANGER, JUBILEX or OCHRE
+     * @throws IllegalArgumentException if the monster type is unknown
+     * Precondition: monster not null.
+     * Postcondition: none.
+     */
+    private static byte typeOf(Monster monster) {
+        if (monster instanceof Bandit) {
+            return BANDIT;
+        } else if (monster instanceof Doppelganger) {
+            return DOPPELGANGER;
+        } else if (monster instanceof Jubilex) {
+            return JUBILEX;
+        } else if (monster instanceof Ochre) {
+            return OCHRE;
+        }
+        throw new IllegalArgumentException("unsupported monster: "
+            + monster.getClass().getName());
+    }
+
+    /**
+     * Fills an entity's power coefficients from its type and weapon.
+     *
+     * @param id the entity id
+     * Precondition: type and weapon of id are set.
+     * Postcondition: the six coefficients of id are set.
+     */
+    private void updateCoefficients(int id) {
+        double a = 0.0;
+        double v = 0.0;
+        double s = 0.0;
+        double i = 0.0;
+        double vol = 0.0;
+        double acid = 0.0;
+        Weapon current = getWeaponType(id);
+        if (type[id] == BANDIT || type[id] == DOPPELGANGER) {
+            if (current != null
+                && current.givesPowerTo(TYPE_CLASS[type[id]])) {
+                a = current.getCoefficient(Weapon.ARMOR);
+                v = current.getCoefficient(Weapon.VITALITY);
+                i = current.getCoefficient(Weapon.INTELLIGENCE);
+                s = current.getCoefficient(Weapon.SPEED);
+            }
+        } else if (type[id] == JUBILEX) {
+            v = Jubilex.VITALITY_CONSTANT;
+            vol = Jubilex.VOLUME_CONSTANT;
+            acid = Jubilex.ACID_CONSTANT;
+        } else {
+            v = Ochre.VITALITY_CONSTANT;
+            vol = Ochre.VOLUME_CONSTANT;
+            acid = 1.0;
+        }
+        armorCoefficient[id] = a;
+        vitalityCoefficient[id] = v;
+        speedCoefficient[id] = s;
+        intelligenceCoefficient[id] = i;
+        volumeCoefficient[id] = vol;
+        acidityCoefficient[id] = acid;
+    }
+
+    /**
+     * Grows every column to the given capacity, keeping existing data.
+     *
+     * @param capacity the new capacity
+     * Precondition: capacity >= size.
+     * Postcondition: every column holds capacity entries.
+     */
+    private void allocate(int capacity) {
+        if (type == null) {
+            type = new byte[capacity];
+            armor = new int[capacity];
+            vitality = new int[capacity];
+            speed = new double[capacity];
+            intelligence = new int[capacity];
+            weapon = new int[capacity];
+            volume = new int[capacity];
+            acidity = new int[capacity];
+            armorCoefficient = new double[capacity];
+            vitalityCoefficient = new double[capacity];
+            speedCoefficient = new double[capacity];
+            intelligenceCoefficient = new double[capacity];
+            volumeCoefficient = new double[capacity];
+            acidityCoefficient = new double[capacity];
+            clones = new ClonePool[capacity];
+        } else {
+            type = Arrays.copyOf(type, capacity);
+            armor = Arrays.copyOf(armor, capacity);
+            vitality = Arrays.copyOf(vitality, capacity);
+            speed = Arrays.copyOf(speed, capacity);
+            intelligence = Arrays.copyOf(intelligence, capacity);
+            weapon = Arrays.copyOf(weapon, capacity);
+            volume = Arrays.copyOf(volume, capacity);
+            acidity = Arrays.copyOf(acidity, capacity);
+            armorCoefficient = Arrays.copyOf(armorCoefficient, capacity);
+            vitalityCoefficient = Arrays.copyOf(vitalityCoefficient,
+                                                capacity);
+            speedCoefficient = Arrays.copyOf(speedCoefficient, capacity);
+            intelligenceCoefficient = Arrays.copyOf(intelligenceCoefficient,
+                                                    capacity);
+            volumeCoefficient = Arrays.copyOf(volumeCoefficient, capacity);
+            acidityCoefficient = Arrays.copyOf(acidityCoefficient, capacity);
+            clones = Arrays.copyOf(clones, capacity);
+        }
+        int words = (capacity + Long.SIZE - 1) >>> WORD_SHIFT;
+        if (poisoned == null) {
+            poisoned = new long[words];
+        } else {
+            poisoned = Arrays.copyOf(poisoned, words);
+        }
+    }
+}
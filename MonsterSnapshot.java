@@ -0,0 +1,157 @@
+/**
+ * An immutable record of a Monster's state: base stats, poison status,
+ * the two Humanoid or Ooze traits and any clones. Take one with
+ * Monster.snapshot() and put it back with Monster.restore(), which
+ * overwrites the monster in place, so a simulator can reset its
+ * fighters before every trial instead of copying them.
+ *
+ * The traits are intelligence and weapon id for a Humanoid, and volume
+ * and acidity for an Ooze. The random source is not part of the state.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class MonsterSnapshot {
+    private final Class<?> type;
+    private final int armor;
+    private final int vitality;
+    private final double speed;
+    private final boolean poisoned;
+    private final int firstTrait;
+    private final int secondTrait;
+    private final ClonePool clones;
+
+    /**
+     * Records a monster's current state. Use Monster.snapshot() instead.
+     *
+     * @param monster the monster to record
+     * Precondition: monster not null.
+     * Postcondition: the monster is unchanged.
+     */
+    MonsterSnapshot(Monster monster) {
+        this.type = monster.getClass();
+        this.armor = monster.getArmor();
+        this.vitality = monster.getVitality();
+        this.speed = monster.getSpeed();
+        this.poisoned = monster.isPoisoned();
+        this.firstTrait = monster.firstTrait();
+        this.secondTrait = monster.secondTrait();
+        ClonePool pool = monster.clonePool();
+        this.clones = pool == null || pool.isEmpty() ? null : pool.copy();
+    }
+
+    /**
+     * Returns the class of the recorded monster.
+     *
+     * @return the monster's class
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public Class<?> getType() {
+        return this.type;
+    }
+
+    /**
+     * Returns the recorded armor.
+     *
+     * @return armor
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getArmor() {
+        return this.armor;
+    }
+
+    /**
+     * Returns the recorded vitality.
+     *
+     * @return vitality
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getVitality() {
+        return this.vitality;
+    }
+
+    /**
+     * Returns the recorded speed.
+     *
+     * @return speed
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public double getSpeed() {
+        return this.speed;
+    }
+
+    /**
+     * Returns the recorded poison status.
+     *
+     * @return true if the monster was poisoned
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public boolean isPoisoned() {
+        return this.poisoned;
+    }
+
+    /**
+     * Returns the recorded first trait.
+     *
+     * @return intelligence or volume, or 0 for other monsters
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getFirstTrait() {
+        return this.firstTrait;
+    }
+
+    /**
+     * Returns the recorded second trait.
+     *
+     * @return weapon id (-1 for none) or acidity, or 0 for other monsters
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getSecondTrait() {
+        return this.secondTrait;
+    }
+
+    /**
+     * Returns the number of recorded clones.
+     *
+     * @return clone count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getCloneCount() {
+        return clones == null ? 0 : clones.size();
+    }
+
+    /**
+     * Returns the recorded clones. The pool is shared by every restore
+     * and must not be modified.
+     *
+     * @return the clones, or null if there were none
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    ClonePool getClones() {
+        return this.clones;
+    }
+
+    /**
+     * Returns a string representation of this snapshot.
+     *
+     * @return the class name and recorded stats
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public String toString() {
+        return type.getName() + " armor: " + armor + "; vitality: "
+               + vitality + "; speed: " + speed + "; clones: "
+               + getCloneCount();
+    }
+}
@@ -1,226 +1,415 @@
-import java.util.ArrayList;
-/**
- * An Ochre is an Ooze that can split into smaller clones and share power.
- *
- * Bugs: none known.
- *
- * @author David Do
- */
-
-public class Ochre extends Ooze implements Cloneable {
-    private ArrayList<Ochre> clones;
-    private static final int DOUBLE = 2;
-    private static final int REST = 20;
-    private static final double VITALITY_CONSTANT = 0.7;
-    private static final double VOLUME_CONSTANT = 0.35;
-    private static final double CHANCE = 0.095;
-    private static final double HALF = 0.5;
-    private static final int RANGE = 6;
-
-    /**
-     * Constructs an Ochre with default stats (armor=0, vitality=0,
-     * speed=0.0, volume=0, acidity=0) and an empty clone list.
-     *
-     * Precondition: none.
-     * Postcondition: clones is initialized to an empty list.
-     */
-    public Ochre() {
-        super();
-        clones = new ArrayList<>();
-    }
-
-    /**
-     * Constructs an Ochre with specified stats and an empty clone list.
-     *
-     * @param armor     initial armor value
-     * @param vitality  initial vitality value
-     * @param speed     initial speed value
-     * @param volume    initial volume value
-     * @param acidity   initial acidity value
-     * Precondition: none.
-     * Postcondition: clones is initialized to an empty list.
-     */
-    public Ochre(int armor, int vitality, double speed,
-                 int volume, int acidity) {
-        super(armor, vitality, speed, volume, acidity);
-        clones = new ArrayList<>();
-    }
-
-    /**
-     * Creates a clone of this Ochre, splitting volume in half.
-     *
-     * @return new Ochre clone with half volume
-     * @throws CloneNotSupportedException if volume is 1
-     * Precondition: none.
-     * Postcondition: this volume is halved; returned clone has 
-     * same other stats.
-     */
-    @Override
-    protected Ochre clone() throws CloneNotSupportedException {
-        int volume = getVolume();
-        if (volume == 1) {
-            throw new CloneNotSupportedException();
-        }
-        int halfVolume = volume / DOUBLE;
-        Ochre cloned = new Ochre(
-            getArmor(),
-            getVitality(),
-            getSpeed(),
-            halfVolume,
-            getAcidity()
-        );
-        setVolume(halfVolume);
-        return cloned;
-    }
-
-    /**
-     * Returns the list of this Ochre's clones.
-     *
-     * @return ArrayList of clones (may be empty)
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    public ArrayList<Ochre> getClones() {
-        return clones;
-    }
-
-    /**
-     * Checks if this Ochre is alive or has clones.
-     *
-     * @return true if vitality > 0 or clones nonempty; false otherwise
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    @Override
-    public boolean isAlive() {
-        return getVitality() > 0 || !clones.isEmpty();
-    }
-
-    /**
-     * Rests this Ochre and its clones, increasing armor by REST.
-     *
-     * Precondition: none.
-     * Postcondition: this and each clone's armor increased by REST.
-     */
-    @Override
-    public void rest() {
-        setArmor(getArmor() + REST);
-        for (Ochre o : clones) {
-            o.rest();
-        }
-    }
-
-    /**
-     * Calculates total power based on vitality, volume, acidity,
-     * and includes power of all clones.
-     *
-     * @return sum of this and clones' power values
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    @Override
-    public double calculatePower() {
-        double totalPower = VITALITY_CONSTANT * getVitality()
-                          + VOLUME_CONSTANT * getVolume()
-                          + getAcidity();
-        for (Ochre o : clones) {
-            totalPower += o.calculatePower();
-        }
-        return totalPower;
-    }
-
-    /**
-     * Attempts corrosion with CHANCE probability; clones may also corrode.
-     *
-     * @return true if any instance corrodes; false otherwise
-     * Precondition: none.
-     * Postcondition: none.
-     */
-    @Override
-    public boolean corrode() {
-        if (Math.random() < CHANCE) {
-            return true;
-        }
-        for (Ochre o : clones) {
-            if (o.corrode()) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Attacks a target monster, reducing its armor or vitality
-     * based on a random strike value influenced by volume.
-     *
-     * @param monster target of the attack
-     * @return computed strike value applied
-     * Precondition: monster is not null.
-     * Postcondition: monster's armor or vitality reduced accordingly.
-     */
-    @Override
-    public int attack(Monster monster) {
-        double power = calculatePower();
-        int volume = getVolume();
-        double min = power - HALF * volume;
-        double max = power + HALF * volume;
-        double temp = min + Math.random() * (max - min);
-        int strikeValue = (int) Math.floor(temp);
-        if (strikeValue <= 0) {
-            return 0;
-        }
-        int armor = monster.getArmor();
-        int vitality = monster.getVitality();
-        if (strikeValue < armor) {
-            monster.setArmor(armor - strikeValue);
-        } else {
-            monster.setVitality(vitality - (strikeValue - armor));
-            monster.setArmor(0);
-        }
-        return strikeValue;
-    }
-
-    /**
-     * Applies armory effect: calls super then generates up to RANGE clones.
-     *
-     * Precondition: none.
-     * Postcondition: up to floor(random*RANGE) new clones added; this instance
-     *                may have reduced volume per clone logic.
-     */
-    @Override
-    public void applyArmoryEffect() {
-        super.applyArmoryEffect();
-        int numClones = (int) Math.floor(Math.random() * RANGE);
-        for (int i = 0; i < numClones; i++) {
-            try {
-                Ochre newClone = this.clone();
-                clones.add(newClone);
-            } catch (CloneNotSupportedException e) {
-                break;
-            }
-        }
-    }
-
-    /**
-     * Handles deathrattle: if dead and clones exist,
-     *  resurrect using first clone.
-     *
-     * @return true if resurrected from a clone; false otherwise
-     * Precondition: none.
-     * Postcondition: if resurrected, this stats updated from clone.
-     */
-    @Override
-    public boolean handleDeathrattle() {
-        if (getVitality() <= 0 && !clones.isEmpty()) {
-            Ochre next = clones.remove(0);
-            setArmor(next.getArmor());
-            setVitality(next.getVitality());
-            setSpeed(next.getSpeed());
-            setVolume(next.getVolume());
-            setAcidity(next.getAcidity());
-            clearPoison();
-            return true;
-        }
-        return false;
-    }
-}
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+/**
+ * An Ochre is an Ooze that can split into smaller clones and share power.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+
+public class Ochre extends Ooze implements Cloneable {
+    private ClonePool clones;
+    private static final int DOUBLE = 2;
+    static final int REST = 20;
+    static final double VITALITY_CONSTANT = 0.7;
+    static final double VOLUME_CONSTANT = 0.35;
+    private static final double CHANCE = 0.095;
+    private static final int CACHED_CHANCES = 256;
+    private static final double[] CORRODE_CHANCES =
+        corrodeChances(CACHED_CHANCES);
+    private static final double VALIDATION_Z = 4.0;
+    static final double HALF = 0.5;
+    static final int RANGE = 6;
+
+    /**
+     * Constructs an Ochre with default stats (armor=0, vitality=0,
+     * speed=0.0, volume=0, acidity=0) and an empty clone list.
+     *
+     * Precondition: none.
+     * Postcondition: clones is initialized to an empty list.
+     */
+    public Ochre() {
+        super();
+        clones = new ClonePool();
+    }
+
+    /**
+     * Constructs an Ochre with specified stats and an empty clone list.
+     *
+     * @param armor     initial armor value
+     * @param vitality  initial vitality value
+     * @param speed     initial speed value
+     * @param volume    initial volume value
+     * @param acidity   initial acidity value
+     * Precondition: none.
+     * Postcondition: clones is initialized to an empty list.
+     */
+    public Ochre(int armor, int vitality, double speed,
+                 int volume, int acidity) {
+        super(armor, vitality, speed, volume, acidity);
+        clones = new ClonePool();
+    }
+
+    /**
+     * Creates a clone of this Ochre, splitting volume in half.
+     *
+     * @return new Ochre clone with half volume
+     * @throws CloneNotSupportedException if volume is 1
+     * Precondition: none.
+     * Postcondition: this volume is halved; returned clone has 
+     * same other stats.
+     */
+    @Override
+    protected Ochre clone() throws CloneNotSupportedException {
+        int volume = getVolume();
+        if (volume == 1) {
+            throw new CloneNotSupportedException();
+        }
+        int halfVolume = volume / DOUBLE;
+        Ochre cloned = new Ochre(
+            getArmor(),
+            getVitality(),
+            getSpeed(),
+            halfVolume,
+            getAcidity()
+        );
+        cloned.setRandomSource(getRandomSource());
+        setVolume(halfVolume);
+        return cloned;
+    }
+
+    /**
+     * Returns a read-only snapshot of this Ochre's clones, in
+     * resurrection order. The clones live in a ClonePool, so the list
+     * holds copies: it cannot be modified, and changing its elements
+     * does not change the clones. Use addClone() and clearClones() to
+     * change them.
+     *
+     * @return unmodifiable list of clones, first to last (may be empty)
+     * Precondition: none.
+     * Postcondition: clones are unchanged.
+     */
+    public List<Ochre> getClones() {
+        ArrayList<Ochre> list = new ArrayList<>();
+        for (int i = 0; i < clones.size(); i++) {
+            list.add(cloneAt(i));
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the pool holding this Ochre's clones for snapshots.
+     *
+     * @return the clone pool
+     */
+    @Override
+    ClonePool clonePool() {
+        return clones;
+    }
+
+    /**
+     * Returns the number of this Ochre's clones.
+     *
+     * @return clone count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getCloneCount() {
+        return clones.size();
+    }
+
+    /**
+     * Adds a clone after the existing ones. Clones of the clone are
+     * added right after it, so the whole family shares one pool and each
+     * of them is one more resurrection: a clone's own clones are not
+     * lost when it is used up.
+     *
+     * @param clone the Ochre to add as a clone
+     * Precondition: clone is not null and not this.
+     * Postcondition: clone count grows by one plus clone's clone count.
+     */
+    public void addClone(Ochre clone) {
+        double power = VITALITY_CONSTANT * clone.getVitality()
+                     + VOLUME_CONSTANT * clone.getVolume()
+                     + clone.getAcidity();
+        clones.add(clone.getArmor(), clone.getVitality(), clone.getSpeed(),
+                   clone.getVolume(), clone.getAcidity(), power,
+                   0.0, VITALITY_CONSTANT);
+        clones.addAll(clone.clones);
+    }
+
+    /**
+     * Removes every clone.
+     *
+     * Precondition: none.
+     * Postcondition: getCloneCount() is 0.
+     */
+    public void clearClones() {
+        clones.clear();
+    }
+
+    /**
+     * Builds an Ochre from the i-th clone's stats.
+     *
+     * @param i clone index, 0 is the first clone
+     * @return a new Ochre without clones
+     * Precondition: 0 <= i < getCloneCount().
+     * Postcondition: None.
+     */
+    private Ochre cloneAt(int i) {
+        Ochre clone = new Ochre(clones.getArmor(i), clones.getVitality(i),
+                                clones.getSpeed(i), clones.getFirstTrait(i),
+                                clones.getSecondTrait(i));
+        clone.setRandomSource(getRandomSource());
+        return clone;
+    }
+
+    /**
+     * Checks if this Ochre is alive or has clones.
+     *
+     * @return true if vitality > 0 or clones nonempty; false otherwise
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public boolean isAlive() {
+        return getVitality() > 0 || !clones.isEmpty();
+    }
+
+    /**
+     * Rests this Ochre and its clones, increasing armor by REST.
+     *
+     * Precondition: none.
+     * Postcondition: this and each clone's armor increased by REST.
+     */
+    @Override
+    public void rest() {
+        setArmor(StatMath.add(getArmor(), REST));
+        clones.rest(REST, 0);
+    }
+
+    /**
+     * Calculates total power based on vitality, volume, acidity,
+     * and includes power of all clones. Ochre's own power is cached
+     * until a stat changes, and the clones' power is kept as a running
+     * total by the clone pool.
+     *
+     * @return sum of this and clones' power values
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public double calculatePower() {
+        return cachedPower() + clones.getPowerSum();
+    }
+
+    /**
+     * Computes Ochre's own power, without its clones.
+     *
+     * @return power from vitality, volume and acidity
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    protected double basePower() {
+        return VITALITY_CONSTANT * getVitality()
+             + VOLUME_CONSTANT * getVolume()
+             + getAcidity();
+    }
+
+    /**
+     * Attempts corrosion with CHANCE probability; clones may also corrode.
+     * The Ochre and its n clones each corrode with CHANCE, so at least
+     * one of them does with probability 1 - (1 - CHANCE)^(n + 1). That
+     * value is looked up per clone count and tested with a single draw.
+     *
+     * @return true if any instance corrodes; false otherwise
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public boolean corrode() {
+        return getRandomSource().nextDouble() < corrodeChance(clones.size());
+    }
+
+    /**
+     * Attempts corrosion with one draw for this Ochre and one per clone,
+     * stopping at the first success. This is the reference for corrode()
+     * and is kept for validateCorrode() and the benchmarks.
+     *
+     * @return true if any instance corrodes; false otherwise
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public boolean corrodeByDraws() {
+        RandomSource random = getRandomSource();
+        if (random.nextDouble() < CHANCE) {
+            return true;
+        }
+        for (int i = 0; i < clones.size(); i++) {
+            if (random.nextDouble() < CHANCE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the probability that an Ochre with the given number of
+     * clones corrodes.
+     *
+     * @param cloneCount number of clones
+     * @return 1 - (1 - CHANCE)^(cloneCount + 1)
+     * Precondition: cloneCount >= 0.
+     * Postcondition: none.
+     */
+    public static double corrodeChance(int cloneCount) {
+        if (cloneCount < CACHED_CHANCES) {
+            return CORRODE_CHANCES[cloneCount];
+        }
+        return -Math.expm1((cloneCount + 1) * Math.log1p(-CHANCE));
+    }
+
+    /**
+     * Builds the table of corrode chances for small clone counts.
+     *
+     * @param size number of clone counts to cover
+     * @return table with corrodeChance(n) at index n
+     * Precondition: size > 0.
+     * Postcondition: none.
+     */
+    private static double[] corrodeChances(int size) {
+        double[] chances = new double[size];
+        double miss = 1.0;
+        for (int n = 0; n < size; n++) {
+            miss *= 1.0 - CHANCE;
+            chances[n] = 1.0 - miss;
+        }
+        return chances;
+    }
+
+    /**
+     * Checks that corrode() and corrodeByDraws() succeed equally often.
+     * Two Ochres with the given clone count corrode trials times each
+     * from independent seeded sources, and the success rates are
+     * compared with a two-proportion z-test.
+     *
+     * @param cloneCount number of clones to give each Ochre
+     * @param trials     number of corrode attempts per method
+     * @param seed       seed for the random sources
+     * @return true if the rates differ by less than VALIDATION_Z
+     *         standard errors
+     * Precondition: cloneCount >= 0; trials > 0.
+     * Postcondition: none.
+     */
+    public static boolean validateCorrode(int cloneCount, int trials,
+                                          long seed) {
+        Ochre fast = new Ochre(1, 1, 1.0, 1, 1);
+        for (int i = 0; i < cloneCount; i++) {
+            fast.addClone(new Ochre(1, 1, 1.0, 1, 1));
+        }
+        Ochre loop = fast.copy();
+        fast.setRandomSource(new XoroshiroRandomSource(seed));
+        loop.setRandomSource(new XoroshiroRandomSource(~seed));
+        long fastHits = 0;
+        long loopHits = 0;
+        for (int i = 0; i < trials; i++) {
+            if (fast.corrode()) {
+                fastHits++;
+            }
+            if (loop.corrodeByDraws()) {
+                loopHits++;
+            }
+        }
+        double pooled = (double) (fastHits + loopHits) / (2.0 * trials);
+        double error = Math.sqrt(pooled * (1 - pooled) * 2.0 / trials);
+        double difference = Math.abs(fastHits - loopHits) / (double) trials;
+        if (error == 0) {
+            return difference == 0;
+        }
+        return difference / error < VALIDATION_Z;
+    }
+
+    /**
+     * Attacks a target monster, reducing its armor or vitality
+     * based on a random strike value influenced by volume.
+     *
+     * @param monster target of the attack
+     * @return computed strike value applied
+     * Precondition: monster is not null.
+     * Postcondition: monster's armor or vitality reduced accordingly.
+     */
+    @Override
+    public int attack(Monster monster) {
+        double power = calculatePower();
+        int volume = getVolume();
+        double min = power - HALF * volume;
+        double max = power + HALF * volume;
+        return DamageKernel.strike(monster, min, max, getRandomSource());
+    }
+
+    /**
+     * Applies armory effect: calls super then generates up to RANGE clones.
+     *
+     * Precondition: none.
+     * Postcondition: up to floor(random*RANGE) new clones added; this instance
+     *                may have reduced volume per clone logic.
+     */
+    @Override
+    public void applyArmoryEffect() {
+        super.applyArmoryEffect();
+        int numClones = (int) Math.floor(getRandomSource().nextDouble()
+                                         * RANGE);
+        for (int i = 0; i < numClones; i++) {
+            try {
+                Ochre newClone = this.clone();
+                addClone(newClone);
+            } catch (CloneNotSupportedException e) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Handles deathrattle: if dead and clones exist,
+     *  resurrect using first clone.
+     *
+     * @return true if resurrected from a clone; false otherwise
+     * Precondition: none.
+     * Postcondition: if resurrected, this stats updated from clone.
+     */
+    @Override
+    public boolean handleDeathrattle() {
+        if (getVitality() <= 0 && !clones.isEmpty()) {
+            setArmor(clones.getArmor(0));
+            setVitality(clones.getVitality(0));
+            setSpeed(clones.getSpeed(0));
+            setVolume(clones.getFirstTrait(0));
+            setAcidity(clones.getSecondTrait(0));
+            clones.removeFirst();
+            FightMetrics.cloneConsumed();
+            clearPoison();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates an independent deep copy of this Ochre, including its clones.
+     *
+     * @return a new Ochre with identical state
+     * Precondition: none.
+     * Postcondition: this instance is unchanged.
+     */
+    @Override
+    public Ochre copy() {
+        Ochre copy = new Ochre(getArmor(), getVitality(), getSpeed(),
+                               getVolume(), getAcidity());
+        copy.poisoned = this.poisoned;
+        copy.setRandomSource(getRandomSource());
+        copy.clones.copyFrom(clones);
+        return copy;
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * The result of a Monte Carlo odds estimate: the probability that the
+ * left monster wins, ties or loses, and the half-width of the 95%
+ * confidence interval around those probabilities.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class OddsEstimate {
+    private final long trials;
+    private final long wins;
+    private final long ties;
+    private final long losses;
+    private final double halfWidth;
+
+    /**
+     * Constructs an OddsEstimate from raw outcome counts.
+     *
+     * @param wins      duels won by the left monster
+     * @param ties      tied duels
+     * @param losses    duels won by the right monster
+     * @param halfWidth largest confidence half-width of the three rates
+     * Precondition: counts >= 0 and at least one is positive.
+     * Postcondition: fields set accordingly.
+     */
+    public OddsEstimate(long wins, long ties, long losses, double halfWidth) {
+        this.wins = wins;
+        this.ties = ties;
+        this.losses = losses;
+        this.trials = wins + ties + losses;
+        this.halfWidth = halfWidth;
+    }
+
+    /**
+     * Returns the number of simulated duels.
+     *
+     * @return trial count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getTrials() {
+        return this.trials;
+    }
+
+    /**
+     * Returns the estimated probability that the left monster wins.
+     *
+     * @return win probability
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public double getWinProbability() {
+        return (double) this.wins / this.trials;
+    }
+
+    /**
+     * Returns the estimated probability of a tie.
+     *
+     * @return tie probability
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public double getTieProbability() {
+        return (double) this.ties / this.trials;
+    }
+
+    /**
+     * Returns the estimated probability that the left monster loses.
+     *
+     * @return loss probability
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public double getLossProbability() {
+        return (double) this.losses / this.trials;
+    }
+
+    /**
+     * Returns the half-width of the 95% confidence interval; each
+     * probability lies within plus or minus this value.
+     *
+     * @return confidence half-width
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public double getHalfWidth() {
+        return this.halfWidth;
+    }
+
+    /**
+     * Returns the odds in favor of the left monster winning, in the
+     * same form as Dungeon.calculateBettingOdds().
+     *
+     * @return win probability divided by its complement
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public double getOdds() {
+        double p = getWinProbability();
+        return p / (1 - p);
+    }
+
+    /**
+     * Returns a string representation of this estimate.
+     *
+     * @return formatted string with the three rates and the interval
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public String toString() {
+        return String.format("win: %.4f; tie: %.4f; loss: %.4f; "
+            + "+/- %.4f; trials: %d", getWinProbability(),
+            getTieProbability(), getLossProbability(), this.halfWidth,
+            this.trials);
+    }
+}
@@ -0,0 +1,194 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+/**
+ * Estimates betting odds by simulating many independent silent
+ * showdowns between copies of two monsters on a fork-join pool. Each
+ * duel gets its own random source derived from the seed and the duel's
+ * index, so an estimate is reproducible no matter how the work is
+ * scheduled. Duels are run in batches and the estimate stops early once
+ * the confidence interval is tight enough.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class OddsEstimator {
+    public static final int MAX_ROUNDS = 10000;
+    private static final double Z_95 = 1.96;
+    private static final int BATCH = 4096;
+    private static final int LEAF_SIZE = 128;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Prevents instantiation of the OddsEstimator
+     * class since it only provides static methods.
+     *
+     * Precondition: none.
+     * Postcondition: OddsEstimator cannot be instantiated.
+     */
+    private OddsEstimator() {
+    }
+
+    /**
+     * Estimates the odds of monster1 against monster2 on the common
+     * fork-join pool.
+     *
+     * @param monster1        the left-side monster (not modified)
+     * @param monster2        the right-side monster (not modified)
+     * @param seed            the 64-bit seed of the estimate
+     * @param maxTrials       the largest number of duels to simulate
+     * @param targetHalfWidth stop once every rate is known to +/- this
+     * @return the estimated win, tie and loss probabilities
+     * Precondition: monsters not null; maxTrials > 0.
+     * Postcondition: monster1 and monster2 are unchanged.
+     */
+    public static OddsEstimate estimate(Monster monster1, Monster monster2,
+                                        long seed, long maxTrials,
+                                        double targetHalfWidth) {
+        return estimate(monster1, monster2, seed, maxTrials,
+                        targetHalfWidth, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Estimates the odds of monster1 against monster2 on the given pool.
+     *
+     * @param monster1        the left-side monster (not modified)
+     * @param monster2        the right-side monster (not modified)
+     * @param seed            the 64-bit seed of the estimate
+     * @param maxTrials       the largest number of duels to simulate
+     * @param targetHalfWidth stop once every rate is known to +/- this
+     * @param pool            the pool that runs the duels
+     * @return the estimated win, tie and loss probabilities
+     * Precondition: arguments not null; maxTrials > 0.
+     * Postcondition: monster1 and monster2 are unchanged.
+     */
+    public static OddsEstimate estimate(Monster monster1, Monster monster2,
+                                        long seed, long maxTrials,
+                                        double targetHalfWidth,
+                                        ForkJoinPool pool) {
+        long[] totals = new long[ShowdownEngine.RIGHT + 1];
+        long done = 0;
+        double halfWidth = Double.POSITIVE_INFINITY;
+        while (done < maxTrials && halfWidth > targetHalfWidth) {
+            long end = Math.min(maxTrials, done + BATCH);
+            long[] counts = pool.invoke(
+                new TrialTask(monster1, monster2, seed, done, end));
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += counts[i];
+            }
+            done = end;
+            halfWidth = halfWidth(totals, done);
+        }
+        return new OddsEstimate(totals[ShowdownEngine.LEFT],
+                                totals[ShowdownEngine.TIE],
+                                totals[ShowdownEngine.RIGHT], halfWidth);
+    }
+
+    /**
+     * Returns the largest 95% Wilson score half-width of the win, tie
+     * and loss rates. Unlike the normal approximation, the Wilson
+     * interval stays wider than zero when a rate is 0 or 1, so a
+     * lopsided matchup is not declared settled after one batch.
+     *
+     * @param counts outcome counts indexed by ShowdownEngine constants
+     * @param trials total number of duels
+     * @return confidence half-width
+     * Precondition: trials > 0.
+     * Postcondition: none.
+     */
+    static double halfWidth(long[] counts, long trials) {
+        double n = trials;
+        double zSquared = Z_95 * Z_95;
+        double scale = Z_95 / (1 + zSquared / n);
+        double widest = 0.0;
+        for (long count : counts) {
+            double p = count / n;
+            widest = Math.max(widest, scale * Math.sqrt(
+                p * (1 - p) / n + zSquared / (4 * n * n)));
+        }
+        return widest;
+    }
+
+    /**
+     * Returns the seed of one duel, derived from the estimate's seed
+     * and the duel's index.
+     *
+     * @param seed  the estimate's seed
+     * @param trial the duel's index
+     * @return the duel's seed
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    static long trialSeed(long seed, long trial) {
+        return seed + GOLDEN_GAMMA * (trial + 1);
+    }
+
+    /**
+     * Runs the duels with indices in [start, end), splitting the range
+     * in half until it is small enough to run directly.
+     */
+    @SuppressWarnings("serial")
+    private static class TrialTask extends RecursiveTask<long[]> {
+        private final Monster monster1;
+        private final Monster monster2;
+        private final long seed;
+        private final long start;
+        private final long end;
+
+        /**
+         * Constructs a TrialTask.
+         *
+         * @param monster1 the left prototype
+         * @param monster2 the right prototype
+         * @param seed     the estimate's seed
+         * @param start    first duel index (inclusive)
+         * @param end      last duel index (exclusive)
+         */
+        TrialTask(Monster monster1, Monster monster2, long seed,
+                  long start, long end) {
+            this.monster1 = monster1;
+            this.monster2 = monster2;
+            this.seed = seed;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Runs or splits this range of duels.
+         *
+         * @return outcome counts indexed by ShowdownEngine constants
+         */
+        @Override
+        protected long[] compute() {
+            if (end - start <= LEAF_SIZE) {
+                long[] counts = new long[ShowdownEngine.RIGHT + 1];
+                Monster fighter1 = monster1.copy();
+                Monster fighter2 = monster2.copy();
+                MonsterSnapshot start1 = fighter1.snapshot();
+                MonsterSnapshot start2 = fighter2.snapshot();
+                for (long i = start; i < end; i++) {
+                    RandomSource random =
+                        new XoroshiroRandomSource(trialSeed(seed, i));
+                    fighter1.restore(start1);
+                    fighter2.restore(start2);
+                    ShowdownResult result = ShowdownEngine.run(
+                        fighter1, fighter2, random, MAX_ROUNDS);
+                    counts[result.getWinner()]++;
+                }
+                return counts;
+            }
+            long middle = (start + end) >>> 1;
+            TrialTask left = new TrialTask(monster1, monster2, seed,
+                                           start, middle);
+            TrialTask right = new TrialTask(monster1, monster2, seed,
+                                            middle, end);
+            left.fork();
+            long[] counts = right.compute();
+            long[] leftCounts = left.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += leftCounts[i];
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * A source of random numbers for monsters and the dungeon. Each
+ * simulation owns its own source, so no random state is shared between
+ * threads, and a fight can be replayed by seeding the source again.
+ *
+ * Implementations are not required to be thread-safe; use split() to
+ * hand an independent source to another thread.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public interface RandomSource {
+
+    /**
+     * Returns the next uniformly distributed double.
+     *
+     * @return a value in [0.0, 1.0)
+     * Precondition: none.
+     * Postcondition: the internal state is advanced.
+     */
+    double nextDouble();
+
+    /**
+     * Returns the next uniformly distributed long.
+     *
+     * @return any long value
+     * Precondition: none.
+     * Postcondition: the internal state is advanced.
+     */
+    long nextLong();
+
+    /**
+     * Returns the next uniformly distributed int below bound.
+     *
+     * @param bound the exclusive upper bound
+     * @return a value in [0, bound)
+     * Precondition: bound > 0.
+     * Postcondition: the internal state is advanced.
+     */
+    default int nextInt(int bound) {
+        return (int) (nextDouble() * bound);
+    }
+
+    /**
+     * Creates a new, statistically independent source from this one.
+     *
+     * @return a new RandomSource
+     * Precondition: none.
+     * Postcondition: the internal state of this source is advanced.
+     */
+    RandomSource split();
+}
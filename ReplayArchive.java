@@ -0,0 +1,413 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+/**
+ * An append-only archive of recorded duels, kept in a directory of
+ * segment files. Each segment is a pair of files:
+ *
+ *   segment-NNNNNN.idx  one fixed-width ReplayRecord per duel: seed,
+ *                       round count, winner, damage totals and both
+ *                       fighters' stats
+ *   segment-NNNNNN.dat  the full duel of every record as a RosterCodec
+ *                       FIGHT message, with every clone, for replay
+ *
+ * Scans memory-map each segment's index and read the fields they test
+ * straight from the mapping through one reused ReplayRecord, so
+ * filtering hundreds of millions of duels puts nothing on the heap and
+ * runs as fast as the index pages can be read. A data file is only
+ * touched when a matching record's fight() is decoded.
+ *
+ * Appends are buffered and written in batches, data before index, so an
+ * index record never points past the end of its data file. A segment is
+ * closed once it holds RECORDS_PER_SEGMENT records or MAX_DATA_BYTES of
+ * data, which keeps every file small enough for a single mapping.
+ * Reopening an archive drops a partly written record left at the end of
+ * the last index by a crash and carries on appending after it.
+ *
+ * One ReplayArchive at a time may use a directory. Its methods may be
+ * called from any thread; duels appended while a scan is running may or
+ * may not be seen by that scan.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class ReplayArchive implements AutoCloseable {
+    public static final int RECORDS_PER_SEGMENT = 1 << 22;
+    public static final long MAX_DATA_BYTES = 1L << 30;
+    private static final int BUFFERED_RECORDS = 512;
+    private static final int DATA_BUFFER_BYTES = 1 << 20;
+    private static final String PREFIX = "segment-";
+    private static final String INDEX = ".idx";
+    private static final String DATA = ".dat";
+    private static final String NUMBER = "%06d";
+    private static final int RECORD = ReplayRecord.RECORD_BYTES;
+
+    private final Path directory;
+    private final ByteBuffer indexBuffer = ByteBuffer
+        .allocateDirect(BUFFERED_RECORDS * RECORD)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer dataBuffer =
+        ByteBuffer.allocateDirect(DATA_BUFFER_BYTES);
+    private final DamageTally tally = new DamageTally();
+    private FileChannel indexFile;
+    private FileChannel dataFile;
+    private int segment;
+    private int segmentRecords;
+    private long dataSize;
+
+    /**
+     * Opens an archive, creating its directory if needed. New duels are
+     * appended after the ones already in it.
+     *
+     * @param directory the archive's directory
+     * @throws IOException if the directory or its files cannot be opened
+     * Precondition: directory not null; no other ReplayArchive is open
+     *               on it.
+     * Postcondition: the archive is open for appending and scanning.
+     */
+    public ReplayArchive(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        int last = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(
+                directory, PREFIX + "*" + INDEX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    last = Math.max(last, Integer.parseInt(name.substring(
+                        PREFIX.length(), name.length() - INDEX.length())));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+            }
+        }
+        openSegment(last);
+    }
+
+    /**
+     * Fights a duel and appends it.
+     *
+     * @param fight the duel to fight and record
+     * @return the outcome of the duel
+     * @throws IOException if the archive cannot be written
+     * Precondition: fight not null; the archive is open.
+     * Postcondition: size() is one larger.
+     */
+    public synchronized ShowdownResult record(FightConfig fight)
+            throws IOException {
+        tally.left = 0;
+        tally.right = 0;
+        ShowdownResult result = fight.run(tally);
+        append(fight, result, tally.left, tally.right);
+        return result;
+    }
+
+    /**
+     * Appends a duel that has already been fought.
+     *
+     * @param fight       the duel
+     * @param result      its outcome
+     * @param leftDamage  damage dealt by the left side's attacks
+     * @param rightDamage damage dealt by the right side's attacks
+     * @throws IOException if the archive cannot be written
+     * @throws IllegalArgumentException if a monster's class cannot be
+     *         encoded by RosterCodec
+     * Precondition: arguments not null; result came from fight; the
+     *               archive is open.
+     * Postcondition: size() is one larger.
+     */
+    public synchronized void append(FightConfig fight, ShowdownResult result,
+                                    long leftDamage, long rightDamage)
+            throws IOException {
+        Monster left = fight.getLeft();
+        Monster right = fight.getRight();
+        byte leftType = RosterCodec.typeOf(left);
+        byte rightType = RosterCodec.typeOf(right);
+        int bound = RosterCodec.maxSize(fight);
+        if (segmentRecords == RECORDS_PER_SEGMENT
+            || dataSize + bound > MAX_DATA_BYTES) {
+            flushBuffers();
+            indexFile.close();
+            dataFile.close();
+            openSegment(segment + 1);
+        }
+        if (dataBuffer.remaining() < bound || !indexBuffer.hasRemaining()) {
+            flushBuffers();
+        }
+        long offset = dataSize;
+        int length;
+        if (bound > dataBuffer.capacity()) {
+            ByteBuffer message = ByteBuffer.allocate(bound);
+            RosterCodec.writeFight(fight, message);
+            message.flip();
+            length = message.remaining();
+            writeFully(dataFile, message);
+        } else {
+            int start = dataBuffer.position();
+            RosterCodec.writeFight(fight, dataBuffer);
+            length = dataBuffer.position() - start;
+        }
+        dataSize += length;
+
+        int base = indexBuffer.position();
+        for (int i = 0; i < RECORD; i += Long.BYTES) {
+            indexBuffer.putLong(base + i, 0L);
+        }
+        indexBuffer.putLong(base + ReplayRecord.SEED, fight.getSeed());
+        indexBuffer.putLong(base + ReplayRecord.DATA_OFFSET, offset);
+        indexBuffer.putInt(base + ReplayRecord.DATA_LENGTH, length);
+        indexBuffer.putInt(base + ReplayRecord.ROUNDS, result.getRounds());
+        indexBuffer.put(base + ReplayRecord.WINNER,
+                        (byte) result.getWinner());
+        indexBuffer.putLong(base + ReplayRecord.LEFT_DAMAGE, leftDamage);
+        indexBuffer.putLong(base + ReplayRecord.RIGHT_DAMAGE, rightDamage);
+        writeFighter(base + ReplayRecord.LEFT_FIGHTER, left, leftType,
+                     result.getLeftVitality());
+        writeFighter(base + ReplayRecord.RIGHT_FIGHTER, right, rightType,
+                     result.getRightVitality());
+        indexBuffer.position(base + RECORD);
+        segmentRecords++;
+    }
+
+    /**
+     * Writes every buffered duel to the segment files, so another
+     * process mapping them sees it.
+     *
+     * @throws IOException if the archive cannot be written
+     * Precondition: the archive is open.
+     * Postcondition: nothing is buffered.
+     */
+    public synchronized void flush() throws IOException {
+        flushBuffers();
+    }
+
+    /**
+     * Returns the number of duels in the archive.
+     *
+     * @return the record count
+     * @throws IOException if a segment cannot be read
+     * Precondition: the archive is open.
+     * Postcondition: none.
+     */
+    public synchronized long size() throws IOException {
+        long records = segmentRecords;
+        for (int s = 0; s < segment; s++) {
+            records += Files.size(file(s, INDEX)) / RECORD;
+        }
+        return records;
+    }
+
+    /**
+     * Counts the duels that match a filter.
+     *
+     * @param filter tests each record; it must not keep the record
+     * @return the number of matching duels
+     * @throws IOException if a segment cannot be mapped
+     * Precondition: filter not null; the archive is open.
+     * Postcondition: none.
+     */
+    public long count(Predicate<? super ReplayRecord> filter)
+            throws IOException {
+        return scan(filter, null);
+    }
+
+    /**
+     * Passes every duel that matches a filter to an action, in the
+     * order the duels were appended.
+     *
+     * @param filter tests each record; it must not keep the record
+     * @param action receives each match; it must not keep the record
+     * @return the number of matching duels
+     * @throws IOException if a segment cannot be mapped
+     * Precondition: arguments not null; the archive is open.
+     * Postcondition: none.
+     */
+    public long forEach(Predicate<? super ReplayRecord> filter,
+                        Consumer<? super ReplayRecord> action)
+            throws IOException {
+        return scan(filter, action);
+    }
+
+    /**
+     * Writes any buffered duels and closes the segment files.
+     *
+     * @throws IOException if the archive cannot be written
+     * Precondition: none.
+     * Postcondition: the archive can no longer be used.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (indexFile.isOpen()) {
+            try {
+                flushBuffers();
+            } finally {
+                indexFile.close();
+                dataFile.close();
+            }
+        }
+    }
+
+    /**
+     * Maps each segment in turn and tests every record in it.
+     *
+     * @param filter tests each record
+     * @param action receives each match, or null to only count
+     * @return the number of matching duels
+     * @throws IOException if a segment cannot be mapped
+     */
+    private long scan(Predicate<? super ReplayRecord> filter,
+                      Consumer<? super ReplayRecord> action)
+            throws IOException {
+        int last;
+        synchronized (this) {
+            flushBuffers();
+            last = segment;
+        }
+        ReplayRecord record = new ReplayRecord();
+        long matched = 0;
+        for (int s = 0; s <= last; s++) {
+            ByteBuffer index;
+            ByteBuffer data;
+            try (FileChannel indexRead = FileChannel.open(
+                     file(s, INDEX), StandardOpenOption.READ);
+                 FileChannel dataRead = FileChannel.open(
+                     file(s, DATA), StandardOpenOption.READ)) {
+                long size = indexRead.size() - indexRead.size() % RECORD;
+                index = indexRead.map(FileChannel.MapMode.READ_ONLY, 0, size)
+                                 .order(ByteOrder.LITTLE_ENDIAN);
+                data = dataRead.map(FileChannel.MapMode.READ_ONLY, 0,
+                                    dataRead.size());
+            }
+            for (int p = 0; p < index.limit(); p += RECORD) {
+                record.at(index, data, p);
+                if (filter.test(record)) {
+                    matched++;
+                    if (action != null) {
+                        action.accept(record);
+                    }
+                }
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Writes a fighter block into the index buffer.
+     *
+     * @param base          the block's offset in the index buffer
+     * @param monster       the fighter as it started the duel
+     * @param type          its MonsterArena type byte
+     * @param finalVitality its vitality when the duel ended
+     */
+    private void writeFighter(int base, Monster monster, byte type,
+                              int finalVitality) {
+        int second = monster.secondTrait();
+        if (monster instanceof Humanoid) {
+            second = second < 0 ? 0 : Weapon.byId(second).getName().hashCode();
+        }
+        ClonePool clones = monster.clonePool();
+        indexBuffer.put(base + ReplayRecord.TYPE, type);
+        indexBuffer.put(base + ReplayRecord.POISONED,
+                        (byte) (monster.isPoisoned() ? 1 : 0));
+        indexBuffer.putInt(base + ReplayRecord.ARMOR, monster.getArmor());
+        indexBuffer.putInt(base + ReplayRecord.VITALITY,
+                           monster.getVitality());
+        indexBuffer.putInt(base + ReplayRecord.FIRST, monster.firstTrait());
+        indexBuffer.putInt(base + ReplayRecord.SECOND, second);
+        indexBuffer.putInt(base + ReplayRecord.CLONES,
+                           clones == null ? 0 : clones.size());
+        indexBuffer.putDouble(base + ReplayRecord.SPEED, monster.getSpeed());
+        indexBuffer.putInt(base + ReplayRecord.FINAL_VITALITY, finalVitality);
+    }
+
+    /**
+     * Writes the buffered data and then the buffered index records.
+     *
+     * @throws IOException if the archive cannot be written
+     */
+    private void flushBuffers() throws IOException {
+        dataBuffer.flip();
+        writeFully(dataFile, dataBuffer);
+        dataBuffer.clear();
+        indexBuffer.flip();
+        writeFully(indexFile, indexBuffer);
+        indexBuffer.clear();
+    }
+
+    /**
+     * Opens a segment's files for appending, dropping a partly written
+     * record at the end of its index.
+     *
+     * @param number the segment number
+     * @throws IOException if the files cannot be opened
+     */
+    private void openSegment(int number) throws IOException {
+        indexFile = FileChannel.open(file(number, INDEX),
+                                     StandardOpenOption.CREATE,
+                                     StandardOpenOption.WRITE);
+        dataFile = FileChannel.open(file(number, DATA),
+                                    StandardOpenOption.CREATE,
+                                    StandardOpenOption.WRITE);
+        long size = indexFile.size();
+        long whole = size - size % RECORD;
+        if (whole != size) {
+            indexFile.truncate(whole);
+        }
+        indexFile.position(whole);
+        dataSize = dataFile.size();
+        dataFile.position(dataSize);
+        segment = number;
+        segmentRecords = (int) (whole / RECORD);
+    }
+
+    /**
+     * Returns the path of one of a segment's files.
+     *
+     * @param number    the segment number
+     * @param extension INDEX or DATA
+     * @return the file's path
+     */
+    private Path file(int number, String extension) {
+        return directory.resolve(PREFIX + String.format(NUMBER, number)
+                                 + extension);
+    }
+
+    /**
+     * Writes all of a buffer to a channel.
+     *
+     * @param channel the channel
+     * @param buffer  the bytes to write, from position to limit
+     * @throws IOException if the channel cannot be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Sums the damage each side deals during a duel.
+     */
+    private static final class DamageTally implements ShowdownObserver {
+        private long left;
+        private long right;
+
+        @Override
+        public void attacked(int side, int damage) {
+            if (side == ShowdownEngine.LEFT) {
+                left += damage;
+            } else {
+                right += damage;
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+import java.nio.ByteBuffer;
+/**
+ * A view of one record in a ReplayArchive. A scan moves a single view
+ * from record to record, and every getter reads its field straight from
+ * the memory-mapped index, so filtering a whole archive creates no
+ * objects. A view is only valid inside the scan that passed it; copy any
+ * value you want to keep.
+ *
+ * Every index record is RECORD_BYTES long, little-endian:
+ *
+ *   0   seed            long
+ *   8   data offset     long  the fight's RosterCodec message in the
+ *   16  data length     int   segment's data file
+ *   20  rounds          int
+ *   24  winner          byte  ShowdownEngine.TIE, LEFT or RIGHT
+ *   32  left damage     long  damage dealt by the left side's attacks
+ *   40  right damage    long
+ *   48  left fighter    FIGHTER_BYTES
+ *   88  right fighter   FIGHTER_BYTES
+ *
+ * and each fighter, as it started the duel except for its final
+ * vitality, is:
+ *
+ *   0   type            byte  MonsterArena type byte
+ *   1   poisoned        byte  1 if it started poisoned
+ *   4   armor           int
+ *   8   vitality        int
+ *   12  first trait     int   Humanoid intelligence or Ooze volume
+ *   16  second trait    int   Ooze acidity, or the String.hashCode() of
+ *                             the Humanoid's weapon name (0 for none)
+ *   20  clones          int
+ *   24  speed           double
+ *   32  final vitality  int
+ *
+ * Weapons are stored by name hash rather than by id, because weapon ids
+ * depend on the order weapons were registered in each process.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class ReplayRecord {
+    public static final int RECORD_BYTES = 128;
+    public static final int FIGHTER_BYTES = 40;
+    static final int SEED = 0;
+    static final int DATA_OFFSET = 8;
+    static final int DATA_LENGTH = 16;
+    static final int ROUNDS = 20;
+    static final int WINNER = 24;
+    static final int LEFT_DAMAGE = 32;
+    static final int RIGHT_DAMAGE = 40;
+    static final int LEFT_FIGHTER = 48;
+    static final int RIGHT_FIGHTER = LEFT_FIGHTER + FIGHTER_BYTES;
+    static final int TYPE = 0;
+    static final int POISONED = 1;
+    static final int ARMOR = 4;
+    static final int VITALITY = 8;
+    static final int FIRST = 12;
+    static final int SECOND = 16;
+    static final int CLONES = 20;
+    static final int SPEED = 24;
+    static final int FINAL_VITALITY = 32;
+
+    private ByteBuffer index;
+    private ByteBuffer data;
+    private int position;
+
+    /**
+     * Constructs a view that points at nothing yet.
+     *
+     * Precondition: none.
+     * Postcondition: at() must be called before any getter.
+     */
+    ReplayRecord() {
+    }
+
+    /**
+     * Points the view at a record.
+     *
+     * @param index    the mapped index of the record's segment
+     * @param data     the mapped data file of the record's segment
+     * @param position the byte offset of the record in index
+     * Precondition: index is little-endian; position is a multiple of
+     *               RECORD_BYTES inside index.
+     * Postcondition: the getters read that record.
+     */
+    void at(ByteBuffer index, ByteBuffer data, int position) {
+        this.index = index;
+        this.data = data;
+        this.position = position;
+    }
+
+    /**
+     * Returns the seed of the duel's random source.
+     *
+     * @return the seed
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getSeed() {
+        return index.getLong(position + SEED);
+    }
+
+    /**
+     * Returns the number of rounds fought.
+     *
+     * @return the round count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getRounds() {
+        return index.getInt(position + ROUNDS);
+    }
+
+    /**
+     * Returns the winner.
+     *
+     * @return ShowdownEngine.TIE, LEFT or RIGHT
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getWinner() {
+        return index.get(position + WINNER);
+    }
+
+    /**
+     * Returns the total damage a side dealt with its attacks.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return the side's damage total
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public long getDamage(int side) {
+        return index.getLong(position + (side == ShowdownEngine.LEFT
+                                         ? LEFT_DAMAGE : RIGHT_DAMAGE));
+    }
+
+    /**
+     * Returns the MonsterArena type byte of a side's monster.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return BANDIT, DOPPELGANGER, JUBILEX or OCHRE
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public byte getType(int side) {
+        return index.get(fighter(side) + TYPE);
+    }
+
+    /**
+     * Returns whether a side's monster started the duel poisoned.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return true if it was poisoned
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public boolean isPoisoned(int side) {
+        return index.get(fighter(side) + POISONED) != 0;
+    }
+
+    /**
+     * Returns a side's starting armor.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return the armor
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public int getArmor(int side) {
+        return index.getInt(fighter(side) + ARMOR);
+    }
+
+    /**
+     * Returns a side's starting vitality.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return the vitality
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public int getVitality(int side) {
+        return index.getInt(fighter(side) + VITALITY);
+    }
+
+    /**
+     * Returns a side's vitality when the duel ended.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return the final vitality
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public int getFinalVitality(int side) {
+        return index.getInt(fighter(side) + FINAL_VITALITY);
+    }
+
+    /**
+     * Returns a side's speed.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return the speed
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public double getSpeed(int side) {
+        return index.getDouble(fighter(side) + SPEED);
+    }
+
+    /**
+     * Returns a side's first trait: a Humanoid's intelligence or an
+     * Ooze's volume.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return the first trait
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public int getFirstTrait(int side) {
+        return index.getInt(fighter(side) + FIRST);
+    }
+
+    /**
+     * Returns a side's second trait: an Ooze's acidity, or the hash of
+     * a Humanoid's weapon name.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return the second trait
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public int getSecondTrait(int side) {
+        return index.getInt(fighter(side) + SECOND);
+    }
+
+    /**
+     * Returns whether a side's monster is a Humanoid carrying a weapon.
+     * The weapon is matched by name hash; fight() gives the exact
+     * weapon if a hash collision ever matters.
+     *
+     * @param side   ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @param weapon the weapon
+     * @return true if the monster carries that weapon
+     * Precondition: side is LEFT or RIGHT; weapon not null.
+     * Postcondition: none.
+     */
+    public boolean hasWeapon(int side, Weapon weapon) {
+        byte type = getType(side);
+        return (type == MonsterArena.BANDIT
+                || type == MonsterArena.DOPPELGANGER)
+               && getSecondTrait(side) == weapon.getName().hashCode();
+    }
+
+    /**
+     * Returns the number of clones a side's monster started with.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return the clone count
+     * Precondition: side is LEFT or RIGHT.
+     * Postcondition: none.
+     */
+    public int getClones(int side) {
+        return index.getInt(fighter(side) + CLONES);
+    }
+
+    /**
+     * Decodes the full duel from the archive's data file, with every
+     * clone, so it can be replayed with run().
+     *
+     * @return the recorded duel
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public FightConfig fight() {
+        long offset = index.getLong(position + DATA_OFFSET);
+        int length = index.getInt(position + DATA_LENGTH);
+        return RosterCodec.readFight(data.slice((int) offset, length));
+    }
+
+    /**
+     * Returns the byte offset of a side's fighter block.
+     *
+     * @param side ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @return the offset of the block in index
+     */
+    private int fighter(int side) {
+        return position + (side == ShowdownEngine.LEFT
+                           ? LEFT_FIGHTER : RIGHT_FIGHTER);
+    }
+}
@@ -0,0 +1,529 @@
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+/**
+ * A compact, versioned binary format for rosters of monsters and for
+ * FightConfigs, read from and written to NIO ByteBuffers.
+ *
+ * A message starts with the magic number 0x4D52 ("MR"), a version byte
+ * and a kind byte (ROSTER or FIGHT). A fight then has its seed and round
+ * limit. Both continue with a table of the weapon names the monsters
+ * use, so each weapon is sent once and monsters refer to it by index,
+ * and then the monsters. Each monster is its MonsterArena type byte, a
+ * flag byte, armor, vitality, speed, its two Humanoid or Ooze traits and
+ * its clones, with every clone's stats and traits. Ints are zigzag
+ * varints, so small stats take one byte; speeds are raw doubles, so they
+ * round-trip exactly.
+ *
+ * Weapons travel by name, because weapon ids depend on the order
+ * weapons were registered in each process. The reader looks names up
+ * with Weapon.lookup() and rejects one it has never registered, so
+ * decoding untrusted input cannot grow the weapon registry.
+ *
+ * Clone powers are not sent: the reader rebuilds each clone in one
+ * scratch monster per clone family and adds it with addClone(), so a
+ * decoded clone's power always follows from its stats exactly as for a
+ * clone added in play. Monsters are otherwise read straight into new
+ * instances, and writing allocates nothing but the weapon table.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class RosterCodec {
+    public static final short MAGIC = 0x4D52;
+    public static final byte VERSION = 2;
+    public static final byte ROSTER = 0;
+    public static final byte FIGHT = 1;
+    private static final int POISONED = 1;
+    private static final int NOT_USED = -1;
+    private static final int HEADER_BYTES = 4;
+    private static final int MAX_VARINT = 5;
+    private static final int FIGHT_BYTES = Long.BYTES + MAX_VARINT;
+    private static final int MONSTER_BYTES = 2 + 6 * MAX_VARINT
+                                             + Double.BYTES;
+    private static final int CLONE_BYTES = 4 * MAX_VARINT + Double.BYTES;
+    private static final int MIN_WEAPON_BYTES = 1;
+    private static final int MIN_MONSTER_BYTES = 7 + Double.BYTES;
+    private static final int MIN_CLONE_BYTES = 4 + Double.BYTES;
+    private static final int CHARS_PER_BYTE = 3;
+    private static final int SEVEN_BITS = 0x7F;
+    private static final int MORE = 0x80;
+    private static final int SHIFT = 7;
+
+    /**
+     * Prevents instantiation of the RosterCodec
+     * class since it only provides static methods.
+     *
+     * Precondition: none.
+     * Postcondition: RosterCodec cannot be instantiated.
+     */
+    private RosterCodec() {
+    }
+
+    /**
+     * Returns an upper bound of the bytes writeRoster() writes.
+     *
+     * @param roster the monsters
+     * @return the largest possible encoded size
+     * Precondition: roster not null.
+     * Postcondition: none.
+     */
+    public static int maxSize(List<? extends Monster> roster) {
+        int size = HEADER_BYTES + MAX_VARINT + MAX_VARINT;
+        for (Monster monster : roster) {
+            ClonePool clones = monster.clonePool();
+            size += MONSTER_BYTES
+                    + (clones == null ? 0 : clones.size() * CLONE_BYTES);
+        }
+        return size + weaponTableBound(roster);
+    }
+
+    /**
+     * Returns an upper bound of the bytes writeFight() writes.
+     *
+     * @param fight the fight
+     * @return the largest possible encoded size
+     * Precondition: fight not null.
+     * Postcondition: none.
+     */
+    public static int maxSize(FightConfig fight) {
+        return FIGHT_BYTES + maxSize(List.of(fight.getLeft(),
+                                             fight.getRight()));
+    }
+
+    /**
+     * Writes a roster.
+     *
+     * @param roster the monsters (not modified)
+     * @param out    the buffer to write at its position
+     * @throws BufferOverflowException if out has too little room
+     * Precondition: arguments not null.
+     * Postcondition: out's position is after the roster.
+     */
+    public static void writeRoster(List<? extends Monster> roster,
+                                   ByteBuffer out) {
+        writeHeader(out, ROSTER);
+        writeMonsters(roster, out);
+    }
+
+    /**
+     * Reads a roster written by writeRoster().
+     *
+     * @param in the buffer to read at its position
+     * @return the monsters, in order
+     * @throws IllegalArgumentException if in does not hold a roster of
+     *         a supported version or names an unregistered weapon
+     * @throws BufferUnderflowException if the roster is cut short
+     * Precondition: in not null.
+     * Postcondition: in's position is after the roster.
+     */
+    public static List<Monster> readRoster(ByteBuffer in) {
+        readHeader(in, ROSTER);
+        return readMonsters(in);
+    }
+
+    /**
+     * Writes a fight.
+     *
+     * @param fight the fight
+     * @param out   the buffer to write at its position
+     * @throws BufferOverflowException if out has too little room
+     * Precondition: arguments not null.
+     * Postcondition: out's position is after the fight.
+     */
+    public static void writeFight(FightConfig fight, ByteBuffer out) {
+        writeHeader(out, FIGHT);
+        out.putLong(fight.getSeed());
+        writeInt(out, fight.getMaxRounds());
+        writeMonsters(List.of(fight.getLeft(), fight.getRight()), out);
+    }
+
+    /**
+     * Reads a fight written by writeFight().
+     *
+     * @param in the buffer to read at its position
+     * @return the fight
+     * @throws IllegalArgumentException if in does not hold a fight of a
+     *         supported version or names an unregistered weapon
+     * @throws BufferUnderflowException if the fight is cut short
+     * Precondition: in not null.
+     * Postcondition: in's position is after the fight.
+     */
+    public static FightConfig readFight(ByteBuffer in) {
+        readHeader(in, FIGHT);
+        long seed = in.getLong();
+        int maxRounds = readInt(in);
+        List<Monster> monsters = readMonsters(in);
+        if (monsters.size() != 2) {
+            throw new IllegalArgumentException("a fight has two monsters, not "
+                                               + monsters.size());
+        }
+        return new FightConfig(monsters.get(0), monsters.get(1), seed,
+                               maxRounds);
+    }
+
+    /**
+     * Writes the magic number, version and kind.
+     *
+     * @param out  the buffer
+     * @param kind ROSTER or FIGHT
+     */
+    private static void writeHeader(ByteBuffer out, byte kind) {
+        out.putShort(MAGIC);
+        out.put(VERSION);
+        out.put(kind);
+    }
+
+    /**
+     * Reads and checks the magic number, version and kind.
+     *
+     * @param in   the buffer
+     * @param kind the expected kind
+     * @throws IllegalArgumentException if any of them does not match
+     */
+    private static void readHeader(ByteBuffer in, byte kind) {
+        if (in.getShort() != MAGIC) {
+            throw new IllegalArgumentException("not a roster message");
+        }
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported version "
+                                               + version);
+        }
+        if (in.get() != kind) {
+            throw new IllegalArgumentException("expected a "
+                + (kind == FIGHT ? "fight" : "roster"));
+        }
+    }
+
+    /**
+     * Writes the weapon table and the monsters.
+     *
+     * @param roster the monsters
+     * @param out    the buffer
+     */
+    private static void writeMonsters(List<? extends Monster> roster,
+                                      ByteBuffer out) {
+        int[] index = new int[Weapon.count()];
+        Arrays.fill(index, NOT_USED);
+        int used = 0;
+        for (Monster monster : roster) {
+            if (monster instanceof Humanoid) {
+                used = indexWeapon(monster.secondTrait(), index, used);
+                ClonePool clones = monster.clonePool();
+                for (int i = 0; clones != null && i < clones.size(); i++) {
+                    used = indexWeapon(clones.getSecondTrait(i), index, used);
+                }
+            }
+        }
+        int[] order = new int[used];
+        for (int id = 0; id < index.length; id++) {
+            if (index[id] != NOT_USED) {
+                order[index[id]] = id;
+            }
+        }
+        writeInt(out, used);
+        for (int id : order) {
+            byte[] name = Weapon.byId(id).getName()
+                .getBytes(StandardCharsets.UTF_8);
+            writeInt(out, name.length);
+            out.put(name);
+        }
+        writeInt(out, roster.size());
+        for (Monster monster : roster) {
+            boolean humanoid = monster instanceof Humanoid;
+            out.put(typeOf(monster));
+            out.put((byte) (monster.isPoisoned() ? POISONED : 0));
+            writeInt(out, monster.getArmor());
+            writeInt(out, monster.getVitality());
+            out.putDouble(monster.getSpeed());
+            writeInt(out, monster.firstTrait());
+            writeInt(out, second(monster.secondTrait(), humanoid, index));
+            ClonePool clones = monster.clonePool();
+            int count = clones == null ? 0 : clones.size();
+            writeInt(out, count);
+            for (int i = 0; i < count; i++) {
+                writeInt(out, clones.getArmor(i));
+                writeInt(out, clones.getVitality(i));
+                out.putDouble(clones.getSpeed(i));
+                writeInt(out, clones.getFirstTrait(i));
+                writeInt(out, second(clones.getSecondTrait(i), humanoid,
+                                     index));
+            }
+        }
+    }
+
+    /**
+     * Reads the weapon table and the monsters.
+     *
+     * @param in the buffer
+     * @return the monsters
+     */
+    private static List<Monster> readMonsters(ByteBuffer in) {
+        int weapons = readCount(in, MIN_WEAPON_BYTES);
+        int[] ids = new int[weapons];
+        for (int w = 0; w < weapons; w++) {
+            int length = readCount(in);
+            if (length > in.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            byte[] name = new byte[length];
+            in.get(name);
+            String weaponName = new String(name, StandardCharsets.UTF_8);
+            Weapon weapon = Weapon.lookup(weaponName);
+            if (weapon == null) {
+                throw new IllegalArgumentException("unknown weapon "
+                                                   + weaponName);
+            }
+            ids[w] = weapon.getId();
+        }
+        int count = readCount(in, MIN_MONSTER_BYTES);
+        List<Monster> roster = new ArrayList<>(count);
+        for (int m = 0; m < count; m++) {
+            Monster monster = newMonster(in.get());
+            boolean humanoid = monster instanceof Humanoid;
+            boolean poisoned = (in.get() & POISONED) != 0;
+            monster.setArmor(readInt(in));
+            monster.setVitality(readInt(in));
+            monster.setSpeed(in.getDouble());
+            int first = readInt(in);
+            monster.restoreTraits(first, trait(readInt(in), humanoid, ids));
+            if (poisoned) {
+                monster.applyPoison();
+            }
+            int clones = readCount(in, MIN_CLONE_BYTES);
+            if (clones > 0 && monster.clonePool() == null) {
+                throw new IllegalArgumentException(
+                    monster.getClass().getName() + " cannot have clones");
+            }
+            Monster clone = clones > 0 ? newMonster(typeOf(monster)) : null;
+            for (int i = 0; i < clones; i++) {
+                clone.setArmor(readInt(in));
+                clone.setVitality(readInt(in));
+                clone.setSpeed(in.getDouble());
+                int cloneFirst = readInt(in);
+                clone.restoreTraits(cloneFirst,
+                                    trait(readInt(in), humanoid, ids));
+                addClone(monster, clone);
+            }
+            roster.add(monster);
+        }
+        return roster;
+    }
+
+    /**
+     * Adds a copy of a decoded clone to its owner's pool with the owner's
+     * own addClone(), which computes the clone's power from its stats.
+     *
+     * @param owner a Doppelganger or an Ochre
+     * @param clone a monster of the owner's class with no clones
+     */
+    private static void addClone(Monster owner, Monster clone) {
+        if (owner instanceof Doppelganger) {
+            ((Doppelganger) owner).addClone((Doppelganger) clone);
+        } else {
+            ((Ochre) owner).addClone((Ochre) clone);
+        }
+    }
+
+    /**
+     * Gives a weapon id the next table index if it has none yet.
+     *
+     * @param id    the weapon id, or -1 for none
+     * @param index table index of every weapon id
+     * @param used  number of table entries so far
+     * @return the new number of table entries
+     */
+    private static int indexWeapon(int id, int[] index, int used) {
+        if (id >= 0 && index[id] == NOT_USED) {
+            index[id] = used;
+            return used + 1;
+        }
+        return used;
+    }
+
+    /**
+     * Returns the encoded second trait: a Humanoid's weapon becomes its
+     * table index plus one, with 0 for no weapon.
+     *
+     * @param trait    the second trait
+     * @param humanoid true for a Humanoid
+     * @param index    table index of every weapon id
+     * @return the value to write
+     */
+    private static int second(int trait, boolean humanoid, int[] index) {
+        if (!humanoid) {
+            return trait;
+        }
+        return trait < 0 ? 0 : index[trait] + 1;
+    }
+
+    /**
+     * Returns the second trait for an encoded value: the inverse of
+     * second().
+     *
+     * @param value    the value read
+     * @param humanoid true for a Humanoid
+     * @param ids      weapon id of every table entry
+     * @return the second trait
+     * @throws IllegalArgumentException if the weapon index is invalid
+     */
+    private static int trait(int value, boolean humanoid, int[] ids) {
+        if (!humanoid) {
+            return value;
+        }
+        if (value < 0 || value > ids.length) {
+            throw new IllegalArgumentException("bad weapon index " + value);
+        }
+        return value == 0 ? -1 : ids[value - 1];
+    }
+
+    /**
+     * Returns the MonsterArena type byte of a monster.
+     *
+     * @param monster the monster
+     * @return BANDIT, DOPPELGANGER, JUBILEX or OCHRE
+     * @throws IllegalArgumentException for any other class
+     * Precondition: monster not null.
+     * Postcondition: none.
+     */
+    static byte typeOf(Monster monster) {
+        Class<?> type = monster.getClass();
+        if (type == Bandit.class) {
+            return MonsterArena.BANDIT;
+        } else if (type == Doppelganger.class) {
+            return MonsterArena.DOPPELGANGER;
+        } else if (type == Jubilex.class) {
+            return MonsterArena.JUBILEX;
+        } else if (type == Ochre.class) {
+            return MonsterArena.OCHRE;
+        }
+        throw new IllegalArgumentException("cannot encode a "
+                                           + type.getName());
+    }
+
+    /**
+     * Creates a monster with default stats for a type byte.
+     *
+     * @param type the MonsterArena type byte
+     * @return the new monster
+     * @throws IllegalArgumentException for an unknown type
+     */
+    private static Monster newMonster(byte type) {
+        switch (type) {
+            case MonsterArena.BANDIT:
+                return new Bandit();
+            case MonsterArena.DOPPELGANGER:
+                return new Doppelganger();
+            case MonsterArena.JUBILEX:
+                return new Jubilex();
+            case MonsterArena.OCHRE:
+                return new Ochre();
+            default:
+                throw new IllegalArgumentException("unknown monster type "
+                                                   + type);
+        }
+    }
+
+    /**
+     * Returns an upper bound of the weapon table's size.
+     *
+     * @param roster the monsters
+     * @return the largest possible table size
+     */
+    private static int weaponTableBound(List<? extends Monster> roster) {
+        int size = 0;
+        boolean[] counted = new boolean[Weapon.count()];
+        for (Monster monster : roster) {
+            if (!(monster instanceof Humanoid)) {
+                continue;
+            }
+            ClonePool clones = monster.clonePool();
+            int count = clones == null ? 0 : clones.size();
+            for (int i = -1; i < count; i++) {
+                int id = i < 0 ? monster.secondTrait()
+                               : clones.getSecondTrait(i);
+                if (id >= 0 && !counted[id]) {
+                    counted[id] = true;
+                    size += MAX_VARINT + CHARS_PER_BYTE
+                            * Weapon.byId(id).getName().length();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Writes an int as a zigzag varint.
+     *
+     * @param out   the buffer
+     * @param value the value
+     */
+    private static void writeInt(ByteBuffer out, int value) {
+        int bits = (value << 1) ^ (value >> 31);
+        while ((bits & ~SEVEN_BITS) != 0) {
+            out.put((byte) ((bits & SEVEN_BITS) | MORE));
+            bits >>>= SHIFT;
+        }
+        out.put((byte) bits);
+    }
+
+    /**
+     * Reads a zigzag varint.
+     *
+     * @param in the buffer
+     * @return the value
+     * @throws IllegalArgumentException if the varint is too long
+     */
+    private static int readInt(ByteBuffer in) {
+        int bits = 0;
+        for (int shift = 0; shift < MAX_VARINT * SHIFT; shift += SHIFT) {
+            int b = in.get();
+            bits |= (b & SEVEN_BITS) << shift;
+            if ((b & MORE) == 0) {
+                return (bits >>> 1) ^ -(bits & 1);
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    /**
+     * Reads a count, which must not be negative.
+     *
+     * @param in the buffer
+     * @return the count
+     * @throws IllegalArgumentException if the count is negative
+     */
+    private static int readCount(ByteBuffer in) {
+        int count = readInt(in);
+        if (count < 0) {
+            throw new IllegalArgumentException("negative count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Reads a count of items that take at least minBytes each, so a
+     * corrupt or hostile count cannot make the reader allocate more
+     * than the bytes left in the buffer could describe.
+     *
+     * @param in       the buffer
+     * @param minBytes the smallest encoded size of one item
+     * @return the count
+     * @throws IllegalArgumentException if the count is negative or the
+     *         buffer is too short to hold that many items
+     */
+    private static int readCount(ByteBuffer in, int minBytes) {
+        int count = readCount(in);
+        if (count > in.remaining() / minBytes) {
+            throw new IllegalArgumentException("count " + count
+                + " exceeds the " + in.remaining() + " bytes left");
+        }
+        return count;
+    }
+}
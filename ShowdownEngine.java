@@ -0,0 +1,228 @@
+import java.util.List;
+/**
+ * Runs duels between two monsters without any console output. The round
+ * rules are the same as Dungeon.showdown(): special abilities, attacks,
+ * poison damage, deathrattles and rest. Poison lives in a StatusTable
+ * that is only created once a monster is poisoned, so a duel without
+ * poison allocates nothing inside the round loop and millions of duels
+ * can be simulated cheaply.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class ShowdownEngine {
+
+    public static final int TIE = 0;
+    public static final int LEFT = 1;
+    public static final int RIGHT = 2;
+    public static final int UNLIMITED_ROUNDS = Integer.MAX_VALUE;
+    private static final int SIDES = 2;
+    private static final ShowdownObserver SILENT = new ShowdownObserver() {
+    };
+
+    /**
+     * Prevents instantiation of the ShowdownEngine
+     * class since it only provides static methods.
+     *
+     * Precondition: none.
+     * Postcondition: ShowdownEngine cannot be instantiated.
+     */
+    private ShowdownEngine() {
+    }
+
+    /**
+     * Runs a silent duel until one or both monsters die.
+     *
+     * @param monster1 the left-side monster
+     * @param monster2 the right-side monster
+     * @return the outcome of the duel
+     * Precondition: monsters not null.
+     * Postcondition: both monsters' stats reflect the finished duel.
+     */
+    public static ShowdownResult run(Monster monster1, Monster monster2) {
+        return run(monster1, monster2, SILENT, UNLIMITED_ROUNDS);
+    }
+
+    /**
+     * Runs a silent duel that is called a tie after maxRounds rounds.
+     *
+     * @param monster1  the left-side monster
+     * @param monster2  the right-side monster
+     * @param maxRounds the maximum number of rounds to fight
+     * @return the outcome of the duel
+     * Precondition: monsters not null; maxRounds > 0.
+     * Postcondition: both monsters' stats reflect the finished duel.
+     */
+    public static ShowdownResult run(Monster monster1, Monster monster2,
+                                     int maxRounds) {
+        return run(monster1, monster2, SILENT, maxRounds);
+    }
+
+    /**
+     * Runs a duel until one or both monsters die, reporting every step
+     * to the given observer.
+     *
+     * @param monster1 the left-side monster
+     * @param monster2 the right-side monster
+     * @param observer receives the round-by-round events
+     * @return the outcome of the duel
+     * Precondition: arguments not null.
+     * Postcondition: both monsters' stats reflect the finished duel.
+     */
+    public static ShowdownResult run(Monster monster1, Monster monster2,
+                                     ShowdownObserver observer) {
+        return run(monster1, monster2, observer, UNLIMITED_ROUNDS);
+    }
+
+    /**
+     * Runs a duel until one or both monsters die or maxRounds rounds
+     * have been fought, reporting every step to the given observer.
+     * A duel stopped by the round limit is a tie.
+     *
+     * @param monster1  the left-side monster
+     * @param monster2  the right-side monster
+     * @param observer  receives the round-by-round events
+     * @param maxRounds the maximum number of rounds to fight
+     * @return the outcome of the duel
+     * Precondition: arguments not null; maxRounds > 0.
+     * Postcondition: both monsters' stats reflect the finished duel.
+     */
+    public static ShowdownResult run(Monster monster1, Monster monster2,
+                                     ShowdownObserver observer,
+                                     int maxRounds) {
+        int round = 0;
+        StatusTable statuses = null;
+        Monster[] fighters = null;
+        int[] scratch = null;
+        observer.started(monster1, monster2);
+        while (monster1.getVitality() > 0 && monster2.getVitality() > 0
+               && round < maxRounds) {
+            observer.roundStarted(round, monster1, monster2);
+            monster1.performSpecialAbility(monster2);
+            observer.specialAbility(LEFT, monster2);
+            monster2.performSpecialAbility(monster1);
+            observer.specialAbility(RIGHT, monster1);
+            int strike1 = monster1.attack(monster2);
+            FightMetrics.attack(monster1, strike1);
+            observer.attacked(LEFT, strike1);
+            int strike2 = monster2.attack(monster1);
+            FightMetrics.attack(monster2, strike2);
+            observer.attacked(RIGHT, strike2);
+            if (statuses == null
+                && (monster1.isPoisoned() || monster2.isPoisoned())) {
+                statuses = new StatusTable(SIDES);
+                fighters = new Monster[] {monster1, monster2};
+                scratch = new int[SIDES];
+            }
+            if (statuses != null) {
+                statuses.track(0, monster1);
+                statuses.track(1, monster2);
+                int damage1 = statuses.damage(0);
+                int damage2 = statuses.damage(1);
+                statuses.tick(fighters, scratch);
+                if (damage1 > 0) {
+                    observer.poisoned(LEFT, damage1);
+                }
+                if (damage2 > 0) {
+                    observer.poisoned(RIGHT, damage2);
+                }
+            }
+            if (monster1.getVitality() <= 0) {
+                boolean resurrected = monster1.handleDeathrattle();
+                FightMetrics.deathrattle(resurrected);
+                observer.deathrattle(LEFT, resurrected);
+            }
+            if (monster2.getVitality() <= 0) {
+                boolean resurrected = monster2.handleDeathrattle();
+                FightMetrics.deathrattle(resurrected);
+                observer.deathrattle(RIGHT, resurrected);
+            }
+            if (monster1.getVitality() > 0) {
+                monster1.rest();
+                observer.rested(LEFT, monster1);
+            }
+            if (monster2.getVitality() > 0) {
+                monster2.rest();
+                observer.rested(RIGHT, monster2);
+            }
+            round++;
+        }
+        int vitality1 = monster1.getVitality();
+        int vitality2 = monster2.getVitality();
+        ShowdownResult result = new ShowdownResult(
+            decideWinner(vitality1, vitality2), round, vitality1, vitality2);
+        FightMetrics.fight(round);
+        observer.finished(monster1, monster2, result);
+        return result;
+    }
+
+    /**
+     * Runs a silent duel in which both monsters draw from the given
+     * random source, so the same seed always produces the same duel.
+     *
+     * @param monster1  the left-side monster
+     * @param monster2  the right-side monster
+     * @param random    the random source for both monsters
+     * @param maxRounds the maximum number of rounds to fight
+     * @return the outcome of the duel
+     * Precondition: arguments not null; maxRounds > 0.
+     * Postcondition: both monsters use random as their random source.
+     */
+    public static ShowdownResult run(Monster monster1, Monster monster2,
+                                     RandomSource random, int maxRounds) {
+        monster1.setRandomSource(random);
+        monster2.setRandomSource(random);
+        return run(monster1, monster2, SILENT, maxRounds);
+    }
+
+    /**
+     * Runs a silent duel on a speed-driven timeline, so the faster
+     * monster acts more often; see MeleeEngine.runTimed(). Both monsters
+     * draw from the given random source.
+     *
+     * @param monster1  the left-side monster
+     * @param monster2  the right-side monster
+     * @param random    the random source for both monsters
+     * @param maxRounds the maximum number of rounds to fight
+     * @return the outcome of the duel
+     * Precondition: arguments not null; maxRounds > 0.
+     * Postcondition: both monsters use random as their random source.
+     */
+    public static ShowdownResult runTimed(Monster monster1, Monster monster2,
+                                          RandomSource random,
+                                          int maxRounds) {
+        MeleeResult melee = MeleeEngine.runTimed(
+            List.of(monster1, monster2), new int[] {0, 1},
+            TargetPolicy.WEAKEST, random, maxRounds);
+        int winner = TIE;
+        if (melee.getWinner() == 0) {
+            winner = LEFT;
+        } else if (melee.getWinner() == 1) {
+            winner = RIGHT;
+        }
+        return new ShowdownResult(winner, melee.getRounds(),
+                                  melee.getVitality(0), melee.getVitality(1));
+    }
+
+    /**
+     * Decides the outcome from both final vitality values.
+     *
+     * @param vitality1 final vitality of the left monster
+     * @param vitality2 final vitality of the right monster
+     * @return TIE, LEFT or RIGHT
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private static int decideWinner(int vitality1, int vitality2) {
+        if (vitality1 > 0 && vitality2 > 0) {
+            return TIE;
+        }
+        if (vitality1 == 0 && vitality1 == vitality2) {
+            return TIE;
+        } else if (vitality1 > vitality2) {
+            return LEFT;
+        }
+        return RIGHT;
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Receives callbacks from ShowdownEngine as a duel progresses. Every
+ * method does nothing by default, so an observer only overrides the
+ * events it cares about.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public interface ShowdownObserver {
+
+    /**
+     * Called once before the first round.
+     *
+     * @param monster1 the left monster
+     * @param monster2 the right monster
+     * Precondition: monsters not null.
+     * Postcondition: none.
+     */
+    default void started(Monster monster1, Monster monster2) {
+    }
+
+    /**
+     * Called at the start of every round, before special abilities.
+     *
+     * @param round    the round number (starts at 0)
+     * @param monster1 the left monster
+     * @param monster2 the right monster
+     * Precondition: monsters not null.
+     * Postcondition: none.
+     */
+    default void roundStarted(int round, Monster monster1,
+                              Monster monster2) {
+    }
+
+    /**
+     * Called after a monster has performed its special ability.
+     *
+     * @param side   ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @param target the monster the ability targeted
+     * Precondition: target not null.
+     * Postcondition: none.
+     */
+    default void specialAbility(int side, Monster target) {
+    }
+
+    /**
+     * Called after a monster has attacked.
+     *
+     * @param side   ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @param damage the value returned from attack()
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    default void attacked(int side, int damage) {
+    }
+
+    /**
+     * Called when a monster dropped to zero vitality and its
+     * deathrattle was checked.
+     *
+     * @param side        ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @param resurrected true if the deathrattle resurrected the monster
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    default void deathrattle(int side, boolean resurrected) {
+    }
+
+    /**
+     * Called after poison has dealt its damage for the round, before
+     * deathrattles are checked.
+     *
+     * @param side   ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @param damage the poison damage dealt to that side's monster
+     * Precondition: damage > 0.
+     * Postcondition: none.
+     */
+    default void poisoned(int side, int damage) {
+    }
+
+    /**
+     * Called after a surviving monster has rested at the end of a round.
+     *
+     * @param side    ShowdownEngine.LEFT or ShowdownEngine.RIGHT
+     * @param monster the monster that rested
+     * Precondition: monster not null.
+     * Postcondition: none.
+     */
+    default void rested(int side, Monster monster) {
+    }
+
+    /**
+     * Called once when the showdown is over.
+     *
+     * @param monster1 the left monster
+     * @param monster2 the right monster
+     * @param result   the outcome of the showdown
+     * Precondition: arguments not null.
+     * Postcondition: none.
+     */
+    default void finished(Monster monster1, Monster monster2,
+                          ShowdownResult result) {
+    }
+}
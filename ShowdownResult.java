@@ -0,0 +1,89 @@
+/**
+ * An immutable summary of a finished showdown: who won, how many rounds
+ * were fought, and the final vitality of both monsters.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class ShowdownResult {
+    private final int winner;
+    private final int rounds;
+    private final int leftVitality;
+    private final int rightVitality;
+
+    /**
+     * Constructs a ShowdownResult.
+     *
+     * @param winner        ShowdownEngine.TIE, LEFT or RIGHT
+     * @param rounds        number of rounds fought
+     * @param leftVitality  final vitality of the left monster
+     * @param rightVitality final vitality of the right monster
+     * Precondition: winner is 0, 1 or 2; rounds >= 0.
+     * Postcondition: fields set accordingly.
+     */
+    public ShowdownResult(int winner, int rounds,
+                          int leftVitality, int rightVitality) {
+        this.winner = winner;
+        this.rounds = rounds;
+        this.leftVitality = leftVitality;
+        this.rightVitality = rightVitality;
+    }
+
+    /**
+     * Returns the outcome of the showdown.
+     *
+     * @return 0 if tie, 1 if the left monster won, 2 if the right one won
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getWinner() {
+        return this.winner;
+    }
+
+    /**
+     * Returns the number of rounds that were fought.
+     *
+     * @return round count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getRounds() {
+        return this.rounds;
+    }
+
+    /**
+     * Returns the left monster's vitality when the showdown ended.
+     *
+     * @return final left vitality
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getLeftVitality() {
+        return this.leftVitality;
+    }
+
+    /**
+     * Returns the right monster's vitality when the showdown ended.
+     *
+     * @return final right vitality
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getRightVitality() {
+        return this.rightVitality;
+    }
+
+    /**
+     * Returns a string representation of this result.
+     *
+     * @return formatted string "winner: W; rounds: R; vitality: L/R"
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public String toString() {
+        return "winner: " + this.winner + "; rounds: " + this.rounds
+            + "; vitality: " + this.leftVitality + "/" + this.rightVitality;
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.SplittableRandom;
+/**
+ * A RandomSource backed by java.util.SplittableRandom. Unlike
+ * Math.random(), the generator is not shared, so drawing from it never
+ * contends with other threads.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public class SplittableRandomSource implements RandomSource {
+    private final SplittableRandom random;
+
+    /**
+     * Constructs a source with an unpredictable seed.
+     *
+     * Precondition: none.
+     * Postcondition: random is initialized.
+     */
+    public SplittableRandomSource() {
+        this.random = new SplittableRandom();
+    }
+
+    /**
+     * Constructs a source that always produces the same sequence
+     * for the same seed.
+     *
+     * @param seed the 64-bit seed
+     * Precondition: none.
+     * Postcondition: random is initialized from seed.
+     */
+    public SplittableRandomSource(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Wraps an existing SplittableRandom.
+     *
+     * @param random the generator to use
+     * Precondition: random not null.
+     * Postcondition: random field set.
+     */
+    private SplittableRandomSource(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Returns the next uniformly distributed double.
+     *
+     * @return a value in [0.0, 1.0)
+     */
+    @Override
+    public double nextDouble() {
+        return this.random.nextDouble();
+    }
+
+    /**
+     * Returns the next uniformly distributed long.
+     *
+     * @return any long value
+     */
+    @Override
+    public long nextLong() {
+        return this.random.nextLong();
+    }
+
+    /**
+     * Returns the next uniformly distributed int below bound.
+     *
+     * @param bound the exclusive upper bound
+     * @return a value in [0, bound)
+     */
+    @Override
+    public int nextInt(int bound) {
+        return this.random.nextInt(bound);
+    }
+
+    /**
+     * Creates a new, statistically independent source from this one.
+     *
+     * @return a new RandomSource
+     */
+    @Override
+    public RandomSource split() {
+        return new SplittableRandomSource(this.random.split());
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * One row of a tournament standings table: a monster from the roster and
+ * how it fared across all of its duels. A win is worth three points and
+ * a tie one point.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class Standing implements Comparable<Standing> {
+    public static final int WIN_POINTS = 3;
+    public static final int TIE_POINTS = 1;
+    private final int seat;
+    private final Monster monster;
+    private final long wins;
+    private final long ties;
+    private final long losses;
+
+    /**
+     * Constructs a Standing.
+     *
+     * @param seat    the monster's index in the roster
+     * @param monster the roster prototype
+     * @param wins    duels won
+     * @param ties    duels tied
+     * @param losses  duels lost
+     * Precondition: monster not null; counts >= 0.
+     * Postcondition: fields set accordingly.
+     */
+    public Standing(int seat, Monster monster,
+                    long wins, long ties, long losses) {
+        this.seat = seat;
+        this.monster = monster;
+        this.wins = wins;
+        this.ties = ties;
+        this.losses = losses;
+    }
+
+    /**
+     * Returns the monster's index in the roster.
+     *
+     * @return roster index
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getSeat() {
+        return this.seat;
+    }
+
+    /**
+     * Returns the roster prototype this row belongs to.
+     *
+     * @return the monster
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public Monster getMonster() {
+        return this.monster;
+    }
+
+    /**
+     * Returns the number of duels won.
+     *
+     * @return wins
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getWins() {
+        return this.wins;
+    }
+
+    /**
+     * Returns the number of duels tied.
+     *
+     * @return ties
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getTies() {
+        return this.ties;
+    }
+
+    /**
+     * Returns the number of duels lost.
+     *
+     * @return losses
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getLosses() {
+        return this.losses;
+    }
+
+    /**
+     * Returns the tournament points earned.
+     *
+     * @return WIN_POINTS per win plus TIE_POINTS per tie
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public long getPoints() {
+        return WIN_POINTS * this.wins + TIE_POINTS * this.ties;
+    }
+
+    /**
+     * Orders standings from best to worst: by points, then wins,
+     * then roster index.
+     *
+     * @param other the Standing to compare
+     * @return negative if this ranks higher, positive if lower
+     * Precondition: other not null.
+     * Postcondition: none.
+     */
+    @Override
+    public int compareTo(Standing other) {
+        if (getPoints() != other.getPoints()) {
+            return Long.compare(other.getPoints(), getPoints());
+        }
+        if (this.wins != other.wins) {
+            return Long.compare(other.wins, this.wins);
+        }
+        return Integer.compare(this.seat, other.seat);
+    }
+
+    /**
+     * Returns a string representation of this row.
+     *
+     * @return formatted string "(ClassName) W-T-L, points"
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public String toString() {
+        return "#" + this.seat + " (" + this.monster.getClass().getName()
+            + ") " + this.wins + "-" + this.ties + "-" + this.losses
+            + ", " + getPoints() + " pts";
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Overflow-safe arithmetic for armor and vitality. Both are ints, and
+ * long fights can push them past the int range: every Jubilex rest adds
+ * 10000 armor, armory effects double stats, and a strike against a
+ * monster that is already deep below zero vitality keeps subtracting.
+ *
+ * When the JVM is started with -Dmonster.saturatingStats=true, every
+ * method here widens to long and clamps the result back into the int
+ * range, so a stat sticks at Integer.MAX_VALUE or Integer.MIN_VALUE
+ * instead of silently wrapping around. Otherwise the methods are the
+ * plain int arithmetic the monsters always used, and fights replay
+ * exactly as before. The mode is a static final constant, so the JIT
+ * folds the check away, and the clamp is Math.min and Math.max, which
+ * compile to conditional moves rather than branches.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class StatMath {
+    public static final boolean SATURATING =
+        Boolean.getBoolean("monster.saturatingStats");
+
+    /**
+     * Prevents instantiation of the StatMath
+     * class since it only provides static methods.
+     *
+     * Precondition: none.
+     * Postcondition: StatMath cannot be instantiated.
+     */
+    private StatMath() {
+    }
+
+    /**
+     * Returns a stat plus a bonus.
+     *
+     * @param stat  the current stat
+     * @param bonus the amount to add
+     * @return the new stat
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public static int add(int stat, int bonus) {
+        if (SATURATING) {
+            return clamp((long) stat + bonus);
+        }
+        return stat + bonus;
+    }
+
+    /**
+     * Returns a stat multiplied by a factor.
+     *
+     * @param stat   the current stat
+     * @param factor the multiplier
+     * @return the new stat
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public static int multiply(int stat, int factor) {
+        if (SATURATING) {
+            return clamp((long) stat * factor);
+        }
+        return stat * factor;
+    }
+
+    /**
+     * Returns the vitality left after a strike that breaks through the
+     * target's armor: vitality - (strikeValue - armor).
+     *
+     * @param vitality    the target's vitality
+     * @param strikeValue the strike value
+     * @param armor       the target's armor
+     * @return the target's new vitality
+     * Precondition: strikeValue >= armor.
+     * Postcondition: none.
+     */
+    public static int afterStrike(int vitality, int strikeValue, int armor) {
+        if (SATURATING) {
+            return clamp((long) vitality - strikeValue + armor);
+        }
+        return vitality - (strikeValue - armor);
+    }
+
+    /**
+     * Clamps a long into the int range.
+     *
+     * @param value the value
+     * @return value, or the nearest int bound
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public static int clamp(long value) {
+        return (int) Math.max(Integer.MIN_VALUE,
+                              Math.min(Integer.MAX_VALUE, value));
+    }
+}
@@ -0,0 +1,429 @@
+import java.util.Arrays;
+/**
+ * Stores the status effects of many combatants in one compact table.
+ * Each row is one effect on one target: its kind, stacks, remaining
+ * ticks and damage per stack, kept in parallel primitive arrays. A
+ * target holds at most one row per kind, and applying an effect it
+ * already has adds stacks and refreshes the duration.
+ *
+ * tick() deals the damage of every row in one pass over the arrays and
+ * then ages the rows, removing the ones that ran out, so a round of
+ * status effects costs a couple of tight loops however many targets
+ * are affected instead of one virtual call per monster. Targets are
+ * small integer ids: entity ids in a MonsterArena or positions in a
+ * melee.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class StatusTable {
+    public static final byte POISON = 0;
+    public static final int KINDS = 1;
+    public static final int MAX_STACKS = 99;
+    private static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Per-kind defaults, indexed by the kind constants above.
+    private static final int[] DURATION = {3};
+    private static final int[] DAMAGE = {2};
+
+    private int size;
+    private int expiredCount;
+    private int[] target;
+    private byte[] kind;
+    private int[] stacks;
+    private int[] remaining;
+    private int[] damage;
+    private int[] rowOf;
+    private int[] expiredTarget;
+    private byte[] expiredKind;
+
+    /**
+     * Constructs an empty table for targets 0 to targets - 1. Larger
+     * targets grow the table as needed.
+     *
+     * @param targets expected number of target ids
+     * Precondition: targets >= 0.
+     * Postcondition: the table is empty.
+     */
+    public StatusTable(int targets) {
+        int capacity = Math.max(targets, INITIAL_CAPACITY);
+        this.target = new int[capacity];
+        this.kind = new byte[capacity];
+        this.stacks = new int[capacity];
+        this.remaining = new int[capacity];
+        this.damage = new int[capacity];
+        this.expiredTarget = new int[capacity];
+        this.expiredKind = new byte[capacity];
+        this.rowOf = new int[capacity * KINDS];
+        Arrays.fill(this.rowOf, NONE);
+    }
+
+    /**
+     * Returns the number of active effects.
+     *
+     * @return row count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the target of an active effect.
+     *
+     * @param row the row, in no particular order
+     * @return the target id
+     * Precondition: 0 <= row < size().
+     * Postcondition: none.
+     */
+    public int getTarget(int row) {
+        return target[row];
+    }
+
+    /**
+     * Returns whether a target has an effect of the given kind.
+     *
+     * @param id       the target id
+     * @param kindCode the effect kind
+     * @return true if the effect is active
+     * Precondition: id >= 0; 0 <= kindCode < KINDS.
+     * Postcondition: none.
+     */
+    public boolean has(int id, int kindCode) {
+        return rowFor(id, kindCode) != NONE;
+    }
+
+    /**
+     * Returns the stacks of one of a target's effects.
+     *
+     * @param id       the target id
+     * @param kindCode the effect kind
+     * @return the stack count, or 0 if the effect is not active
+     * Precondition: id >= 0; 0 <= kindCode < KINDS.
+     * Postcondition: none.
+     */
+    public int getStacks(int id, int kindCode) {
+        int row = rowFor(id, kindCode);
+        return row == NONE ? 0 : stacks[row];
+    }
+
+    /**
+     * Returns the ticks left on one of a target's effects.
+     *
+     * @param id       the target id
+     * @param kindCode the effect kind
+     * @return the remaining ticks, or 0 if the effect is not active
+     * Precondition: id >= 0; 0 <= kindCode < KINDS.
+     * Postcondition: none.
+     */
+    public int getRemaining(int id, int kindCode) {
+        int row = rowFor(id, kindCode);
+        return row == NONE ? 0 : remaining[row];
+    }
+
+    /**
+     * Returns the damage a target's effects will deal on the next tick.
+     *
+     * @param id the target id
+     * @return total damage of the target's effects
+     * Precondition: id >= 0.
+     * Postcondition: none.
+     */
+    public int damage(int id) {
+        int total = 0;
+        for (int k = 0; k < KINDS; k++) {
+            int row = rowFor(id, k);
+            if (row != NONE) {
+                total += stacks[row] * damage[row];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Applies stacks of an effect with its kind's default duration and
+     * damage.
+     *
+     * @param id        the target id
+     * @param kindCode  the effect kind
+     * @param newStacks stacks to add
+     * Precondition: id >= 0; 0 <= kindCode < KINDS; newStacks > 0.
+     * Postcondition: the effect is active on the target.
+     */
+    public void apply(int id, int kindCode, int newStacks) {
+        apply(id, kindCode, newStacks, DURATION[kindCode], DAMAGE[kindCode]);
+    }
+
+    /**
+     * Applies stacks of an effect. If the target already has the effect,
+     * the stacks add up to at most MAX_STACKS and the duration and
+     * damage per stack become the larger of the old and new values.
+     *
+     * @param id        the target id
+     * @param kindCode  the effect kind
+     * @param newStacks stacks to add
+     * @param duration  ticks the effect lasts
+     * @param perStack  damage per stack per tick
+     * Precondition: id >= 0; 0 <= kindCode < KINDS; newStacks > 0;
+     *               duration > 0.
+     * Postcondition: the effect is active on the target.
+     */
+    public void apply(int id, int kindCode, int newStacks, int duration,
+                      int perStack) {
+        if ((id + 1) * KINDS > rowOf.length) {
+            int old = rowOf.length;
+            rowOf = Arrays.copyOf(rowOf, Math.max(old * 2, (id + 1) * KINDS));
+            Arrays.fill(rowOf, old, rowOf.length, NONE);
+        }
+        int row = rowOf[id * KINDS + kindCode];
+        if (row != NONE) {
+            stacks[row] = Math.min(stacks[row] + newStacks, MAX_STACKS);
+            remaining[row] = Math.max(remaining[row], duration);
+            damage[row] = Math.max(damage[row], perStack);
+            return;
+        }
+        if (size == target.length) {
+            grow();
+        }
+        row = size++;
+        target[row] = id;
+        kind[row] = (byte) kindCode;
+        stacks[row] = Math.min(newStacks, MAX_STACKS);
+        remaining[row] = duration;
+        damage[row] = perStack;
+        rowOf[id * KINDS + kindCode] = row;
+    }
+
+    /**
+     * Removes one of a target's effects, if it has it.
+     *
+     * @param id       the target id
+     * @param kindCode the effect kind
+     * Precondition: id >= 0; 0 <= kindCode < KINDS.
+     * Postcondition: the effect is not active on the target.
+     */
+    public void remove(int id, int kindCode) {
+        int row = rowFor(id, kindCode);
+        if (row == NONE) {
+            return;
+        }
+        rowOf[id * KINDS + kindCode] = NONE;
+        size--;
+        if (row != size) {
+            moveRow(size, row);
+        }
+    }
+
+    /**
+     * Removes every effect on a target.
+     *
+     * @param id the target id
+     * Precondition: id >= 0.
+     * Postcondition: the target has no active effect.
+     */
+    public void removeAll(int id) {
+        for (int k = 0; k < KINDS; k++) {
+            remove(id, k);
+        }
+    }
+
+    /**
+     * Removes every effect.
+     *
+     * Precondition: none.
+     * Postcondition: size() == 0.
+     */
+    public void clear() {
+        for (int row = 0; row < size; row++) {
+            rowOf[target[row] * KINDS + kind[row]] = NONE;
+        }
+        size = 0;
+        expiredCount = 0;
+    }
+
+    /**
+     * Deals one tick of damage and then ages every effect; see
+     * dealDamage() and expire().
+     *
+     * @param vitality the vitality of every target, by id
+     * @return total damage dealt
+     * Precondition: vitality covers every target in the table.
+     * Postcondition: effects that ran out are removed.
+     */
+    public long tick(int[] vitality) {
+        long total = dealDamage(vitality);
+        expire();
+        return total;
+    }
+
+    /**
+     * Ticks the effects on Monster objects. The affected monsters'
+     * vitality is gathered into a scratch array, damaged in one pass and
+     * written back, and monsters whose poison ran out have it cleared.
+     *
+     * @param fighters the monsters, by target id
+     * @param vitality scratch space, at least fighters.length long
+     * @return total damage dealt
+     * Precondition: fighters covers every target in the table.
+     * Postcondition: effects that ran out are removed.
+     */
+    public long tick(Monster[] fighters, int[] vitality) {
+        for (int row = 0; row < size; row++) {
+            vitality[target[row]] = fighters[target[row]].getVitality();
+        }
+        long total = dealDamage(vitality);
+        for (int row = 0; row < size; row++) {
+            fighters[target[row]].setVitality(vitality[target[row]]);
+        }
+        int expired = expire();
+        for (int i = 0; i < expired; i++) {
+            if (expiredKind[i] == POISON) {
+                fighters[expiredTarget[i]].clearPoison();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Brings a monster's poison row in line with its poison flag: a
+     * standing monster that was poisoned gets one default stack, and a
+     * monster that was cured or knocked down loses its row.
+     *
+     * @param id      the monster's target id
+     * @param fighter the monster
+     * Precondition: id >= 0; fighter not null.
+     * Postcondition: the monster has a poison row exactly when it is
+     *                poisoned and standing.
+     */
+    public void track(int id, Monster fighter) {
+        boolean poisoned = fighter.isPoisoned() && fighter.getVitality() > 0;
+        if (poisoned && !has(id, POISON)) {
+            apply(id, POISON, 1);
+        } else if (!poisoned) {
+            remove(id, POISON);
+        }
+    }
+
+    /**
+     * Subtracts the damage of every effect from its target's vitality.
+     * Vitality may drop to zero or below, as it does from an attack.
+     *
+     * @param vitality the vitality of every target, by id
+     * @return total damage dealt
+     * Precondition: vitality covers every target in the table.
+     * Postcondition: the effects themselves are unchanged.
+     */
+    public long dealDamage(int[] vitality) {
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            int hit = stacks[row] * damage[row];
+            vitality[target[row]] -= hit;
+            total += hit;
+        }
+        return total;
+    }
+
+    /**
+     * Takes one tick off every effect and removes the ones that ran
+     * out. Their targets and kinds can be read back with
+     * getExpiredTarget() and getExpiredKind() until the next call.
+     *
+     * @return the number of effects that expired
+     * Precondition: none.
+     * Postcondition: every remaining effect has at least one tick left.
+     */
+    public int expire() {
+        expiredCount = 0;
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (--remaining[row] > 0) {
+                if (kept != row) {
+                    moveRow(row, kept);
+                }
+                kept++;
+            } else {
+                expiredTarget[expiredCount] = target[row];
+                expiredKind[expiredCount] = kind[row];
+                expiredCount++;
+                rowOf[target[row] * KINDS + kind[row]] = NONE;
+            }
+        }
+        size = kept;
+        return expiredCount;
+    }
+
+    /**
+     * Returns the target of an effect removed by the last expire().
+     *
+     * @param i index among the expired effects
+     * @return the target id
+     * Precondition: 0 <= i < the value expire() returned.
+     * Postcondition: none.
+     */
+    public int getExpiredTarget(int i) {
+        return expiredTarget[i];
+    }
+
+    /**
+     * Returns the kind of an effect removed by the last expire().
+     *
+     * @param i index among the expired effects
+     * @return the effect kind
+     * Precondition: 0 <= i < the value expire() returned.
+     * Postcondition: none.
+     */
+    public int getExpiredKind(int i) {
+        return expiredKind[i];
+    }
+
+    /**
+     * Returns the row of a target's effect.
+     *
+     * @param id       the target id
+     * @param kindCode the effect kind
+     * @return the row, or -1 if the effect is not active
+     * Precondition: id >= 0; 0 <= kindCode < KINDS.
+     * Postcondition: none.
+     */
+    private int rowFor(int id, int kindCode) {
+        int slot = id * KINDS + kindCode;
+        return slot < rowOf.length ? rowOf[slot] : NONE;
+    }
+
+    /**
+     * Copies one row over another.
+     *
+     * @param from the source row
+     * @param to   the destination row
+     * Precondition: both rows < target.length.
+     * Postcondition: the moved effect's rowOf entry is to.
+     */
+    private void moveRow(int from, int to) {
+        target[to] = target[from];
+        kind[to] = kind[from];
+        stacks[to] = stacks[from];
+        remaining[to] = remaining[from];
+        damage[to] = damage[from];
+        rowOf[target[to] * KINDS + kind[to]] = to;
+    }
+
+    /**
+     * Doubles every row column.
+     *
+     * Precondition: none.
+     * Postcondition: capacity is doubled.
+     */
+    private void grow() {
+        int capacity = target.length * 2;
+        target = Arrays.copyOf(target, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        stacks = Arrays.copyOf(stacks, capacity);
+        remaining = Arrays.copyOf(remaining, capacity);
+        damage = Arrays.copyOf(damage, capacity);
+        expiredTarget = Arrays.copyOf(expiredTarget, capacity);
+        expiredKind = Arrays.copyOf(expiredKind, capacity);
+    }
+}
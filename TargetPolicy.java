@@ -0,0 +1,48 @@
+/**
+ * Chooses whom a melee combatant targets. MeleeEngine keeps every team
+ * in one contiguous range of combatant indices, so the enemies of a
+ * combatant are the standing combatants outside its team's range.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public interface TargetPolicy {
+
+    /**
+     * Targets a uniformly random standing enemy.
+     */
+    TargetPolicy RANDOM = (standing, teamStart, teamEnd, random) -> {
+        int allies = standing.standing(teamStart, teamEnd);
+        int enemies = standing.standing() - allies;
+        if (enemies == 0) {
+            return -1;
+        }
+        int k = random.nextInt(enemies);
+        if (k >= standing.standing(0, teamStart)) {
+            k += allies;
+        }
+        return standing.nthStanding(k);
+    };
+
+    /**
+     * Targets the standing enemy with the lowest vitality.
+     */
+    TargetPolicy WEAKEST = (standing, teamStart, teamEnd, random) ->
+        standing.weakestOutside(teamStart, teamEnd);
+
+    /**
+     * Chooses a target for a combatant of the team occupying indices
+     * [teamStart, teamEnd).
+     *
+     * @param standing  the standing combatants
+     * @param teamStart first index of the combatant's team
+     * @param teamEnd   index after the combatant's team
+     * @param random    the melee's random source
+     * @return index of a standing enemy, or -1 if none is left
+     * Precondition: arguments not null; teamStart <= teamEnd.
+     * Postcondition: none.
+     */
+    int choose(CombatantIndex standing, int teamStart, int teamEnd,
+               RandomSource random);
+}
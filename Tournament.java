@@ -0,0 +1,245 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+/**
+ * Ranks a roster of monsters by running a round-robin tournament: every
+ * pair of monsters duels once per seed, with sides swapped on every
+ * other seed so neither monster always attacks first. Duels use fresh
+ * deep copies of the roster, so the prototypes are never modified.
+ *
+ * The duels are split across a fork-join pool. Each task keeps its own
+ * tally array and tallies are only added together when tasks join, so
+ * worker threads never write to shared counters.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class Tournament {
+    public static final int MAX_ROUNDS = 10000;
+    private static final int LEAF_SIZE = 64;
+    private static final int COLUMNS = 3;
+    private static final int WINS = 0;
+    private static final int TIES = 1;
+    private static final int LOSSES = 2;
+
+    /**
+     * Prevents instantiation of the Tournament
+     * class since it only provides static methods.
+     *
+     * Precondition: none.
+     * Postcondition: Tournament cannot be instantiated.
+     */
+    private Tournament() {
+    }
+
+    /**
+     * Runs a round-robin tournament on the common fork-join pool.
+     *
+     * @param roster          the monsters taking part (not modified)
+     * @param seedsPerPairing how many duels each pair fights
+     * @param seed            the 64-bit seed of the tournament
+     * @return standings ordered from best to worst
+     * Precondition: roster not null and has at least two monsters;
+     *               seedsPerPairing > 0.
+     * Postcondition: roster monsters are unchanged.
+     */
+    public static List<Standing> roundRobin(List<? extends Monster> roster,
+                                            int seedsPerPairing, long seed) {
+        return roundRobin(roster, seedsPerPairing, seed,
+                          ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs a round-robin tournament on the given pool.
+     *
+     * @param roster          the monsters taking part (not modified)
+     * @param seedsPerPairing how many duels each pair fights
+     * @param seed            the 64-bit seed of the tournament
+     * @param pool            the pool that runs the duels
+     * @return standings ordered from best to worst
+     * Precondition: arguments not null; roster has at least two
+     *               monsters; seedsPerPairing > 0.
+     * Postcondition: roster monsters are unchanged.
+     */
+    public static List<Standing> roundRobin(List<? extends Monster> roster,
+                                            int seedsPerPairing, long seed,
+                                            ForkJoinPool pool) {
+        Monster[] seats = roster.toArray(new Monster[0]);
+        int pairs = seats.length * (seats.length - 1) / 2;
+        int[] leftSeat = new int[pairs];
+        int[] rightSeat = new int[pairs];
+        int pair = 0;
+        for (int i = 0; i < seats.length; i++) {
+            for (int j = i + 1; j < seats.length; j++) {
+                leftSeat[pair] = i;
+                rightSeat[pair] = j;
+                pair++;
+            }
+        }
+        long duels = (long) pairs * seedsPerPairing;
+        long[] tally = pool.invoke(new MatchTask(seats, leftSeat, rightSeat,
+                                                 seedsPerPairing, seed,
+                                                 0, duels));
+        List<Standing> standings = new ArrayList<>();
+        for (int i = 0; i < seats.length; i++) {
+            standings.add(new Standing(i, seats[i],
+                                       tally[i * COLUMNS + WINS],
+                                       tally[i * COLUMNS + TIES],
+                                       tally[i * COLUMNS + LOSSES]));
+        }
+        Collections.sort(standings);
+        return standings;
+    }
+
+    /**
+     * Formats standings as a ranked table, one row per monster.
+     *
+     * @param standings standings as returned by roundRobin()
+     * @return the table as a multi-line string
+     * Precondition: standings not null.
+     * Postcondition: none.
+     */
+    public static String formatStandings(List<Standing> standings) {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-5s %-16s %8s %8s %8s %8s%n",
+                                   "Rank", "Monster", "W", "T", "L", "Pts"));
+        for (int i = 0; i < standings.size(); i++) {
+            Standing row = standings.get(i);
+            table.append(String.format("%-5d %-16s %8d %8d %8d %8d%n",
+                                       i + 1,
+                                       row.getMonster().getClass().getName()
+                                       + " #" + row.getSeat(),
+                                       row.getWins(), row.getTies(),
+                                       row.getLosses(), row.getPoints()));
+        }
+        return table.toString();
+    }
+
+    /**
+     * Runs the duels with indices in [start, end). Duel k is pairing
+     * k / seedsPerPairing with seed index k % seedsPerPairing.
+     */
+    @SuppressWarnings("serial")
+    private static class MatchTask extends RecursiveTask<long[]> {
+        private final Monster[] seats;
+        private final int[] leftSeat;
+        private final int[] rightSeat;
+        private final int seedsPerPairing;
+        private final long seed;
+        private final long start;
+        private final long end;
+
+        /**
+         * Constructs a MatchTask.
+         *
+         * @param seats           the roster prototypes
+         * @param leftSeat        first seat of every pairing
+         * @param rightSeat       second seat of every pairing
+         * @param seedsPerPairing duels per pairing
+         * @param seed            the tournament seed
+         * @param start           first duel index (inclusive)
+         * @param end             last duel index (exclusive)
+         */
+        MatchTask(Monster[] seats, int[] leftSeat, int[] rightSeat,
+                  int seedsPerPairing, long seed, long start, long end) {
+            this.seats = seats;
+            this.leftSeat = leftSeat;
+            this.rightSeat = rightSeat;
+            this.seedsPerPairing = seedsPerPairing;
+            this.seed = seed;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Runs or splits this range of duels.
+         *
+         * @return wins, ties and losses for every seat, three per seat
+         */
+        @Override
+        protected long[] compute() {
+            if (end - start <= LEAF_SIZE) {
+                long[] tally = new long[seats.length * COLUMNS];
+                Monster[] fighters = new Monster[seats.length];
+                MonsterSnapshot[] starts = new MonsterSnapshot[seats.length];
+                for (long k = start; k < end; k++) {
+                    play(k, tally, fighters, starts);
+                }
+                return tally;
+            }
+            long middle = (start + end) >>> 1;
+            MatchTask left = new MatchTask(seats, leftSeat, rightSeat,
+                                           seedsPerPairing, seed,
+                                           start, middle);
+            MatchTask right = new MatchTask(seats, leftSeat, rightSeat,
+                                            seedsPerPairing, seed,
+                                            middle, end);
+            left.fork();
+            long[] tally = right.compute();
+            long[] leftTally = left.join();
+            for (int i = 0; i < tally.length; i++) {
+                tally[i] += leftTally[i];
+            }
+            return tally;
+        }
+
+        /**
+         * Plays duel k and records its outcome in tally.
+         *
+         * @param k        the duel index
+         * @param tally    this task's tally
+         * @param fighters this task's copies of the seats, made on demand
+         * @param starts   snapshots of the fighters before any duel
+         */
+        private void play(long k, long[] tally, Monster[] fighters,
+                          MonsterSnapshot[] starts) {
+            int pair = (int) (k / seedsPerPairing);
+            int round = (int) (k % seedsPerPairing);
+            int first = leftSeat[pair];
+            int second = rightSeat[pair];
+            if (round % 2 == 1) {
+                first = rightSeat[pair];
+                second = leftSeat[pair];
+            }
+            RandomSource random =
+                new XoroshiroRandomSource(OddsEstimator.trialSeed(seed, k));
+            ShowdownResult result = ShowdownEngine.run(
+                fighter(first, fighters, starts),
+                fighter(second, fighters, starts), random, MAX_ROUNDS);
+            if (result.getWinner() == ShowdownEngine.LEFT) {
+                tally[first * COLUMNS + WINS]++;
+                tally[second * COLUMNS + LOSSES]++;
+            } else if (result.getWinner() == ShowdownEngine.RIGHT) {
+                tally[second * COLUMNS + WINS]++;
+                tally[first * COLUMNS + LOSSES]++;
+            } else {
+                tally[first * COLUMNS + TIES]++;
+                tally[second * COLUMNS + TIES]++;
+            }
+        }
+
+        /**
+         * Returns this task's fighter for a seat, reset to the seat's
+         * starting state. The fighter is copied from the seat the first
+         * time and restored from its snapshot after that.
+         *
+         * @param seat     the seat index
+         * @param fighters this task's copies of the seats
+         * @param starts   snapshots of the fighters before any duel
+         * @return the fighter, ready for a duel
+         */
+        private Monster fighter(int seat, Monster[] fighters,
+                                MonsterSnapshot[] starts) {
+            if (fighters[seat] == null) {
+                fighters[seat] = seats[seat].copy();
+                starts[seat] = fighters[seat].snapshot();
+            } else {
+                fighters[seat].restore(starts[seat]);
+            }
+            return fighters[seat];
+        }
+    }
+}
@@ -0,0 +1,421 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+/**
+ * Balances monsters with a genetic algorithm. A Tuner holds a field of
+ * opponents; the fitness of a Genome is how close its win rate against
+ * that field comes to one half, from 1 for an even split down to 0 for
+ * winning or losing every duel. evolve() breeds a population of genomes
+ * with elitism, tournament selection, uniform crossover and mutation,
+ * and balance() tunes every monster of a roster against the others.
+ *
+ * Every genome fights the same duels: duel k against each opponent is
+ * seeded from the tuner seed and k alone, and sides swap on every other
+ * duel. A genome's fitness therefore depends only on its genes, so it is
+ * cached by Genome.key() and elites and repeated children are never
+ * played again. When the cache would grow past CACHE_LIMIT, every
+ * genome outside the population being scored is evicted, which keeps
+ * long runs in bounded memory without losing the current elites.
+ *
+ * A generation's uncached genomes are played together on a fork-join
+ * pool. As in Tournament, each task keeps its own tally array and
+ * tallies are only added together when tasks join.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class Tuner {
+    public static final int MAX_ROUNDS = 10000;
+    public static final int CACHE_LIMIT = 1 << 20;
+    public static final double MUTATION_RATE = 0.25;
+    private static final int LEAF_SIZE = 64;
+    private static final int SELECTION_SIZE = 3;
+    private static final int ELITE_DIVISOR = 10;
+    private static final int POINTS_PER_WIN = 2;
+    private static final long EVOLUTION_STREAM = 0x5DEECE66DL;
+
+    private final Monster[] field;
+    private final int duels;
+    private final long seed;
+    private final ForkJoinPool pool;
+    private final int cacheLimit;
+    private final Map<Long, Double> winRates = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a Tuner that plays on the common fork-join pool.
+     *
+     * @param field the opponents genomes are measured against
+     *              (not modified)
+     * @param duels how many duels a genome fights each opponent
+     * @param seed  the 64-bit seed of the duels and of evolution
+     * Precondition: field not null and not empty; duels > 0.
+     * Postcondition: the fitness cache is empty.
+     */
+    public Tuner(List<? extends Monster> field, int duels, long seed) {
+        this(field, duels, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a Tuner that plays on the given pool.
+     *
+     * @param field the opponents genomes are measured against
+     *              (not modified)
+     * @param duels how many duels a genome fights each opponent
+     * @param seed  the 64-bit seed of the duels and of evolution
+     * @param pool  the pool that runs the duels
+     * Precondition: arguments not null; field not empty; duels > 0.
+     * Postcondition: the fitness cache is empty.
+     */
+    public Tuner(List<? extends Monster> field, int duels, long seed,
+                 ForkJoinPool pool) {
+        this(field, duels, seed, pool, CACHE_LIMIT);
+    }
+
+    /**
+     * Constructs a Tuner whose fitness cache holds at most cacheLimit
+     * genomes beyond the population being scored.
+     *
+     * @param field      the opponents genomes are measured against
+     *                   (not modified)
+     * @param duels      how many duels a genome fights each opponent
+     * @param seed       the 64-bit seed of the duels and of evolution
+     * @param pool       the pool that runs the duels
+     * @param cacheLimit the size that triggers eviction
+     * Precondition: arguments not null; field not empty; duels > 0;
+     *               cacheLimit > 0.
+     * Postcondition: the fitness cache is empty.
+     */
+    Tuner(List<? extends Monster> field, int duels, long seed,
+          ForkJoinPool pool, int cacheLimit) {
+        this.field = field.toArray(new Monster[0]);
+        this.duels = duels;
+        this.seed = seed;
+        this.pool = pool;
+        this.cacheLimit = cacheLimit;
+    }
+
+    /**
+     * Returns the share of points a genome takes against the field,
+     * counting a win as one and a tie as one half.
+     *
+     * @param genome the genome to measure
+     * @return the win rate in [0, 1]
+     * Precondition: genome not null.
+     * Postcondition: the genome's win rate is cached.
+     */
+    public double winRate(Genome genome) {
+        Genome[] single = {genome};
+        score(single);
+        return winRates.get(genome.key());
+    }
+
+    /**
+     * Returns how balanced a genome is against the field.
+     *
+     * @param genome the genome to measure
+     * @return 1 - 2 * |winRate - 0.5|, in [0, 1]
+     * Precondition: genome not null.
+     * Postcondition: the genome's win rate is cached.
+     */
+    public double fitness(Genome genome) {
+        return fitnessOf(winRate(genome));
+    }
+
+    /**
+     * Returns the number of genomes in the fitness cache.
+     *
+     * @return cache size
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getCacheSize() {
+        return winRates.size();
+    }
+
+    /**
+     * Evolves a genome towards a 50% win rate against the field. The
+     * first population is the starting genome and mutants of it; each
+     * later one keeps the best tenth of the last (at least one genome)
+     * and fills up with mutated children of tournament-selected parents.
+     * Evolution stops early once a genome is perfectly balanced.
+     *
+     * @param start       the genome to start from
+     * @param population  genomes per generation
+     * @param generations how many generations to breed
+     * @return the fittest genome of the last generation
+     * Precondition: start not null; population > 0; generations >= 0.
+     * Postcondition: start is unchanged.
+     */
+    public Genome evolve(Genome start, int population, int generations) {
+        RandomSource random =
+            new XoroshiroRandomSource(seed ^ EVOLUTION_STREAM);
+        Genome[] current = new Genome[population];
+        current[0] = start;
+        for (int i = 1; i < population; i++) {
+            current[i] = start.mutate(random, MUTATION_RATE);
+        }
+        int elites = Math.max(1, population / ELITE_DIVISOR);
+        for (int generation = 0; generation < generations; generation++) {
+            rank(current);
+            if (fitnessOf(winRates.get(current[0].key())) == 1.0) {
+                return current[0];
+            }
+            Genome[] next = Arrays.copyOf(current, population);
+            for (int i = elites; i < population; i++) {
+                Genome first = select(current, random);
+                Genome second = select(current, random);
+                next[i] = first.crossover(second, random)
+                               .mutate(random, MUTATION_RATE);
+            }
+            current = next;
+        }
+        rank(current);
+        return current[0];
+    }
+
+    /**
+     * Tunes every monster of a roster against the rest of the roster,
+     * on the common fork-join pool.
+     *
+     * @param roster      the monsters to balance (not modified)
+     * @param population  genomes per generation
+     * @param generations how many generations to breed
+     * @param duels       how many duels a genome fights each opponent
+     * @param seed        the 64-bit seed of the duels and of evolution
+     * @return the tuned genome of each monster, in roster order
+     * Precondition: roster not null and has at least two monsters;
+     *               population > 0; generations >= 0; duels > 0.
+     * Postcondition: roster monsters are unchanged.
+     */
+    public static List<Genome> balance(List<? extends Monster> roster,
+                                       int population, int generations,
+                                       int duels, long seed) {
+        List<Genome> tuned = new ArrayList<>();
+        for (int i = 0; i < roster.size(); i++) {
+            List<Monster> others = new ArrayList<>(roster);
+            others.remove(i);
+            Tuner tuner = new Tuner(others, duels, seed);
+            tuned.add(tuner.evolve(Genome.of(roster.get(i)), population,
+                                   generations));
+        }
+        return tuned;
+    }
+
+    /**
+     * Returns the fitness of a win rate.
+     *
+     * @param winRate the win rate
+     * @return 1 - 2 * |winRate - 0.5|
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private static double fitnessOf(double winRate) {
+        return 1 - 2 * Math.abs(winRate - 0.5);
+    }
+
+    /**
+     * Sorts genomes from fittest to least fit, scoring them first.
+     * Genomes of equal fitness keep their order.
+     *
+     * @param genomes the genomes to sort
+     * Precondition: genomes not null and holds no nulls.
+     * Postcondition: genomes are sorted and their win rates cached.
+     */
+    private void rank(Genome[] genomes) {
+        double[] fitness = score(genomes);
+        Integer[] order = new Integer[genomes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(fitness[b], fitness[a]));
+        Genome[] sorted = new Genome[genomes.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = genomes[order[i]];
+        }
+        System.arraycopy(sorted, 0, genomes, 0, sorted.length);
+    }
+
+    /**
+     * Picks the fittest of SELECTION_SIZE random genomes from a ranked
+     * population.
+     *
+     * @param ranked the population, fittest first
+     * @param random the random source to draw from
+     * @return the selected genome
+     * Precondition: ranked not null and not empty.
+     * Postcondition: none.
+     */
+    private static Genome select(Genome[] ranked, RandomSource random) {
+        int best = ranked.length;
+        for (int i = 0; i < SELECTION_SIZE; i++) {
+            best = Math.min(best, random.nextInt(ranked.length));
+        }
+        return ranked[best];
+    }
+
+    /**
+     * Returns the fitness of every genome, playing the duels of the
+     * ones not yet in the cache together on the pool.
+     *
+     * @param genomes the genomes to score
+     * @return each genome's fitness
+     * Precondition: genomes not null and holds no nulls.
+     * Postcondition: the genomes' win rates are cached.
+     */
+    private double[] score(Genome[] genomes) {
+        List<Genome> missing = new ArrayList<>();
+        for (Genome genome : genomes) {
+            if (!winRates.containsKey(genome.key())
+                && !missing.contains(genome)) {
+                missing.add(genome);
+            }
+        }
+        if (!missing.isEmpty()) {
+            if (winRates.size() + missing.size() > cacheLimit) {
+                Set<Long> scored = new HashSet<>();
+                for (Genome genome : genomes) {
+                    scored.add(genome.key());
+                }
+                winRates.keySet().retainAll(scored);
+            }
+            Monster[] candidates = new Monster[missing.size()];
+            for (int i = 0; i < candidates.length; i++) {
+                candidates[i] = missing.get(i).build();
+            }
+            long total = (long) candidates.length * field.length * duels;
+            long[] points = pool.invoke(new DuelTask(candidates, 0, total));
+            long possible = (long) POINTS_PER_WIN * field.length * duels;
+            for (int i = 0; i < candidates.length; i++) {
+                winRates.put(missing.get(i).key(),
+                             (double) points[i] / possible);
+            }
+        }
+        double[] fitness = new double[genomes.length];
+        for (int i = 0; i < genomes.length; i++) {
+            fitness[i] = fitnessOf(winRates.get(genomes[i].key()));
+        }
+        return fitness;
+    }
+
+    /**
+     * Runs the duels with indices in [start, end). Duel k is candidate
+     * k / (field.length * duels) against opponent
+     * (k / duels) % field.length, with duel index k % duels.
+     */
+    @SuppressWarnings("serial")
+    private class DuelTask extends RecursiveTask<long[]> {
+        private final Monster[] candidates;
+        private final long start;
+        private final long end;
+
+        /**
+         * Constructs a DuelTask.
+         *
+         * @param candidates the candidate prototypes
+         * @param start      first duel index (inclusive)
+         * @param end        last duel index (exclusive)
+         */
+        DuelTask(Monster[] candidates, long start, long end) {
+            this.candidates = candidates;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Runs or splits this range of duels.
+         *
+         * @return points for every candidate, two per win and one per tie
+         */
+        @Override
+        protected long[] compute() {
+            if (end - start <= LEAF_SIZE) {
+                long[] points = new long[candidates.length];
+                Monster[] fighters = new Monster[candidates.length];
+                MonsterSnapshot[] starts =
+                    new MonsterSnapshot[candidates.length];
+                Monster[] opponents = new Monster[field.length];
+                MonsterSnapshot[] opponentStarts =
+                    new MonsterSnapshot[field.length];
+                for (long k = start; k < end; k++) {
+                    play(k, points, fighters, starts, opponents,
+                         opponentStarts);
+                }
+                return points;
+            }
+            long middle = (start + end) >>> 1;
+            DuelTask left = new DuelTask(candidates, start, middle);
+            DuelTask right = new DuelTask(candidates, middle, end);
+            left.fork();
+            long[] points = right.compute();
+            long[] leftPoints = left.join();
+            for (int i = 0; i < points.length; i++) {
+                points[i] += leftPoints[i];
+            }
+            return points;
+        }
+
+        /**
+         * Plays duel k and records the candidate's points.
+         *
+         * @param k              the duel index
+         * @param points         this task's points
+         * @param fighters       this task's copies of the candidates
+         * @param starts         snapshots of the candidate copies
+         * @param opponents      this task's copies of the field
+         * @param opponentStarts snapshots of the field copies
+         */
+        private void play(long k, long[] points, Monster[] fighters,
+                          MonsterSnapshot[] starts, Monster[] opponents,
+                          MonsterSnapshot[] opponentStarts) {
+            int candidate = (int) (k / ((long) field.length * duels));
+            long match = k % ((long) field.length * duels);
+            int opponent = (int) (match / duels);
+            int duel = (int) (match % duels);
+            Monster self = fighter(candidates, candidate, fighters, starts);
+            Monster other = fighter(field, opponent, opponents,
+                                    opponentStarts);
+            RandomSource random =
+                new XoroshiroRandomSource(OddsEstimator.trialSeed(seed,
+                                                                  match));
+            boolean swapped = duel % 2 == 1;
+            ShowdownResult result = swapped
+                ? ShowdownEngine.run(other, self, random, MAX_ROUNDS)
+                : ShowdownEngine.run(self, other, random, MAX_ROUNDS);
+            int won = swapped ? ShowdownEngine.RIGHT : ShowdownEngine.LEFT;
+            if (result.getWinner() == won) {
+                points[candidate] += POINTS_PER_WIN;
+            } else if (result.getWinner() == ShowdownEngine.TIE) {
+                points[candidate]++;
+            }
+        }
+
+        /**
+         * Returns this task's copy of a prototype, reset to its starting
+         * state. The copy is made the first time and restored from its
+         * snapshot after that.
+         *
+         * @param prototypes the prototypes
+         * @param index      the prototype's index
+         * @param copies     this task's copies
+         * @param starts     snapshots of the copies before any duel
+         * @return the fighter, ready for a duel
+         */
+        private Monster fighter(Monster[] prototypes, int index,
+                                Monster[] copies, MonsterSnapshot[] starts) {
+            if (copies[index] == null) {
+                copies[index] = prototypes[index].copy();
+                starts[index] = copies[index].snapshot();
+            } else {
+                copies[index].restore(starts[index]);
+            }
+            return copies[index];
+        }
+    }
+}
@@ -0,0 +1,388 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+/**
+ * A weapon a Humanoid can wield. Every weapon is interned in a registry,
+ * so a name always maps to the same Weapon object and each weapon has a
+ * small integer id. A weapon's power is a dot product of its coefficient
+ * vector with the wielder's armor, vitality, intelligence and speed.
+ *
+ * A weapon belongs to one Humanoid class and only gives power to that
+ * class and its subclasses; any other wielder gets 0, as before. Common
+ * weapons (the Stick) appear in every armory. Further weapons can be
+ * loaded from data with load(). Only register() and load() add weapons:
+ * looking up a name that was never registered finds nothing, so a
+ * mistyped weapon name cannot grow the registry.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class Weapon {
+    public static final int ARMOR = 0;
+    public static final int VITALITY = 1;
+    public static final int INTELLIGENCE = 2;
+    public static final int SPEED = 3;
+    public static final int STATS = 4;
+    private static final String COMMON_OWNER = "*";
+    private static final String COMMENT = "#";
+    private static final int FIELDS = 2 + STATS;
+
+    private static final ConcurrentHashMap<String, Weapon> BY_NAME =
+        new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class<?>, Weapon[]> ARMORIES =
+        new ConcurrentHashMap<>();
+    private static volatile Weapon[] byId = new Weapon[0];
+
+    public static final Weapon AXE = register(Bandit.class, Bandit.AXE,
+        0.0, Bandit.AXE_VITALITY, Bandit.AXE_INTELLIGENCE,
+        -Bandit.AXE_SPEED);
+    public static final Weapon CROSSBOW = register(Bandit.class,
+        Bandit.CROSSBOW, 0.0, Bandit.CROSSBOW_VITALITY,
+        Bandit.CROSSBOW_INTELLIGENCE, Bandit.CROSSBOW_SPEED);
+    public static final Weapon SHIELD = register(Bandit.class, Bandit.SHIELD,
+        Bandit.SHIELD_ARMOR, Bandit.SHIELD_VITALITY,
+        -Bandit.SHIELD_INTELLIGENCE, Bandit.SHIELD_SPEED);
+    public static final Weapon STAFF = register(Doppelganger.class,
+        Doppelganger.STAFF, 0.0, Doppelganger.STAFF_VITALITY,
+        Doppelganger.STAFF_INTELLIGENCE, -Doppelganger.STAFF_SPEED);
+    public static final Weapon DAGGER = register(Doppelganger.class,
+        Doppelganger.DAGGER, 0.0, Doppelganger.DAGGER_VITALITY,
+        Doppelganger.DAGGER_INTELLIGENCE, Doppelganger.DAGGER_SPEED);
+    public static final Weapon RAPIER = register(Doppelganger.class,
+        Doppelganger.RAPIER, Doppelganger.RAPIER_ARMOR, 0.0,
+        Doppelganger.RAPIER_INTELLIGENCE, Doppelganger.RAPIER_SPEED);
+    public static final Weapon STICK = register(null, "Stick",
+        0.0, 0.0, 0.0, 0.0);
+
+    private final String name;
+    private final int id;
+    private final Class<?> owner;
+    private final boolean common;
+    private final double[] coefficients;
+
+    /**
+     * Constructs a Weapon. Use register() instead.
+     *
+     * @param name         the weapon name
+     * @param id           the registry id
+     * @param owner        the Humanoid class that wields it, or null
+     * @param common       true if it appears in every armory
+     * @param coefficients power coefficients indexed by stat constants
+     * Precondition: coefficients.length == STATS.
+     * Postcondition: fields set accordingly.
+     */
+    private Weapon(String name, int id, Class<?> owner, boolean common,
+                   double[] coefficients) {
+        this.name = name;
+        this.id = id;
+        this.owner = owner;
+        this.common = common;
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * Registers a new weapon.
+     *
+     * @param owner        the Humanoid class that wields it, or null for a
+     *                     common weapon with no owner
+     * @param name         the weapon name
+     * @param armor        armor coefficient
+     * @param vitality     vitality coefficient
+     * @param intelligence intelligence coefficient
+     * @param speed        speed coefficient
+     * @return the registered weapon
+     * @throws IllegalArgumentException if the name is already registered
+     * Precondition: name not null.
+     * Postcondition: forName(name) returns the new weapon.
+     */
+    public static synchronized Weapon register(Class<?> owner, String name,
+                                               double armor, double vitality,
+                                               double intelligence,
+                                               double speed) {
+        double[] coefficients = new double[STATS];
+        coefficients[ARMOR] = armor;
+        coefficients[VITALITY] = vitality;
+        coefficients[INTELLIGENCE] = intelligence;
+        coefficients[SPEED] = speed;
+        return add(name, owner, owner == null, coefficients);
+    }
+
+    /**
+     * Adds a weapon to the registry.
+     *
+     * @param name         the weapon name
+     * @param owner        the owning class, or null
+     * @param common       true if it appears in every armory
+     * @param coefficients the coefficient vector
+     * @return the new weapon
+     * @throws IllegalArgumentException if the name is already registered
+     * Precondition: caller holds the Weapon class lock.
+     * Postcondition: the weapon is registered and armories are rebuilt.
+     */
+    private static Weapon add(String name, Class<?> owner, boolean common,
+                              double[] coefficients) {
+        if (BY_NAME.containsKey(name)) {
+            throw new IllegalArgumentException("weapon already registered: "
+                                               + name);
+        }
+        Weapon[] ids = byId;
+        Weapon weapon = new Weapon(name, ids.length, owner, common,
+                                   coefficients);
+        Weapon[] grown = Arrays.copyOf(ids, ids.length + 1);
+        grown[weapon.id] = weapon;
+        byId = grown;
+        BY_NAME.put(name, weapon);
+        ARMORIES.clear();
+        return weapon;
+    }
+
+    /**
+     * Returns the weapon with the given name. A name that was never
+     * registered is a miss, not a new weapon.
+     *
+     * @param name the weapon name (may be null)
+     * @return the weapon, or null if name is null or not registered
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public static Weapon forName(String name) {
+        if (name == null) {
+            return null;
+        }
+        return lookup(name);
+    }
+
+    /**
+     * Returns the registered weapon with the given name.
+     *
+     * @param name the weapon name
+     * @return the weapon, or null if no weapon has that name
+     * Precondition: name not null.
+     * Postcondition: none.
+     */
+    public static Weapon lookup(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * Returns the weapon with the given registry id.
+     *
+     * @param id the registry id
+     * @return the weapon
+     * Precondition: 0 <= id < count().
+     * Postcondition: none.
+     */
+    public static Weapon byId(int id) {
+        return byId[id];
+    }
+
+    /**
+     * Returns the number of registered weapons.
+     *
+     * @return weapon count
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public static int count() {
+        return byId.length;
+    }
+
+    /**
+     * Returns the weapons an armory offers to a Humanoid class: its own
+     * weapons in registration order followed by the common weapons.
+     * The array is cached and shared, so callers must not modify it.
+     * A missing armory is built under the registry lock, so an armory
+     * built from an older registry cannot be cached after add() clears
+     * the cache.
+     *
+     * @param owner the Humanoid class
+     * @return the armory's weapons
+     * Precondition: owner not null.
+     * Postcondition: none.
+     */
+    public static Weapon[] armoryOf(Class<?> owner) {
+        Weapon[] armory = ARMORIES.get(owner);
+        if (armory != null) {
+            return armory;
+        }
+        synchronized (Weapon.class) {
+            armory = ARMORIES.get(owner);
+            if (armory == null) {
+                ArrayList<Weapon> weapons = new ArrayList<>();
+                Weapon[] ids = byId;
+                for (Weapon weapon : ids) {
+                    if (weapon.owner == owner) {
+                        weapons.add(weapon);
+                    }
+                }
+                for (Weapon weapon : ids) {
+                    if (weapon.common) {
+                        weapons.add(weapon);
+                    }
+                }
+                armory = weapons.toArray(new Weapon[0]);
+                ARMORIES.put(owner, armory);
+            }
+            return armory;
+        }
+    }
+
+    /**
+     * Registers weapons from text data, one weapon per line:
+     * owner,name,armor,vitality,intelligence,speed. The owner is a
+     * Humanoid class name, or * for a common weapon. Blank lines and
+     * lines starting with # are skipped.
+     *
+     * @param data the weapon data
+     * @return the number of weapons registered
+     * @throws IOException if data cannot be read
+     * @throws IllegalArgumentException if a line is malformed, names an
+     *         unknown class or repeats a registered weapon
+     * Precondition: data not null.
+     * Postcondition: every weapon in data is registered.
+     */
+    public static int load(Reader data) throws IOException {
+        BufferedReader reader = new BufferedReader(data);
+        int loaded = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith(COMMENT)) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != FIELDS) {
+                throw new IllegalArgumentException("bad weapon line: " + line);
+            }
+            Class<?> owner = null;
+            if (!fields[0].trim().equals(COMMON_OWNER)) {
+                owner = humanoidClass(fields[0].trim());
+            }
+            try {
+                register(owner, fields[1].trim(),
+                         Double.parseDouble(fields[2].trim()),
+                         Double.parseDouble(fields[3].trim()),
+                         Double.parseDouble(fields[4].trim()),
+                         Double.parseDouble(fields[5].trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad weapon line: " + line,
+                                                   e);
+            }
+            loaded++;
+        }
+        return loaded;
+    }
+
+    /**
+     * Resolves a Humanoid subclass by name.
+     *
+     * @param name the class name
+     * @return the class
+     * @throws IllegalArgumentException if it is not a Humanoid class
+     * Precondition: name not null.
+     * Postcondition: none.
+     */
+    private static Class<?> humanoidClass(String name) {
+        try {
+            Class<?> owner = Class.forName(name);
+            if (Humanoid.class.isAssignableFrom(owner)) {
+                return owner;
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("unknown class: " + name, e);
+        }
+        throw new IllegalArgumentException("not a Humanoid: " + name);
+    }
+
+    /**
+     * Returns this weapon's name.
+     *
+     * @return weapon name
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns this weapon's registry id.
+     *
+     * @return id in [0, count())
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Returns the Humanoid class that wields this weapon.
+     *
+     * @return owning class, or null if no class owns it
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public Class<?> getOwner() {
+        return this.owner;
+    }
+
+    /**
+     * Returns whether this weapon gives power to a wielder class: its
+     * owner or a subclass of its owner.
+     *
+     * @param wielder the wielder's class
+     * @return true if the weapon's power counts for wielder
+     * Precondition: wielder not null.
+     * Postcondition: none.
+     */
+    public boolean givesPowerTo(Class<?> wielder) {
+        return this.owner != null && this.owner.isAssignableFrom(wielder);
+    }
+
+    /**
+     * Returns one power coefficient.
+     *
+     * @param stat ARMOR, VITALITY, INTELLIGENCE or SPEED
+     * @return the coefficient
+     * Precondition: 0 <= stat < STATS.
+     * Postcondition: none.
+     */
+    public double getCoefficient(int stat) {
+        return this.coefficients[stat];
+    }
+
+    /**
+     * Returns the power this weapon gives a wielder with the given stats.
+     *
+     * @param armor        wielder's armor
+     * @param vitality     wielder's vitality
+     * @param intelligence wielder's intelligence
+     * @param speed        wielder's speed
+     * @return the dot product of the coefficients and the stats
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    public double power(int armor, int vitality, int intelligence,
+                        double speed) {
+        double[] c = this.coefficients;
+        return c[ARMOR] * armor + c[VITALITY] * vitality
+             + c[INTELLIGENCE] * intelligence + c[SPEED] * speed;
+    }
+
+    /**
+     * Returns this weapon's name.
+     *
+     * @return weapon name
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
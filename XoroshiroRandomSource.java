@@ -0,0 +1,91 @@
+/**
+ * A RandomSource implementing the xoroshiro128++ generator. The two
+ * state words are filled from the 64-bit seed with SplitMix64, so every
+ * seed (including zero) gives a valid, reproducible sequence.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public class XoroshiroRandomSource implements RandomSource {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long MIX_1 = 0xBF58476D1CE4E5B9L;
+    private static final long MIX_2 = 0x94D049BB133111EBL;
+    private static final int SHIFT_30 = 30;
+    private static final int SHIFT_27 = 27;
+    private static final int SHIFT_31 = 31;
+    private static final int ROTATE_17 = 17;
+    private static final int ROTATE_49 = 49;
+    private static final int ROTATE_28 = 28;
+    private static final int SHIFT_21 = 21;
+    private static final int DOUBLE_BITS = 11;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long state0;
+    private long state1;
+
+    /**
+     * Constructs a source that always produces the same sequence
+     * for the same seed.
+     *
+     * @param seed the 64-bit seed
+     * Precondition: none.
+     * Postcondition: both state words are initialized from seed.
+     */
+    public XoroshiroRandomSource(long seed) {
+        long s = seed + GOLDEN_GAMMA;
+        this.state0 = mix(s);
+        s += GOLDEN_GAMMA;
+        this.state1 = mix(s);
+    }
+
+    /**
+     * SplitMix64 finalizer used to expand the seed.
+     *
+     * @param z value to mix
+     * @return mixed value
+     * Precondition: none.
+     * Postcondition: none.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> SHIFT_30)) * MIX_1;
+        z = (z ^ (z >>> SHIFT_27)) * MIX_2;
+        return z ^ (z >>> SHIFT_31);
+    }
+
+    /**
+     * Returns the next uniformly distributed long.
+     *
+     * @return any long value
+     */
+    @Override
+    public long nextLong() {
+        long s0 = this.state0;
+        long s1 = this.state1;
+        long result = Long.rotateLeft(s0 + s1, ROTATE_17) + s0;
+        s1 ^= s0;
+        this.state0 = Long.rotateLeft(s0, ROTATE_49) ^ s1 ^ (s1 << SHIFT_21);
+        this.state1 = Long.rotateLeft(s1, ROTATE_28);
+        return result;
+    }
+
+    /**
+     * Returns the next uniformly distributed double.
+     *
+     * @return a value in [0.0, 1.0)
+     */
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> DOUBLE_BITS) * DOUBLE_UNIT;
+    }
+
+    /**
+     * Creates a new, statistically independent source from this one.
+     *
+     * @return a new RandomSource
+     */
+    @Override
+    public RandomSource split() {
+        return new XoroshiroRandomSource(nextLong());
+    }
+}
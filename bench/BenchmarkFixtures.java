@@ -0,0 +1,398 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+/**
+ * Builds the seeded monsters used by the JMH benchmarks and wraps the
+ * measured calls in JDK functional interfaces. JMH only accepts
+ * benchmark classes inside a package, and packaged classes cannot see
+ * the game classes in the default package, so the benchmarks look this
+ * class up by name once during setup and then call the returned
+ * function directly.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public final class BenchmarkFixtures {
+    private static final long SEED = 1L;
+    private static final int TARGET_ARMOR = 50;
+    private static final int TARGET_VITALITY = 1000000000;
+    private static final int BATCH = 1024;
+    private static final int ROSTER_FAMILIES = 4;
+    private static final int CLONE_COLUMNS = 8;
+
+    /**
+     * Prevents instantiation of the BenchmarkFixtures
+     * class since it only provides static methods.
+     */
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Returns a function that performs one Bandit.strike() on a target
+     * whose stats are restored first, so the target never dies.
+     *
+     * @return the strike value of each call
+     */
+    public static IntSupplier banditStrike() {
+        Bandit bandit = new Bandit(10, 300, 2.0, 40, "Axe");
+        bandit.setRandomSource(new XoroshiroRandomSource(SEED));
+        Jubilex target = new Jubilex(TARGET_ARMOR, TARGET_VITALITY,
+                                     1.0, 2, 2);
+        return () -> {
+            target.setArmor(TARGET_ARMOR);
+            target.setVitality(TARGET_VITALITY);
+            return bandit.strike(target);
+        };
+    }
+
+    /**
+     * Returns a function that calculates the power of a Doppelganger
+     * with the given number of clones.
+     *
+     * @param clones number of clones to give the Doppelganger
+     * @return the power of each call
+     */
+    public static DoubleSupplier doppelgangerPower(int clones) {
+        Doppelganger leaf = new Doppelganger(20, 300, 5.0, 30, "Dagger");
+        Doppelganger doppelganger = leaf.copy();
+        for (int i = 0; i < clones; i++) {
+            doppelganger.addClone(leaf.copy());
+        }
+        return doppelganger::calculatePower;
+    }
+
+    /**
+     * Returns a function that attempts one Ochre.corrode() on a clone
+     * family in which every clone has the given number of clones too.
+     * The family is flattened into one pool of clones * (clones + 1).
+     *
+     * @param clones clones per Ochre on each of the two levels
+     * @return the corrode outcome of each call
+     */
+    public static BooleanSupplier ochreCorrode(int clones) {
+        Ochre leaf = new Ochre(5, 200, 1.0, 64, 3);
+        Ochre child = leaf.copy();
+        for (int i = 0; i < clones; i++) {
+            child.addClone(leaf.copy());
+        }
+        Ochre ochre = leaf.copy();
+        for (int i = 0; i < clones; i++) {
+            ochre.addClone(child.copy());
+        }
+        ochre.setRandomSource(new XoroshiroRandomSource(SEED));
+        return ochre::corrode;
+    }
+
+    /**
+     * Returns a function that attempts one Ochre.corrodeByDraws() on the
+     * same clone family as ochreCorrode().
+     *
+     * @param clones clones per Ochre on each of the two levels
+     * @return the corrode outcome of each call
+     */
+    public static BooleanSupplier ochreCorrodeByDraws(int clones) {
+        Ochre leaf = new Ochre(5, 200, 1.0, 64, 3);
+        Ochre child = leaf.copy();
+        for (int i = 0; i < clones; i++) {
+            child.addClone(leaf.copy());
+        }
+        Ochre ochre = leaf.copy();
+        for (int i = 0; i < clones; i++) {
+            ochre.addClone(child.copy());
+        }
+        ochre.setRandomSource(new XoroshiroRandomSource(SEED));
+        return ochre::corrodeByDraws;
+    }
+
+    /**
+     * Returns a function that performs one Jubilex.attack() on a target
+     * whose stats are restored first, so the target never dies.
+     *
+     * @return the strike value of each call
+     */
+    public static IntSupplier jubilexAttack() {
+        Jubilex jubilex = new Jubilex(5, 50, 1.0, 2, 2);
+        jubilex.setRandomSource(new XoroshiroRandomSource(SEED));
+        Bandit target = new Bandit(TARGET_ARMOR, TARGET_VITALITY,
+                                   2.0, 40, "Axe");
+        return () -> {
+            target.setArmor(TARGET_ARMOR);
+            target.setVitality(TARGET_VITALITY);
+            return jubilex.attack(target);
+        };
+    }
+
+    /**
+     * Returns a function that runs the four damage routines,
+     * Bandit.strike(), Doppelganger.strike(), Ochre.attack() and
+     * Jubilex.attack(), once each on a target whose stats are restored
+     * before every hit. Run it with and without
+     * -Dmonster.saturatingStats=true to compare the two stat modes.
+     *
+     * @return the summed strike values of each call
+     */
+    public static IntSupplier damageRoutines() {
+        Bandit bandit = new Bandit(10, 300, 2.0, 40, "Axe");
+        Doppelganger doppelganger =
+            new Doppelganger(20, 300, 5.0, 30, "Dagger");
+        Ochre ochre = new Ochre(5, 200, 1.0, 64, 3);
+        Jubilex jubilex = new Jubilex(5, 50, 1.0, 2, 2);
+        RandomSource random = new XoroshiroRandomSource(SEED);
+        bandit.setRandomSource(random);
+        doppelganger.setRandomSource(random);
+        ochre.setRandomSource(random);
+        jubilex.setRandomSource(random);
+        Bandit target = new Bandit(TARGET_ARMOR, TARGET_VITALITY,
+                                   2.0, 40, "Axe");
+        return () -> {
+            target.setArmor(TARGET_ARMOR);
+            target.setVitality(TARGET_VITALITY);
+            int total = bandit.strike(target);
+            target.setArmor(TARGET_ARMOR);
+            total += doppelganger.strike(target);
+            target.setArmor(TARGET_ARMOR);
+            total += ochre.attack(target);
+            target.setArmor(TARGET_ARMOR);
+            return total + jubilex.attack(target);
+        };
+    }
+
+    /**
+     * Returns a function that resolves a batch of hits against armor
+     * and vitality columns, either all at once with
+     * DamageKernel.strikeAll() or one hit at a time. The columns are
+     * restored before every batch.
+     *
+     * @param batched 1 to use strikeAll(), 0 for one call per hit
+     * @return the last strike value of each batch
+     */
+    public static IntSupplier damageKernel(int batched) {
+        RandomSource random = new XoroshiroRandomSource(SEED);
+        double[] min = new double[BATCH];
+        double[] max = new double[BATCH];
+        double[] draws = new double[BATCH];
+        int[] targets = new int[BATCH];
+        int[] startArmor = new int[BATCH];
+        for (int k = 0; k < BATCH; k++) {
+            min[k] = random.nextDouble() * TARGET_ARMOR;
+            max[k] = min[k] + random.nextDouble() * TARGET_ARMOR;
+            draws[k] = random.nextDouble();
+            targets[k] = random.nextInt(BATCH);
+            startArmor[k] = random.nextInt(TARGET_ARMOR);
+        }
+        int[] armor = new int[BATCH];
+        int[] vitality = new int[BATCH];
+        int[] strikes = new int[BATCH];
+        return () -> {
+            System.arraycopy(startArmor, 0, armor, 0, BATCH);
+            Arrays.fill(vitality, TARGET_VITALITY);
+            if (batched != 0) {
+                DamageKernel.strikeAll(min, max, draws, targets, BATCH,
+                                       armor, vitality, strikes);
+            } else {
+                for (int k = 0; k < BATCH; k++) {
+                    strikes[k] = DamageKernel.apply(
+                        DamageKernel.strikeValue(min[k], max[k], draws[k]),
+                        targets[k], armor, vitality);
+                }
+            }
+            return strikes[BATCH - 1];
+        };
+    }
+
+    /**
+     * Returns a function that runs one silent showdown between fresh
+     * copies of two evenly matched Bandits.
+     *
+     * @return the outcome of each call
+     */
+    public static Supplier<Object> showdown() {
+        Bandit left = new Bandit(10, 330, 2.0, 40, "Axe");
+        Bandit right = new Bandit(10, 400, 2.0, 40, "Axe");
+        RandomSource random = new XoroshiroRandomSource(SEED);
+        return () -> ShowdownEngine.run(left.copy(), right.copy(), random,
+                                        OddsEstimator.MAX_ROUNDS);
+    }
+
+    /**
+     * Returns a function that runs the showdown() duel with a CombatLog
+     * recording every event into a discarding sink.
+     *
+     * @return the outcome of each call
+     */
+    public static Supplier<Object> loggedShowdown() {
+        Bandit left = new Bandit(10, 330, 2.0, 40, "Axe");
+        Bandit right = new Bandit(10, 400, 2.0, 40, "Axe");
+        RandomSource random = new XoroshiroRandomSource(SEED);
+        CombatLog log = new CombatLog(OutputStream.nullOutputStream());
+        return () -> {
+            Monster monster1 = left.copy();
+            Monster monster2 = right.copy();
+            monster1.setRandomSource(random);
+            monster2.setRandomSource(random);
+            return ShowdownEngine.run(monster1, monster2, log,
+                                      OddsEstimator.MAX_ROUNDS);
+        };
+    }
+
+    /**
+     * Returns a function that writes a roster and reads it back, either
+     * with RosterCodec through a reused heap ByteBuffer or with Java
+     * serialization. Monsters are not Serializable, so the serialization
+     * path writes the same fields as rows of boxed values and rebuilds
+     * the monsters from them. The roster has four of each monster
+     * class, and each Doppelganger and Ochre has a family of clones.
+     *
+     * @param binary 1 for RosterCodec, 0 for Java serialization
+     * @return the roster read back by each call
+     */
+    public static Supplier<Object> rosterCodec(int binary) {
+        List<Monster> roster = codecRoster();
+        if (binary != 0) {
+            ByteBuffer buffer =
+                ByteBuffer.allocate(RosterCodec.maxSize(roster));
+            return () -> {
+                buffer.clear();
+                RosterCodec.writeRoster(roster, buffer);
+                buffer.flip();
+                return RosterCodec.readRoster(buffer);
+            };
+        }
+        return () -> {
+            try {
+                return deserialize(serialize(roster));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * Builds the roster of the codec benchmarks.
+     *
+     * @return the roster
+     */
+    private static List<Monster> codecRoster() {
+        RandomSource random = new XoroshiroRandomSource(SEED);
+        List<Monster> roster = new ArrayList<>();
+        for (int i = 0; i < ROSTER_FAMILIES; i++) {
+            roster.add(new Bandit(10 + i, 300, 2.0, 40, "Axe"));
+            Doppelganger doppelganger =
+                new Doppelganger(20, 300 + i, 5.0, 30, "Dagger");
+            doppelganger.setRandomSource(random);
+            doppelganger.performSpecialAbility(roster.get(0));
+            roster.add(doppelganger);
+            roster.add(new Jubilex(5, 50 + i, 1.0, 2, 2));
+            Ochre ochre = new Ochre(5, 200 + i, 1.0, 64, 3);
+            ochre.setRandomSource(random);
+            ochre.applyArmoryEffect();
+            roster.add(ochre);
+        }
+        return roster;
+    }
+
+    /**
+     * Writes a roster with Java serialization, one row of boxed fields
+     * per monster.
+     *
+     * @param roster the monsters
+     * @return the serialized bytes
+     * @throws IOException never, since the stream is in memory
+     */
+    private static byte[] serialize(List<Monster> roster)
+            throws IOException {
+        ArrayList<Object[]> rows = new ArrayList<>();
+        for (Monster monster : roster) {
+            ClonePool clones = monster.clonePool();
+            int count = clones == null ? 0 : clones.size();
+            double[][] columns = new double[count][];
+            for (int i = 0; i < count; i++) {
+                columns[i] = new double[] {clones.getArmor(i),
+                    clones.getVitality(i), clones.getSpeed(i),
+                    clones.getFirstTrait(i), clones.getSecondTrait(i),
+                    clones.getPower(i), clones.getArmorRate(i),
+                    clones.getVitalityRate(i)};
+            }
+            String weapon = monster instanceof Humanoid
+                && ((Humanoid) monster).getWeaponType() != null
+                ? ((Humanoid) monster).getWeaponType().getName() : null;
+            rows.add(new Object[] {monster.getClass().getName(),
+                monster.getArmor(), monster.getVitality(),
+                monster.getSpeed(), monster.isPoisoned(),
+                monster.firstTrait(), monster.secondTrait(), weapon,
+                columns});
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(rows);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a roster written by serialize().
+     *
+     * @param data the serialized bytes
+     * @return the monsters
+     * @throws IOException            if the bytes are malformed
+     * @throws ClassNotFoundException if a row class is missing
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Monster> deserialize(byte[] data)
+            throws IOException, ClassNotFoundException {
+        List<Object[]> rows;
+        try (ObjectInputStream in =
+                 new ObjectInputStream(new ByteArrayInputStream(data))) {
+            rows = (List<Object[]>) in.readObject();
+        }
+        List<Monster> roster = new ArrayList<>();
+        for (Object[] row : rows) {
+            Monster monster;
+            switch ((String) row[0]) {
+                case "Bandit":
+                    monster = new Bandit();
+                    break;
+                case "Doppelganger":
+                    monster = new Doppelganger();
+                    break;
+                case "Jubilex":
+                    monster = new Jubilex();
+                    break;
+                default:
+                    monster = new Ochre();
+                    break;
+            }
+            monster.setArmor((Integer) row[1]);
+            monster.setVitality((Integer) row[2]);
+            monster.setSpeed((Double) row[3]);
+            if ((Boolean) row[4]) {
+                monster.applyPoison();
+            }
+            int second = row[7] == null ? (Integer) row[6]
+                : Weapon.forName((String) row[7]).getId();
+            monster.restoreTraits((Integer) row[5], second);
+            for (double[] clone : (double[][]) row[CLONE_COLUMNS]) {
+                monster.clonePool().add((int) clone[0], (int) clone[1],
+                    clone[2], (int) clone[3], (int) clone[4], clone[5],
+                    clone[6], clone[7]);
+            }
+            roster.add(monster);
+        }
+        return roster;
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Measures Bandit.strike() against a target whose stats are restored
+ * before every strike, so the target never dies.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BanditBenchmark {
+    private IntSupplier fixture;
+
+    /**
+     * Builds the seeded fixture.
+     */
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.get(IntSupplier.class, "banditStrike");
+    }
+
+    /**
+     * Strikes the target once.
+     *
+     * @return the strike value
+     */
+    @Benchmark
+    public int strike() {
+        return fixture.getAsInt();
+    }
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+/**
+ * Runs every benchmark with the GC profiler attached, so each result
+ * reports throughput, average time and allocation rate, and writes the
+ * results as JSON.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Runs the benchmark suite.
+     *
+     * @param args optional path of the JSON result file
+     * @throws RunnerException if JMH fails to run a benchmark
+     */
+    public static void main(String[] args) throws RunnerException {
+        String result = "jmh-result.json";
+        if (args.length > 0) {
+            result = args[0];
+        }
+        Options options = new OptionsBuilder()
+            .include("benchmarks\\..*Benchmark\\.")
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(result)
+            .build();
+        new Runner(options).run();
+    }
+}
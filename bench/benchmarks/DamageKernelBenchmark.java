@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Measures resolving a batch of 1024 hits with
+ * DamageKernel.strikeAll() against one DamageKernel.apply() call per
+ * hit.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DamageKernelBenchmark {
+    private IntSupplier batched;
+    private IntSupplier perHit;
+
+    /**
+     * Builds the seeded fixtures.
+     */
+    @Setup
+    public void setUp() {
+        batched = Fixtures.get(IntSupplier.class, "damageKernel", 1);
+        perHit = Fixtures.get(IntSupplier.class, "damageKernel", 0);
+    }
+
+    /**
+     * Resolves the batch with strikeAll().
+     *
+     * @return the last strike value
+     */
+    @Benchmark
+    public int strikeAll() {
+        return batched.getAsInt();
+    }
+
+    /**
+     * Resolves the batch one hit at a time.
+     *
+     * @return the last strike value
+     */
+    @Benchmark
+    public int perHit() {
+        return perHit.getAsInt();
+    }
+}
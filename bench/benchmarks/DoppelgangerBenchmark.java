@@ -0,0 +1,53 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Measures Doppelganger.calculatePower() with 0 to 5 clones, the range
+ * the armory can produce.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoppelgangerBenchmark {
+    @Param({"0", "1", "2", "3", "4", "5"})
+    private int clones;
+    private DoubleSupplier fixture;
+
+    /**
+     * Builds the seeded fixture.
+     */
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.get(DoubleSupplier.class, "doppelgangerPower",
+                               clones);
+    }
+
+    /**
+     * Calculates the Doppelganger's total power.
+     *
+     * @return power of the Doppelganger and its clones
+     */
+    @Benchmark
+    public double calculatePower() {
+        return fixture.getAsDouble();
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+/**
+ * Looks up the factory methods of the default-package BenchmarkFixtures
+ * class, which packaged benchmark classes cannot reference directly.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+final class Fixtures {
+    private static final String FIXTURES = "BenchmarkFixtures";
+
+    /**
+     * Prevents instantiation of the Fixtures
+     * class since it only provides static methods.
+     */
+    private Fixtures() {
+    }
+
+    /**
+     * Calls a BenchmarkFixtures factory that takes no arguments.
+     *
+     * @param <T>  the type of function the factory returns
+     * @param type the type of function the factory returns
+     * @param name the factory method name
+     * @return the function built by the factory
+     */
+    static <T> T get(Class<T> type, String name) {
+        return type.cast(invoke(name, new Class<?>[0]));
+    }
+
+    /**
+     * Calls a BenchmarkFixtures factory that takes one int argument.
+     *
+     * @param <T>  the type of function the factory returns
+     * @param type the type of function the factory returns
+     * @param name the factory method name
+     * @param arg  the int argument
+     * @return the function built by the factory
+     */
+    static <T> T get(Class<T> type, String name, int arg) {
+        return type.cast(invoke(name, new Class<?>[] {int.class}, arg));
+    }
+
+    /**
+     * Invokes a static BenchmarkFixtures method by name.
+     *
+     * @param name  the method name
+     * @param types the parameter types
+     * @param args  the arguments
+     * @return the method's return value
+     */
+    private static Object invoke(String name, Class<?>[] types,
+                                 Object... args) {
+        try {
+            Method factory = Class.forName(FIXTURES).getMethod(name, types);
+            return factory.invoke(null, args);
+        } catch (ClassNotFoundException | NoSuchMethodException
+                 | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("cannot load fixture " + name, e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Measures Ochre.corrode() against the per-clone draws of
+ * Ochre.corrodeByDraws() over two-level clone families of growing size.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OchreBenchmark {
+    @Param({"0", "5", "25"})
+    private int clones;
+    private BooleanSupplier fixture;
+    private BooleanSupplier byDraws;
+
+    /**
+     * Builds the seeded fixture.
+     */
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.get(BooleanSupplier.class, "ochreCorrode", clones);
+        byDraws = Fixtures.get(BooleanSupplier.class, "ochreCorrodeByDraws",
+                               clones);
+    }
+
+    /**
+     * Attempts one corrosion.
+     *
+     * @return true if the Ochre or one of its clones corroded
+     */
+    @Benchmark
+    public boolean corrode() {
+        return fixture.getAsBoolean();
+    }
+
+    /**
+     * Attempts one corrosion with a draw per clone.
+     *
+     * @return true if the Ochre or one of its clones corroded
+     */
+    @Benchmark
+    public boolean corrodeByDraws() {
+        return byDraws.getAsBoolean();
+    }
+}
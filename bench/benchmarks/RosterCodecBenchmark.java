@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Measures a round trip of a sixteen-monster roster with clone families
+ * through RosterCodec against the same fields through Java
+ * serialization.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RosterCodecBenchmark {
+    private Supplier<?> binary;
+    private Supplier<?> serialized;
+
+    /**
+     * Builds the seeded fixtures.
+     */
+    @Setup
+    public void setUp() {
+        binary = Fixtures.get(Supplier.class, "rosterCodec", 1);
+        serialized = Fixtures.get(Supplier.class, "rosterCodec", 0);
+    }
+
+    /**
+     * Writes and reads the roster with RosterCodec.
+     *
+     * @return the roster read back
+     */
+    @Benchmark
+    public Object rosterCodec() {
+        return binary.get();
+    }
+
+    /**
+     * Writes and reads the roster with Java serialization.
+     *
+     * @return the roster read back
+     */
+    @Benchmark
+    public Object javaSerialization() {
+        return serialized.get();
+    }
+}
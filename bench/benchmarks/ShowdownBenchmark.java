@@ -0,0 +1,74 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Measures a full silent showdown between fresh copies of two evenly
+ * matched Bandits, including the cost of copying them, with and without
+ * a CombatLog recording every event, and with FightMetrics switched on.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShowdownBenchmark {
+    private Supplier<?> fixture;
+    private Supplier<?> logged;
+
+    /**
+     * Builds the seeded fixture.
+     */
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.get(Supplier.class, "showdown");
+        logged = Fixtures.get(Supplier.class, "loggedShowdown");
+    }
+
+    /**
+     * Runs one silent showdown.
+     *
+     * @return the outcome of the showdown
+     */
+    @Benchmark
+    public Object showdown() {
+        return fixture.get();
+    }
+
+    /**
+     * Runs one showdown recorded in a binary CombatLog.
+     *
+     * @return the outcome of the showdown
+     */
+    @Benchmark
+    public Object loggedShowdown() {
+        return logged.get();
+    }
+
+    /**
+     * Runs one silent showdown with FightMetrics recording every
+     * attack, deathrattle and the round count.
+     *
+     * @return the outcome of the showdown
+     */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dmonster.metrics=true")
+    public Object meteredShowdown() {
+        return fixture.get();
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/**
+ * Measures the four damage routines with plain int stats and with
+ * saturating stats. StatMath reads its mode once per JVM, so each mode
+ * runs in its own fork.
+ *
+ * Bugs: none known.
+ *
+ * @author David Do
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StatMathBenchmark {
+    private IntSupplier fixture;
+
+    /**
+     * Builds the seeded fixture.
+     */
+    @Setup
+    public void setUp() {
+        fixture = Fixtures.get(IntSupplier.class, "damageRoutines");
+    }
+
+    /**
+     * Runs every damage routine once with int stats.
+     *
+     * @return the summed strike values
+     */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dmonster.saturatingStats=false")
+    public int intStats() {
+        return fixture.getAsInt();
+    }
+
+    /**
+     * Runs every damage routine once with saturating stats.
+     *
+     * @return the summed strike values
+     */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dmonster.saturatingStats=true")
+    public int saturatingStats() {
+        return fixture.getAsInt();
+    }
+}